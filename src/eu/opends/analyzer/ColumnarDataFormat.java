@@ -0,0 +1,370 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary, column-oriented representation of the analyzer data. A file starts
+ * with a small header (magic number, version, driving task, creation time and
+ * driver) followed by an arbitrary number of chunks. Each chunk stores a block
+ * of rows as fixed-width columns (one column per field of <code>DataUnit</code>)
+ * and may be deflate-compressed. Since version 2, the reference object data is
+ * stored as length-prefixed UTF-8 bytes (instead of modified UTF-8 limited to
+ * 64 KB per row).
+ *
+ * @author agent
+ */
+public class ColumnarDataFormat
+{
+	public static final int MAGIC = 0x4F445342; // "ODSB"
+	public static final short VERSION = 2;
+	public static final String FILE_EXTENSION = ".bin";
+
+	private static final byte COMPRESSION_NONE = 0;
+	private static final byte COMPRESSION_DEFLATE = 1;
+
+
+	/**
+	 * Column data of one chunk. Only the first <code>rowCount</code> entries
+	 * of each array are valid.
+	 */
+	public static class Chunk
+	{
+		public int rowCount;
+		public long[] time;
+		public float[] xpos, ypos, zpos;
+		public float[] xrot, yrot, zrot, wrot;
+		public float[] speed, steeringWheelPos, acceleratorPedalPos, brakePedalPos;
+		public boolean[] isEngineOn;
+		public float[] xfront, yfront, zfront;
+		public String[] referenceObjectData;
+
+
+		public Chunk(int rowCount)
+		{
+			this.rowCount = rowCount;
+			time = new long[rowCount];
+			xpos = new float[rowCount];
+			ypos = new float[rowCount];
+			zpos = new float[rowCount];
+			xrot = new float[rowCount];
+			yrot = new float[rowCount];
+			zrot = new float[rowCount];
+			wrot = new float[rowCount];
+			speed = new float[rowCount];
+			steeringWheelPos = new float[rowCount];
+			acceleratorPedalPos = new float[rowCount];
+			brakePedalPos = new float[rowCount];
+			isEngineOn = new boolean[rowCount];
+			xfront = new float[rowCount];
+			yfront = new float[rowCount];
+			zfront = new float[rowCount];
+			referenceObjectData = new String[rowCount];
+		}
+	}
+
+
+	/**
+	 * Header of a binary analyzer file.
+	 */
+	public static class Header
+	{
+		public short version;
+		public String drivingTask;
+		public Date creationDate;
+		public String driverName;
+	}
+
+
+	private final boolean compress;
+	private final ByteArrayOutputStream payloadBuffer = new ByteArrayOutputStream(64*1024);
+	private final DataOutputStream payloadOut = new DataOutputStream(payloadBuffer);
+	private final Deflater deflater;
+	private byte[] compressedBuffer = new byte[64*1024];
+
+
+	/**
+	 * Creates an encoder. The internal buffers are reused for every chunk.
+	 *
+	 * @param compress
+	 * 			If true, every chunk will be deflate-compressed.
+	 */
+	public ColumnarDataFormat(boolean compress)
+	{
+		this.compress = compress;
+		this.deflater = compress? new Deflater(Deflater.BEST_SPEED) : null;
+	}
+
+
+	public static boolean isColumnarFile(File file)
+	{
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			try {
+				if(in != null)
+					in.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+
+	public static void writeHeader(DataOutputStream out, String drivingTask, Date creationDate,
+			String driverName) throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeUTF(drivingTask);
+		out.writeLong(creationDate.getTime());
+		out.writeUTF(driverName);
+	}
+
+
+	public static Header readHeader(DataInputStream in) throws IOException
+	{
+		if(in.readInt() != MAGIC)
+			throw new IOException("Not a columnar analyzer file");
+
+		short version = in.readShort();
+		if(version > VERSION)
+			throw new IOException("Unsupported columnar analyzer file version: " + version);
+
+		Header header = new Header();
+		header.version = version;
+		header.drivingTask = in.readUTF();
+		header.creationDate = new Date(in.readLong());
+		header.driverName = in.readUTF();
+		return header;
+	}
+
+
+	/**
+	 * Writes the given chunk to the given stream.
+	 *
+	 * @param out
+	 * 			Stream to write to.
+	 *
+	 * @param chunk
+	 * 			Column data to encode (only the first <code>rowCount</code> rows
+	 * 			will be written).
+	 *
+	 * @throws IOException
+	 * 			if writing fails.
+	 */
+	public void writeChunk(DataOutputStream out, Chunk chunk) throws IOException
+	{
+		int rowCount = chunk.rowCount;
+		if(rowCount == 0)
+			return;
+
+		payloadBuffer.reset();
+
+		for(int i=0; i<rowCount; i++) payloadOut.writeLong(chunk.time[i]);
+		writeColumn(chunk.xpos, rowCount);
+		writeColumn(chunk.ypos, rowCount);
+		writeColumn(chunk.zpos, rowCount);
+		writeColumn(chunk.xrot, rowCount);
+		writeColumn(chunk.yrot, rowCount);
+		writeColumn(chunk.zrot, rowCount);
+		writeColumn(chunk.wrot, rowCount);
+		writeColumn(chunk.speed, rowCount);
+		writeColumn(chunk.steeringWheelPos, rowCount);
+		writeColumn(chunk.acceleratorPedalPos, rowCount);
+		writeColumn(chunk.brakePedalPos, rowCount);
+		for(int i=0; i<rowCount; i++) payloadOut.writeBoolean(chunk.isEngineOn[i]);
+		writeColumn(chunk.xfront, rowCount);
+		writeColumn(chunk.yfront, rowCount);
+		writeColumn(chunk.zfront, rowCount);
+		for(int i=0; i<rowCount; i++) writeString(chunk.referenceObjectData[i]);
+		payloadOut.flush();
+
+		writePayload(out, rowCount);
+	}
+
+
+	private void writeColumn(float[] column, int rowCount) throws IOException
+	{
+		for(int i=0; i<rowCount; i++)
+			payloadOut.writeFloat(column[i]);
+	}
+
+
+	private void writeString(String string) throws IOException
+	{
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		payloadOut.writeInt(bytes.length);
+		payloadOut.write(bytes);
+	}
+
+
+	private void writePayload(DataOutputStream out, int rowCount) throws IOException
+	{
+		byte[] payload = payloadBuffer.toByteArray();
+
+		out.writeInt(rowCount);
+
+		if(compress)
+		{
+			deflater.reset();
+			deflater.setInput(payload);
+			deflater.finish();
+
+			int compressedLength = 0;
+			while(!deflater.finished())
+			{
+				if(compressedLength == compressedBuffer.length)
+				{
+					byte[] biggerBuffer = new byte[2*compressedBuffer.length];
+					System.arraycopy(compressedBuffer, 0, biggerBuffer, 0, compressedLength);
+					compressedBuffer = biggerBuffer;
+				}
+				compressedLength += deflater.deflate(compressedBuffer, compressedLength,
+						compressedBuffer.length - compressedLength);
+			}
+
+			out.writeByte(COMPRESSION_DEFLATE);
+			out.writeInt(payload.length);
+			out.writeInt(compressedLength);
+			out.write(compressedBuffer, 0, compressedLength);
+		}
+		else
+		{
+			out.writeByte(COMPRESSION_NONE);
+			out.writeInt(payload.length);
+			out.writeInt(payload.length);
+			out.write(payload);
+		}
+	}
+
+
+	/**
+	 * Reads the next chunk from the given stream.
+	 *
+	 * @param in
+	 * 			Stream to read from (positioned at the beginning of a chunk).
+	 *
+	 * @param version
+	 * 			Version of the file (c.f. Header).
+	 *
+	 * @return
+	 * 			Column data of the chunk or null if the end of the stream was reached.
+	 *
+	 * @throws IOException
+	 * 			if the chunk could not be read.
+	 */
+	public static Chunk readChunk(DataInputStream in, short version) throws IOException
+	{
+		int rowCount;
+		try {
+			rowCount = in.readInt();
+		} catch (java.io.EOFException e) {
+			return null;
+		}
+
+		byte compression = in.readByte();
+		int payloadLength = in.readInt();
+		int storedLength = in.readInt();
+		byte[] storedPayload = new byte[storedLength];
+		in.readFully(storedPayload);
+
+		byte[] payload;
+		if(compression == COMPRESSION_DEFLATE)
+		{
+			payload = new byte[payloadLength];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(storedPayload);
+				int length = 0;
+				while(length < payloadLength && !inflater.finished())
+					length += inflater.inflate(payload, length, payloadLength - length);
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupt chunk in columnar analyzer file", e);
+			} finally {
+				inflater.end();
+			}
+		}
+		else
+			payload = storedPayload;
+
+		DataInputStream columnIn = new DataInputStream(new ByteArrayInputStream(payload));
+		Chunk chunk = new Chunk(rowCount);
+
+		for(int i=0; i<rowCount; i++) chunk.time[i] = columnIn.readLong();
+		readColumn(columnIn, chunk.xpos);
+		readColumn(columnIn, chunk.ypos);
+		readColumn(columnIn, chunk.zpos);
+		readColumn(columnIn, chunk.xrot);
+		readColumn(columnIn, chunk.yrot);
+		readColumn(columnIn, chunk.zrot);
+		readColumn(columnIn, chunk.wrot);
+		readColumn(columnIn, chunk.speed);
+		readColumn(columnIn, chunk.steeringWheelPos);
+		readColumn(columnIn, chunk.acceleratorPedalPos);
+		readColumn(columnIn, chunk.brakePedalPos);
+		for(int i=0; i<rowCount; i++) chunk.isEngineOn[i] = columnIn.readBoolean();
+		readColumn(columnIn, chunk.xfront);
+		readColumn(columnIn, chunk.yfront);
+		readColumn(columnIn, chunk.zfront);
+		if(version < 2)
+			for(int i=0; i<rowCount; i++) chunk.referenceObjectData[i] = columnIn.readUTF();
+		else
+			for(int i=0; i<rowCount; i++) chunk.referenceObjectData[i] = readString(columnIn);
+
+		return chunk;
+	}
+
+
+	private static String readString(DataInputStream in) throws IOException
+	{
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+
+	private static void readColumn(DataInputStream in, float[] column) throws IOException
+	{
+		for(int i=0; i<column.length; i++)
+			column[i] = in.readFloat();
+	}
+
+
+	public void close()
+	{
+		if(deflater != null)
+			deflater.end();
+	}
+}
@@ -18,8 +18,11 @@
 
 package eu.opends.analyzer;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.text.ParseException;
@@ -28,7 +31,6 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedList;
 
-import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 
 import eu.opends.drivingTask.DrivingTask;
@@ -42,6 +44,9 @@ public class DataReader
 {
 	private File inFile;
 	private BufferedReader inputReader;
+	private DataInputStream binaryInputReader;
+	private short binaryFileVersion;
+	private boolean isColumnarFile = false;
 	private String nameOfDrivingTaskFile;
 	private String nameOfDriver;
 	private Date fileDate;
@@ -49,6 +54,7 @@ public class DataReader
 	private Float traveledDistance = 0f;
 	private ArrayList<Vector3f> carPositionList = new ArrayList<Vector3f>();
 	private LinkedList<DataUnit> dataUnitList = new LinkedList<DataUnit>();
+	private DriveDataTimeline timeline = new DriveDataTimeline();
 	
 	
 	public boolean initReader(String filePath, boolean verbose) 
@@ -61,6 +67,11 @@ public class DataReader
 			System.err.println("File " + inFile.toString()
 					+ " could not be found.");
 		}
+		
+		isColumnarFile = ColumnarDataFormat.isColumnarFile(inFile);
+		if(isColumnarFile)
+			return initColumnarReader(verbose);
+		
 		try {
 			inputReader = new BufferedReader(new FileReader(inFile));
 
@@ -110,62 +121,166 @@ public class DataReader
 	}
 	
 	
+	private boolean initColumnarReader(boolean verbose)
+	{
+		try {
+			binaryInputReader = new DataInputStream(new BufferedInputStream(new FileInputStream(inFile)));
+			ColumnarDataFormat.Header header = ColumnarDataFormat.readHeader(binaryInputReader);
+			
+			binaryFileVersion = header.version;
+			nameOfDrivingTaskFile = header.drivingTask;
+			fileDate = header.creationDate;
+			nameOfDriver = header.driverName;
+			
+			if(verbose)
+			{
+				System.out.println("Driving Task: " + nameOfDrivingTaskFile);
+				System.out.println("Creation Time: " + fileDate);
+				System.out.println("Driver: " + nameOfDriver);
+			}
+			
+		} catch (IOException e) {
+			//e.printStackTrace();
+			return false;
+		}
+		
+		return true;
+	}
+	
+	
+	/**
+	 * Loads all samples and creates a <code>DataUnit</code> for each of them.
+	 * For long recordings use <code>loadDriveDataTimeline()</code> instead, 
+	 * which keeps the samples in primitive arrays.
+	 * 
+	 * @return
+	 * 			true, if the data could be read.
+	 */
 	public boolean loadDriveData() 
-	{		
+	{
+		if(!loadDriveDataTimeline())
+			return false;
+		
+		for(int i=0; i<timeline.size(); i++)
+		{
+			DataUnit dataUnit = timeline.getDataUnit(i);
+			carPositionList.add(dataUnit.getCarPosition());
+			dataUnitList.add(dataUnit);
+		}
+		
+		return true;
+	}
+	
+	
+	/**
+	 * Streams all samples of the file into a <code>DriveDataTimeline</code> 
+	 * without creating an object per sample.
+	 * 
+	 * @return
+	 * 			true, if the data could be read.
+	 */
+	public boolean loadDriveDataTimeline() 
+	{
+		timeline = new DriveDataTimeline();
+		
+		boolean success;
+		if(isColumnarFile)
+			success = loadColumnarDriveData();
+		else
+			success = loadTextDriveData();
+		
+		timeline.trimToSize();
+		traveledDistance = timeline.getTotalDistance();
+		
+		return success;
+	}
+	
+	
+	private boolean loadTextDriveData() 
+	{
+		int[] separatorIndices = new int[17];
+		
 		try {
 			// get drive data
 			String inputLine = inputReader.readLine();
-			
-			Vector3f previousPos = null;
 
 			while (inputLine != null) 
 			{
-				String[] splittedLineArray = inputLine.split(":");
-				
-				Long timeStamp = Long.parseLong(splittedLineArray[0]);
-				
-				//skip splittedLineArray[1], which is a human readable time stamp 
-				
-				Vector3f carPosition = new Vector3f(Float.parseFloat(splittedLineArray[2]), 
-						Float.parseFloat(splittedLineArray[3]), Float.parseFloat(splittedLineArray[4]));
-				carPositionList.add(carPosition);
-				
-				Quaternion carRotation = new Quaternion(Float.parseFloat(splittedLineArray[5]), 
-						Float.parseFloat(splittedLineArray[6]), Float.parseFloat(splittedLineArray[7]), 
-						Float.parseFloat(splittedLineArray[8]));
-
-				Float speed = Float.parseFloat(splittedLineArray[9]);
-				
-				if(previousPos == null)
-					previousPos = carPosition;
-
-				traveledDistance += carPosition.distance(previousPos);
-				previousPos = carPosition;
-				
-				Float steeringWheelPosition = Float.parseFloat(splittedLineArray[10]);
-				
-				Float acceleratorPedalPosition = Float.parseFloat(splittedLineArray[11]);
+				// find the first 17 separators; the last field (reference objects) may 
+				// contain any character
+				int index = -1;
+				for(int k=0; k<separatorIndices.length; k++)
+				{
+					index = inputLine.indexOf(':', index+1);
+					if(index < 0)
+						throw new IOException("Invalid line in analyzer file: " + inputLine);
+					separatorIndices[k] = index;
+				}
 				
-				Float brakePedalPosition = Float.parseFloat(splittedLineArray[12]);
-				
-				Boolean isEngineOn = Boolean.parseBoolean(splittedLineArray[13]);
-				
-				Vector3f forwardPosition = new Vector3f(Float.parseFloat(splittedLineArray[14]), 
-						Float.parseFloat(splittedLineArray[15]), Float.parseFloat(splittedLineArray[16]));
-				
-				ArrayList<RecordedReferenceObject> referenceObjectList = parseRecordedReferenceData(splittedLineArray[17]);
-
-				DataUnit dataUnit = new DataUnit(new Date(timeStamp), carPosition, carRotation,
-						speed, steeringWheelPosition, acceleratorPedalPosition, brakePedalPosition,
-						isEngineOn, traveledDistance, forwardPosition, referenceObjectList);
-				dataUnitList.add(dataUnit);
+				//skip field 1, which is a human readable time stamp 
+				timeline.add(
+						Long.parseLong(inputLine.substring(0, separatorIndices[0])),
+						parseFloat(inputLine, separatorIndices, 2),
+						parseFloat(inputLine, separatorIndices, 3),
+						parseFloat(inputLine, separatorIndices, 4),
+						parseFloat(inputLine, separatorIndices, 5),
+						parseFloat(inputLine, separatorIndices, 6),
+						parseFloat(inputLine, separatorIndices, 7),
+						parseFloat(inputLine, separatorIndices, 8),
+						parseFloat(inputLine, separatorIndices, 9),
+						parseFloat(inputLine, separatorIndices, 10),
+						parseFloat(inputLine, separatorIndices, 11),
+						parseFloat(inputLine, separatorIndices, 12),
+						inputLine.startsWith("true", separatorIndices[12]+1),
+						parseFloat(inputLine, separatorIndices, 14),
+						parseFloat(inputLine, separatorIndices, 15),
+						parseFloat(inputLine, separatorIndices, 16),
+						inputLine.substring(separatorIndices[16]+1)
+						);
 				
 				inputLine = inputReader.readLine();
 			}
+			
+			inputReader.close();
 
+		} catch (Exception e) {
+			System.err.println("Could not read drive data from " + inFile.toString() 
+					+ " (sample " + (timeline.size()+1) + "): " + e);
+			return false;
+		}
+		
+		return true;
+	}
+	
+	
+	private static float parseFloat(String line, int[] separatorIndices, int field)
+	{
+		return Float.parseFloat(line.substring(separatorIndices[field-1]+1, separatorIndices[field]));
+	}
+	
+	
+	private boolean loadColumnarDriveData() 
+	{
+		try {
+			ColumnarDataFormat.Chunk chunk = ColumnarDataFormat.readChunk(binaryInputReader, binaryFileVersion);
+			while(chunk != null)
+			{
+				for(int i=0; i<chunk.rowCount; i++)
+				{
+					timeline.add(chunk.time[i], chunk.xpos[i], chunk.ypos[i], chunk.zpos[i], chunk.xrot[i], 
+							chunk.yrot[i], chunk.zrot[i], chunk.wrot[i], chunk.speed[i], chunk.steeringWheelPos[i], 
+							chunk.acceleratorPedalPos[i], chunk.brakePedalPos[i], chunk.isEngineOn[i], 
+							chunk.xfront[i], chunk.yfront[i], chunk.zfront[i], chunk.referenceObjectData[i]);
+				}
+				
+				chunk = ColumnarDataFormat.readChunk(binaryInputReader, binaryFileVersion);
+			}
+			
+			binaryInputReader.close();
 
 		} catch (IOException e) {
-			//e.printStackTrace();
+			System.err.println("Could not read drive data from " + inFile.toString() 
+					+ " (sample " + (timeline.size()+1) + "): " + e);
 			return false;
 		}
 		
@@ -173,7 +288,7 @@ public class DataReader
 	}
 	
 	
-	private ArrayList<RecordedReferenceObject> parseRecordedReferenceData(String recordedReferenceDataString)
+	static ArrayList<RecordedReferenceObject> parseRecordedReferenceData(String recordedReferenceDataString)
 	{
 		ArrayList<RecordedReferenceObject> recordedReferenceObjectList= new ArrayList<RecordedReferenceObject>();
 		
@@ -245,6 +360,12 @@ public class DataReader
 	}
 	
 	
+	public DriveDataTimeline getDriveDataTimeline()
+	{
+		return timeline;
+	}
+	
+	
 	public boolean isValidAnalyzerFile(File analyzerFile) 
 	{
 		String analyzerFilePath = analyzerFile.getPath();
@@ -18,19 +18,25 @@
 
 package eu.opends.analyzer;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URI;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 
+import eu.opends.analyzer.SampleRingBuffer.BackpressureMode;
 import eu.opends.car.Car;
 import eu.opends.tools.Util;
 
@@ -42,21 +48,65 @@ import eu.opends.tools.Util;
  * @author Saied
  * 
  */
-public class DataWriter 
+public class DataWriter implements PhysicsTickListener
 {
+	public enum RecordingFormat
+	{
+		TEXT, BINARY
+	}
+	
+	/**
+	 * Clock driving the sampling of the analyzer data.
+	 * WALL_CLOCK: samples are taken once per frame if the sampling interval has elapsed in real time.
+	 * SIMULATION_TIME: the simulated time of every frame is accumulated, one sample is written 
+	 * 		per elapsed sampling interval (sample-and-hold if the rate exceeds the frame rate).
+	 * PHYSICS_TICK: samples are taken in the physics tick, providing sub-frame resolution.
+	 */
+	public enum SamplingMode
+	{
+		WALL_CLOCK, SIMULATION_TIME, PHYSICS_TICK
+	}
+	
+	public static final float maxSamplingRate = 250f;
+	
 	private Calendar startTime = new GregorianCalendar();
 
 	/**
-	 * An array list for not having to write every row directly to file.
+	 * Number of samples the writer thread waits for before writing a chunk to file.
+	 */
+	private static final int flushThreshold = 50;
+	
+	/**
+	 * Maximum time (in ms) a sample may stay in the ring buffer before being written.
+	 */
+	private static final int maxFlushDelay = 1000;
+	
+	/**
+	 * A ring buffer for not having to write every row directly to file. Samples
+	 * are copied into it by the render thread and written to file by the writer thread.
 	 */
-	private ArrayList<DataUnit> arrayDataList;
+	private SampleRingBuffer sampleBuffer;
+	private WriterThread writerThread;
+	private volatile boolean writeErrorOccurred = false;
 	private BufferedWriter out;
+	private DataOutputStream binaryOut;
+	private ColumnarDataFormat columnarDataFormat;
+	private RecordingFormat recordingFormat;
 	private File outFile;
 	private String newLine = System.getProperty("line.separator");
-	private long lastAnalyzerDataSave;
+	private SimpleDateFormat rowDateFormat = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss.SSS");
+	private SamplingMode samplingMode = SamplingMode.WALL_CLOCK;
+	private long samplingIntervalNanos = 50000000L; // = 1000/20 ms
+	private PhysicsSpace physicsSpace;
+	
+	// all time stamps are derived from System.nanoTime() relative to the start of the writer
+	private long startNanos;
+	private long startMillis;
+	private long nextSampleNanos;
+	private long simulationTimeNanos = 0;
 	private Car car;
 	private File analyzerDataFile;
-	private boolean dataWriterEnabled = false;
+	private volatile boolean dataWriterEnabled = false;
 	private String relativeDrivingTaskPath;
 	
 	private Vector3f frontPosition = new Vector3f(0,0,0);
@@ -74,16 +124,63 @@ public class DataWriter
 
 	public DataWriter(String outputFolder, Car car, String driverName, String absoluteDrivingTaskPath, 
 			Date creationDate, int trackNumber) 
+	{
+		this(outputFolder, car, driverName, absoluteDrivingTaskPath, creationDate, trackNumber, 
+				RecordingFormat.TEXT, false, 1024, BackpressureMode.GROW);
+	}
+	
+	
+	/**
+	 * Creates a new data writer.
+	 * 
+	 * @param outputFolder
+	 * 			Folder the analyzer data file will be written to.
+	 * 
+	 * @param car
+	 * 			Car to record.
+	 * 
+	 * @param driverName
+	 * 			Name of the driver (will be written to the file header).
+	 * 
+	 * @param absoluteDrivingTaskPath
+	 * 			Path of the driving task (will be written to the file header).
+	 * 
+	 * @param creationDate
+	 * 			Creation date (if null, the current date will be used).
+	 * 
+	 * @param trackNumber
+	 * 			Number of track (negative if no track number should be added to the file name).
+	 * 
+	 * @param recordingFormat
+	 * 			TEXT writes the colon-separated carData.txt format, BINARY writes the 
+	 * 			column-oriented format defined in <code>ColumnarDataFormat</code>.
+	 * 
+	 * @param compress
+	 * 			If true, chunks of the binary format will be compressed (ignored in TEXT mode).
+	 * 
+	 * @param bufferCapacity
+	 * 			Number of preallocated sample slots between render thread and writer thread.
+	 * 
+	 * @param backpressureMode
+	 * 			Behavior if all sample slots are in use (DROP, BLOCK or GROW).
+	 */
+	public DataWriter(String outputFolder, Car car, String driverName, String absoluteDrivingTaskPath, 
+			Date creationDate, int trackNumber, RecordingFormat recordingFormat, boolean compress,
+			int bufferCapacity, BackpressureMode backpressureMode) 
 	{
 		this.car = car;
+		this.recordingFormat = recordingFormat;
 		this.relativeDrivingTaskPath = getRelativePath(absoluteDrivingTaskPath);
 		
 		Util.makeDirectory(outputFolder);
+		
+		String fileExtension = (recordingFormat == RecordingFormat.BINARY)? 
+				ColumnarDataFormat.FILE_EXTENSION : ".txt";
 
 		if(trackNumber >= 0)
-			analyzerDataFile = new File(outputFolder + "/carData_track" + trackNumber + ".txt");
+			analyzerDataFile = new File(outputFolder + "/carData_track" + trackNumber + fileExtension);
 		else
-			analyzerDataFile = new File(outputFolder + "/carData.txt");
+			analyzerDataFile = new File(outputFolder + "/carData" + fileExtension);
 
 		
 		if (analyzerDataFile.getAbsolutePath() == null) 
@@ -98,9 +195,9 @@ public class DataWriter
 		while(outFile.exists()) 
 		{
 			if(trackNumber >= 0)
-				analyzerDataFile = new File(outputFolder + "/carData_track" + trackNumber + "(" + i + ").txt");
+				analyzerDataFile = new File(outputFolder + "/carData_track" + trackNumber + "(" + i + ")" + fileExtension);
 			else
-				analyzerDataFile = new File(outputFolder + "/carData(" + i + ").txt");
+				analyzerDataFile = new File(outputFolder + "/carData(" + i + ")" + fileExtension);
 			
 			outFile = new File(analyzerDataFile.getAbsolutePath());
 			i++;
@@ -110,21 +207,77 @@ public class DataWriter
 			creationDate = new Date();
 		
 		try {
-			out = new BufferedWriter(new FileWriter(outFile));
-			out.write("Driving Task: " + relativeDrivingTaskPath + newLine);
-			out.write("Creation Time: "
-					+ new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS")
-							.format(creationDate) + newLine);
-			out.write("Driver: " + driverName + newLine);
-			out.write("Used Format = Time (ms) : Timestamp : Position (x,y,z) : Rotation (x,y,z,w) :"
-					+ " Speed (km/h) : Steering Wheel Position [-1,1] : Gas Pedal Position :"
-					+ " Brake Pedal Position : Engine Running : Front Position(x,y,z) : Reference Objects" + newLine);
+			if(recordingFormat == RecordingFormat.BINARY)
+			{
+				columnarDataFormat = new ColumnarDataFormat(compress);
+				binaryOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)));
+				ColumnarDataFormat.writeHeader(binaryOut, relativeDrivingTaskPath, creationDate, driverName);
+				binaryOut.flush();
+			}
+			else
+			{
+				out = new BufferedWriter(new FileWriter(outFile));
+				out.write("Driving Task: " + relativeDrivingTaskPath + newLine);
+				out.write("Creation Time: "
+						+ new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS")
+								.format(creationDate) + newLine);
+				out.write("Driver: " + driverName + newLine);
+				out.write("Used Format = Time (ms) : Timestamp : Position (x,y,z) : Rotation (x,y,z,w) :"
+						+ " Speed (km/h) : Steering Wheel Position [-1,1] : Gas Pedal Position :"
+						+ " Brake Pedal Position : Engine Running : Front Position(x,y,z) : Reference Objects" + newLine);
+			}
 
 		} catch (IOException e) {
 			e.printStackTrace();
+			writeErrorOccurred = true;
+		}
+		sampleBuffer = new SampleRingBuffer(bufferCapacity, backpressureMode);
+		writerThread = new WriterThread(Math.max(flushThreshold, bufferCapacity));
+		writerThread.start();
+		
+		startNanos = System.nanoTime();
+		startMillis = System.currentTimeMillis();
+		nextSampleNanos = 0;
+	}
+	
+	
+	/**
+	 * Sets the clock and the rate used for sampling the analyzer data.
+	 * 
+	 * @param samplingMode
+	 * 			Clock driving the sampling.
+	 * 
+	 * @param samplingRate
+	 * 			Samples per second (at most 250 Hz).
+	 * 
+	 * @param physicsSpace
+	 * 			Physics space to sample in (only needed in mode PHYSICS_TICK).
+	 */
+	public void setSampling(SamplingMode samplingMode, float samplingRate, PhysicsSpace physicsSpace)
+	{
+		if(samplingRate <= 0 || samplingRate > maxSamplingRate)
+		{
+			System.err.println("DataWriter: invalid sampling rate " + samplingRate + " Hz (allowed: (0, " 
+					+ maxSamplingRate + "]). Using 20 Hz instead.");
+			samplingRate = 20;
+		}
+		
+		if(this.physicsSpace != null)
+			this.physicsSpace.removeTickListener(this);
+		
+		this.samplingMode = samplingMode;
+		this.samplingIntervalNanos = Math.round(1000000000d / samplingRate);
+		this.physicsSpace = physicsSpace;
+		
+		if(samplingMode == SamplingMode.PHYSICS_TICK && physicsSpace != null)
+		{
+			float tickRate = 1f / physicsSpace.getAccuracy();
+			if(samplingRate > tickRate)
+				System.err.println("DataWriter: sampling rate " + samplingRate + " Hz exceeds physics tick rate " 
+						+ tickRate + " Hz");
+			
+			physicsSpace.addTickListener(this);
 		}
-		arrayDataList = new ArrayList<DataUnit>();
-		lastAnalyzerDataSave = (new Date()).getTime();
 	}
 	
 	
@@ -139,45 +292,83 @@ public class DataWriter
 
 
 	/**
-	 * Save the car data at a frequency of 20Hz. That class should be called in
-	 * the update-method <code>Simulator.java</code>.
+	 * Save the car data at the configured sampling rate (default: 20Hz). That 
+	 * method should be called in the update-method <code>Simulator.java</code>.
+	 * 
+	 * @param simulationStep
+	 * 			Simulated time (in seconds) since the last call.
 	 */
-	public void saveAnalyzerData() 
+	public void saveAnalyzerData(float simulationStep) 
 	{
-		int updateInterval = 50; // = 1000/20
-		
-		Date curDate = new Date();
-
-		if (curDate.getTime() - lastAnalyzerDataSave >= 2*updateInterval) 
+		if(samplingMode == SamplingMode.WALL_CLOCK)
 		{
-			lastAnalyzerDataSave = curDate.getTime() - 2*updateInterval;
+			long now = System.nanoTime() - startNanos;
+			
+			// do not catch up on samples missed during long frames
+			if (now - nextSampleNanos >= samplingIntervalNanos) 
+				nextSampleNanos = now - samplingIntervalNanos;
+			
+			if (now >= nextSampleNanos) 
+			{
+				writeCurrentState(now);
+				nextSampleNanos += samplingIntervalNanos;
+			}
 		}
+		else if(samplingMode == SamplingMode.SIMULATION_TIME)
+			advanceSimulationTime(simulationStep);
+	}
+	
+	
+	@Override
+	public void prePhysicsTick(PhysicsSpace space, float tpf) 
+	{
+	}
+
+
+	@Override
+	public void physicsTick(PhysicsSpace space, float tpf) 
+	{
+		if(dataWriterEnabled && samplingMode == SamplingMode.PHYSICS_TICK)
+			advanceSimulationTime(tpf);
+	}
+	
+	
+	private void advanceSimulationTime(float simulationStep)
+	{
+		simulationTimeNanos += Math.round(simulationStep * 1000000000d);
 		
-		
-		if (curDate.getTime() - lastAnalyzerDataSave >= updateInterval) 
+		// write one sample per elapsed sampling interval; time stamps are exact 
+		// multiples of the sampling interval on the simulation time line
+		while (simulationTimeNanos >= nextSampleNanos)
 		{
-			//System.err.println("diff: " + (curDate.getTime() - lastAnalyzerDataSave));
-			write(
-					curDate,
-					car.getPosition().x,
-					car.getPosition().y,
-					car.getPosition().z,
-					car.getRotation().getX(),
-					car.getRotation().getY(),
-					car.getRotation().getZ(),
-					car.getRotation().getW(),
-					car.getCurrentSpeedKmhRounded(),
-					car.getSteeringWheelState(),
-					car.getAcceleratorPedalIntensity(),
-					car.getBrakePedalIntensity(),
-					car.isEngineOn(),
-					frontPosition,
-					referenceObjectData
-					);
-
-			lastAnalyzerDataSave += updateInterval;
+			writeCurrentState(nextSampleNanos);
+			nextSampleNanos += samplingIntervalNanos;
 		}
-
+	}
+	
+	
+	private void writeCurrentState(long elapsedNanos)
+	{
+		Vector3f position = car.getPosition();
+		Quaternion rotation = car.getRotation();
+		
+		write(
+				startMillis + elapsedNanos/1000000L,
+				position.x,
+				position.y,
+				position.z,
+				rotation.getX(),
+				rotation.getY(),
+				rotation.getZ(),
+				rotation.getW(),
+				car.getCurrentSpeedKmhRounded(),
+				car.getSteeringWheelState(),
+				car.getAcceleratorPedalIntensity(),
+				car.getBrakePedalIntensity(),
+				car.isEngineOn(),
+				frontPosition,
+				referenceObjectData
+				);
 	}
 
 	
@@ -188,65 +379,216 @@ public class DataWriter
 			float steeringWheelState, float gasPedalState, float brakePedalState,
 			boolean isEngineOn, Vector3f frontPosition, String referenceObjectData) 
 	{
-		DataUnit row = new DataUnit(curDate, x, y, z, xRot, yRot, zRot, wRot,
-				linearSpeed, steeringWheelState, gasPedalState, brakePedalState,
-				isEngineOn, frontPosition, referenceObjectData);
-		this.write(row);
-
+		write(curDate.getTime(), x, y, z, xRot, yRot, zRot, wRot, linearSpeed, steeringWheelState, 
+				gasPedalState, brakePedalState, isEngineOn, frontPosition, referenceObjectData);
+	}
+	
+	
+	/**
+	 * Copies the given values into the next free slot of the sample buffer. 
+	 * The writer thread will write them to the file later.
+	 */
+	private void write(long timeStamp, float x, float y, float z, float xRot,
+			float yRot, float zRot, float wRot, float linearSpeed,
+			float steeringWheelState, float gasPedalState, float brakePedalState,
+			boolean isEngineOn, Vector3f frontPosition, String referenceObjectData) 
+	{
+		if(writeErrorOccurred)
+		{
+			sampleBuffer.addDroppedSamples(1);
+			return;
+		}
+		
+		sampleBuffer.put(timeStamp, x, y, z, xRot, yRot, zRot, wRot, linearSpeed, steeringWheelState, 
+				gasPedalState, brakePedalState, isEngineOn, frontPosition.getX(), frontPosition.getY(), 
+				frontPosition.getZ(), referenceObjectData);
 	}
 	
 
 	/**
-	 * Write data to the data pool. After 50 data sets, the pool is flushed to
-	 * the file.
+	 * Write data to the data pool. The writer thread flushes the pool to
+	 * the file after 50 data sets.
 	 * 
 	 * @param row
 	 * 			Datarow to write
 	 */
 	public void write(DataUnit row)
 	{
-		arrayDataList.add(row);
-		if (arrayDataList.size() > 50)
-			flush();
+		write(row.getDate().getTime(), row.getXpos(), row.getYpos(), row.getZpos(), row.getXrot(), 
+				row.getYrot(), row.getZrot(), row.getWrot(), row.getSpeed(), row.getSteeringWheelPos(), 
+				row.getAcceleratorPedalPos(), row.getBrakePedalPos(), row.isEngineOn(), 
+				row.getFrontPosition(), row.getReferenceObjectData());
+	}
+	
+	
+	/**
+	 * Thread writing the content of the sample buffer to file. Disk I/O does 
+	 * not block the render thread any more.
+	 */
+	private class WriterThread extends Thread
+	{
+		private ColumnarDataFormat.Chunk chunk;
+		private volatile boolean stopRequested = false;
+		
+		
+		public WriterThread(int chunkCapacity)
+		{
+			super("DataWriterThread");
+			setDaemon(true);
+			chunk = new ColumnarDataFormat.Chunk(chunkCapacity);
+		}
+		
+		
+		public void requestStop()
+		{
+			stopRequested = true;
+			interrupt();
+		}
+		
+		
+		public void run()
+		{
+			while(!stopRequested)
+			{
+				try {
+					sampleBuffer.awaitSamples(flushThreshold, maxFlushDelay);
+				} catch (InterruptedException e) {
+					// stop requested --> write remaining samples and quit
+				}
+				
+				flush();
+			}
+			
+			// write remaining samples
+			while(sampleBuffer.size() > 0 && !writeErrorOccurred)
+				flush();
+			
+			closeOutput();
+		}
+		
+		
+		private void flush()
+		{
+			if(sampleBuffer.drainTo(chunk) == 0)
+				return;
+			
+			if(writeErrorOccurred)
+			{
+				sampleBuffer.addDroppedSamples(chunk.rowCount);
+				return;
+			}
+			
+			try {
+				
+				if(recordingFormat == RecordingFormat.BINARY)
+					flushBinary(chunk);
+				else
+					flushText(chunk);
+				
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.err.println("DataWriter: could not write to '" + outFile.getPath() 
+						+ "'. Recording stopped.");
+				sampleBuffer.addDroppedSamples(chunk.rowCount);
+				writeErrorOccurred = true;
+			}
+		}
 	}
 	
 
-	private void flush() 
+	private void flushText(ColumnarDataFormat.Chunk chunk) throws IOException
 	{	
+		SimpleDateFormat sdf = rowDateFormat;
+		StringBuffer sb = new StringBuffer();
+		Date date = new Date();
+		for (int i=0; i<chunk.rowCount; i++)
+		{	
+			date.setTime(chunk.time[i]);
+			sb.append(chunk.time[i]).append(":").append(sdf.format(date)).append(":")
+				.append(chunk.xpos[i]).append(":").append(chunk.ypos[i]).append(":")
+				.append(chunk.zpos[i]).append(":").append(chunk.xrot[i]).append(":")
+				.append(chunk.yrot[i]).append(":").append(chunk.zrot[i]).append(":")
+				.append(chunk.wrot[i]).append(":").append(chunk.speed[i]).append(":")
+				.append(chunk.steeringWheelPos[i]).append(":").append(chunk.acceleratorPedalPos[i]).append(":")
+				.append(chunk.brakePedalPos[i]).append(":").append(chunk.isEngineOn[i]).append(":")
+				.append(chunk.xfront[i]).append(":").append(chunk.yfront[i]).append(":")
+				.append(chunk.zfront[i]).append(":").append(chunk.referenceObjectData[i]).append(newLine);
+		}
+		out.write(sb.toString());
+		out.flush();
+	}
+
+	
+	private void flushBinary(ColumnarDataFormat.Chunk chunk) throws IOException
+	{
+		columnarDataFormat.writeChunk(binaryOut, chunk);
+		binaryOut.flush();
+	}
+	
+	
+	private void closeOutput()
+	{
 		try {
-			SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss.SSS");
-			StringBuffer sb = new StringBuffer();
-			for (DataUnit r : arrayDataList)
-			{	
-				sb.append(r.getDate().getTime() + ":" + sdf.format(r.getDate()) + ":" + r.getXpos() + ":"
-						+ r.getYpos() + ":" + r.getZpos() + ":" + r.getXrot() + ":" + r.getYrot() + ":" 
-						+ r.getZrot() + ":"	+ r.getWrot() + ":" + r.getSpeed() + ":"
-						+ r.getSteeringWheelPos() + ":" + r.getAcceleratorPedalPos() + ":"
-						+ r.getBrakePedalPos() + ":" + r.isEngineOn() + ":"
-						+ r.getFrontPosition().getX() + ":" + r.getFrontPosition().getY() + ":"
-						+ r.getFrontPosition().getZ() + ":" + r.getReferenceObjectData() + newLine
-						);
-			}
-			out.write(sb.toString());
-			arrayDataList.clear();
-			out.flush();
+			if (out != null)
+				out.close();
+			
+			if (binaryOut != null)
+				binaryOut.close();
 		} catch (IOException e) {
 			e.printStackTrace();
-			System.exit(0);
 		}
+		
+		if (columnarDataFormat != null)
+			columnarDataFormat.close();
 	}
 
 	
+	/**
+	 * Stops recording, writes all buffered samples to file and closes the file.
+	 */
 	public void quit() 
 	{
 		dataWriterEnabled = false;
-		flush();
+		
+		if(physicsSpace != null)
+			physicsSpace.removeTickListener(this);
+		
+		writerThread.requestStop();
 		try {
-			if (out != null)
-				out.close();
-		} catch (IOException e) {
+			writerThread.join();
+		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
+		
+		long droppedSamples = getDroppedSampleCount();
+		if(droppedSamples > 0)
+			System.err.println("DataWriter: " + droppedSamples + " of " + sampleBuffer.getReceivedSampleCount() 
+					+ " samples have been dropped (buffer capacity: " + sampleBuffer.getCapacity() + ")");
+	}
+	
+	
+	/**
+	 * Number of samples that could not be written, either because the sample 
+	 * buffer was full (back pressure mode DROP) or writing to file failed.
+	 * 
+	 * @return
+	 * 			Number of dropped samples.
+	 */
+	public long getDroppedSampleCount()
+	{
+		return sampleBuffer.getDroppedSampleCount();
+	}
+	
+	
+	/**
+	 * Number of samples waiting in the sample buffer to be written by the writer thread.
+	 * 
+	 * @return
+	 * 			Number of pending samples.
+	 */
+	public int getPendingSampleCount()
+	{
+		return sampleBuffer.size();
 	}
 	
 
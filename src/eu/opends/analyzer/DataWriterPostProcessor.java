@@ -23,6 +23,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -78,8 +80,10 @@ public class DataWriterPostProcessor
 		
 		outFile = new File(analyzerDataFile.getAbsolutePath());
 		
+		// reserve the file name atomically, as several writers may run concurrently
+		// on recordings of the same folder (batch mode)
 		int i = 2;
-		while(outFile.exists()) 
+		while(!reserveFile(outFile)) 
 		{
 			if(trackNumber >= 0)
 				analyzerDataFile = new File(outputFolder + "/processedCarData_track" + trackNumber + "(" + i + ").txt");
@@ -115,6 +119,21 @@ public class DataWriterPostProcessor
 	}
 	
 	
+	private boolean reserveFile(File file)
+	{
+		try {
+			Files.createFile(file.toPath());
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		} catch (IOException e) {
+			// file cannot be created --> report when opening the writer
+			e.printStackTrace();
+			return true;
+		}
+	}
+	
+	
 	private String getRelativePath(String absolutePath)
 	{
 		URI baseURI = new File("./").toURI();
@@ -19,7 +19,6 @@
 package eu.opends.analyzer;
 
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 import com.jme3.math.Vector2f;
@@ -38,7 +37,7 @@ import eu.opends.main.DriveAnalyzer;
 */	
 public class DeviationComputer 
 {
-	private ArrayList<Vector3f> wayPoints;
+	private DriveDataTimeline wayPoints;
 	private Map<String, IdealTrackContainer> idealTrackMap;
 
 	
@@ -46,9 +45,9 @@ public class DeviationComputer
 	 * Creates a new deviation computer
 	 * 
 	 * @param wayPoints
-	 * 			list of way points
+	 * 			recorded drive data providing the way points
 	 */
-	public DeviationComputer(ArrayList<Vector3f> wayPoints)
+	public DeviationComputer(DriveDataTimeline wayPoints)
 	{
 		this.wayPoints = wayPoints;
 		this.idealTrackMap = DriveAnalyzer.getDrivingTask().getScenarioLoader().getIdealTrackMap();
@@ -60,20 +59,9 @@ public class DeviationComputer
 	 */
 	public void showAllWayPoints()
 	{
-		for(Vector3f wayPoint : wayPoints) 
-			System.out.println("WP: "+wayPoint.toString());
-	}
-	
-	
-	/**
-	 * Returns the list of all given way points as 3-dimensional vectors
-	 * 
-	 * @return
-	 * 			list of way points
-	 */
-	public List<Vector3f> getWayPoints()
-	{
-		return wayPoints;
+		Vector3f wayPoint = new Vector3f();
+		for(int i=0; i<wayPoints.size(); i++) 
+			System.out.println("WP: "+wayPoints.getCarPosition(i, wayPoint).toString());
 	}
 
 	
@@ -0,0 +1,311 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.util.Date;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+
+/**
+ * Recorded drive data kept in primitive, column-oriented arrays. Samples are
+ * appended in chronological order and can be accessed by index in constant
+ * time or looked up by time stamp (binary search). <code>DataUnit</code>
+ * objects are only created on demand for the samples actually displayed.
+ *
+ * @author agent
+ */
+public class DriveDataTimeline
+{
+	private int size = 0;
+
+	private long[] time;
+	private float[] xpos, ypos, zpos;
+	private float[] xrot, yrot, zrot, wrot;
+	private float[] speed, steeringWheelPos, acceleratorPedalPos, brakePedalPos;
+	private boolean[] isEngineOn;
+	private float[] xfront, yfront, zfront;
+	private float[] traveledDistance;
+	private String[] referenceObjectData;
+
+
+	public DriveDataTimeline()
+	{
+		this(1024);
+	}
+
+
+	public DriveDataTimeline(int initialCapacity)
+	{
+		allocate(Math.max(1, initialCapacity));
+	}
+
+
+	private void allocate(int capacity)
+	{
+		time = copyOf(time, capacity);
+		xpos = copyOf(xpos, capacity);
+		ypos = copyOf(ypos, capacity);
+		zpos = copyOf(zpos, capacity);
+		xrot = copyOf(xrot, capacity);
+		yrot = copyOf(yrot, capacity);
+		zrot = copyOf(zrot, capacity);
+		wrot = copyOf(wrot, capacity);
+		speed = copyOf(speed, capacity);
+		steeringWheelPos = copyOf(steeringWheelPos, capacity);
+		acceleratorPedalPos = copyOf(acceleratorPedalPos, capacity);
+		brakePedalPos = copyOf(brakePedalPos, capacity);
+		isEngineOn = copyOf(isEngineOn, capacity);
+		xfront = copyOf(xfront, capacity);
+		yfront = copyOf(yfront, capacity);
+		zfront = copyOf(zfront, capacity);
+		traveledDistance = copyOf(traveledDistance, capacity);
+		referenceObjectData = copyOf(referenceObjectData, capacity);
+	}
+
+
+	private long[] copyOf(long[] array, int capacity)
+	{
+		long[] result = new long[capacity];
+		if(array != null)
+			System.arraycopy(array, 0, result, 0, size);
+		return result;
+	}
+
+
+	private float[] copyOf(float[] array, int capacity)
+	{
+		float[] result = new float[capacity];
+		if(array != null)
+			System.arraycopy(array, 0, result, 0, size);
+		return result;
+	}
+
+
+	private boolean[] copyOf(boolean[] array, int capacity)
+	{
+		boolean[] result = new boolean[capacity];
+		if(array != null)
+			System.arraycopy(array, 0, result, 0, size);
+		return result;
+	}
+
+
+	private String[] copyOf(String[] array, int capacity)
+	{
+		String[] result = new String[capacity];
+		if(array != null)
+			System.arraycopy(array, 0, result, 0, size);
+		return result;
+	}
+
+
+	/**
+	 * Appends a sample to the end of the timeline. The traveled distance
+	 * will be accumulated from the previous sample.
+	 */
+	public void add(long timeStamp, float x, float y, float z, float xRot, float yRot, float zRot,
+			float wRot, float linearSpeed, float steeringWheelState, float gasPedalState,
+			float brakePedalState, boolean engineOn, float xFront, float yFront, float zFront,
+			String referenceObjects)
+	{
+		if(size == time.length)
+			allocate(2*size);
+
+		time[size] = timeStamp;
+		xpos[size] = x;
+		ypos[size] = y;
+		zpos[size] = z;
+		xrot[size] = xRot;
+		yrot[size] = yRot;
+		zrot[size] = zRot;
+		wrot[size] = wRot;
+		speed[size] = linearSpeed;
+		steeringWheelPos[size] = steeringWheelState;
+		acceleratorPedalPos[size] = gasPedalState;
+		brakePedalPos[size] = brakePedalState;
+		isEngineOn[size] = engineOn;
+		xfront[size] = xFront;
+		yfront[size] = yFront;
+		zfront[size] = zFront;
+
+		if(size == 0)
+		{
+			traveledDistance[size] = 0;
+			referenceObjectData[size] = referenceObjects;
+		}
+		else
+		{
+			float dx = x - xpos[size-1];
+			float dy = y - ypos[size-1];
+			float dz = z - zpos[size-1];
+			traveledDistance[size] = traveledDistance[size-1] + (float) Math.sqrt(dx*dx + dy*dy + dz*dz);
+
+			// share string instance with previous sample if equal (usually "[]")
+			if(referenceObjects.equals(referenceObjectData[size-1]))
+				referenceObjectData[size] = referenceObjectData[size-1];
+			else
+				referenceObjectData[size] = referenceObjects;
+		}
+
+		size++;
+	}
+
+
+	/**
+	 * Releases unused capacity after the last sample has been added.
+	 */
+	public void trimToSize()
+	{
+		if(size < time.length)
+			allocate(size);
+	}
+
+
+	public int size()
+	{
+		return size;
+	}
+
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+
+	/**
+	 * Looks up the index of the last sample recorded at or before the given
+	 * time stamp (binary search).
+	 *
+	 * @param timeStamp
+	 * 			Time stamp (ms) to look up.
+	 *
+	 * @return
+	 * 			Index of the sample; 0 if the time stamp precedes the first sample.
+	 */
+	public int indexOf(long timeStamp)
+	{
+		int low = 0;
+		int high = size - 1;
+
+		if(high < 0 || timeStamp < time[0])
+			return 0;
+
+		while(low < high)
+		{
+			// upper middle: converges to last index with time <= timeStamp
+			int mid = (low + high + 1) >>> 1;
+			if(time[mid] <= timeStamp)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+
+		return low;
+	}
+
+
+	public long getTime(int index)
+	{
+		return time[index];
+	}
+
+
+	public long getStartTime()
+	{
+		return size > 0 ? time[0] : 0;
+	}
+
+
+	public long getEndTime()
+	{
+		return size > 0 ? time[size-1] : 0;
+	}
+
+
+	public Vector3f getCarPosition(int index, Vector3f store)
+	{
+		if(store == null)
+			store = new Vector3f();
+
+		return store.set(xpos[index], ypos[index], zpos[index]);
+	}
+
+
+	public float getX(int index)
+	{
+		return xpos[index];
+	}
+
+
+	public float getZ(int index)
+	{
+		return zpos[index];
+	}
+
+
+	public Quaternion getCarRotation(int index, Quaternion store)
+	{
+		if(store == null)
+			store = new Quaternion();
+
+		return store.set(xrot[index], yrot[index], zrot[index], wrot[index]);
+	}
+
+
+	public float getSpeed(int index)
+	{
+		return speed[index];
+	}
+
+
+	public float getTraveledDistance(int index)
+	{
+		return traveledDistance[index];
+	}
+
+
+	public float getTotalDistance()
+	{
+		return size > 0 ? traveledDistance[size-1] : 0;
+	}
+
+
+	/**
+	 * Creates a <code>DataUnit</code> for the sample at the given index.
+	 *
+	 * @param index
+	 * 			Index of the sample.
+	 *
+	 * @return
+	 * 			New data unit containing the values of the sample.
+	 */
+	public DataUnit getDataUnit(int index)
+	{
+		Vector3f carPosition = new Vector3f(xpos[index], ypos[index], zpos[index]);
+		Quaternion carRotation = new Quaternion(xrot[index], yrot[index], zrot[index], wrot[index]);
+		Vector3f frontPosition = new Vector3f(xfront[index], yfront[index], zfront[index]);
+
+		return new DataUnit(new Date(time[index]), carPosition, carRotation, speed[index],
+				steeringWheelPos[index], acceleratorPedalPos[index], brakePedalPos[index],
+				isEngineOn[index], traveledDistance[index], frontPosition,
+				DataReader.parseRecordedReferenceData(referenceObjectData[index]));
+	}
+}
@@ -43,7 +43,7 @@ public class IdealLine
 	
 	private String id;
 	private float roadWidth = 15.0f; // length of halfway vectors (= max deviation from ideal line)
-	private ArrayList<Vector3f> wayPoints;
+	private DriveDataTimeline wayPoints;
 	private float area = 0.0f; 
 	private float length = 0.0f;
 	private IdealLineStatus status = IdealLineStatus.Complete;
@@ -52,7 +52,7 @@ public class IdealLine
 	private ArrayList<Vector3f> deviationPoints = new ArrayList<Vector3f>();
 	
 
-	public IdealLine(String id, Float roadWidth, ArrayList<Vector2f> idealPoints, ArrayList<Vector3f> wayPoints) throws Exception
+	public IdealLine(String id, Float roadWidth, ArrayList<Vector2f> idealPoints, DriveDataTimeline wayPoints) throws Exception
 	{
 		this.id = id;
 		this.wayPoints = wayPoints;
@@ -299,12 +299,11 @@ public class IdealLine
 		boolean rightValueFound = false;
 		
 		// loop is ended as soon as points on the left and right could be found 
-		for(Vector3f wayPoint : wayPoints)
+		Point2D.Float point = new Point2D.Float();
+		for(int i=0; i<wayPoints.size(); i++)
 		{
 			// get coordinates of current way point
-			float x = wayPoint.getX();
-			float z = wayPoint.getZ();
-			Point2D point = new Point2D.Float(x,z);
+			point.setLocation(wayPoints.getX(i), wayPoints.getZ(i));
 			
 			// distance of current point from line segment
 			double distance = line.ptSegDist(point);
@@ -316,13 +315,13 @@ public class IdealLine
 			// if point is already located on the line --> return this point
 			if(line.relativeCCW(point) == 0)
 			{
-				return wayPoint;
+				return wayPoints.getCarPosition(i, null);
 			}
 
 			// store distance and coordinates of the nearest point left of the line
 			if(line.relativeCCW(point) == -1)
 			{
-				leftValue = wayPoint;
+				leftValue = wayPoints.getCarPosition(i, leftValue);
 				leftDistance = (float) line.ptLineDist(point);
 				leftValueFound = true;
 			}
@@ -330,7 +329,7 @@ public class IdealLine
 			// store distance and coordinates of the nearest point right of the line
 			if(line.relativeCCW(point) == 1)
 			{
-				rightValue = wayPoint;
+				rightValue = wayPoints.getCarPosition(i, rightValue);
 				rightDistance = (float) line.ptLineDist(point);
 				rightValueFound = true;
 			}
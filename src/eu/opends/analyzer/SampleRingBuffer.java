@@ -0,0 +1,295 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+/**
+ * Bounded ring buffer of preallocated, primitive sample slots. The producer
+ * (render thread) copies the values of one sample into the next free slot,
+ * the consumer (writer thread) drains all filled slots into a
+ * <code>ColumnarDataFormat.Chunk</code>. No objects are allocated per sample
+ * (except in GROW mode when the buffer has to be enlarged).
+ *
+ * @author agent
+ */
+public class SampleRingBuffer
+{
+	/**
+	 * Behavior of the buffer if a sample is added while all slots are in use.
+	 */
+	public enum BackpressureMode
+	{
+		/** discard the new sample and increase the drop counter */
+		DROP,
+
+		/** wait until the writer thread has freed a slot */
+		BLOCK,
+
+		/** double the capacity of the buffer */
+		GROW
+	}
+
+	private BackpressureMode backpressureMode;
+	private int capacity;
+	private int head = 0;
+	private int size = 0;
+	private long droppedSampleCount = 0;
+	private long receivedSampleCount = 0;
+
+	private long[] time;
+	private float[] xpos, ypos, zpos;
+	private float[] xrot, yrot, zrot, wrot;
+	private float[] speed, steeringWheelPos, acceleratorPedalPos, brakePedalPos;
+	private boolean[] isEngineOn;
+	private float[] xfront, yfront, zfront;
+	private String[] referenceObjectData;
+
+
+	public SampleRingBuffer(int capacity, BackpressureMode backpressureMode)
+	{
+		this.capacity = Math.max(1, capacity);
+		this.backpressureMode = backpressureMode;
+		allocate(this.capacity);
+	}
+
+
+	private void allocate(int newCapacity)
+	{
+		time = new long[newCapacity];
+		xpos = new float[newCapacity];
+		ypos = new float[newCapacity];
+		zpos = new float[newCapacity];
+		xrot = new float[newCapacity];
+		yrot = new float[newCapacity];
+		zrot = new float[newCapacity];
+		wrot = new float[newCapacity];
+		speed = new float[newCapacity];
+		steeringWheelPos = new float[newCapacity];
+		acceleratorPedalPos = new float[newCapacity];
+		brakePedalPos = new float[newCapacity];
+		isEngineOn = new boolean[newCapacity];
+		xfront = new float[newCapacity];
+		yfront = new float[newCapacity];
+		zfront = new float[newCapacity];
+		referenceObjectData = new String[newCapacity];
+	}
+
+
+	/**
+	 * Adds a sample to the buffer. Depending on the back pressure mode, the
+	 * sample will be dropped, the caller will be blocked or the buffer will
+	 * be enlarged if no free slot is available.
+	 *
+	 * @return
+	 * 			true, if the sample was added; false if it was dropped.
+	 */
+	public synchronized boolean put(long timeStamp, float x, float y, float z, float xRot, float yRot,
+			float zRot, float wRot, float linearSpeed, float steeringWheelState, float gasPedalState,
+			float brakePedalState, boolean engineOn, float xFront, float yFront, float zFront,
+			String referenceObjects)
+	{
+		receivedSampleCount++;
+
+		if(size == capacity)
+		{
+			if(backpressureMode == BackpressureMode.DROP)
+			{
+				droppedSampleCount++;
+				return false;
+			}
+			else if(backpressureMode == BackpressureMode.BLOCK)
+			{
+				while(size == capacity)
+				{
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						droppedSampleCount++;
+						Thread.currentThread().interrupt();
+						return false;
+					}
+				}
+			}
+			else
+				grow();
+		}
+
+		int index = (head + size) % capacity;
+		time[index] = timeStamp;
+		xpos[index] = x;
+		ypos[index] = y;
+		zpos[index] = z;
+		xrot[index] = xRot;
+		yrot[index] = yRot;
+		zrot[index] = zRot;
+		wrot[index] = wRot;
+		speed[index] = linearSpeed;
+		steeringWheelPos[index] = steeringWheelState;
+		acceleratorPedalPos[index] = gasPedalState;
+		brakePedalPos[index] = brakePedalState;
+		isEngineOn[index] = engineOn;
+		xfront[index] = xFront;
+		yfront[index] = yFront;
+		zfront[index] = zFront;
+		referenceObjectData[index] = referenceObjects;
+		size++;
+
+		notifyAll();
+		return true;
+	}
+
+
+	private void grow()
+	{
+		int newCapacity = 2*capacity;
+
+		// keep old arrays and copy content to new (linearized) arrays
+		long[] oldTime = time;
+		float[][] oldFloats = {xpos, ypos, zpos, xrot, yrot, zrot, wrot, speed, steeringWheelPos,
+				acceleratorPedalPos, brakePedalPos, xfront, yfront, zfront};
+		boolean[] oldIsEngineOn = isEngineOn;
+		String[] oldReferenceObjectData = referenceObjectData;
+
+		allocate(newCapacity);
+
+		float[][] newFloats = {xpos, ypos, zpos, xrot, yrot, zrot, wrot, speed, steeringWheelPos,
+				acceleratorPedalPos, brakePedalPos, xfront, yfront, zfront};
+
+		for(int i=0; i<size; i++)
+		{
+			int oldIndex = (head + i) % capacity;
+			time[i] = oldTime[oldIndex];
+			for(int k=0; k<newFloats.length; k++)
+				newFloats[k][i] = oldFloats[k][oldIndex];
+			isEngineOn[i] = oldIsEngineOn[oldIndex];
+			referenceObjectData[i] = oldReferenceObjectData[oldIndex];
+		}
+
+		head = 0;
+		capacity = newCapacity;
+	}
+
+
+	/**
+	 * Blocks until at least the given number of samples is available (or the
+	 * buffer is full), the given time has elapsed or the calling thread was 
+	 * interrupted.
+	 *
+	 * @param minSamples
+	 * 			Number of samples to wait for.
+	 *
+	 * @param timeoutMillis
+	 * 			Maximum time to wait.
+	 */
+	public synchronized void awaitSamples(int minSamples, long timeoutMillis) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		long remaining = timeoutMillis;
+		while(size < Math.min(minSamples, capacity) && remaining > 0)
+		{
+			wait(remaining);
+			remaining = deadline - System.currentTimeMillis();
+		}
+	}
+
+
+	/**
+	 * Moves all available samples (up to the capacity of the given chunk)
+	 * from the buffer into the given chunk.
+	 *
+	 * @param chunk
+	 * 			Target of the samples. Its <code>rowCount</code> will be set to
+	 * 			the number of samples copied.
+	 *
+	 * @return
+	 * 			Number of samples copied.
+	 */
+	public synchronized int drainTo(ColumnarDataFormat.Chunk chunk)
+	{
+		int count = Math.min(size, chunk.time.length);
+
+		for(int i=0; i<count; i++)
+		{
+			int index = (head + i) % capacity;
+			chunk.time[i] = time[index];
+			chunk.xpos[i] = xpos[index];
+			chunk.ypos[i] = ypos[index];
+			chunk.zpos[i] = zpos[index];
+			chunk.xrot[i] = xrot[index];
+			chunk.yrot[i] = yrot[index];
+			chunk.zrot[i] = zrot[index];
+			chunk.wrot[i] = wrot[index];
+			chunk.speed[i] = speed[index];
+			chunk.steeringWheelPos[i] = steeringWheelPos[index];
+			chunk.acceleratorPedalPos[i] = acceleratorPedalPos[index];
+			chunk.brakePedalPos[i] = brakePedalPos[index];
+			chunk.isEngineOn[i] = isEngineOn[index];
+			chunk.xfront[i] = xfront[index];
+			chunk.yfront[i] = yfront[index];
+			chunk.zfront[i] = zfront[index];
+			chunk.referenceObjectData[i] = referenceObjectData[index];
+			referenceObjectData[index] = null;
+		}
+
+		head = (head + count) % capacity;
+		size -= count;
+		chunk.rowCount = count;
+
+		if(count > 0)
+			notifyAll();
+
+		return count;
+	}
+
+
+	public synchronized int size()
+	{
+		return size;
+	}
+
+
+	public synchronized int getCapacity()
+	{
+		return capacity;
+	}
+
+
+	public synchronized long getDroppedSampleCount()
+	{
+		return droppedSampleCount;
+	}
+
+
+	public synchronized long getReceivedSampleCount()
+	{
+		return receivedSampleCount;
+	}
+
+
+	/**
+	 * Counts samples that were discarded outside of the buffer (e.g. because
+	 * the writer thread failed) so that they show up in the drop counter.
+	 *
+	 * @param count
+	 * 			Number of discarded samples.
+	 */
+	public synchronized void addDroppedSamples(int count)
+	{
+		droppedSampleCount += count;
+	}
+}
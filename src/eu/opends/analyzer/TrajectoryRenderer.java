@@ -0,0 +1,227 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Mesh.Mode;
+import com.jme3.scene.Node;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Format;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.VertexBuffer.Usage;
+import com.jme3.util.BufferUtils;
+
+/**
+ * Renders the driven trajectory of a recording as a small number of batched
+ * meshes instead of one geometry per data point. The trajectory is split into
+ * chunks of consecutive data points (to allow frustum culling) and every chunk
+ * provides several levels of detail, which are decimated by driven distance.
+ * The level of detail of each chunk is selected by its distance to the camera.
+ *
+ * @author agent
+ */
+public class TrajectoryRenderer
+{
+	// maximum number of data points per chunk
+	private static final int chunkSize = 2048;
+
+	// minimum driven distance (m) between two points of the respective level of detail
+	private static final float[] lodSpacing = {0f, 1f, 5f, 25f};
+
+	// maximum camera distance (m) of the respective level of detail
+	private static final float[] lodDistance = {50f, 200f, 800f};
+
+	private ArrayList<Geometry> geometryList = new ArrayList<Geometry>();
+	private boolean lodEnabled = true;
+
+
+	/**
+	 * Creates point and line geometries for the given recording.
+	 *
+	 * @param timeline
+	 * 			Recorded drive data.
+	 *
+	 * @param pointNode
+	 * 			Node the point geometries will be attached to.
+	 *
+	 * @param pointMaterial
+	 * 			Material of the point geometries.
+	 *
+	 * @param lineNode
+	 * 			Node the line geometries will be attached to.
+	 *
+	 * @param lineMaterial
+	 * 			Material of the line geometries.
+	 */
+	public TrajectoryRenderer(DriveDataTimeline timeline, Node pointNode, Material pointMaterial,
+			Node lineNode, Material lineMaterial)
+	{
+		int size = timeline.size();
+		if(size < 2)
+			return;
+
+		// point size and line width are properties of the materials (Unshaded.j3md)
+		pointMaterial.setFloat("PointSize", 4f);
+		lineMaterial.getAdditionalRenderState().setLineWidth(4f);
+
+		int chunkNumber = 0;
+		for(int start=0; start<size-1; start+=chunkSize)
+		{
+			// overlap by one point to avoid gaps between chunks
+			int end = Math.min(start + chunkSize, size - 1);
+
+			VertexBuffer positionBuffer = createPositionBuffer(timeline, start, end);
+
+			Mesh pointMesh = createMesh(Mode.Points, positionBuffer, createLodLevels(timeline, start, end, false));
+			Geometry pointGeometry = new Geometry("drivenPoints_" + chunkNumber, pointMesh);
+			pointGeometry.setMaterial(pointMaterial);
+			pointNode.attachChild(pointGeometry);
+			geometryList.add(pointGeometry);
+
+			Mesh lineMesh = createMesh(Mode.Lines, positionBuffer, createLodLevels(timeline, start, end, true));
+			Geometry lineGeometry = new Geometry("drivenLine_" + chunkNumber, lineMesh);
+			lineGeometry.setMaterial(lineMaterial);
+			lineNode.attachChild(lineGeometry);
+			geometryList.add(lineGeometry);
+
+			chunkNumber++;
+		}
+	}
+
+
+	private VertexBuffer createPositionBuffer(DriveDataTimeline timeline, int start, int end)
+	{
+		Vector3f position = new Vector3f();
+		FloatBuffer floatBuffer = BufferUtils.createFloatBuffer(3 * (end - start + 1));
+		for(int i=start; i<=end; i++)
+		{
+			timeline.getCarPosition(i, position);
+			floatBuffer.put(position.x).put(position.y).put(position.z);
+		}
+		floatBuffer.flip();
+
+		VertexBuffer positionBuffer = new VertexBuffer(Type.Position);
+		positionBuffer.setupData(Usage.Static, 3, Format.Float, floatBuffer);
+		return positionBuffer;
+	}
+
+
+	private VertexBuffer[] createLodLevels(DriveDataTimeline timeline, int start, int end, boolean lines)
+	{
+		VertexBuffer[] lodLevels = new VertexBuffer[lodSpacing.length];
+		for(int level=0; level<lodSpacing.length; level++)
+		{
+			// select points which are at least "spacing" meters apart (keep first and last point)
+			int[] selected = new int[end - start + 1];
+			int count = 0;
+			float lastDistance = timeline.getTraveledDistance(start);
+			selected[count++] = 0;
+			for(int i=start+1; i<end; i++)
+			{
+				float distance = timeline.getTraveledDistance(i);
+				if(distance - lastDistance >= lodSpacing[level])
+				{
+					selected[count++] = i - start;
+					lastDistance = distance;
+				}
+			}
+			selected[count++] = end - start;
+
+			IntBuffer indexBuffer;
+			if(lines)
+			{
+				// one segment between each pair of consecutive points
+				indexBuffer = BufferUtils.createIntBuffer(2 * (count - 1));
+				for(int k=0; k<count-1; k++)
+					indexBuffer.put(selected[k]).put(selected[k+1]);
+			}
+			else
+			{
+				indexBuffer = BufferUtils.createIntBuffer(count);
+				indexBuffer.put(selected, 0, count);
+			}
+			indexBuffer.flip();
+
+			lodLevels[level] = new VertexBuffer(Type.Index);
+			lodLevels[level].setupData(Usage.Static, lines? 2 : 1, Format.UnsignedInt, indexBuffer);
+		}
+		return lodLevels;
+	}
+
+
+	private Mesh createMesh(Mode mode, VertexBuffer positionBuffer, VertexBuffer[] lodLevels)
+	{
+		Mesh mesh = new Mesh();
+		mesh.setMode(mode);
+		mesh.setBuffer(positionBuffer);
+		mesh.setBuffer(lodLevels[0]);
+		mesh.setLodLevels(lodLevels);
+		mesh.updateBound();
+		mesh.updateCounts();
+		return mesh;
+	}
+
+
+	/**
+	 * Selects the level of detail of every chunk according to its distance
+	 * to the given camera. Should be called once per frame.
+	 *
+	 * @param cam
+	 * 			Camera the scene is rendered with.
+	 */
+	public void update(Camera cam)
+	{
+		Vector3f camLocation = cam.getLocation();
+		for(Geometry geometry : geometryList)
+		{
+			int level = 0;
+			if(lodEnabled)
+			{
+				BoundingVolume bound = geometry.getWorldBound();
+				float distance = (bound != null)? bound.distanceToEdge(camLocation) : 0;
+				while(level < lodDistance.length && distance > lodDistance[level])
+					level++;
+			}
+
+			if(geometry.getLodLevel() != level)
+				geometry.setLodLevel(level);
+		}
+	}
+
+
+	public void toggleLevelOfDetail()
+	{
+		lodEnabled = !lodEnabled;
+	}
+
+
+	public boolean isLevelOfDetailEnabled()
+	{
+		return lodEnabled;
+	}
+}
@@ -98,17 +98,65 @@ public class AudioCenter
 	}
 
 	
-	public static void playSoundDelayed(AudioNode audioNode, int milliSeconds)
+	public static void playSoundDelayed(final AudioNode audioNode, int milliSeconds)
 	{
-		AudioDelayThread t = new AudioDelayThread(audioNode, milliSeconds, "playSound");
-		t.start();
+		Simulator.getScheduler().schedule(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				playSound(audioNode);
+			}
+		}, milliSeconds/1000f);
 	}
 	
 
 	public static void fadeOut(AudioNode audioNode, int milliSeconds) 
 	{
-		AudioDelayThread t = new AudioDelayThread(audioNode, milliSeconds, "fadeOut");
-		t.start();
+		Simulator.getScheduler().schedule(new FadeOutTask(audioNode), milliSeconds/1000f);
+	}
+	
+	
+	/**
+	 * Reduces the volume of the given audio node by 0.1 every 200 ms (simulation 
+	 * time). Finally, the sound will be stopped and the initial volume restored.
+	 */
+	private static class FadeOutTask implements Runnable
+	{
+		private AudioNode audioNode;
+		private float initialVolume;
+		private float volume = -1;
+		
+		
+		private FadeOutTask(AudioNode audioNode)
+		{
+			this.audioNode = audioNode;
+		}
+		
+		
+		@Override
+		public void run()
+		{
+			if(volume < 0)
+			{
+				// first call (after initial delay)
+				initialVolume = audioNode.getVolume();
+				volume = initialVolume;
+			}
+			else
+			{
+				volume = Math.max(audioNode.getVolume() - 0.1f,0);
+				setVolume(audioNode, volume);
+			}
+			
+			if(volume > 0)
+				Simulator.getScheduler().schedule(this, 0.2f);
+			else
+			{
+				stopSound(audioNode);
+				setVolume(audioNode, initialVolume);
+			}
+		}
 	}
 	
 	
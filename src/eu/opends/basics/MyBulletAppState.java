@@ -27,6 +27,7 @@ import com.jme3.renderer.RenderManager;
 
 import eu.opends.drivingTask.settings.SettingsLoader;
 import eu.opends.drivingTask.settings.SettingsLoader.Setting;
+import eu.opends.main.BatchRunner;
 import eu.opends.main.Simulator;
 
 
@@ -59,6 +60,14 @@ public class MyBulletAppState extends BulletAppState
 		}
 		else
 			renderMode = RenderMode.Realtime;
+		
+		// physics have to advance by the time step of the simulated clock
+		BatchRunner batchRunner = Simulator.getBatchRunner();
+		if(batchRunner != null)
+		{
+			renderMode = RenderMode.FixedSimulationStep;
+			simulationStepSize = batchRunner.getStepSize();
+		}
 	}
 	
 	
@@ -79,6 +88,12 @@ public class MyBulletAppState extends BulletAppState
 	{
 		return simulationStepSize;
 	}
+	
+	
+	public RenderMode getRenderMode()
+	{
+		return renderMode;
+	}
 		
 	
 	public long getElapsedMilliSecondsSinceStart()
@@ -55,6 +55,7 @@ import eu.opends.environment.vegetation.VegetationGenerator;
 import eu.opends.gesture.GestureAnalyzer;
 import eu.opends.input.KeyBindingCenter;
 import eu.opends.main.SimulationDefaults;
+import eu.opends.main.SimulationScheduler;
 import eu.opends.main.Simulator;
 import eu.opends.niftyGui.InstructionScreenGUI;
 import eu.opends.niftyGui.KeyMappingGUI;
@@ -79,6 +80,7 @@ public class SimulationBasics extends SimpleApplication
 	protected static ScenarioLoader scenarioLoader;
 	protected static InteractionLoader interactionLoader;
 	protected static SettingsLoader settingsLoader;
+	protected static SimulationScheduler scheduler = new SimulationScheduler();
 	protected static Map<String,List<TriggerAction>> triggerActionListMap = new HashMap<String,List<TriggerAction>>();
 	protected static Map<String,List<TriggerAction>> remoteTriggerActionListMap = new HashMap<String,List<TriggerAction>>();
 	protected static Map<ODPosition, Trigger> ODTriggerActionListMap = new HashMap<ODPosition, Trigger>();
@@ -221,6 +223,12 @@ public class SimulationBasics extends SimpleApplication
 	{
 		return settingsLoader;
 	}
+	
+	
+	public static SimulationScheduler getScheduler()
+	{
+		return scheduler;
+	}
 
 	
 	public static Map<String,List<TriggerAction>> getTriggerActionListMap() 
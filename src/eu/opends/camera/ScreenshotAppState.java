@@ -63,6 +63,8 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import eu.opends.basics.SimulationBasics;
+
 public class ScreenshotAppState extends AbstractAppState implements ActionListener, SceneProcessor {
 
     private static final Logger logger = Logger.getLogger(ScreenshotAppState.class.getName());
@@ -291,8 +293,8 @@ public class ScreenshotAppState extends AbstractAppState implements ActionListen
     
 	private void writeImageFile(int width, int height, ScreenshotFormat screenshotFormat) 
 	{
-		// use thread to prevent file access slowing down simulation
-        new Thread()
+		// use worker thread to prevent file access slowing down simulation
+        SimulationBasics.getScheduler().submit(new Runnable()
         {
             public void run()
             {
@@ -315,14 +317,14 @@ public class ScreenshotAppState extends AbstractAppState implements ActionListen
 		            }
 		        }
             }
-        }.start();
+        });
 	}
 	
 	
 	private void writePPM(byte[] origByteArray, int width, int origHeight, ScreenshotFormat screenshotFormat, ViewPort vp, int trimHeight)
 	{
-		// use thread to prevent file access slowing down simulation
-		new Thread()
+		// use worker thread to prevent file access slowing down simulation
+		SimulationBasics.getScheduler().submit(new Runnable()
         {
             public void run() 
             {
@@ -468,7 +470,7 @@ public class ScreenshotAppState extends AbstractAppState implements ActionListen
 		            }
 		        }
             }
-        }.start();
+        });
 	}
     
 	
@@ -597,7 +597,8 @@ public class SteeringCar extends Car implements TrafficObject
 			Vector3f position = getPosition();
 
 			// get most probable lane from result list according to expected lane list (and least heading deviation)
-			ODLane lane = sim.getOpenDriveCenter().getMostProbableLane(position, expectedLanes);
+			ODLane lane = sim.getOpenDriveCenter().getMostProbableLane(position, expectedLanes, 
+					currentLane, currentS);
 
 			// update steering
 			updateTargetPosition(tpf, lane);
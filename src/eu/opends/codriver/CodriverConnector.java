@@ -19,6 +19,11 @@
 
 package eu.opends.codriver;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import com.sun.jna.Native;
 
 import eu.opends.codriver.util.DataStructures.Input_data_str;
@@ -47,6 +52,10 @@ public class CodriverConnector
 	private ThreadingType threadingType = ThreadingType.Parallel;
 	
 	private CodriverLibrary codriver;
+	
+	// single transfer thread: while a transfer is running, only the latest scenario 
+	// message is kept waiting (older ones are dropped)
+	private ThreadPoolExecutor transferExecutor = null;
 
 	private int scenarioMessageCounter = 0;
 	private int scenarioMessageID = 0;
@@ -83,6 +92,24 @@ public class CodriverConnector
 			// New interface for codriver
 			codriver = (CodriverLibrary)Native.loadLibrary((libName), CodriverLibrary.class);
 			codriver.client_codriver_init(serverIP, serverPort, logEnabled, logType);
+			
+			if(threadingType == ThreadingType.Parallel)
+			{
+				ThreadFactory threadFactory = new ThreadFactory()
+				{
+					@Override
+					public Thread newThread(Runnable runnable)
+					{
+						Thread thread = new Thread(runnable, "CodriverTransfer");
+						thread.setDaemon(true);
+						return thread;
+					}
+				};
+				
+				transferExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, 
+						new ArrayBlockingQueue<Runnable>(1), threadFactory, 
+						new ThreadPoolExecutor.DiscardOldestPolicy());
+			}
 		}
 	}
 
@@ -98,8 +125,9 @@ public class CodriverConnector
 			
 			if(threadingType == ThreadingType.Parallel)
 			{
-				TransferThread transferThread = new TransferThread(codriver, scenarioMessageID, scenario_msg, this);
-				transferThread.start();
+				// blocking network transfer --> transfer thread (never the render thread)
+				TransferTask transferTask = new TransferTask(codriver, scenarioMessageID, scenario_msg, this);
+				transferExecutor.execute(transferTask);
 			}
 			else if(threadingType == ThreadingType.Sequential)
 			{
@@ -150,6 +178,17 @@ public class CodriverConnector
 
 	public void close()
 	{
+		if(transferExecutor != null)
+		{
+			transferExecutor.shutdown();
+			
+			try {
+				transferExecutor.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
 		if(connectionEnabled)
 			codriver.client_codriver_close();
 	}
@@ -299,7 +299,8 @@ public class ScenarioMessage
 
 		// get most probable lane from result list according to expected lane list (and 
 		// highest score concerning least heading deviation and least elevation difference)
-		ODLane lane = sim.getOpenDriveCenter().getMostProbableLane(carPos, expectedLanes);
+		ODLane lane = sim.getOpenDriveCenter().getMostProbableLane(carPos, expectedLanes, 
+				sim.getCar().getCurrentLane(), sim.getCar().getCurrentS());
 		if(lane != null)
 		{
 
@@ -23,7 +23,7 @@ package eu.opends.codriver;
 import eu.opends.codriver.util.DataStructures.Input_data_str;
 import eu.opends.codriver.util.DataStructures.Output_data_str;
 
-public class TransferThread extends Thread
+public class TransferTask implements Runnable
 {
 	private CodriverLibrary codriver;
 	private int message_id;
@@ -31,7 +31,7 @@ public class TransferThread extends Thread
 	private CodriverConnector codriverConnector;
 	
 
-	public TransferThread(CodriverLibrary codriver, int message_id, Input_data_str scenario_msg, 
+	public TransferTask(CodriverLibrary codriver, int message_id, Input_data_str scenario_msg, 
 			CodriverConnector codriverConnector)
 	{
 		this.codriver = codriver;
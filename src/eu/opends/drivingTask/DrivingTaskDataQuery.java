@@ -24,6 +24,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.InvalidPropertiesFormatException;
 import java.util.List;
 import java.util.Properties;
@@ -80,6 +81,10 @@ public class DrivingTaskDataQuery
     private Document task;
     private boolean verbose = true;
 	private boolean isValid = false;
+	
+	// compiled XPath expressions (key: absolute query)
+	private XPath xpath = null;
+	private HashMap<String, XPathExpression> expressionMap = new HashMap<String, XPathExpression>();
     
     
     public static enum Layer 
@@ -258,6 +263,34 @@ public class DrivingTaskDataQuery
 		return openDrivePath;
 	}
 	
+	
+	/**
+	 * Parses and validates the settings file again (e.g. after it has been 
+	 * modified while the simulator is running). The previous settings will 
+	 * be kept if the file is invalid.
+	 * 
+	 * @return
+	 * 			True, if the settings file has been reloaded.
+	 */
+	public synchronized boolean reloadSettings()
+	{
+		try {
+			
+			Document document = validateFile(settingsPath, settingsSchema);
+			if(document != null)
+			{
+				settings = document;
+				return true;
+			}
+			
+		} catch (Exception e) {
+			
+			System.err.println("Could not reload settings file: " + settingsPath + " (" + e.getMessage() + ")");
+		}
+		
+		return false;
+	}
+	
 
 	public <T> List<T> getArray(Layer layer, String path, Class<T> cast) 
 	{
@@ -416,7 +449,6 @@ public class DrivingTaskDataQuery
      * @param cast result will be casted to the class
      * @return the casted XPath query result
      */
-    @SuppressWarnings("unchecked")
 	public <T> T getValue(Layer layer, String query, Class<T> cast)
     {
         try {
@@ -429,9 +461,7 @@ public class DrivingTaskDataQuery
                 System.out.println("Result: " + stringValue);
             }
             
-            Constructor<T> constructor = cast.getConstructor(String.class);
-            Object obj = constructor.newInstance(stringValue);
-            return (T) obj;
+            return parseValue(stringValue, cast);
 
         } catch (Exception ex) {
             //Logger.getLogger(DrivingTaskDataQuery.class.getName()).log(Level.SEVERE, null, ex);
@@ -440,20 +470,68 @@ public class DrivingTaskDataQuery
     }
     
 	
-	public Object xPathQuery(Layer layer, String query, QName xPathConst) 
+    /**
+     * Converts the given string to the given type. Primitive wrappers and strings 
+     * are converted directly, any other type needs a constructor taking a string.
+     * 
+     * @param <T> return type
+     * @param stringValue value to convert
+     * @param cast target type
+     * @return the converted value
+     * @throws Exception if the value cannot be converted
+     */
+    @SuppressWarnings("unchecked")
+	public static <T> T parseValue(String stringValue, Class<T> cast) throws Exception
+    {
+    	if(cast == String.class)
+    		return (T) stringValue;
+    	else if(cast == Float.class)
+    		return (T) Float.valueOf(stringValue);
+    	else if(cast == Double.class)
+    		return (T) Double.valueOf(stringValue);
+    	else if(cast == Integer.class)
+    		return (T) Integer.valueOf(stringValue);
+    	else if(cast == Boolean.class)
+    		return (T) Boolean.valueOf(stringValue);
+    	else if(cast == Long.class)
+    		return (T) Long.valueOf(stringValue);
+    	
+    	Constructor<T> constructor = cast.getConstructor(String.class);
+    	return constructor.newInstance(stringValue);
+    }
+    
+	
+    /**
+     * Executes a XPath query to the specified layer file. Each query is compiled 
+     * only once. Synchronized, as neither XPath nor DOM are thread-safe.
+     * 
+     * @param layer the driving task layer DrivingTaskDataQuery.Layer
+     * @param query the XPath query (relative to the root element of the layer or absolute)
+     * @param xPathConst expected result type (XPathConstants)
+     * @return the XPath query result
+     */
+	public synchronized Object xPathQuery(Layer layer, String query, QName xPathConst) 
     {
         try {
 
-            final XPath xpath = XPathFactory.newInstance().newXPath();
-            
-            NamespaceContext nsContext = new DrivingTaskNamespaceContext();
-            xpath.setNamespaceContext(nsContext);
-
             if (!query.startsWith("/")) {
                 query = "/" + layer.toString() + ":" + layer.toString() + "/" + query;
             }
 
-            final XPathExpression expr = xpath.compile(query);
+            XPathExpression expr = expressionMap.get(query);
+            if(expr == null)
+            {
+            	if(xpath == null)
+            	{
+            		xpath = XPathFactory.newInstance().newXPath();
+            		NamespaceContext nsContext = new DrivingTaskNamespaceContext();
+            		xpath.setNamespaceContext(nsContext);
+            	}
+            	
+            	expr = xpath.compile(query);
+            	expressionMap.put(query, expr);
+            }
+            
             Document document = lookUpSource(layer);
             return expr.evaluate(document, xPathConst);
 
@@ -19,11 +19,13 @@
 
 package eu.opends.drivingTask.settings;
 
-import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.xpath.XPathConstants;
 
@@ -42,6 +44,7 @@ public class SettingsLoader
 {
 	private DrivingTaskDataQuery dtData;
 	private Map<String,String[]> keyAssignmentMap = new HashMap<String,String[]>();
+	private volatile SettingsSnapshot snapshot;
 
 	public enum Setting
 	{
@@ -107,6 +110,14 @@ public class SettingsLoader
 		General_digitalMap_positionMarkerOffset("settings:general/settings:digitalMap/settings:positionMarkerOffset"), 
 		Analyzer_fileName("settings:analyzer/settings:fileName"),
 		Analyzer_suppressPDFPopup("settings:analyzer/settings:suppressPDFPopup"), 
+		Analyzer_recordingFormat("settings:analyzer/settings:recordingFormat"), 
+		Analyzer_compressRecording("settings:analyzer/settings:compressRecording"), 
+		Analyzer_writerBufferSize("settings:analyzer/settings:writerBufferSize"), 
+		Analyzer_writerBackpressure("settings:analyzer/settings:writerBackpressure"), 
+		Analyzer_samplingClock("settings:analyzer/settings:samplingClock"), 
+		Analyzer_samplingRate("settings:analyzer/settings:samplingRate"),
+		Analyzer_exportSubsystemTiming("settings:analyzer/settings:exportSubsystemTiming"),
+		Analyzer_frameBudget("settings:analyzer/settings:frameBudget"), 
 		ObjectLocator_enable("settings:objectLocator/settings:enable"),
 		ObjectLocator_fileName("settings:objectLocator/settings:fileName"),
 		HMI_enableConnection("settings:HMI/settings:enableConnection"),
@@ -134,10 +145,12 @@ public class SettingsLoader
 		MultiDriver_ip("settings:multiDriver/settings:ip"),
 		MultiDriver_port("settings:multiDriver/settings:port"),
 		MultiDriver_updateRate("settings:multiDriver/settings:updateRate"),
+		MultiDriver_protocol("settings:multiDriver/settings:protocol"),
 		VsimrtiServer_startServer("settings:vsimrtiServer/settings:startServer"),
 		VsimrtiServer_port("settings:vsimrtiServer/settings:port"),
 		SettingsControllerServer_startServer("settings:settingsControllerServer/settings:startServer"),
 		SettingsControllerServer_port("settings:settingsControllerServer/settings:port"),
+		SettingsControllerServer_multiClient("settings:settingsControllerServer/settings:multiClient"),
 		ReactionMeasurement_groupRed("settings:reactionMeasurement/settings:groupRed"),
 		ReactionMeasurement_groupYellow("settings:reactionMeasurement/settings:groupYellow"),
 		ReactionMeasurement_groupGreen("settings:reactionMeasurement/settings:groupGreen"),
@@ -226,10 +239,16 @@ public class SettingsLoader
 		OpenDrive_visualizeGeometries("settings:openDrive/settings:visualizeGeometries"),
 		OpenDrive_visualizeGeometryDetails("settings:openDrive/settings:visualizeGeometryDetails"),
 		OpenDrive_interpolationStepSize("settings:openDrive/settings:interpolationStepSize"),
+		OpenDrive_adaptiveSampling("settings:openDrive/settings:adaptiveSampling"),
+		OpenDrive_maxChordError("settings:openDrive/settings:maxChordError"),
+		OpenDrive_maxStepSize("settings:openDrive/settings:maxStepSize"),
 		OpenDrive_ignoreNonDrivingLanes("settings:openDrive/settings:ignoreNonDrivingLanes"),
 		OpenDrive_projectOntoTerrain("settings:openDrive/settings:projectOntoTerrain"),
 		OpenDrive_projectionOffset("settings:openDrive/settings:projectionOffset"),
 		OpenDrive_addToPhysicsEngine("settings:openDrive/settings:addToPhysicsEngine"), 
+		OpenDrive_loaderThreads("settings:openDrive/settings:loaderThreads"),
+		OpenDrive_enableCache("settings:openDrive/settings:enableCache"),
+		OpenDrive_cacheDirectory("settings:openDrive/settings:cacheDirectory"),
 		EventPlanner_mode("settings:eventPlanner/settings:mode"),
 		EventPlanner_timeline_start("settings:eventPlanner/settings:timeline/settings:start"),
 		EventPlanner_timeline_end("settings:eventPlanner/settings:timeline/settings:end"), 
@@ -265,13 +284,56 @@ public class SettingsLoader
 	}
 
 	
+	/**
+	 * Values of all settings as read from the settings file at a time. The raw 
+	 * values never change; converted values are added on first access.
+	 */
+	private static class SettingsSnapshot
+	{
+		private final Map<Setting, String> valueMap;
+		private final Map<Setting, Object> typedValueMap = new ConcurrentHashMap<Setting, Object>();
+		
+		
+		private SettingsSnapshot(DrivingTaskDataQuery dtData)
+		{
+			Map<Setting, String> map = new EnumMap<Setting, String>(Setting.class);
+			for(Setting setting : Setting.values())
+			{
+				String stringValue = dtData.getValue(Layer.SETTINGS, setting.getXPathQuery(), String.class);
+				if(stringValue != null && !stringValue.isEmpty())
+					map.put(setting, stringValue);
+			}
+			valueMap = Collections.unmodifiableMap(map);
+		}
+	}
+	
+	
 	public SettingsLoader(DrivingTaskDataQuery dtData) 
 	{
 		this.dtData = dtData;
+		snapshot = new SettingsSnapshot(dtData);
 		loadKeyAssignments();
 		loadJoystickKeyAssignments();
 	}
 	
+	
+	/**
+	 * Reads the settings file again and replaces the values returned by 
+	 * getSetting(). Values that have already been applied (e.g. key assignments 
+	 * or settings read during initialization) will not be changed.
+	 * 
+	 * @return
+	 * 			True, if the settings have been reloaded.
+	 */
+	public boolean reloadSettings()
+	{
+		if(!dtData.reloadSettings())
+			return false;
+		
+		snapshot = new SettingsSnapshot(dtData);
+		return true;
+	}
+	
 
 	private void loadKeyAssignments() 
 	{
@@ -411,6 +473,8 @@ public class SettingsLoader
 	 * Looks up the sub node (specified in parameter name) of the given element node
 	 * and writes the data to the global variable with the same name. If this was 
 	 * successful, the global variable "isSet_&lt;name&gt;" will be set to true. 
+	 * All settings are read once when loading (see SettingsSnapshot), hence this 
+	 * method does not query the settings file and may be called concurrently.
 	 * 
 	 * @param <T>
 	 * 			Type of property to look up.
@@ -426,22 +490,22 @@ public class SettingsLoader
 	 */
 	public <T> T getSetting(Setting setting, T defaultValue)
 	{		
+		SettingsSnapshot currentSnapshot = snapshot;
+		
 		try {
 			
-			T returnValue;
+			String stringValue = currentSnapshot.valueMap.get(setting);
+			if(stringValue == null)
+				return defaultValue;
 			
 			Class<T> cast = (Class<T>) defaultValue.getClass();
-			String stringValue = (String) dtData.getValue(Layer.SETTINGS, setting.getXPathQuery(), String.class);
 			
-			if(stringValue == null || stringValue.isEmpty())
-				returnValue = defaultValue;
-			else
-			{
-				Constructor<T> constructor = cast.getConstructor(String.class);
-	            Object obj = constructor.newInstance(stringValue);
-				returnValue = (T) obj;
-			}
+			Object typedValue = currentSnapshot.typedValueMap.get(setting);
+			if(typedValue != null && typedValue.getClass() == cast)
+				return (T) typedValue;
 			
+			T returnValue = DrivingTaskDataQuery.parseValue(stringValue, cast);
+			currentSnapshot.typedValueMap.put(setting, returnValue);
 			return returnValue;
 
 		} catch (Exception e2) {
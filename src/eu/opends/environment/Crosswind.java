@@ -20,6 +20,8 @@ package eu.opends.environment;
 
 import com.jme3.math.FastMath;
 
+import eu.opends.main.SimulationClock;
+
 public class Crosswind 
 {
 	private long startTime;
@@ -30,7 +32,7 @@ public class Crosswind
 
 	public Crosswind(String direction, float force, int duration)
 	{
-		startTime = System.currentTimeMillis();
+		startTime = SimulationClock.currentTimeMillis();
 		this.direction = direction;
 		this.force = Math.max(Math.min(force, 1.0f), 0.0f);
 		this.duration = Math.abs(duration);
@@ -43,7 +45,7 @@ public class Crosswind
 		if(duration == 0)
 			return 0;
 		
-		long currentTime = System.currentTimeMillis();
+		long currentTime = SimulationClock.currentTimeMillis();
 		int timeElapsed = (int) (currentTime - startTime);
 		float timeElapsedPercent = (float) (timeElapsed/(float)duration);
 		timeElapsedPercent =  Math.max(Math.min(timeElapsedPercent, 1.0f), 0.0f);
@@ -28,6 +28,7 @@ import eu.opends.environment.TrafficLight.*;
 import eu.opends.environment.TrafficLightException.NoInternalProgramException;
 import eu.opends.hmi.HMICenter;
 import eu.opends.infrastructure.Waypoint;
+import eu.opends.main.SimulationClock;
 import eu.opends.main.Simulator;
 import eu.opends.visualization.*;
 
@@ -98,7 +99,7 @@ public class TrafficLightCenter
 			TrafficLightInternalProgram trafficLightInternalProgram = new TrafficLightInternalProgram(sim, this,
 					intersection.getIntersectionID(),intersection.getTrafficLightList(),intersection.getTrafficLightPhaseList());
 			
-			trafficLightInternalProgram.start();
+			SimulationClock.startParticipant(trafficLightInternalProgram);
 			trafficLightProgramList.add(trafficLightInternalProgram);
 		}	
 		
@@ -25,6 +25,7 @@ import java.util.ListIterator;
 import eu.opends.environment.TrafficLight.*;
 import eu.opends.environment.TrafficLightCenter.*;
 import eu.opends.environment.TrafficLightException.*;
+import eu.opends.main.SimulationClock;
 import eu.opends.main.Simulator;
 
 
@@ -282,6 +283,20 @@ public class TrafficLightInternalProgram extends Thread
 	 */
 	@Override
 	public void run() 
+	{		
+		try {
+			
+			runLoop();
+			
+		} finally {
+			
+			// release simulated clock (batch mode)
+			SimulationClock.participantFinished();
+		}
+	}
+	
+	
+	private void runLoop() 
 	{		
 		while (!stoprequested) 
 		{
@@ -310,7 +325,7 @@ public class TrafficLightInternalProgram extends Thread
 				// halt thread for 1 second to provide a clock for BLINKING mode; 
 				// otherwise prevent loop from repeating 
 				// to fast in OFF or EXTERNAL mode 
-				Thread.sleep(10);
+				SimulationClock.sleep(10);
 				
 			} catch (InterruptedException e){}
 		}
@@ -638,7 +653,7 @@ public class TrafficLightInternalProgram extends Thread
 		if(sim.getTrafficLightCenter().getMode() == TrafficLightMode.TRIGGER)
 		{
 			try {
-				Thread.sleep(seconds*1000);
+				SimulationClock.sleep(seconds*1000);
 			} catch (InterruptedException e){}
 		}
 	}
@@ -95,8 +95,8 @@ public class HMICenter
 			long presentationID = presentationModel.createPresentation();
 			
 			// send permanent messages with distance to HMI GUI and screen
-			HMIThread thread = new HMIThread(sim, presentationModel, triggerName, presentationID);
-			thread.start();
+			HMIUpdateTask updateTask = new HMIUpdateTask(sim, presentationModel, triggerName, presentationID);
+			updateTask.start();
 		}
 	}
 
@@ -130,8 +130,8 @@ public class HMICenter
 			long presentationID = presentationModel.createPresentation();
 
 			// send permanent messages with distance to HMI GUI and screen
-			HMIThread thread = new HMIThread(sim, presentationModel, trafficLightName, presentationID);
-			thread.start();
+			HMIUpdateTask updateTask = new HMIUpdateTask(sim, presentationModel, trafficLightName, presentationID);
+			updateTask.start();
 		}
 	}
 	
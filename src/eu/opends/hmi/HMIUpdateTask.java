@@ -24,13 +24,18 @@ import eu.opends.trigger.TriggerCenter;
 
 
 /**
- * Once activated, HMIThread sends continuously updates to the HMI 
- * controller, until the approximation is below the given minimum.
+ * Once activated, HMIUpdateTask sends continuously updates to the HMI 
+ * controller, until the approximation is below the given minimum. The 
+ * task is executed by the simulation scheduler every 100 ms (also while 
+ * the simulation is paused).
  * 
  * @author Rafael Math
  */
-public class HMIThread extends Thread
+public class HMIUpdateTask implements Runnable
 {
+	// time (s) between two updates
+	private static final float updateInterval = 0.1f;
+	
 	private SimulationBasics sim;
 	private PresentationModel presentationModel;
 	private String triggerID;
@@ -38,7 +43,7 @@ public class HMIThread extends Thread
 
 	
 	/**
-	 * Creates a new HMI update thread that updates a presentation task 
+	 * Creates a new HMI update task that updates a presentation task 
 	 * every time, a parameter has changed (at most 10 times a second).
 	 * 
 	 * @param sim
@@ -54,23 +59,20 @@ public class HMIThread extends Thread
 	 * @param presentationID
 	 * 			Presentation ID
 	 */
-	public HMIThread(SimulationBasics sim, PresentationModel presentationModel, String triggerID, long presentationID) 
+	public HMIUpdateTask(SimulationBasics sim, PresentationModel presentationModel, String triggerID, long presentationID) 
 	{
-		super("HMIThread");
 		this.sim = sim;
 		this.presentationModel = presentationModel;
 		this.triggerID = triggerID;
 		this.presentationID = presentationID;
 	}
-
-
+	
+	
 	/**
-	 * This method updates presentations to the HMI, every time a parameter
-	 * (distance, time, ...) has changed. Once activated, it will only stop
-	 * if the stop condition will be true. Loop will repeat every 100 ms.
+	 * Initializes the parameters of the presentation model and schedules 
+	 * the first update.
 	 */
-	@Override
-	public void run() 
+	public void start()
 	{
 		// initialize "previous" and "current" parameters
 		presentationModel.computePreviousParameters();
@@ -78,7 +80,19 @@ public class HMIThread extends Thread
 		
 		System.out.println(presentationModel.generateMessage());
 		
-		while(!presentationModel.stopPresentation()) 
+		SimulationBasics.getScheduler().scheduleIgnoringPause(this, 0);
+	}
+
+
+	/**
+	 * This method updates presentations to the HMI, every time a parameter
+	 * (distance, time, ...) has changed. It will be repeated every 100 ms 
+	 * until the stop condition will be true.
+	 */
+	@Override
+	public void run() 
+	{
+		if(!presentationModel.stopPresentation()) 
 		{
 			// if parameters have changed (difference between "previous" and "current" parameters)
 			if(presentationModel.hasChangedParameter() || sim.isPause())
@@ -97,20 +111,20 @@ public class HMIThread extends Thread
 			// update "current" parameters
 			presentationModel.computeCurrentParameters();
 			
-			// prevent loop from running to fast
-			try {Thread.sleep(100);} 
-			catch (InterruptedException e){}
+			SimulationBasics.getScheduler().scheduleIgnoringPause(this, updateInterval);
 		}
-		
-		// remove trigger from report list
-		if(triggerID != null)
-			TriggerCenter.removeTriggerReport(triggerID);
-		
-		// cancel presentation
-		if(presentationID >= 0)
+		else
 		{
-			presentationModel.stop();
-			System.out.println("\nCancel presentation task");
+			// remove trigger from report list
+			if(triggerID != null)
+				TriggerCenter.removeTriggerReport(triggerID);
+			
+			// cancel presentation
+			if(presentationID >= 0)
+			{
+				presentationModel.stop();
+				System.out.println("\nCancel presentation task");
+			}
 		}
 	}
 	
@@ -662,7 +662,8 @@ public class Segment
     		return false;
     		
     	// check if any traffic object (car or pedestrian) is blocking the target segment
-    	for(TrafficObject otherTrafficObject : PhysicalTraffic.getTrafficObjectList())
+    	// (only traffic objects registered on this segment in the traffic index need to be considered)
+    	for(TrafficObject otherTrafficObject : PhysicalTraffic.getTrafficIndex().getObjectsOnSegment(name))
     	{
     		// exclude requesting traffic object
     		if(!otherTrafficObject.equals(requestingTrafficObject))
@@ -112,6 +112,15 @@ public class DriveAnalyzerActionListener implements ActionListener
 				analyzer.toggleVisualization(VisualizationMode.CONE);
 			}
 		}
+		
+		
+		else if (binding.equals(KeyMapping.TOGGLE_TRAJECTORY_LOD.getID())) 
+		{
+			if (value) 
+			{
+				analyzer.toggleTrajectoryLevelOfDetail();
+			}
+		}
 
 		else if (binding.equals(KeyMapping.TOGGLE_KEYMAPPING.getID())) 
 		{
@@ -142,5 +151,35 @@ public class DriveAnalyzerActionListener implements ActionListener
 				analyzer.toggleReplay();
 		}
 		
+		else if (binding.equals(KeyMapping.REPLAY_FASTER.getID())) 
+		{
+			if (value)
+				analyzer.changeReplaySpeed(true);
+		}
+		
+		else if (binding.equals(KeyMapping.REPLAY_SLOWER.getID())) 
+		{
+			if (value)
+				analyzer.changeReplaySpeed(false);
+		}
+		
+		else if (binding.equals(KeyMapping.TOGGLE_REPLAY_DIRECTION.getID())) 
+		{
+			if (value)
+				analyzer.toggleReplayDirection();
+		}
+		
+		else if (binding.equals(KeyMapping.GOTO_START.getID())) 
+		{
+			if (value)
+				analyzer.jumpToEnd(true);
+		}
+		
+		else if (binding.equals(KeyMapping.GOTO_END.getID())) 
+		{
+			if (value)
+				analyzer.jumpToEnd(false);
+		}
+		
 	}
 }
@@ -51,6 +51,16 @@ public class DriveAnalyzerAnalogListener implements AnalogListener
 			analyzer.moveFocus(-1);
 		} 
 		
+		else if (binding.equals(KeyMapping.SCRUB_FORWARD.getID())) 
+		{
+			analyzer.scrubByKey(true, tpf);
+		} 
+		
+		else if (binding.equals(KeyMapping.SCRUB_BACKWARD.getID())) 
+		{
+			analyzer.scrubByKey(false, tpf);
+		} 
+		
 		else if (binding.equals(KeyMapping.ZOOM_IN.getID())) 
 		{
 			AnalyzerCam camFactory = (AnalyzerCam) analyzer.getCameraFactory();
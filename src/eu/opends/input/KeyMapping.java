@@ -117,11 +117,19 @@ public class KeyMapping
 	public static KeyMapping TOGGLE_POINTS = new KeyMapping("toggle_points", "show points", new String[] {"KEY_1"});
 	public static KeyMapping TOGGLE_LINE = new KeyMapping("toggle_line", "show line", new String[] {"KEY_2"});
 	public static KeyMapping TOGGLE_CONE = new KeyMapping("toggle_cone", "show cone", new String[] {"KEY_3"});
+	public static KeyMapping TOGGLE_TRAJECTORY_LOD = new KeyMapping("toggle_trajectory_lod", "trajectory level of detail on/off", new String[] {"KEY_4"});
 	public static KeyMapping TOGGLE_REPLAY = new KeyMapping("toggle_replay", "start/stop replay", new String[] {"KEY_RETURN"});
 	public static KeyMapping ZOOM_IN = new KeyMapping("zoom_in", "zoom in scene", new String[] {"KEY_F9"});
 	public static KeyMapping ZOOM_OUT = new KeyMapping("zoom_out", "zoom out scene", new String[] {"KEY_F10"});
 	public static KeyMapping JUMP_FORWARD = new KeyMapping("jump_forward", "jump forward", new String[] {"KEY_PGDN"});
 	public static KeyMapping JUMP_BACKWARD = new KeyMapping("jump_backward", "jump backward", new String[] {"KEY_PGUP"});
+	public static KeyMapping REPLAY_FASTER = new KeyMapping("replay_faster", "increase replay speed", new String[] {"KEY_PERIOD"});
+	public static KeyMapping REPLAY_SLOWER = new KeyMapping("replay_slower", "decrease replay speed", new String[] {"KEY_COMMA"});
+	public static KeyMapping TOGGLE_REPLAY_DIRECTION = new KeyMapping("toggle_replay_direction", "replay forwards/backwards", new String[] {"KEY_R"});
+	public static KeyMapping GOTO_START = new KeyMapping("goto_start", "go to start of recording", new String[] {"KEY_HOME"});
+	public static KeyMapping GOTO_END = new KeyMapping("goto_end", "go to end of recording", new String[] {"KEY_END"});
+	public static KeyMapping SCRUB_FORWARD = new KeyMapping("scrub_forward", "scrub forwards", new String[] {"KEY_RBRACKET"});
+	public static KeyMapping SCRUB_BACKWARD = new KeyMapping("scrub_backward", "scrub backwards", new String[] {"KEY_LBRACKET"});
 	
 	
 	// look up table of joystick buttons
@@ -248,12 +256,18 @@ public class KeyMapping
 		keyMappingList.add(KeyMapping.TOGGLE_POINTS);
 		keyMappingList.add(KeyMapping.TOGGLE_LINE);
 		keyMappingList.add(KeyMapping.TOGGLE_CONE);
+		keyMappingList.add(KeyMapping.TOGGLE_TRAJECTORY_LOD);
 		keyMappingList.add(KeyMapping.GOTO_NEXT_DATAPOINT);
 		keyMappingList.add(KeyMapping.GOTO_PREVIOUS_DATAPOINT);
 		keyMappingList.add(KeyMapping.TOGGLE_MESSAGEBOX);
 		keyMappingList.add(KeyMapping.TOGGLE_REPLAY);
 		keyMappingList.add(KeyMapping.JUMP_FORWARD);
 		keyMappingList.add(KeyMapping.JUMP_BACKWARD);
+		keyMappingList.add(KeyMapping.REPLAY_FASTER);
+		keyMappingList.add(KeyMapping.REPLAY_SLOWER);
+		keyMappingList.add(KeyMapping.TOGGLE_REPLAY_DIRECTION);
+		keyMappingList.add(KeyMapping.GOTO_START);
+		keyMappingList.add(KeyMapping.GOTO_END);
 		
 		SimulationBasics.getDrivingTask().getSettingsLoader().lookUpKeyMappings(keyMappingList);
 		
@@ -270,6 +284,8 @@ public class KeyMapping
 		keyMappingList.add(KeyMapping.GO_BACKWARD);
 		keyMappingList.add(KeyMapping.ZOOM_IN);
 		keyMappingList.add(KeyMapping.ZOOM_OUT);
+		keyMappingList.add(KeyMapping.SCRUB_FORWARD);
+		keyMappingList.add(KeyMapping.SCRUB_BACKWARD);
 		
 		SimulationBasics.getDrivingTask().getSettingsLoader().lookUpKeyMappings(keyMappingList);
 		
@@ -0,0 +1,309 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import eu.opends.drivingTask.DrivingTask;
+import eu.opends.tools.Util;
+
+/**
+ * Runs driving tasks headless on a simulated clock (see SimulationClock) as
+ * fast as the CPU allows, e.g. for regression runs of the autopilot or for
+ * generating training data. Every frame simulates a fixed time step, hence
+ * physics, traffic, traffic light programs, triggers and recording behave
+ * the same in every run.
+ *
+ * Usage: BatchRunner [-parallel N] [-step seconds] [-duration seconds]
+ *                    [-record] [-driver name] drivingTask...
+ *
+ * Since the simulator keeps its state in static fields, several driving tasks
+ * cannot share one JVM. If more than one driving task is given, each of them
+ * will be run in a separate JVM (at most N at the same time); the output of
+ * each JVM will be written to "analyzerData/batch_&lt;name&gt;.log".
+ *
+ * Batch mode can also be enabled in startProperties.properties (batchmode,
+ * batchstepsize, batchduration, batchrecording).
+ *
+ * @author agent
+ */
+public class BatchRunner
+{
+	public static final float defaultStepSize = 0.02f;
+
+	// simulated time per frame (s)
+	private float stepSize;
+
+	// simulated time (s) after which the simulation will be stopped (0: until stopped by driving task)
+	private float duration;
+
+	// start recording (DataWriter) immediately
+	private boolean record;
+
+	// name of this run (appended to the output folder)
+	private String name;
+
+	private long startTime;
+
+
+	public BatchRunner(float stepSize, float duration, boolean record, String name)
+	{
+		if(stepSize <= 0)
+		{
+			System.err.println("BatchRunner: invalid step size " + stepSize + " s. Using "
+					+ defaultStepSize + " s instead.");
+			stepSize = defaultStepSize;
+		}
+
+		this.stepSize = stepSize;
+		this.duration = duration;
+		this.record = record;
+		this.name = name;
+	}
+
+
+	public float getStepSize()
+	{
+		return stepSize;
+	}
+
+
+	public float getDuration()
+	{
+		return duration;
+	}
+
+
+	public boolean isRecording()
+	{
+		return record;
+	}
+
+
+	public String getName()
+	{
+		return name;
+	}
+
+
+	/**
+	 * Called when the simulation starts in order to measure the speed-up.
+	 */
+	public void start()
+	{
+		startTime = System.currentTimeMillis();
+	}
+
+
+	/**
+	 * Checks whether the given simulated time exceeds the duration of the run.
+	 *
+	 * @param simulatedTime
+	 * 			Simulated time (s) since start.
+	 *
+	 * @return
+	 * 			True, if the simulation has to be stopped.
+	 */
+	public boolean isFinished(float simulatedTime)
+	{
+		return duration > 0 && simulatedTime >= duration;
+	}
+
+
+	/**
+	 * Prints simulated and real time of the run.
+	 *
+	 * @param simulatedTime
+	 * 			Simulated time (s) since start.
+	 */
+	public void printSummary(float simulatedTime)
+	{
+		float realTime = (System.currentTimeMillis() - startTime) / 1000f;
+		float speedUp = (realTime > 0) ? simulatedTime / realTime : 0;
+		System.out.println("Batch run" + (name.isEmpty() ? "" : " '" + name + "'") + " finished: simulated "
+				+ simulatedTime + " s in " + realTime + " s (speed-up: " + speedUp + ")");
+	}
+
+
+	private static int runInSeparateJVM(String drivingTask, String name, float stepSize, float duration,
+			boolean record, String driverName)
+	{
+		List<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(BatchRunner.class.getName());
+		command.add("-step");
+		command.add(Float.toString(stepSize));
+		command.add("-duration");
+		command.add(Float.toString(duration));
+		if(record)
+			command.add("-record");
+		command.add("-driver");
+		command.add(driverName);
+		command.add("-name");
+		command.add(name);
+		command.add(drivingTask);
+
+		File logFile = new File("analyzerData/batch_" + name + ".log");
+
+		try {
+
+			ProcessBuilder processBuilder = new ProcessBuilder(command);
+			processBuilder.redirectErrorStream(true);
+			processBuilder.redirectOutput(logFile);
+
+			System.out.println("Started '" + name + "' (" + drivingTask + ")");
+			int exitValue = processBuilder.start().waitFor();
+			System.out.println("Finished '" + name + "' with exit value " + exitValue + " (see " + logFile.getPath() + ")");
+			return exitValue;
+
+		} catch (IOException e) {
+
+			System.err.println("Could not start '" + name + "': " + e.getMessage());
+
+		} catch (InterruptedException e) {
+
+			System.err.println("Interrupted '" + name + "'");
+		}
+
+		return -1;
+	}
+
+
+	private static String getRunName(String drivingTask, int index)
+	{
+		String fileName = new File(drivingTask).getName();
+		int extensionIndex = fileName.lastIndexOf('.');
+		if(extensionIndex > 0)
+			fileName = fileName.substring(0, extensionIndex);
+
+		return index + "_" + fileName;
+	}
+
+
+	public static void main(String[] args)
+	{
+		int parallel = Runtime.getRuntime().availableProcessors();
+		float stepSize = defaultStepSize;
+		float duration = 0;
+		boolean record = false;
+		String driverName = SimulationDefaults.driverName;
+		String name = null;
+		List<String> drivingTaskList = new ArrayList<String>();
+
+		try {
+
+			for(int i=0; i<args.length; i++)
+			{
+				if(args[i].equals("-parallel"))
+					parallel = Math.max(1, Integer.parseInt(args[++i]));
+				else if(args[i].equals("-step"))
+					stepSize = Float.parseFloat(args[++i]);
+				else if(args[i].equals("-duration"))
+					duration = Float.parseFloat(args[++i]);
+				else if(args[i].equals("-record"))
+					record = true;
+				else if(args[i].equals("-driver"))
+					driverName = args[++i];
+				else if(args[i].equals("-name"))
+					name = args[++i];
+				else if(DrivingTask.isValidDrivingTask(new File(args[i])))
+					drivingTaskList.add(args[i]);
+				else
+					System.err.println("BatchRunner: skipping invalid driving task '" + args[i] + "'");
+			}
+
+		} catch (Exception e) {
+
+			System.err.println("BatchRunner: invalid arguments (" + e.getMessage() + ")");
+			drivingTaskList.clear();
+		}
+
+		if(drivingTaskList.isEmpty())
+		{
+			System.err.println("Usage: BatchRunner [-parallel N] [-step seconds] [-duration seconds] "
+					+ "[-record] [-driver name] drivingTask...");
+			System.exit(1);
+		}
+
+		if(drivingTaskList.size() == 1)
+		{
+			// run in this JVM
+			String drivingTask = drivingTaskList.get(0);
+			if(name == null)
+				name = getRunName(drivingTask, 0);
+
+			Simulator.runBatch(new BatchRunner(stepSize, duration, record, name), drivingTask, driverName);
+			return;
+		}
+
+		// run each driving task in a separate JVM
+		Util.makeDirectory("analyzerData");
+		ExecutorService executor = Executors.newFixedThreadPool(parallel);
+		List<Future<Integer>> resultList = new ArrayList<Future<Integer>>();
+
+		for(int i=0; i<drivingTaskList.size(); i++)
+		{
+			final String drivingTask = drivingTaskList.get(i);
+			final String runName = getRunName(drivingTask, i);
+			final float runStepSize = stepSize;
+			final float runDuration = duration;
+			final boolean runRecord = record;
+			final String runDriverName = driverName;
+
+			resultList.add(executor.submit(() ->
+				runInSeparateJVM(drivingTask, runName, runStepSize, runDuration, runRecord, runDriverName)));
+		}
+
+		executor.shutdown();
+
+		int failed = 0;
+		for(Future<Integer> result : resultList)
+		{
+			try {
+
+				if(result.get() != 0)
+					failed++;
+
+			} catch (Exception e) {
+
+				failed++;
+			}
+		}
+
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+		}
+
+		System.out.println("Batch finished: " + (drivingTaskList.size() - failed) + " of "
+				+ drivingTaskList.size() + " driving tasks succeeded");
+		System.exit(failed == 0 ? 0 : 1);
+	}
+}
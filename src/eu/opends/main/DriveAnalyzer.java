@@ -25,9 +25,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.TreeMap;
-import java.util.Map.Entry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,7 +37,6 @@ import com.jme3.math.Quaternion;
 import com.jme3.niftygui.NiftyJmeDisplay;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
-import com.jme3.scene.Spatial;
 import com.jme3.asset.plugins.FileLocator;
 import com.jme3.font.BitmapText;
 import com.jme3.scene.Mesh.Mode;
@@ -53,7 +50,9 @@ import de.lessvoid.nifty.Nifty;
 import eu.opends.analyzer.DataUnit;
 import eu.opends.analyzer.DataUnitPostProcessor;
 import eu.opends.analyzer.DeviationComputer;
+import eu.opends.analyzer.DriveDataTimeline;
 import eu.opends.analyzer.RayDirectionRecord;
+import eu.opends.analyzer.TrajectoryRenderer;
 import eu.opends.analyzer.DataReader;
 import eu.opends.analyzer.IdealLine;
 import eu.opends.analyzer.IdealLine.IdealLineStatus;
@@ -72,8 +71,9 @@ import eu.opends.knowledgeBase.KnowledgeBase;
 import eu.opends.niftyGui.AnalyzerFileSelectionGUIController;
 import eu.opends.opendrive.OpenDriveCenter;
 import eu.opends.opendrive.processed.ODLane;
-import eu.opends.opendrive.util.ODPosition;
 import eu.opends.tools.PanelCenter;
+import eu.opends.tools.ReplayScrubBar;
+import eu.opends.trigger.ODTriggerIndex;
 import eu.opends.trigger.PlaySoundTriggerAction;
 import eu.opends.trigger.Trigger;
 import eu.opends.trigger.TriggerAction;
@@ -103,11 +103,25 @@ public class DriveAnalyzer extends SimulationBasics
     private boolean updateMessageBox = true;
     
     private boolean replayIsRunning = false;
-    private long offset = 0;
+    private boolean replayReverse = false;
+    private float replaySpeed = 1f;
+    private double replayTime = 0;
+    private static final float minReplaySpeed = 0.125f;
+    private static final float maxReplaySpeed = 64f;
+    
+    // fraction of the recording passed per second while a scrub key is held
+    private static final float scrubRate = 0.05f;
+    private ReplayScrubBar scrubBar;
+    
+    // reused by the (per frame) text updates
+    private DecimalFormat decimalFormat = new DecimalFormat("#0.00");
+    private DecimalFormat replaySpeedFormat = new DecimalFormat("#0.###");
 
 	private Node pointNode = new Node();
 	private Node lineNode = new Node();
 	private Node coneNode = new Node();
+	private Geometry cone;
+	private TrajectoryRenderer trajectoryRenderer;
 	private Node target = new Node();
 	private Node frontNode = new Node();
 	private Node egoCamNode = new Node();
@@ -117,8 +131,7 @@ public class DriveAnalyzer extends SimulationBasics
 
 	private BitmapText markerText, speedText, timeText;
 	
-	private ArrayList<Vector3f> carPositionList = new ArrayList<Vector3f>();
-	private LinkedList<DataUnit> dataUnitList = new LinkedList<DataUnit>();
+	private DriveDataTimeline timeline = new DriveDataTimeline();
 	
 	private RayDirectionRecord headGazeDirectionRecord;
 	private RayDirectionRecord pointingDirectionRecord;
@@ -234,7 +247,7 @@ public class DriveAnalyzer extends SimulationBasics
         internalMapProcessing.initializationFinished();
         
         
-		DeviationComputer devComp = new DeviationComputer(carPositionList);
+		DeviationComputer devComp = new DeviationComputer(timeline);
 		//devComp.showAllWayPoints();
 		
 		idealLineList = devComp.getIdealLines();
@@ -294,15 +307,17 @@ public class DriveAnalyzer extends SimulationBasics
 	private void loadData() 
 	{
 		dataReader.initReader(analyzerFilePath, true);
-		dataReader.loadDriveData();
+		dataReader.loadDriveDataTimeline();
+		
+		// samples are kept in primitive arrays; data units will be created on demand
+		timeline = dataReader.getDriveDataTimeline();
 		
-		carPositionList = dataReader.getCarPositionList();
+		totalDistance = timeline.getTotalDistance();
 		
-		totalDistance = dataReader.getTotalDistance();
-		dataUnitList = dataReader.getDataUnitList();
+		if(!timeline.isEmpty())
+			initialTimeStamp = timeline.getStartTime();
 		
-		if(dataUnitList.size() > 0)
-			initialTimeStamp = dataUnitList.get(0).getDate().getTime();
+		replayTime = initialTimeStamp;
 	}
 	
 	
@@ -317,23 +332,16 @@ public class DriveAnalyzer extends SimulationBasics
     
     public void startReplay()
     {
+    	if(timeline.size() < 2)
+    		return;
+    	
     	replayIsRunning = true;
     	
-		// end has been reached
-		if((targetIndex + 1) >= dataUnitList.size())
-		{
-			// make cone at last position invisible (if exists)
-			Spatial currentCone = coneNode.getChild("cone_" + targetIndex);
-			if(currentCone != null)
-				currentCone.setCullHint(CullHint.Always);
-			
-			// reset camera to first position 
-			targetIndex = 0;
-			updateView(dataUnitList.get(targetIndex));
-		}
-		
-		// offset between current time and time in replay (at current position)
-		offset = System.currentTimeMillis() - dataUnitList.get(targetIndex).getDate().getTime();
+		// end (or start when replaying backwards) has been reached --> restart
+		if(!replayReverse && replayTime >= timeline.getEndTime())
+			seekToTime(timeline.getStartTime());
+		else if(replayReverse && replayTime <= timeline.getStartTime())
+			seekToTime(timeline.getEndTime());
     }
     
     
@@ -341,6 +349,97 @@ public class DriveAnalyzer extends SimulationBasics
     {
     	replayIsRunning = false;
     }
+    
+    
+    /**
+     * Doubles (or halves) the replay speed. The speed is limited to the range 
+     * 1/8x to 64x.
+     * 
+     * @param faster
+     * 			If true, the speed will be doubled, otherwise halved.
+     */
+    public void changeReplaySpeed(boolean faster)
+    {
+    	if(faster)
+    		replaySpeed = Math.min(maxReplaySpeed, 2*replaySpeed);
+    	else
+    		replaySpeed = Math.max(minReplaySpeed, replaySpeed/2);
+    	
+    	updateScrubBar();
+    }
+    
+    
+    public void toggleReplayDirection()
+    {
+    	replayReverse = !replayReverse;
+    	updateScrubBar();
+    }
+    
+    
+    /**
+     * Moves the replay position by the given fraction of the whole recording
+     * (negative values move backwards). Works while replay is running or paused.
+     * 
+     * @param fraction
+     * 			Fraction of the recording duration to move.
+     */
+    public void scrub(float fraction)
+    {
+    	if(!isPause() && timeline.size() >= 2)
+    	{
+    		long duration = timeline.getEndTime() - timeline.getStartTime();
+    		seekToTime((long) (replayTime + fraction * duration));
+    	}
+    }
+    
+    
+    public void scrubByKey(boolean forward, float tpf)
+    {
+    	scrub((forward ? 1 : -1) * scrubRate * tpf);
+    }
+    
+    
+    /**
+     * Jumps to the start or end of the recording.
+     * 
+     * @param start
+     * 			If true, jump to the first data point, otherwise to the last.
+     */
+    public void jumpToEnd(boolean start)
+    {
+    	if(!isPause() && !timeline.isEmpty())
+    		seekToTime(start ? timeline.getStartTime() : timeline.getEndTime());
+    }
+    
+    
+    /**
+     * Sets the replay position to the given recording time. The data point is 
+     * looked up by binary search and interpolated with its successor if the time
+     * lies between two recorded data points.
+     * 
+     * @param recordingTime
+     * 			Time stamp (ms) within the recording.
+     */
+    public void seekToTime(long recordingTime)
+    {
+    	if(timeline.isEmpty())
+    		return;
+    	
+    	recordingTime = Math.max(timeline.getStartTime(), Math.min(timeline.getEndTime(), recordingTime));
+    	replayTime = recordingTime;
+    	
+    	targetIndex = timeline.indexOf(recordingTime);
+    	
+    	if(timeline.getTime(targetIndex) == recordingTime || (targetIndex + 1) >= timeline.size())
+    		updateView(timeline.getDataUnit(targetIndex));
+    	else
+    	{
+    		// interpolate between previous and next data unit
+    		DataUnit previous = timeline.getDataUnit(targetIndex);
+    		DataUnit next = timeline.getDataUnit(targetIndex+1);
+    		updateView(DataUnit.interpolate(previous, next, recordingTime));
+    	}
+    }
 	
     
 	private void loadDrivingTask() 
@@ -389,6 +488,9 @@ public class DriveAnalyzer extends SimulationBasics
         speedText.setColor(ColorRGBA.LightGray);
         speedText.setLocalTranslation(settings.getWidth() - 125, 20, 0);
         guiNode.attachChild(speedText);
+        
+        scrubBar = new ReplayScrubBar(settings.getWidth() - 110, 10, 28);
+        scrubBar.init(this);
 	}
 
 	
@@ -433,38 +535,20 @@ public class DriveAnalyzer extends SimulationBasics
 		Material drivenMaterial = new Material(assetManager,"Common/MatDefs/Misc/Unshaded.j3md");
 		drivenMaterial.setColor("Color", ColorRGBA.Yellow);
 		
-		// visualize points
-		Curve points = new Curve(carPositionList.toArray(new Vector3f[0]), 1);
-		points.setMode(Mode.Points);
-		points.setPointSize(4f);
-		Geometry geoPoints = new Geometry("drivenPoints", points);
-		geoPoints.setMaterial(drivenMaterial);
-		pointNode.attachChild(geoPoints);
-
-		// visualize line
-		Curve line = new Curve(carPositionList.toArray(new Vector3f[0]), 1);
-		line.setMode(Mode.Lines);
-		line.setLineWidth(4f);
-		Geometry geoLine = new Geometry("drivenLine", line);
-	    geoLine.setMaterial(drivenMaterial);
-	    lineNode.attachChild(geoLine);
+		// visualize points and line (batched into a few meshes with level of detail)
+		trajectoryRenderer = new TrajectoryRenderer(timeline, pointNode, drivenMaterial, lineNode, drivenMaterial);
 
 	
-	    // visualize cones
+	    // visualize cone (will be moved to the current data point)
 	    Material coneMaterial = new Material(assetManager,"Common/MatDefs/Misc/Unshaded.j3md");
 	    coneMaterial.setColor("Color", ColorRGBA.Black);
 		
-		for (int i=0; i<dataUnitList.size(); i++) 
-		{
-			Cylinder cone = new Cylinder(10, 10, 0.3f, 0.01f, 0.9f, true, false);
-			cone.setLineWidth(4f);
-			Geometry geoCone = new Geometry("cone_"+i, cone);
-			geoCone.setLocalTranslation(dataUnitList.get(i).getCarPosition());
-			geoCone.setLocalRotation(dataUnitList.get(i).getCarRotation());
-			geoCone.setMaterial(coneMaterial);
-			geoCone.setCullHint(CullHint.Always);
-			coneNode.attachChild(geoCone);
-		}
+		Cylinder coneMesh = new Cylinder(10, 10, 0.3f, 0.01f, 0.9f, true, false);
+		coneMesh.setLineWidth(4f);
+		cone = new Geometry("cone", coneMesh);
+		cone.setMaterial(coneMaterial);
+		cone.setCullHint(CullHint.Always);
+		coneNode.attachChild(cone);
 
 		if (pointsEnabled)
 			sceneNode.attachChild(pointNode);
@@ -476,10 +560,17 @@ public class DriveAnalyzer extends SimulationBasics
 			sceneNode.attachChild(coneNode);
 		
 		// set camera view and time/speed texts
-		updateView(dataUnitList.get(targetIndex));
+		updateView(timeline.getDataUnit(targetIndex));
 	}
 
 
+	public void toggleTrajectoryLevelOfDetail()
+	{
+		if(!isPause() && trajectoryRenderer != null)
+			trajectoryRenderer.toggleLevelOfDetail();
+	}
+	
+	
 	public void toggleVisualization(VisualizationMode vizMode) 
 	{
 		if(!isPause())
@@ -540,10 +631,11 @@ public class DriveAnalyzer extends SimulationBasics
 	public void moveFocus(int step) 
 	{
 		if(!replayIsRunning && !isPause()
-			&& 0 <= (targetIndex + step) && (targetIndex + step) < dataUnitList.size())
+			&& 0 <= (targetIndex + step) && (targetIndex + step) < timeline.size())
 		{
 			targetIndex += step;
-			updateView(dataUnitList.get(targetIndex));
+			replayTime = timeline.getTime(targetIndex);
+			updateView(timeline.getDataUnit(targetIndex));
 		}
 	}
 
@@ -556,36 +648,20 @@ public class DriveAnalyzer extends SimulationBasics
 		target.setLocalRotation(currentDataUnit.getCarRotation());
 		
 		// update speed text
-		DecimalFormat decimalFormat = new DecimalFormat("#0.00");
 		speedText.setText(decimalFormat.format(currentDataUnit.getSpeed()) + " km/h");
 		
 		// update timestamp
 		updateTimestamp();
 
-		// make cone 100 steps before invisible (if exists)
-		Spatial previous100Cone = coneNode.getChild("cone_" + (targetIndex-100));		
-		if(previous100Cone != null)
-			previous100Cone.setCullHint(CullHint.Always);
-				
-		// make previous cone invisible (if exists)
-		Spatial previousCone = coneNode.getChild("cone_" + (targetIndex-1));		
-		if(previousCone != null)
-			previousCone.setCullHint(CullHint.Always);
-		
-		// make current cone visible (if exists)
-		Spatial currentCone = coneNode.getChild("cone_" + targetIndex);
-		if(currentCone != null)
-			currentCone.setCullHint(CullHint.Dynamic);
-		
-		// make next cone invisible (if exists)
-		Spatial nextCone = coneNode.getChild("cone_" + (targetIndex+1));
-		if(nextCone != null)
-			nextCone.setCullHint(CullHint.Always);
-		
-		// make cone 100 steps ahead invisible (if exists)
-		Spatial next100Cone = coneNode.getChild("cone_" + (targetIndex+100));		
-		if(next100Cone != null)
-			next100Cone.setCullHint(CullHint.Always);
+		// move cone to current data point
+		if(cone != null && targetIndex < timeline.size())
+		{
+			cone.setLocalTranslation(timeline.getCarPosition(targetIndex, cone.getLocalTranslation()));
+			cone.setLocalRotation(timeline.getCarRotation(targetIndex, cone.getLocalRotation()));
+			cone.setCullHint(CullHint.Dynamic);
+		}
+		
+		updateScrubBar();
 		
 		boolean isTriggerPosition = doTriggerCheck();
 		
@@ -597,13 +673,18 @@ public class DriveAnalyzer extends SimulationBasics
 	}
 	
 	
+	private ODTriggerIndex odTriggerIndex = new ODTriggerIndex(SimulationBasics.getODTriggerActionListMap(), 1.5d);
+	private ArrayList<Trigger> odTriggerList = new ArrayList<Trigger>();
 	private HashSet<ODLane> expectedLanes = new HashSet<ODLane>();
+	private ODLane previousLane = null;
+	private double previousS = 0;
 	private boolean doTriggerCheck()
 	{
 		// get most probable lane from result list according to expected lane list (and 
 		// highest score concerning least heading deviation and least elevation difference)
 		Vector3f carPos = target.getWorldTranslation();
-		ODLane lane = openDriveCenter.getMostProbableLane(carPos, expectedLanes);
+		ODLane lane = openDriveCenter.getMostProbableLane(carPos, expectedLanes, previousLane, previousS);
+		previousLane = lane;
 		if(lane != null)
 		{
 			//expectedLanes.add(lane);
@@ -611,32 +692,20 @@ public class DriveAnalyzer extends SimulationBasics
 			String roadID_car = lane.getODRoad().getID();
 			int lane_car = lane.getID();
 			double s_car = lane.getCurrentInnerBorderPoint().getS();
+			previousS = s_car;
 			
 			//System.err.println("POS: " + roadID_car + "," + lane_car + "," + s_car);
 			
-			for(Entry<ODPosition, Trigger> item : SimulationBasics.getODTriggerActionListMap().entrySet())
+			// triggers located on the current road and lane within 1.5 m of the car
+			odTriggerIndex.getTriggers(roadID_car, lane_car, s_car, s_car, odTriggerList);
+			for(Trigger trigger : odTriggerList)
 			{
-				ODPosition openDrivePos = item.getKey();
-				Trigger trigger = item.getValue();
-				
-				String roadID_trigger = openDrivePos.getRoadID();
-				int lane_trigger = openDrivePos.getLane();
-				double s_trigger = openDrivePos.getS();
-
-				
-				if(roadID_trigger.equals(roadID_car) && (Math.abs(s_trigger-s_car) < 1.5d))
+				for(TriggerAction ta : trigger.getTriggerActionList())
 				{
-					// either trigger when car is in given lane or when lane_trigger == 0 and car is in any lane 
-					if(lane_trigger == lane_car || lane_trigger == 0)
+					if(ta instanceof PlaySoundTriggerAction)
 					{
-						for(TriggerAction ta : trigger.getTriggerActionList())
-						{
-							if(ta instanceof PlaySoundTriggerAction)
-							{
-								//System.err.println(roadID_trigger + "," + lane_trigger + "," + s_trigger + " --> PlaySoundTriggerAction");
-								return true;
-							}
-						}
+						//System.err.println(roadID_car + "," + lane_car + "," + s_car + " --> PlaySoundTriggerAction");
+						return true;
 					}
 				}
 			}
@@ -826,7 +895,6 @@ public class DriveAnalyzer extends SimulationBasics
 
 	private void updateMessageBox() 
 	{
-		DecimalFormat decimalFormat = new DecimalFormat("#0.00");
 		String speedString = " speed: " + decimalFormat.format(currentDataUnit.getSpeed()) + " km/h";
 		
 		Long currentTimeStamp = currentDataUnit.getDate().getTime();
@@ -891,7 +959,7 @@ public class DriveAnalyzer extends SimulationBasics
 
 	private void updateTimestamp() 
 	{
-		Long currentTimeStamp = dataUnitList.get(targetIndex).getDate().getTime();
+		Long currentTimeStamp = timeline.getTime(targetIndex);
 		
 		if(showRelativeTime)
 		{
@@ -921,7 +989,10 @@ public class DriveAnalyzer extends SimulationBasics
 				PanelCenter.getMessageBox().update();
 			
 			if(replayIsRunning)
-				updatePosition();
+				updatePosition(tpf);
+			
+			if(trajectoryRenderer != null)
+				trajectoryRenderer.update(cam);
 			
 			try {
 				Thread.sleep((long) (Math.max((1000/maxFramerate)-tpf,0)));
@@ -932,34 +1003,33 @@ public class DriveAnalyzer extends SimulationBasics
     }
     
 
-    private void updatePosition() 
+    private void updatePosition(float tpf) 
+	{
+		// advance replay time according to replay speed and direction
+		double step = 1000d * tpf * replaySpeed;
+		double newReplayTime = replayReverse ? replayTime - step : replayTime + step;
+		
+		seekToTime((long) newReplayTime);
+		
+		// keep fraction of milliseconds for slow replay speeds
+		if(timeline.getStartTime() < newReplayTime && newReplayTime < timeline.getEndTime())
+			replayTime = newReplayTime;
+		
+		// stop replay when first or last position has been reached
+		if((!replayReverse && replayTime >= timeline.getEndTime()) 
+				|| (replayReverse && replayTime <= timeline.getStartTime()))
+			replayIsRunning = false;
+	}
+	
+	
+	private void updateScrubBar()
 	{
-		if((targetIndex + 1) < dataUnitList.size())
+		if(scrubBar != null && timeline.size() >= 2)
 		{
-			// offset translates current time string to recording time
-			long currentRecordingTime = System.currentTimeMillis() - offset;
-			long timeAtNextTarget = dataUnitList.get(targetIndex + 1).getDate().getTime();
+			long duration = timeline.getEndTime() - timeline.getStartTime();
+			scrubBar.setPosition((float) ((replayTime - timeline.getStartTime()) / duration));
 			
-			if(currentRecordingTime >= timeAtNextTarget)
-			{				
-				targetIndex++;
-				updateView(dataUnitList.get(targetIndex));
-			}
-			else
-			{
-				// provide previous and next data units
-				DataUnit previous = dataUnitList.get(targetIndex);
-				DataUnit next = dataUnitList.get(targetIndex+1);
-				
-				// interpolate between previous and next data unit
-				DataUnit interpolatedDataUnit = DataUnit.interpolate(previous, next, currentRecordingTime);
-				updateView(interpolatedDataUnit);
-			}
-		}
-		else
-		{
-			// reset replay when last position has been reached
-			replayIsRunning = false;
+			scrubBar.setSpeedText((replayReverse ? "<< " : ">> ") + replaySpeedFormat.format(replaySpeed) + "x");
 		}
 	}
 
@@ -990,6 +1060,9 @@ public class DriveAnalyzer extends SimulationBasics
 		{
 			KnowledgeBase.KB.disconnect();
 		}
+		
+		// write screenshots still pending in the worker threads
+		scheduler.close();
 
 		super.destroy();
 		//System.exit(0);
@@ -20,14 +20,23 @@ package eu.opends.main;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.jme3.math.FastMath;
 import com.jme3.math.Quaternion;
@@ -41,6 +50,7 @@ import com.jme3.system.JmeContext.Type;
 import eu.opends.analyzer.DataUnit;
 import eu.opends.analyzer.DataUnitPostProcessor;
 import eu.opends.analyzer.DataWriterPostProcessor;
+import eu.opends.analyzer.DriveDataTimeline;
 import eu.opends.analyzer.NoiseRecord;
 import eu.opends.analyzer.RayDirectionRecord;
 import eu.opends.analyzer.DataReader;
@@ -53,7 +63,7 @@ import eu.opends.gesture.RecordedReferenceObject;
 import eu.opends.gesture.SceneRay;
 import eu.opends.opendrive.OpenDriveCenter;
 import eu.opends.opendrive.processed.ODLane;
-import eu.opends.opendrive.util.ODPosition;
+import eu.opends.trigger.ODTriggerIndex;
 import eu.opends.trigger.PlaySoundTriggerAction;
 import eu.opends.trigger.Trigger;
 import eu.opends.trigger.TriggerAction;
@@ -83,6 +93,27 @@ public class PostProcessor extends SimulationBasics
 	private Vector3f pointingDirectionLocal = null;
 	private Boolean isNoise = null;
 	
+	private static final String headGazeDirectionFileName = "headgaze_smooth.txt";
+	private static final String pointingDirectionFileName = "gesture_aptive_smooth.txt";
+	private static final String noiseFileName = "audio.txt";
+	private static final Pattern trackPattern = Pattern.compile("^carData_track(\\d+)");
+	
+	// batch mode: recordings are loaded and written by a worker pool while the
+	// scene (which is loaded only once) is evaluated on the update thread
+	private ArrayList<File> batchFileList = null;
+	private int workerCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	private ExecutorService workerPool;
+	private LinkedList<Future<BatchJob>> loadingJobs = new LinkedList<Future<BatchJob>>();
+	private ArrayList<Future<BatchJob>> writingJobs = new ArrayList<Future<BatchJob>>();
+	private int nextBatchFileIndex = 0;
+	private BatchJob currentJob = null;
+	private String batchDrivingTask;
+	private ArrayList<String> failureList = new ArrayList<String>();
+	private long processedRecords = 0;
+	
+	// maximum time (ns) spent processing records per frame in batch mode
+	private static final long frameBudget = 20000000L;
+	
 	
 	public boolean isValidAnalyzerFile(File analyzerFile) 
 	{
@@ -100,16 +131,14 @@ public class PostProcessor extends SimulationBasics
 		 
 		loadDrivingTask();
 		
-		loadData();
-		
-		String headGazeDirectionFileName = "headgaze_smooth.txt";
-		headGazeDirectionRecord = new RayDirectionRecord(analyzerFilePath, headGazeDirectionFileName, false);
-		
-		String pointingDirectionFileName = "gesture_aptive_smooth.txt";
-		pointingDirectionRecord = new RayDirectionRecord(analyzerFilePath, pointingDirectionFileName, true);
-		
-		String noiseFileName = "audio.txt";
-		noiseRecord = new NoiseRecord(analyzerFilePath, noiseFileName);
+		if(batchFileList == null)
+		{
+			loadData();
+			
+			headGazeDirectionRecord = new RayDirectionRecord(analyzerFilePath, headGazeDirectionFileName, false);
+			pointingDirectionRecord = new RayDirectionRecord(analyzerFilePath, pointingDirectionFileName, true);
+			noiseRecord = new NoiseRecord(analyzerFilePath, noiseFileName);
+		}
 		
 		super.simpleInitApp();	
 
@@ -133,12 +162,15 @@ public class PostProcessor extends SimulationBasics
 		
         initialTimestamp = System.currentTimeMillis();
         
+        if(batchFileList != null)
+        	startBatch();
+        
         File f = new File(analyzerFilePath);
-        if(f.getParent() != null && rewriteOutputFile)
+        if(batchFileList == null && f.getParent() != null && rewriteOutputFile)
         {
         	String outputFolder = f.getParent();
         	dataWriter = new DataWriterPostProcessor(outputFolder, dataReader.getNameOfDriver(), 
-        			dataReader.getNameOfDrivingTaskFile(), dataReader.getFileDate(), -1);
+        			dataReader.getNameOfDrivingTaskFile(), dataReader.getFileDate(), getTrackNumber(f));
         }
 		
         initializationFinished = true;
@@ -169,7 +201,11 @@ public class PostProcessor extends SimulationBasics
     @Override
     public void simpleUpdate(float tpf) 
     {
-    	if(initializationFinished)
+    	if(initializationFinished && batchFileList != null)
+    	{
+    		updateBatch();
+    	}
+    	else if(initializationFinished)
     	{
 			if((targetIndex) < dataUnitList.size())
 			{
@@ -205,13 +241,18 @@ public class PostProcessor extends SimulationBasics
 	}
 
 
+	private ODTriggerIndex odTriggerIndex = new ODTriggerIndex(SimulationBasics.getODTriggerActionListMap(), 1.5d);
+	private ArrayList<Trigger> odTriggerList = new ArrayList<Trigger>();
 	private HashSet<ODLane> expectedLanes = new HashSet<ODLane>();
+	private ODLane previousLane = null;
+	private double previousS = 0;
 	private boolean doTriggerCheck()
 	{
 		// get most probable lane from result list according to expected lane list (and 
 		// highest score concerning least heading deviation and least elevation difference)
 		Vector3f carPos = target.getWorldTranslation();
-		ODLane lane = openDriveCenter.getMostProbableLane(carPos, expectedLanes);
+		ODLane lane = openDriveCenter.getMostProbableLane(carPos, expectedLanes, previousLane, previousS);
+		previousLane = lane;
 		if(lane != null)
 		{
 			//expectedLanes.add(lane);
@@ -219,32 +260,20 @@ public class PostProcessor extends SimulationBasics
 			String roadID_car = lane.getODRoad().getID();
 			int lane_car = lane.getID();
 			double s_car = lane.getCurrentInnerBorderPoint().getS();
+			previousS = s_car;
 			
 			//System.err.println("POS: " + roadID_car + "," + lane_car + "," + s_car);
 			
-			for(Entry<ODPosition, Trigger> item : SimulationBasics.getODTriggerActionListMap().entrySet())
+			// triggers located on the current road and lane within 1.5 m of the car
+			odTriggerIndex.getTriggers(roadID_car, lane_car, s_car, s_car, odTriggerList);
+			for(Trigger trigger : odTriggerList)
 			{
-				ODPosition openDrivePos = item.getKey();
-				Trigger trigger = item.getValue();
-				
-				String roadID_trigger = openDrivePos.getRoadID();
-				int lane_trigger = openDrivePos.getLane();
-				double s_trigger = openDrivePos.getS();
-
-				
-				if(roadID_trigger.equals(roadID_car) && (Math.abs(s_trigger-s_car) < 1.5d))
+				for(TriggerAction ta : trigger.getTriggerActionList())
 				{
-					// either trigger when car is in given lane or when lane_trigger == 0 and car is in any lane 
-					if(lane_trigger == lane_car || lane_trigger == 0)
+					if(ta instanceof PlaySoundTriggerAction)
 					{
-						for(TriggerAction ta : trigger.getTriggerActionList())
-						{
-							if(ta instanceof PlaySoundTriggerAction)
-							{
-								//System.err.println(roadID_trigger + "," + lane_trigger + "," + s_trigger + " --> PlaySoundTriggerAction");
-								return true;
-							}
-						}
+						//System.err.println(roadID_car + "," + lane_car + "," + s_car + " --> PlaySoundTriggerAction");
+						return true;
 					}
 				}
 			}
@@ -322,7 +351,7 @@ public class PostProcessor extends SimulationBasics
 	
 	private void updateDataWriter(boolean isTriggerPosition, TreeMap<String, RecordedReferenceObject> newReferenceObjectList) 
 	{
-		if (dataWriter != null) 
+		if (dataWriter != null || currentJob != null) 
 		{
 			Date curDate = currentDataUnit.getDate();
 			float xPos = currentDataUnit.getXpos();
@@ -415,9 +444,246 @@ public class PostProcessor extends SimulationBasics
 					lateralHeadGazeAngle, verticalHeadGazeAngle, lateralPointingAngle, verticalPointingAngle,
 					hitObjectNameByHeadGazeRay, isHitTargetByHeadGazeRay, hitObjectNameByPointingRay,
 					isHitTargetByPointingRay, isNoise, logString);
-			dataWriter.write(row);
+			
+			// in batch mode, rows will be written by the worker pool
+			if(currentJob != null)
+				currentJob.rowList.add(row);
+			else
+				dataWriter.write(row);
 		} 
 	}
+	
+	
+	/**
+	 * Data of a single recording processed in batch mode. Loading (reading and 
+	 * parsing the input files) and writing are executed by the worker pool; the 
+	 * records are evaluated against the shared scene on the update thread.
+	 */
+	private static class BatchJob implements Callable<BatchJob>
+	{
+		private File file;
+		private DataReader dataReader = new DataReader();
+		private DriveDataTimeline timeline;
+		private RayDirectionRecord headGazeDirectionRecord;
+		private RayDirectionRecord pointingDirectionRecord;
+		private NoiseRecord noiseRecord;
+		private ArrayList<DataUnitPostProcessor> rowList;
+		private int index = 0;
+		private String error = null;
+		
+		
+		public BatchJob(File file)
+		{
+			this.file = file;
+		}
+		
+		
+		@Override
+		public BatchJob call()
+		{
+			try {
+				
+				String path = file.getPath();
+				if(!dataReader.initReader(path, false) || !dataReader.loadDriveDataTimeline())
+					error = "could not read analyzer file";
+				else
+				{
+					timeline = dataReader.getDriveDataTimeline();
+					headGazeDirectionRecord = new RayDirectionRecord(path, headGazeDirectionFileName, false);
+					pointingDirectionRecord = new RayDirectionRecord(path, pointingDirectionFileName, true);
+					noiseRecord = new NoiseRecord(path, noiseFileName);
+					rowList = new ArrayList<DataUnitPostProcessor>(timeline.size());
+				}
+				
+			} catch (Exception e) {
+				error = e.toString();
+			}
+			
+			return this;
+		}
+	}
+	
+	
+	/**
+	 * Writes the processed rows of a batch job (executed by the worker pool).
+	 */
+	private static class WriteTask implements Callable<BatchJob>
+	{
+		private BatchJob job;
+		
+		
+		public WriteTask(BatchJob job)
+		{
+			this.job = job;
+		}
+		
+		
+		@Override
+		public BatchJob call()
+		{
+			DataWriterPostProcessor writer = new DataWriterPostProcessor(job.file.getParent(), 
+					job.dataReader.getNameOfDriver(), job.dataReader.getNameOfDrivingTaskFile(), 
+					job.dataReader.getFileDate(), getTrackNumber(job.file));
+			
+			for(DataUnitPostProcessor row : job.rowList)
+				writer.write(row);
+			
+			writer.quit();
+			
+			// release rows and input data once written
+			job.rowList = null;
+			job.timeline = null;
+			return job;
+		}
+	}
+	
+	
+	private void startBatch()
+	{
+		workerPool = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) 
+			{
+				Thread thread = new Thread(runnable, "PostProcessorWorker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		
+		// load a limited number of recordings in advance to bound memory consumption
+		for(int i=0; i<2*workerCount; i++)
+			submitNextBatchFile();
+		
+		System.out.println("Processing " + batchFileList.size() + " files with " + workerCount + " workers");
+	}
+	
+	
+	private void submitNextBatchFile()
+	{
+		if(nextBatchFileIndex < batchFileList.size())
+		{
+			File file = batchFileList.get(nextBatchFileIndex++);
+			loadingJobs.add(workerPool.submit(new BatchJob(file)));
+		}
+	}
+	
+	
+	private void updateBatch()
+	{
+		long frameStart = System.nanoTime();
+		
+		while(System.nanoTime() - frameStart < frameBudget)
+		{
+			if(currentJob == null)
+			{
+				if(loadingJobs.isEmpty())
+				{
+					finishBatch();
+					return;
+				}
+				
+				// wait (next frame) until the next recording in order has been loaded
+				if(!loadingJobs.getFirst().isDone())
+					return;
+				
+				startBatchJob(getJob(loadingJobs.removeFirst()));
+				submitNextBatchFile();
+				continue;
+			}
+			
+			if(currentJob.index < currentJob.timeline.size())
+			{
+				updateView(currentJob.timeline.getDataUnit(currentJob.index));
+				currentJob.index++;
+				processedRecords++;
+				
+				// scene graph must be up to date before the next record is evaluated
+				rootNode.updateGeometricState();
+			}
+			else
+			{
+				writingJobs.add(workerPool.submit(new WriteTask(currentJob)));
+				currentJob = null;
+			}
+		}
+	}
+	
+	
+	private BatchJob getJob(Future<BatchJob> future)
+	{
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			failureList.add("unknown file: " + e.getCause());
+		}
+		return null;
+	}
+	
+	
+	private void startBatchJob(BatchJob job)
+	{
+		if(job == null)
+			return;
+		
+		if(job.error == null && !batchDrivingTask.equals(job.dataReader.getNameOfDrivingTaskFile()))
+			job.error = "recorded with a different driving task (" + job.dataReader.getNameOfDrivingTaskFile() + ")";
+		
+		if(job.error != null)
+		{
+			failureList.add(job.file.getPath() + ": " + job.error);
+			return;
+		}
+		
+		// per-recording state
+		headGazeDirectionRecord = job.headGazeDirectionRecord;
+		pointingDirectionRecord = job.pointingDirectionRecord;
+		noiseRecord = job.noiseRecord;
+		expectedLanes.clear();
+		
+		currentJob = job;
+	}
+	
+	
+	private void finishBatch()
+	{
+		workerPool.shutdown();
+		
+		int writtenFiles = 0;
+		for(Future<BatchJob> future : writingJobs)
+		{
+			try {
+				future.get();
+				writtenFiles++;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				failureList.add("writing failed: " + e.getCause());
+			}
+		}
+		
+		try {
+			workerPool.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		long timeDiff = Math.max(1, System.currentTimeMillis() - initialTimestamp);
+		System.out.println("finished after: " + timeDiff + " ms");
+		System.out.println("processed files: " + writtenFiles + " of " + batchFileList.size() 
+				+ ", records: " + processedRecords + " (" + (processedRecords*1000/timeDiff) + " records/s)");
+		
+		if(!failureList.isEmpty())
+		{
+			System.err.println("failed files: " + failureList.size());
+			for(String failure : failureList)
+				System.err.println("  " + failure);
+		}
+		
+		batchFileList = null;
+		initializationFinished = false;
+		stop();
+	}
 
     
 	/**
@@ -441,7 +707,12 @@ public class PostProcessor extends SimulationBasics
     	{
     		analyzer.analyzerFilePath = args[0];
     		
-    		if(analyzer.isValidAnalyzerFile(new File(args[0])))
+    		// batch mode: process all recordings in the given directory
+    		// (args: <directory> [<number of worker threads>])
+    		if(new File(args[0]).isDirectory() && !analyzer.initBatch(new File(args[0]), args))
+    			return;
+    		
+    		if(analyzer.isValidAnalyzerFile(new File(analyzer.analyzerFilePath)))
     		{
     			AppSettings settings = new AppSettings(false);
     	        settings.setUseJoysticks(true);
@@ -458,6 +729,79 @@ public class PostProcessor extends SimulationBasics
 	}
 	
 	
+	private boolean initBatch(File directory, String[] args)
+	{
+		batchFileList = new ArrayList<File>();
+		collectAnalyzerFiles(directory, batchFileList);
+		Collections.sort(batchFileList);
+		
+		if(args.length >= 2)
+		{
+			try {
+				workerCount = Math.max(1, Integer.parseInt(args[1]));
+			} catch (NumberFormatException e) {
+				System.err.println("Invalid number of worker threads: " + args[1]);
+			}
+		}
+		
+		// the scene of the first valid recording will be loaded and used for all files
+		for(File file : batchFileList)
+		{
+			if(isValidAnalyzerFile(file))
+			{
+				analyzerFilePath = file.getPath();
+				batchDrivingTask = dataReader.getNameOfDrivingTaskFile();
+				return true;
+			}
+		}
+		
+		System.err.println("No valid analyzer file found in: " + directory.getPath());
+		return false;
+	}
+	
+	
+	/**
+	 * Returns the track number of the given analyzer file as encoded by the 
+	 * DataWriter (e.g. "carData_track3.txt" or "carData_track3(2).bin").
+	 * 
+	 * @param file
+	 * 			Analyzer file.
+	 * 
+	 * @return
+	 * 			Track number or -1 if the recording has not been assigned a track.
+	 */
+	private static int getTrackNumber(File file)
+	{
+		Matcher matcher = trackPattern.matcher(file.getName());
+		if(matcher.find())
+		{
+			try {
+				return Integer.parseInt(matcher.group(1));
+			} catch (NumberFormatException e) {
+				System.err.println("Invalid track number in file name: " + file.getName());
+			}
+		}
+		return -1;
+	}
+	
+	
+	private void collectAnalyzerFiles(File directory, ArrayList<File> fileList)
+	{
+		File[] files = directory.listFiles();
+		if(files == null)
+			return;
+		
+		for(File file : files)
+		{
+			String name = file.getName();
+			if(file.isDirectory())
+				collectAnalyzerFiles(file, fileList);
+			else if(name.startsWith("carData") && (name.endsWith(".txt") || name.endsWith(".bin")))
+				fileList.add(file);
+		}
+	}
+	
+	
 	public float getTargetHeading() 
 	{
 		// get Euler angles from rotation quaternion
@@ -0,0 +1,318 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.main;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import com.jme3.system.Timer;
+
+/**
+ * Simulated clock of the batch mode. Replaces the timer of the jME loop:
+ * every frame advances the clock by a fixed step, regardless of the real
+ * time needed to compute the frame. Hence, the simulation runs as fast as
+ * the CPU allows and every run of a driving task produces the same results.
+ *
+ * Threads which sleep for a certain amount of time (e.g. traffic light
+ * programs, physical traffic) have to use SimulationClock.sleep()
+ * instead of Thread.sleep(). Without simulated clock (normal mode) this is
+ * equivalent to Thread.sleep(). In batch mode, sleeping threads will be woken
+ * up when the simulated time has elapsed. Threads started as participants
+ * run in lockstep with the jME loop: the next frame will not be computed
+ * before all participants are sleeping again. Delayed one-off tasks should
+ * rather be passed to the SimulationScheduler.
+ *
+ * @author agent
+ */
+public class SimulationClock extends Timer
+{
+	private static final long resolution = 1000000000L; // ns
+	private static SimulationClock instance = null;
+
+	private long stepNanos;
+	private long frameCounter = 0;
+	private long timeNanos = 0;
+	private long timeMillis = 0;
+	private boolean closed = false;
+
+	// participants currently not sleeping (the jME loop waits for them)
+	private int runningParticipants = 0;
+	private HashSet<Thread> participantSet = new HashSet<Thread>();
+
+	// sleeping participants and their wake-up times (ms)
+	private HashMap<Thread, Long> sleepingParticipantMap = new HashMap<Thread, Long>();
+
+
+	/**
+	 * Creates the simulated clock. From now on, all calls of SimulationClock.sleep()
+	 * refer to the simulated time.
+	 *
+	 * @param stepSize
+	 * 			Simulated time (in seconds) per frame.
+	 */
+	public SimulationClock(float stepSize)
+	{
+		stepNanos = Math.round(stepSize * (double) resolution);
+		instance = this;
+	}
+
+
+	/**
+	 * Returns the simulated clock if the simulation is running in batch mode.
+	 *
+	 * @return
+	 * 			Simulated clock or null if running in real time.
+	 */
+	public static SimulationClock getInstance()
+	{
+		return instance;
+	}
+
+
+	/**
+	 * Returns the current time in milliseconds: time since start of the
+	 * simulated clock (batch mode) or System.currentTimeMillis() otherwise.
+	 *
+	 * @return
+	 * 			Current time (ms).
+	 */
+	public static long currentTimeMillis()
+	{
+		SimulationClock clock = instance;
+		if(clock != null)
+			return clock.getTimeMillis();
+		else
+			return System.currentTimeMillis();
+	}
+
+
+	/**
+	 * Causes the current thread to sleep for the given amount of (simulated)
+	 * time.
+	 *
+	 * @param millis
+	 * 			Duration (ms).
+	 *
+	 * @throws InterruptedException
+	 * 			if the thread has been interrupted while sleeping.
+	 */
+	public static void sleep(long millis) throws InterruptedException
+	{
+		SimulationClock clock = instance;
+		if(clock != null && !clock.isClosed())
+			clock.simulationSleep(millis);
+		else
+			Thread.sleep(millis);
+	}
+
+
+	/**
+	 * Starts the given thread. In batch mode, the thread will be a participant
+	 * of the simulated clock, i.e. the jME loop waits for it until it calls
+	 * SimulationClock.sleep() or terminates. Hence, the thread must not block
+	 * on anything else than SimulationClock.sleep().
+	 *
+	 * @param thread
+	 * 			Thread to start.
+	 */
+	public static void startParticipant(Thread thread)
+	{
+		SimulationClock clock = instance;
+		if(clock != null)
+			clock.addParticipant(thread);
+
+		thread.start();
+	}
+
+
+	/**
+	 * Has to be called by a participant when terminating (no effect on other
+	 * threads).
+	 */
+	public static void participantFinished()
+	{
+		SimulationClock clock = instance;
+		if(clock != null)
+			clock.removeParticipant(Thread.currentThread());
+	}
+
+
+	/**
+	 * Releases all sleeping threads. Afterwards, SimulationClock.sleep()
+	 * falls back to real time (e.g. while shutting down the simulator).
+	 */
+	public synchronized void close()
+	{
+		closed = true;
+		notifyAll();
+	}
+
+
+	public synchronized boolean isClosed()
+	{
+		return closed;
+	}
+
+
+	public synchronized long getTimeMillis()
+	{
+		return timeMillis;
+	}
+
+
+	@Override
+	public synchronized long getTime()
+	{
+		return timeNanos;
+	}
+
+
+	@Override
+	public long getResolution()
+	{
+		return resolution;
+	}
+
+
+	@Override
+	public float getFrameRate()
+	{
+		return resolution / (float) stepNanos;
+	}
+
+
+	@Override
+	public float getTimePerFrame()
+	{
+		return stepNanos / (float) resolution;
+	}
+
+
+	/**
+	 * Advances the clock by one step (called by the jME loop at the beginning
+	 * of every frame), wakes up all threads whose sleeping time has elapsed
+	 * and waits until all participants are sleeping again.
+	 */
+	@Override
+	public synchronized void update()
+	{
+		// participants started during the last frame finish at the current time
+		waitForParticipants();
+
+		frameCounter++;
+		timeNanos = frameCounter * stepNanos;
+		timeMillis = timeNanos / 1000000L;
+
+		Iterator<Entry<Thread, Long>> iterator = sleepingParticipantMap.entrySet().iterator();
+		while(iterator.hasNext())
+		{
+			if(iterator.next().getValue() <= timeMillis)
+			{
+				iterator.remove();
+				runningParticipants++;
+			}
+		}
+
+		notifyAll();
+
+		waitForParticipants();
+	}
+
+
+	private void waitForParticipants()
+	{
+		try {
+
+			while(!closed && runningParticipants > 0)
+				wait();
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	@Override
+	public synchronized void reset()
+	{
+		frameCounter = 0;
+		timeNanos = 0;
+		timeMillis = 0;
+
+		// sleeping participants will not be woken up before their former wake-up times
+	}
+
+
+	private synchronized void addParticipant(Thread thread)
+	{
+		if(participantSet.add(thread))
+			runningParticipants++;
+	}
+
+
+	private synchronized void removeParticipant(Thread thread)
+	{
+		if(participantSet.remove(thread))
+		{
+			if(sleepingParticipantMap.remove(thread) == null)
+				runningParticipants--;
+
+			notifyAll();
+		}
+	}
+
+
+	private synchronized void simulationSleep(long millis) throws InterruptedException
+	{
+		Thread thread = Thread.currentThread();
+		long wakeUpTime = timeMillis + Math.max(0, millis);
+		boolean isParticipant = participantSet.contains(thread);
+
+		if(isParticipant)
+		{
+			// hand over to the jME loop
+			sleepingParticipantMap.put(thread, wakeUpTime);
+			runningParticipants--;
+			notifyAll();
+		}
+
+		try {
+
+			if(isParticipant)
+			{
+				while(!closed && sleepingParticipantMap.containsKey(thread))
+					wait();
+			}
+			else
+			{
+				while(!closed && timeMillis < wakeUpTime)
+					wait();
+			}
+
+		} finally {
+
+			// woken up by close() or interrupt() instead of update()
+			if(isParticipant && sleepingParticipantMap.remove(thread) != null)
+				runningParticipants++;
+		}
+	}
+}
@@ -57,6 +57,7 @@ public class SimulationDefaults
 	public static String MultiDriver_ip = "127.0.0.1";
 	public static int MultiDriver_port = 1234;
 	public static int MultiDriver_updateRate = 20;
+	public static String MultiDriver_protocol = "tcp";
 	
 	public static boolean Eyetracker_enableConnection = false;
 	public static int Eyetracker_port = 2010;
@@ -79,8 +80,17 @@ public class SimulationDefaults
 	
 	public static boolean SettingsControllerServer_startServer = false;
 	public static int SettingsControllerServer_port = 1000;
+	public static boolean SettingsControllerServer_multiClient = false;
 	
 	public static boolean Analyzer_suppressPDFPopup = false;
+	public static String Analyzer_recordingFormat = "text";
+	public static boolean Analyzer_compressRecording = false;
+	public static Integer Analyzer_writerBufferSize = 1024;
+	public static String Analyzer_writerBackpressure = "grow";
+	public static String Analyzer_samplingClock = "wall_clock";
+	public static Float Analyzer_samplingRate = 20f;
+	public static boolean Analyzer_exportSubsystemTiming = false;
+	public static Float Analyzer_frameBudget = 16.7f;
 	
 	public static float gravity = 9.81f;
 	
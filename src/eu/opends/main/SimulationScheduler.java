@@ -0,0 +1,480 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.main;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Central scheduler for delayed work (delayed trigger actions, unlocking of
+ * triggers, end of pauses, delayed sounds, HMI updates, ...). Instead of
+ * spawning a sleeping thread per event, tasks are stored in hierarchical timer
+ * wheels which are advanced by the jME loop (see update()). Hence, delays refer
+ * to the simulation time: in batch mode they elapse with the simulated clock
+ * and tasks scheduled by schedule() do not elapse while the simulation is
+ * paused. All timed tasks are executed by the jME loop, i.e. they may modify
+ * the scene graph, but must not block.
+ *
+ * Blocking work (file and network I/O) can be passed to submit(), which runs
+ * it in a small pool of worker threads. If the queue of the pool is full, the
+ * task will be executed by the calling thread instead.
+ *
+ * @author agent
+ */
+public class SimulationScheduler
+{
+	// resolution of the timer wheels (ms)
+	private static final long tickMillis = 10;
+
+	// 4 levels of 64 slots each: 0.64 s, 41 s, 44 min, 47 h
+	private static final int wheelBits = 6;
+	private static final int wheelSize = 1 << wheelBits;
+	private static final int wheelMask = wheelSize - 1;
+	private static final int levels = 4;
+
+	private static final int workerThreads = 2;
+	private static final int workerQueueSize = 64;
+
+	// time (s) to wait for pending blocking tasks when closing
+	private static final int closeTimeout = 5;
+
+	private TimerWheel simulationWheel = new TimerWheel();
+	private TimerWheel frameWheel = new TimerWheel();
+	private ArrayList<ScheduledTask> dueTaskList = new ArrayList<ScheduledTask>();
+
+	private ThreadPoolExecutor workerPool = null;
+	private boolean closed = false;
+
+	// metrics
+	private long executedTasks = 0;
+	private long latenessSum = 0;
+	private long maxLateness = 0;
+	private long executedBlockingTasks = 0;
+	private long waitingTimeSum = 0;
+	private long maxWaitingTime = 0;
+	private int maxQueueDepth = 0;
+
+
+	/**
+	 * Handle of a scheduled task.
+	 */
+	public static class ScheduledTask
+	{
+		private Runnable runnable;
+		private long dueTime;
+		private long dueTick;
+		private volatile boolean cancelled = false;
+
+
+		private ScheduledTask(Runnable runnable, long dueTime)
+		{
+			this.runnable = runnable;
+			this.dueTime = dueTime;
+			this.dueTick = (dueTime + tickMillis - 1) / tickMillis;
+		}
+
+
+		/**
+		 * Prevents the task from being executed (no effect if it already has been executed).
+		 */
+		public void cancel()
+		{
+			cancelled = true;
+		}
+
+
+		public boolean isCancelled()
+		{
+			return cancelled;
+		}
+	}
+
+
+	/**
+	 * Hierarchical timer wheel: level 0 contains the tasks due within the next
+	 * wheelSize ticks (one slot per tick), each higher level covers wheelSize
+	 * slots of the level below. When the lower level has completed a rotation,
+	 * the next slot of the higher level is distributed to the lower levels.
+	 */
+	private static class TimerWheel
+	{
+		private ArrayList<ArrayList<ScheduledTask>> slotList = new ArrayList<ArrayList<ScheduledTask>>();
+		private long timeNanos = 0;
+		private long currentTick = 0;
+		private int pendingTasks = 0;
+
+
+		private TimerWheel()
+		{
+			for(int i=0; i<levels*wheelSize; i++)
+				slotList.add(new ArrayList<ScheduledTask>());
+		}
+
+
+		private long getTimeMillis()
+		{
+			return timeNanos / 1000000L;
+		}
+
+
+		private void add(ScheduledTask task)
+		{
+			// the slot of the current tick has already been processed
+			if(task.dueTick <= currentTick)
+				task.dueTick = currentTick + 1;
+			
+			insert(task);
+			pendingTasks++;
+		}
+
+
+		private void insert(ScheduledTask task)
+		{
+			// tasks beyond the range of the highest level will be inserted again when reached
+			long delta = Math.max(0, task.dueTick - currentTick);
+			long tick = currentTick + Math.min(delta, (1L << (wheelBits*levels)) - 1);
+
+			int level = 0;
+			while(level < levels-1 && delta >= (1L << (wheelBits*(level+1))))
+				level++;
+
+			int slot = (int) ((tick >> (wheelBits*level)) & wheelMask);
+			slotList.get(level*wheelSize + slot).add(task);
+		}
+
+
+		private void advance(float seconds, ArrayList<ScheduledTask> dueTaskList)
+		{
+			timeNanos += (long) (seconds * 1000000000.0);
+			long targetTick = getTimeMillis() / tickMillis;
+
+			while(currentTick < targetTick)
+			{
+				currentTick++;
+
+				// distribute the current slot of each level, whose lower level has completed a rotation
+				for(int level=levels-1; level>0; level--)
+				{
+					if((currentTick & ((1L << (wheelBits*level)) - 1)) == 0)
+					{
+						int slot = (int) ((currentTick >> (wheelBits*level)) & wheelMask);
+						ArrayList<ScheduledTask> taskList = slotList.get(level*wheelSize + slot);
+						if(!taskList.isEmpty())
+						{
+							ArrayList<ScheduledTask> cascadeList = new ArrayList<ScheduledTask>(taskList);
+							taskList.clear();
+							for(ScheduledTask task : cascadeList)
+								insert(task);
+						}
+					}
+				}
+
+				ArrayList<ScheduledTask> taskList = slotList.get((int) (currentTick & wheelMask));
+				if(!taskList.isEmpty())
+				{
+					ArrayList<ScheduledTask> expiredList = new ArrayList<ScheduledTask>(taskList);
+					taskList.clear();
+					for(ScheduledTask task : expiredList)
+					{
+						if(task.dueTick > currentTick)
+							insert(task);
+						else
+						{
+							pendingTasks--;
+							if(!task.cancelled)
+								dueTaskList.add(task);
+						}
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Executes the given task after the given amount of simulation time. The
+	 * delay does not elapse while the simulation is paused.
+	 *
+	 * @param runnable
+	 * 			Task to execute (by the jME loop).
+	 *
+	 * @param delay
+	 * 			Delay (s).
+	 *
+	 * @return
+	 * 			Handle of the scheduled task.
+	 */
+	public synchronized ScheduledTask schedule(Runnable runnable, float delay)
+	{
+		return schedule(simulationWheel, runnable, delay);
+	}
+
+
+	/**
+	 * Executes the given task after the given amount of time. The delay elapses
+	 * even if the simulation is paused (e.g. to end a pause).
+	 *
+	 * @param runnable
+	 * 			Task to execute (by the jME loop).
+	 *
+	 * @param delay
+	 * 			Delay (s).
+	 *
+	 * @return
+	 * 			Handle of the scheduled task.
+	 */
+	public synchronized ScheduledTask scheduleIgnoringPause(Runnable runnable, float delay)
+	{
+		return schedule(frameWheel, runnable, delay);
+	}
+
+
+	private ScheduledTask schedule(TimerWheel wheel, Runnable runnable, float delay)
+	{
+		long dueTime = wheel.getTimeMillis() + Math.max(0, (long) (delay * 1000));
+		ScheduledTask task = new ScheduledTask(runnable, dueTime);
+		wheel.add(task);
+		return task;
+	}
+
+
+	/**
+	 * Advances the timer wheels and executes all tasks which are due. Has to be
+	 * called by the jME loop once per frame.
+	 *
+	 * @param tpf
+	 * 			Time per frame (s).
+	 *
+	 * @param isPause
+	 * 			True, if the simulation is paused.
+	 */
+	public void update(float tpf, boolean isPause)
+	{
+		ArrayList<ScheduledTask> taskList;
+
+		synchronized(this)
+		{
+			if(!isPause)
+				advance(simulationWheel, tpf);
+			advance(frameWheel, tpf);
+
+			if(dueTaskList.isEmpty())
+				return;
+
+			taskList = new ArrayList<ScheduledTask>(dueTaskList);
+			dueTaskList.clear();
+		}
+
+		// tasks may schedule further tasks
+		for(ScheduledTask task : taskList)
+		{
+			try {
+
+				task.runnable.run();
+
+			} catch (Exception e) {
+
+				System.err.println("SimulationScheduler: task failed (" + e + ")");
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	private void advance(TimerWheel wheel, float tpf)
+	{
+		int firstIndex = dueTaskList.size();
+		wheel.advance(tpf, dueTaskList);
+
+		long timeMillis = wheel.getTimeMillis();
+		for(int i=firstIndex; i<dueTaskList.size(); i++)
+		{
+			long lateness = timeMillis - dueTaskList.get(i).dueTime;
+			latenessSum += lateness;
+			maxLateness = Math.max(maxLateness, lateness);
+			executedTasks++;
+		}
+	}
+
+
+	/**
+	 * Executes the given blocking task (e.g. writing a file) in a worker thread.
+	 * If all workers are busy and the queue is full, the task will be executed
+	 * by the calling thread.
+	 *
+	 * @param runnable
+	 * 			Task to execute.
+	 *
+	 * @return
+	 * 			Future of the task (null, if executed by the calling thread).
+	 */
+	public Future<?> submit(final Runnable runnable)
+	{
+		final long submitTime = System.nanoTime();
+
+		Runnable measuredRunnable = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				recordWaitingTime((System.nanoTime() - submitTime) / 1000000L);
+				runnable.run();
+			}
+		};
+
+		ThreadPoolExecutor pool = getWorkerPool();
+		if(pool != null)
+		{
+			try {
+
+				Future<?> future = pool.submit(measuredRunnable);
+				recordQueueDepth(pool.getQueue().size());
+				return future;
+
+			} catch (RejectedExecutionException e) {
+				// queue full or shutting down --> run in calling thread
+			}
+		}
+
+		measuredRunnable.run();
+		return null;
+	}
+
+
+	private synchronized ThreadPoolExecutor getWorkerPool()
+	{
+		if(closed)
+			return null;
+
+		if(workerPool == null)
+		{
+			ThreadFactory threadFactory = new ThreadFactory()
+			{
+				private AtomicInteger counter = new AtomicInteger(0);
+
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "SimulationScheduler-worker-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			};
+
+			workerPool = new ThreadPoolExecutor(workerThreads, workerThreads, 30, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(workerQueueSize), threadFactory,
+					new ThreadPoolExecutor.AbortPolicy());
+			workerPool.allowCoreThreadTimeOut(true);
+		}
+
+		return workerPool;
+	}
+
+
+	private synchronized void recordWaitingTime(long waitingTime)
+	{
+		waitingTimeSum += waitingTime;
+		maxWaitingTime = Math.max(maxWaitingTime, waitingTime);
+		executedBlockingTasks++;
+	}
+
+
+	private synchronized void recordQueueDepth(int queueDepth)
+	{
+		maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+	}
+
+
+	/**
+	 * @return
+	 * 			Number of timed tasks waiting for execution.
+	 */
+	public synchronized int getPendingTasks()
+	{
+		return simulationWheel.pendingTasks + frameWheel.pendingTasks;
+	}
+
+
+	/**
+	 * @return
+	 * 			Number of blocking tasks waiting for a worker thread.
+	 */
+	public synchronized int getQueuedBlockingTasks()
+	{
+		return (workerPool != null) ? workerPool.getQueue().size() : 0;
+	}
+
+
+	/**
+	 * @return
+	 * 			Queue depths and lateness of the executed tasks (two lines: timed 
+	 * 			tasks and blocking tasks).
+	 */
+	public synchronized String getStatistics()
+	{
+		long averageLateness = (executedTasks > 0) ? latenessSum / executedTasks : 0;
+		long averageWaitingTime = (executedBlockingTasks > 0) ? waitingTimeSum / executedBlockingTasks : 0;
+
+		return "scheduler: " + getPendingTasks() + " pending, " + executedTasks + " run, late avg "
+				+ averageLateness + " max " + maxLateness + " ms\nworkers: " + getQueuedBlockingTasks()
+				+ " queued (max " + maxQueueDepth + "), " + executedBlockingTasks + " run, wait avg "
+				+ averageWaitingTime + " max " + maxWaitingTime + " ms";
+	}
+
+
+	/**
+	 * Waits for pending blocking tasks (at most closeTimeout seconds) and stops
+	 * the worker threads. Tasks submitted afterwards will be executed by the
+	 * calling thread.
+	 */
+	public void close()
+	{
+		ThreadPoolExecutor pool;
+
+		synchronized(this)
+		{
+			closed = true;
+			pool = workerPool;
+		}
+
+		if(pool != null)
+		{
+			pool.shutdown();
+
+			try {
+
+				if(!pool.awaitTermination(closeTimeout, TimeUnit.SECONDS))
+					System.err.println("SimulationScheduler: " + pool.getQueue().size()
+							+ " blocking task(s) not finished");
+
+			} catch (InterruptedException e) {
+
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		System.out.println(getStatistics());
+	}
+}
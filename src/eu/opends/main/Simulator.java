@@ -32,7 +32,8 @@ import java.util.List;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
 
-import eu.opends.profiler.BasicProfilerState;
+import eu.opends.profiler.SubsystemProfiler;
+import eu.opends.profiler.SubsystemProfilerState;
 import com.jme3.app.StatsAppState;
 //import com.jme3.app.state.VideoRecorderAppState;
 import com.jme3.input.Joystick;
@@ -40,15 +41,20 @@ import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import com.jme3.niftygui.NiftyJmeDisplay;
 import com.jme3.scene.Spatial.CullHint;
+import com.jme3.system.AppSettings;
 import com.jme3.system.JmeContext.Type;
 //import com.sun.javafx.application.PlatformImpl;
 
 import de.lessvoid.nifty.Nifty;
 import eu.opends.analyzer.DrivingTaskLogger;
 import eu.opends.analyzer.DataWriter;
+import eu.opends.analyzer.DataWriter.RecordingFormat;
+import eu.opends.analyzer.DataWriter.SamplingMode;
+import eu.opends.analyzer.SampleRingBuffer.BackpressureMode;
 import eu.opends.audio.AudioCenter;
 import eu.opends.basics.InternalMapProcessing;
 import eu.opends.basics.MapObjectOD;
+import eu.opends.basics.MyBulletAppState.RenderMode;
 import eu.opends.basics.SimulationBasics;
 import eu.opends.camera.SimulatorCam;
 import eu.opends.cameraFlight.CameraFlight;
@@ -101,6 +107,7 @@ import eu.opends.visualization.MoviePlayer;
 public class Simulator extends SimulationBasics
 {
 	private static boolean isHeadLess = false;
+	private static BatchRunner batchRunner = null;
 	private final static Logger logger = Logger.getLogger(Simulator.class);
 
     private Nifty nifty;
@@ -108,6 +115,17 @@ public class Simulator extends SimulationBasics
     private boolean drivingTaskGiven = false;
     private boolean initializationFinished = false;
     
+    /**
+     * Returns the configuration of the batch mode.
+     * 
+     * @return
+     * 			Batch runner or null if the simulator is running in real time.
+     */
+    public static BatchRunner getBatchRunner()
+    {
+    	return batchRunner;
+    }
+    
     private static long simulationStartTime;
 	public static long getSimulationStartTime()
 	{
@@ -328,6 +346,13 @@ public class Simulator extends SimulationBasics
 	}
 	
 	
+	private SubsystemProfiler subsystemProfiler = new SubsystemProfiler();
+	public SubsystemProfiler getSubsystemProfiler() 
+	{
+		return subsystemProfiler;
+	}
+	
+	
     @Override
     public void simpleInitApp()
     {
@@ -372,15 +397,29 @@ public class Simulator extends SimulationBasics
     {
 		chronoPhysicsSpace = new ChronoPhysicsSpace();
 		
-    	stateManager.attach(new BasicProfilerState(false));
-    	
     	SimulationDefaults.drivingTaskFileName = drivingTaskFileName;
     	
     	Util.makeDirectory("analyzerData");
     	outputFolder = "analyzerData/" + Util.getDateTimeString();
     	
+    	// parallel batch runs may start within the same second
+    	if(batchRunner != null && !batchRunner.getName().isEmpty())
+    		outputFolder += "_" + batchRunner.getName();
+    	
     	initDrivingTaskLayers();
     	
+    	// per-subsystem timing of simpleUpdate() (overlay toggled by F5)
+    	float frameBudget = settingsLoader.getSetting(Setting.Analyzer_frameBudget, SimulationDefaults.Analyzer_frameBudget);
+    	SubsystemProfilerState subsystemProfilerState = new SubsystemProfilerState(subsystemProfiler, frameBudget, false);
+    	subsystemProfilerState.setScheduler(scheduler);
+    	stateManager.attach(subsystemProfilerState);
+    	
+    	if(settingsLoader.getSetting(Setting.Analyzer_exportSubsystemTiming, SimulationDefaults.Analyzer_exportSubsystemTiming))
+    	{
+    		Util.makeDirectory(outputFolder);
+    		subsystemProfiler.startExport(outputFolder + "/subsystemTiming.csv");
+    	}
+    	
     	// show stats if set in driving task
     	showStats(settingsLoader.getSetting(Setting.General_showStats, false));
     	
@@ -569,6 +608,17 @@ public class Simulator extends SimulationBasics
 		vegetationGenerator = new VegetationGenerator(this);
 		vegetationGenerator.init();
 		
+		if(batchRunner != null)
+		{
+			if(batchRunner.isRecording())
+			{
+				initializeDataWriter(-1);
+				dataWriter.setDataWriterEnabled(true);
+			}
+			
+			batchRunner.start();
+		}
+		
 		initializationFinished = true;
     }
 
@@ -601,8 +651,55 @@ public class Simulator extends SimulationBasics
 	 */
 	public void initializeDataWriter(int trackNumber) 
 	{
+		String recordingFormatString = settingsLoader.getSetting(Setting.Analyzer_recordingFormat, 
+				SimulationDefaults.Analyzer_recordingFormat);
+		RecordingFormat recordingFormat = getEnumSetting(RecordingFormat.class, recordingFormatString, 
+				RecordingFormat.TEXT, "recordingFormat");
+		
+		boolean compressRecording = settingsLoader.getSetting(Setting.Analyzer_compressRecording, 
+				SimulationDefaults.Analyzer_compressRecording);
+		
+		int writerBufferSize = settingsLoader.getSetting(Setting.Analyzer_writerBufferSize, 
+				SimulationDefaults.Analyzer_writerBufferSize);
+		
+		String backpressureString = settingsLoader.getSetting(Setting.Analyzer_writerBackpressure, 
+				SimulationDefaults.Analyzer_writerBackpressure);
+		BackpressureMode backpressureMode = getEnumSetting(BackpressureMode.class, backpressureString, 
+				BackpressureMode.GROW, "writerBackpressure");
+		
 		dataWriter = new DataWriter(outputFolder, car, SimulationDefaults.driverName, 
-				SimulationDefaults.drivingTaskFileName, null, trackNumber);
+				SimulationDefaults.drivingTaskFileName, null, trackNumber, recordingFormat, compressRecording,
+				writerBufferSize, backpressureMode);
+		
+		String samplingModeString = settingsLoader.getSetting(Setting.Analyzer_samplingClock, 
+				SimulationDefaults.Analyzer_samplingClock);
+		SamplingMode samplingMode = getEnumSetting(SamplingMode.class, samplingModeString, 
+				SamplingMode.WALL_CLOCK, "samplingClock");
+		
+		// real time is meaningless on the simulated clock
+		if(batchRunner != null && samplingMode == SamplingMode.WALL_CLOCK)
+			samplingMode = SamplingMode.SIMULATION_TIME;
+		
+		float samplingRate = settingsLoader.getSetting(Setting.Analyzer_samplingRate, 
+				SimulationDefaults.Analyzer_samplingRate);
+		
+		dataWriter.setSampling(samplingMode, samplingRate, getBulletPhysicsSpace());
+	}
+	
+	
+	private static <E extends Enum<E>> E getEnumSetting(Class<E> enumClass, String value, E defaultValue, 
+			String settingName)
+	{
+		if(value == null || value.trim().isEmpty())
+			return defaultValue;
+		
+		try {
+			return Enum.valueOf(enumClass, value.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			System.err.println("Invalid value '" + value + "' of setting '" + settingName 
+					+ "' (using " + defaultValue + ")");
+			return defaultValue;
+		}
 	}
 	
 	
@@ -611,17 +708,27 @@ public class Simulator extends SimulationBasics
     {
     	if(initializationFinished)
     	{
+    		subsystemProfiler.beginFrame();
+    		
 			super.simpleUpdate(tpf);
+			subsystemProfiler.split("simulationBasics");
 			
 			// updates camera
 			cameraFactory.updateCamera(tpf);
+			subsystemProfiler.split("camera");
+			
+			// executes delayed tasks (trigger actions, end of pause, HMI updates, ...)
+			scheduler.update(tpf, isPause());
+			subsystemProfiler.split("scheduler");
 		
 			if(!isPause())
 				car.getCarControl().updateRPM(tpf);
 		
 			PanelCenter.update();
+			subsystemProfiler.split("panelCenter");
 		
 			triggerCenter.doTriggerChecks();
+			subsystemProfiler.split("triggerCenter");
 			
 			// send camera data via TCP to Lightning
 			if(lightningClient != null)
@@ -633,20 +740,26 @@ public class Simulator extends SimulationBasics
 				
 			if(multiDriverClient != null)
 				multiDriverClient.update();
+			subsystemProfiler.split("externalConnections");
 			
 			if(!isPause())
 				car.update(tpf, PhysicalTraffic.getTrafficObjectList());
+			subsystemProfiler.split("car");
 			
 			chronoPhysicsSpace.update(tpf);
+			subsystemProfiler.split("chronoPhysics");
 			
 			// TODO start thread in init-method to update traffic
 			physicalTraffic.update(tpf); 
+			subsystemProfiler.split("physicalTraffic");
 			
 			SpeedControlCenter.update();
+			subsystemProfiler.split("speedControlCenter");
 			
 			// update necessary even in pause
 			if(!isHeadLess)
 				AudioCenter.update(tpf, cam);
+			subsystemProfiler.split("audio");
 			
 			if(!isPause())
 				steeringTask.update(tpf);
@@ -657,16 +770,20 @@ public class Simulator extends SimulationBasics
 			threeVehiclePlatoonTask.update(tpf);
 			
 			motorwayTask.update(tpf);
+			subsystemProfiler.split("tasks");
 			
 			moviePlayer.update(tpf);
 			
 			if(cameraFlight != null)
 				cameraFlight.update();
+			subsystemProfiler.split("moviePlayer/cameraFlight");
 			
 			reactionCenter.update();
+			subsystemProfiler.split("reactionCenter");
 			
 			// update effects
 			effectCenter.update(tpf);
+			subsystemProfiler.split("effectCenter");
 			
 			// forward instruction screen if available
 			if(instructionScreenID != null)
@@ -677,8 +794,9 @@ public class Simulator extends SimulationBasics
 			
 			if(eyetrackerCenter != null)
 				eyetrackerCenter.update();
+			subsystemProfiler.split("eyetracker");
 
-    		if(frameCounter == 5)
+    		if(frameCounter == 5 && batchRunner == null)
     		{
     			if(settingsLoader.getSetting(Setting.General_pauseAfterStartup, SimulationDefaults.General_pauseAfterStartup))
     				setPause(true);
@@ -686,16 +804,21 @@ public class Simulator extends SimulationBasics
     		frameCounter++;
     		
     		joystickSpringController.update(tpf);
+    		subsystemProfiler.split("joystickSpringController");
     		
     		updateCoordinateSystem();
     		
     		openDriveCenter.update(tpf);
+    		subsystemProfiler.split("openDriveCenter");
     		
     		onScreenVisualizer.update();
+    		subsystemProfiler.split("onScreenVisualizer");
     		
     		ffbController.update();
+    		subsystemProfiler.split("forceFeedback");
     		
     		eventCenter.update();
+    		subsystemProfiler.split("eventCenter");
     		
     		Vector3f driversPos = car.getPosition().add(0, 1, 0);
     		Quaternion rotation = car.getRotation();
@@ -704,8 +827,15 @@ public class Simulator extends SimulationBasics
     		Vector3f pointingDirection = null; // only used by DriveAnalyzer
     		Boolean isNoise = null;            // only used by DriveAnalyzer
     		gestureAnalyzer.updateRays(driversPos, rotation, frontPos, headGazeDirection, pointingDirection, isNoise);
+    		subsystemProfiler.split("gestureAnalyzer");
     		
-			updateDataWriter();
+			updateDataWriter(tpf);
+			subsystemProfiler.split("dataWriter");
+			
+			subsystemProfiler.endFrame();
+			
+			if(batchRunner != null && batchRunner.isFinished(timer.getTimeInSeconds()))
+				stop();
     	}
     }
 
@@ -718,12 +848,19 @@ public class Simulator extends SimulationBasics
 	}
 
 
-	private void updateDataWriter() 
+	private void updateDataWriter(float tpf) 
 	{
 		if (dataWriter != null && dataWriter.isDataWriterEnabled()) 
 		{
 			if(!isPause())
-				dataWriter.saveAnalyzerData();
+			{
+				// time simulated by the physics engine during this frame
+				float simulationStep = tpf * bulletAppState.getSpeed();
+				if(bulletAppState.getRenderMode() == RenderMode.FixedSimulationStep)
+					simulationStep = bulletAppState.getSimulationStepSize();
+				
+				dataWriter.saveAnalyzerData(simulationStep);
+			}
 
 			if (!dataWriterQuittable)
 				dataWriterQuittable = true;
@@ -765,6 +902,11 @@ public class Simulator extends SimulationBasics
 	public void destroy()
     {
 		logger.info("started destroy()");
+		
+		// release threads waiting for the simulated clock
+		SimulationClock simulationClock = SimulationClock.getInstance();
+		if(simulationClock != null)
+			simulationClock.close();
 
 		if(initializationFinished)
 		{
@@ -803,6 +945,13 @@ public class Simulator extends SimulationBasics
 			if(eyetrackerCenter != null)
 				eyetrackerCenter.close();
 			
+			// write samples still pending in the writer thread
+			if(dataWriter != null)
+				dataWriter.quit();
+			
+			// print timing summary and close export file
+			subsystemProfiler.close();
+			
 			joystickSpringController.close();
 			//initDrivingTaskSelectionGUI();
 			
@@ -810,15 +959,38 @@ public class Simulator extends SimulationBasics
 			
     		ffbController.close();
 		}
+		
+		// write screenshots still pending in the worker threads
+		scheduler.close();
 
 		super.destroy();
 		logger.info("finished destroy()");
 		
+		if(batchRunner != null)
+		{
+			if(initializationFinished)
+				batchRunner.printSummary(timer.getTimeInSeconds());
+			
+			// terminate remaining threads (e.g. connections) of this run
+			System.exit(initializationFinished ? 0 : 1);
+		}
+		
 		//PlatformImpl.exit();
 		//System.exit(0);
     }
 	
 
+	@Override
+	public void handleError(String errMsg, Throwable t)
+	{
+		super.handleError(errMsg, t);
+		
+		// report failed batch runs (e.g. to BatchRunner)
+		if(batchRunner != null)
+			System.exit(1);
+	}
+	
+
     public static void main(String[] args) 
     {
 		simulationStartTime = System.currentTimeMillis();
@@ -886,6 +1058,9 @@ public class Simulator extends SimulationBasics
 			
 			isHeadLess = startPropertiesReader.getIsHeadLess();
 			
+			if(startPropertiesReader.isBatchMode())
+				sim.initBatchMode(startPropertiesReader.getBatchRunner());
+			
 	    	if(args.length >= 1)
 	    	{
 	    		if(DrivingTask.isValidDrivingTask(new File(args[0])))
@@ -902,6 +1077,12 @@ public class Simulator extends SimulationBasics
 			
 	    	sim.setPauseOnLostFocus(false);
 	    	
+	    	if(batchRunner != null && !sim.drivingTaskGiven)
+	    	{
+	    		System.err.println("Batch mode requires a driving task.");
+	    		return;
+	    	}
+	    	
 	    	if(isHeadLess)
 	    		sim.start(Type.Headless);
 	    	else
@@ -914,6 +1095,56 @@ public class Simulator extends SimulationBasics
     }
 
     
+	/**
+	 * Runs the given driving task headless on a simulated clock (see BatchRunner).
+	 * 
+	 * @param runner
+	 * 			Configuration of the batch run.
+	 * 
+	 * @param drivingTaskFileName
+	 * 			Path of the driving task.
+	 * 
+	 * @param driverName
+	 * 			Name of the driver.
+	 * 
+	 * @return
+	 * 			Simulator instance (running in its own thread).
+	 */
+	public static Simulator runBatch(BatchRunner runner, String drivingTaskFileName, String driverName)
+	{
+		simulationStartTime = System.currentTimeMillis();
+		
+		PropertyConfigurator.configure("assets/JasperReports/log4j/log4j.properties");
+		java.util.logging.Logger.getLogger("").setLevel(java.util.logging.Level.SEVERE);
+		
+		Simulator sim = new Simulator();
+		sim.setSettings(new AppSettings(true));
+		sim.setShowSettings(false);
+		sim.setPauseOnLostFocus(false);
+		sim.initBatchMode(runner);
+		
+		SimulationDefaults.drivingTaskFileName = drivingTaskFileName;
+		SimulationDefaults.driverName = driverName;
+		sim.drivingTaskGiven = true;
+		
+		sim.start(Type.Headless);
+		return sim;
+	}
+	
+	
+	private void initBatchMode(BatchRunner runner)
+	{
+		batchRunner = runner;
+		isHeadLess = true;
+		
+		// do not limit the frame rate of the headless context
+		settings.setFrameRate(Integer.MAX_VALUE);
+		
+		// every frame simulates the same amount of time
+		setTimer(new SimulationClock(runner.getStepSize()));
+	}
+
+    
 	private static void copyFile(String sourceString, String targetString) 
 	{
 		try {
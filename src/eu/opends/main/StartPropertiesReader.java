@@ -38,6 +38,10 @@ public class StartPropertiesReader
 	private String drivingTaskPath = "";
 	private String driverName = "";
 	private boolean isHeadLess = false;
+	private boolean isBatchMode = false;
+	private float batchStepSize = BatchRunner.defaultStepSize;
+	private float batchDuration = 0;
+	private boolean batchRecording = false;
 	
 	
 	public AppSettings getSettings() 
@@ -87,6 +91,14 @@ public class StartPropertiesReader
 	        driverName = getStringProperty("drivername", "");
 	        
 	        isHeadLess = getBooleanProperty("headless", false);
+	        
+	        isBatchMode = getBooleanProperty("batchmode", false);
+	        
+	        batchStepSize = getFloatProperty("batchstepsize", BatchRunner.defaultStepSize);
+	        
+	        batchDuration = getFloatProperty("batchduration", 0);
+	        
+	        batchRecording = getBooleanProperty("batchrecording", false);
         }
         
 		return settings;
@@ -145,6 +157,26 @@ public class StartPropertiesReader
 	}
 
 	
+	private float getFloatProperty(String propertyName, float defaultValue)
+	{
+		Float propertyValueFloat = null;
+		String propertyValue = properties.getProperty(propertyName);
+		
+		if(propertyValue == null)
+			return defaultValue;
+		
+        try {
+        	propertyValueFloat = Float.parseFloat(propertyValue);
+        	
+        } catch (Exception e) {
+
+			System.err.println(propertyName + ": '" + propertyValue + "' is not a valid float. Using default: " + defaultValue);
+		}
+        
+        return (propertyValueFloat==null?defaultValue:propertyValueFloat);
+	}
+
+	
 	public boolean showSettingsScreen() 
 	{
 		return showSettingsScreen;
@@ -173,4 +205,22 @@ public class StartPropertiesReader
 	{
 		return isHeadLess;
 	}
+
+
+	public boolean isBatchMode()
+	{
+		return isBatchMode;
+	}
+
+
+	/**
+	 * Returns the batch mode settings read from the start properties.
+	 * 
+	 * @return
+	 * 			Batch runner configuration (simulated time step, duration, recording).
+	 */
+	public BatchRunner getBatchRunner()
+	{
+		return new BatchRunner(batchStepSize, batchDuration, batchRecording, "");
+	}
 }
@@ -239,6 +239,15 @@ public class ChangeUpdate implements Update
 	}
 	
 
+	static void steer(VehicleControl control, float steering)
+	{
+		if(steering < 0)
+			control.steer((3.1415927f + steering)/1.5f);
+		else
+			control.steer((-3.1415927f + steering)/1.5f);
+	}
+	
+
 	private void setWheels(String vehicleID, float steering, float position)
 	{
 		try {
@@ -247,10 +256,7 @@ public class ChangeUpdate implements Update
 						
 			Spatial object = sim.getSceneNode().getChild(vehicleID);
 			VehicleControl control = (VehicleControl) object.getControl(0);
-			if(steering < 0)
-				control.steer((3.1415927f + steering)/1.5f);
-			else
-				control.steer((-3.1415927f + steering)/1.5f);
+			steer(control, steering);
 			
 			/*
 			// TODO does not work !!!!
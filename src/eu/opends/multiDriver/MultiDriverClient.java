@@ -19,16 +19,26 @@
 package eu.opends.multiDriver;
 
 
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.*;
 
+import com.jme3.bullet.control.VehicleControl;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
 
 import eu.opends.car.Car;
 import eu.opends.drivingTask.scenario.ScenarioLoader;
@@ -58,9 +68,31 @@ public class MultiDriverClient extends Thread
 	private Calendar timeOfLastFire;
 	private PrintWriter printWriter;
 	private Socket socket;
-	private String id;
+	private volatile String id;
 	private ArrayList<String> registeredVehiclesList;
 	
+	// binary UDP protocol (see MultiDriverProtocol)
+	private static final long registerInterval = 1000; // ms
+	private static final long registrationTimeout = 5000; // ms
+	private static final long interpolationDelay = 100; // ms
+	private static final long maxExtrapolation = 500; // ms
+	private boolean useUDP = false;
+	private DatagramSocket datagramSocket;
+	private InetSocketAddress relayAddress;
+	private String modelPath;
+	private String driverName;
+	private int vehicleNumber = 0;
+	private int sequenceNumber = 0;
+	private long lastRegisterTime = 0;
+	private long lastSendTime = 0;
+	private volatile long lastConfirmationTime = 0;
+	private long startTime = System.currentTimeMillis();
+	private ByteBuffer sendBuffer = ByteBuffer.allocate(MultiDriverProtocol.MAX_PACKET_SIZE);
+	private Map<Integer, RemoteVehicle> remoteVehicleMap = new ConcurrentHashMap<Integer, RemoteVehicle>();
+	private Vector3f remotePosition = new Vector3f();
+	private Quaternion remoteRotation = new Quaternion();
+	private float[] remoteWheel = new float[2];
+	
 	
 	/**
 	 * Creates a new TCP connection with the multi driver server at the given IP and port
@@ -89,6 +121,26 @@ public class MultiDriverClient extends Thread
 		String ip = settingsLoader.getSetting(Setting.MultiDriver_ip, SimulationDefaults.MultiDriver_ip);
 		int port = settingsLoader.getSetting(Setting.MultiDriver_port, SimulationDefaults.MultiDriver_port);
 		framerate = settingsLoader.getSetting(Setting.MultiDriver_updateRate, SimulationDefaults.MultiDriver_updateRate);
+		useUDP = "udp".equalsIgnoreCase(settingsLoader.getSetting(Setting.MultiDriver_protocol, SimulationDefaults.MultiDriver_protocol));
+		
+		if(useUDP)
+		{
+			this.modelPath = carModelPath;
+			this.driverName = driverName;
+			
+			try {
+				
+				// registration will be sent (and repeated until confirmed) by sendCarData()
+				relayAddress = new InetSocketAddress(ip, port);
+				datagramSocket = new DatagramSocket();
+				datagramSocket.setSoTimeout(100);
+				
+			} catch (Exception e) {
+				System.err.println("No UDP connection possible to multi driver server at " + ip + ":" + port);
+				errorOccurred = true;
+			}
+			return;
+		}
 		
 		try {
 
@@ -127,6 +179,12 @@ public class MultiDriverClient extends Thread
 	@Override
 	public void run() 
 	{
+		if(useUDP)
+		{
+			runUDP();
+			return;
+		}
+		
 		String shutDownMessage = "Connection to multi driver server closed";
 		
 		// when loop is left, connection will be closed
@@ -189,6 +247,12 @@ public class MultiDriverClient extends Thread
 	 */
 	public synchronized void sendCarData()
 	{
+		if(useUDP)
+		{
+			sendCarDataUDP();
+			return;
+		}
+		
 		// break, if no connection established
 		if(socket == null || id == null || errorOccurred)
 			return;
@@ -230,6 +294,7 @@ public class MultiDriverClient extends Thread
 	public synchronized void setID(String id) 
 	{
 		this.id = id;		
+		lastConfirmationTime = System.currentTimeMillis();
 		
 		System.out.println("Connected to multi driver server as '" + id + "'");
 	}
@@ -250,6 +315,20 @@ public class MultiDriverClient extends Thread
 	
 	public synchronized void close() 
 	{
+		if(useUDP)
+		{
+			// unregister (if registered) and stop receiving
+			if(datagramSocket != null && id != null && !errorOccurred)
+			{
+				sendBuffer.clear();
+				MultiDriverProtocol.writeHeader(sendBuffer, MultiDriverProtocol.UNREGISTER);
+				sendBuffer.putInt(vehicleNumber);
+				send();
+			}
+			stoprequested = true;
+			return;
+		}
+		
 		// break, if no connection established
 		if(socket == null || id == null || errorOccurred)	
 		{
@@ -355,37 +434,279 @@ public class MultiDriverClient extends Thread
 
 	public void addVehicle(String vehicleID, String modelPath, String driverName)
 	{
-		updateList.add(new AddUpdate(sim, vehicleID, modelPath, driverName));
+		synchronized(updateList)
+		{
+			updateList.add(new AddUpdate(sim, vehicleID, modelPath, driverName));
+		}
 	}
 	
 
 	public void changeVehicle(String vehicleID, String positionString, String rotationString, String headingString, 
 			String wheelString)
 	{
-		updateList.add(new ChangeUpdate(sim, vehicleID, positionString, rotationString, headingString, wheelString));
+		synchronized(updateList)
+		{
+			updateList.add(new ChangeUpdate(sim, vehicleID, positionString, rotationString, headingString, wheelString));
+		}
 	}
 	
 	
 	public void removeVehicle(String vehicleID)
 	{
-		updateList.add(new RemoveUpdate(sim, vehicleID));
+		synchronized(updateList)
+		{
+			updateList.add(new RemoveUpdate(sim, vehicleID));
+		}
 	}
 	
 
 	public void update() 
 	{
 		updateSceneGraph();
+		
+		if(useUDP)
+			updateRemoteVehicles();
+		
 		sendCarData();		
 	}
 	
 	
 	public void updateSceneGraph()
-	{		
-		while(updateList.size() > 0)	
+	{
+		// updates are added by the receiving thread
+		synchronized(updateList)
+		{
+			while(updateList.size() > 0)	
+			{
+				Update update = updateList.get(0);
+				update.performUpdate();
+				updateList.remove(0);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Listens for incoming UDP packets (registration confirmation, states of other 
+	 * vehicles and list of all vehicles) until stop is requested.
+	 */
+	private void runUDP()
+	{
+		byte[] receiveData = new byte[MultiDriverProtocol.MAX_PACKET_SIZE];
+		DatagramPacket packet = new DatagramPacket(receiveData, receiveData.length);
+		float[] state = new float[RemoteVehicle.VALUES];
+		
+		while(!stoprequested && !errorOccurred)
+		{
+			try {
+				
+				packet.setLength(receiveData.length);
+				datagramSocket.receive(packet);
+				
+				ByteBuffer buffer = ByteBuffer.wrap(receiveData, 0, packet.getLength());
+				byte type = MultiDriverProtocol.readHeader(buffer);
+				
+				if(type == MultiDriverProtocol.REGISTERED && id == null)
+				{
+					vehicleNumber = buffer.getInt();
+					setID(MultiDriverProtocol.getVehicleName(vehicleNumber));
+				}
+				else if(type == MultiDriverProtocol.STATE && buffer.remaining() >= MultiDriverProtocol.STATE_SIZE - MultiDriverProtocol.HEADER_SIZE)
+				{
+					RemoteVehicle remoteVehicle = remoteVehicleMap.get(buffer.getInt());
+					if(remoteVehicle != null)
+					{
+						int seq = buffer.getInt();
+						long senderTime = buffer.getLong();
+						for(int i=0; i<state.length; i++)
+							state[i] = buffer.getFloat();
+						remoteVehicle.addState(seq, senderTime, state, System.currentTimeMillis());
+					}
+				}
+				else if(type == MultiDriverProtocol.ROSTER)
+					processRoster(buffer);
+
+			} catch (SocketTimeoutException e) {
+				
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		
+		datagramSocket.close();
+		System.out.println("Connection to multi driver server closed");
+	}
+	
+	
+	private void processRoster(ByteBuffer buffer)
+	{
+		HashSet<Integer> rosterSet = new HashSet<Integer>();
+		boolean ownVehicleListed = false;
+		
+		int count = buffer.getShort() & 0xffff;
+		for(int i=0; i<count; i++)
 		{
-			Update update = updateList.get(0);
-			update.performUpdate();
-			updateList.remove(0);
+			int vehicleID = buffer.getInt();
+			String vehicleModelPath = MultiDriverProtocol.readString(buffer);
+			String vehicleDriverName = MultiDriverProtocol.readString(buffer);
+			
+			if(id == null)
+				continue;
+			
+			if(vehicleID == vehicleNumber)
+			{
+				ownVehicleListed = true;
+				continue;
+			}
+			
+			rosterSet.add(vehicleID);
+			if(!remoteVehicleMap.containsKey(vehicleID))
+			{
+				String name = MultiDriverProtocol.getVehicleName(vehicleID);
+				remoteVehicleMap.put(vehicleID, new RemoteVehicle(name));
+				addVehicle(name, vehicleModelPath, vehicleDriverName);
+			}
+		}
+		
+		// remove vehicles which are not contained in the roster any more
+		for(Iterator<Integer> iterator = remoteVehicleMap.keySet().iterator(); iterator.hasNext();)
+		{
+			Integer vehicleID = iterator.next();
+			if(!rosterSet.contains(vehicleID))
+			{
+				iterator.remove();
+				removeVehicle(MultiDriverProtocol.getVehicleName(vehicleID));
+			}
+		}
+		
+		// the server removed this vehicle (e.g. after a stall) --> register again
+		if(id != null)
+		{
+			if(ownVehicleListed)
+				lastConfirmationTime = System.currentTimeMillis();
+			else
+				resetRegistration();
+		}
+	}
+	
+	
+	private synchronized void resetRegistration()
+	{
+		if(id != null)
+		{
+			System.out.println("Registration at multi driver server lost; registering again");
+			id = null;
+			lastRegisterTime = 0;
+		}
+	}
+	
+	
+	private synchronized void sendCarDataUDP()
+	{
+		// break, if no connection established
+		if(datagramSocket == null || errorOccurred || stoprequested)
+			return;
+		
+		long now = System.currentTimeMillis();
+		
+		// evicted clients do not receive the roster any more
+		if(id != null && now - lastConfirmationTime > registrationTimeout)
+			resetRegistration();
+		
+		if(id == null)
+		{
+			// repeat registration until confirmed by server
+			if(now - lastRegisterTime >= registerInterval)
+			{
+				lastRegisterTime = now;
+				sendRegistration();
+			}
+			return;
+		}
+		
+		// if enough time has passed by since last fire, the state will be sent
+		if(car.getCarControl().isUseBullet() && forwardEvent(new GregorianCalendar()))
+		{
+			Vector3f pos = car.getPosition();
+			Quaternion rot = car.getRotation();
+			Vector3f velocity = car.getCarControl().getLinearVelocity();
+			Vector3f angularVelocity = car.getCarControl().getBulletVehicleControl().getAngularVelocity();
+			
+			Quaternion wheelRot = car.getCarControl().getBulletWheel(0).getWheelSpatial().getLocalRotation();
+			float array[] = new float[3];
+			wheelRot.toAngles(array);
+			
+			sendBuffer.clear();
+			MultiDriverProtocol.writeHeader(sendBuffer, MultiDriverProtocol.STATE);
+			sendBuffer.putInt(vehicleNumber);
+			sendBuffer.putInt(++sequenceNumber);
+			sendBuffer.putLong(now - startTime);
+			sendBuffer.putFloat(pos.getX()).putFloat(pos.getY()).putFloat(pos.getZ());
+			sendBuffer.putFloat(rot.getX()).putFloat(rot.getY()).putFloat(rot.getZ()).putFloat(rot.getW());
+			sendBuffer.putFloat(velocity.getX()).putFloat(velocity.getY()).putFloat(velocity.getZ());
+			sendBuffer.putFloat(angularVelocity.getX()).putFloat(angularVelocity.getY()).putFloat(angularVelocity.getZ());
+			sendBuffer.putFloat(array[1]); // wheel steering
+			sendBuffer.putFloat(array[0]); // wheel position
+			send();
+		}
+		else if(now - lastSendTime >= registerInterval)
+		{
+			// keepalive: a repeated registration of a known vehicle is confirmed with the 
+			// same ID and prevents the server from removing this vehicle while no state is sent
+			sendRegistration();
+		}
+	}
+	
+	
+	private void sendRegistration()
+	{
+		sendBuffer.clear();
+		MultiDriverProtocol.writeHeader(sendBuffer, MultiDriverProtocol.REGISTER);
+		MultiDriverProtocol.writeString(sendBuffer, modelPath);
+		MultiDriverProtocol.writeString(sendBuffer, driverName);
+		send();
+	}
+	
+	
+	private void send()
+	{
+		try {
+			lastSendTime = System.currentTimeMillis();
+			datagramSocket.send(new DatagramPacket(sendBuffer.array(), sendBuffer.position(), relayAddress));
+		} catch (IOException e) {
+			System.err.println("Could not send to multi driver server: " + e.getMessage());
+		}
+	}
+	
+	
+	/**
+	 * Sets all remote vehicles to their interpolated (or extrapolated) pose.
+	 */
+	private void updateRemoteVehicles()
+	{
+		long now = System.currentTimeMillis();
+		
+		for(RemoteVehicle remoteVehicle : remoteVehicleMap.values())
+		{
+			if(!remoteVehicle.getPose(now, interpolationDelay, maxExtrapolation, remotePosition, 
+					remoteRotation, remoteWheel))
+				continue;
+			
+			// look up scene node only until vehicle has been added by AddUpdate
+			Spatial object = remoteVehicle.getSpatial();
+			if(object == null || object.getParent() == null)
+			{
+				object = sim.getSceneNode().getChild(remoteVehicle.getName());
+				remoteVehicle.setSpatial(object);
+			}
+			
+			if(object != null && object.getControl(VehicleControl.class) != null)
+			{
+				VehicleControl control = object.getControl(VehicleControl.class);
+				control.setPhysicsLocation(remotePosition);
+				control.setPhysicsRotation(remoteRotation);
+				ChangeUpdate.steer(control, remoteWheel[0]);
+			}
 		}
 	}
 
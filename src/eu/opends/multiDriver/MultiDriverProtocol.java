@@ -0,0 +1,123 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.multiDriver;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary UDP protocol of multi driver sessions. Every datagram starts with
+ * a header (magic number, protocol version, packet type) followed by the
+ * packet specific data (big-endian):
+ *
+ * REGISTER    (client to relay): modelPath, driverName
+ * REGISTERED  (relay to client): vehicle ID
+ * STATE       (client to relay to other clients): vehicle ID, sequence number,
+ *             time stamp (ms), position (3), rotation (4), linear velocity (3),
+ *             angular velocity (3), wheel steering, wheel position
+ * ROSTER      (relay to clients): number of vehicles, for each vehicle:
+ *             vehicle ID, modelPath, driverName
+ * UNREGISTER  (client to relay): vehicle ID
+ *
+ * Strings are written as length (short) and UTF-8 bytes. Since datagrams may
+ * get lost, REGISTER is repeated until REGISTERED has been received and the
+ * relay sends the complete list of vehicles (ROSTER) periodically instead of
+ * single add/remove messages.
+ *
+ * @author agent
+ */
+public class MultiDriverProtocol
+{
+	public static final short MAGIC = 0x4F44; // "OD"
+	public static final byte VERSION = 1;
+
+	public static final byte REGISTER = 1;
+	public static final byte REGISTERED = 2;
+	public static final byte STATE = 3;
+	public static final byte ROSTER = 4;
+	public static final byte UNREGISTER = 5;
+
+	public static final int HEADER_SIZE = 4;
+	public static final int STATE_SIZE = HEADER_SIZE + 4 + 4 + 8 + 15*4;
+	public static final int MAX_PACKET_SIZE = 65507;
+
+	// prefix of the scene node names of remote vehicles
+	public static final String VEHICLE_NAME_PREFIX = "multiDriver_";
+
+
+	public static void writeHeader(ByteBuffer buffer, byte type)
+	{
+		buffer.putShort(MAGIC);
+		buffer.put(VERSION);
+		buffer.put(type);
+	}
+
+
+	/**
+	 * Reads the header of a received packet.
+	 *
+	 * @param buffer
+	 * 			Buffer containing the packet (position will be moved behind header).
+	 *
+	 * @return
+	 * 			Packet type or -1 if the packet does not belong to this protocol.
+	 */
+	public static byte readHeader(ByteBuffer buffer)
+	{
+		if(buffer.remaining() < HEADER_SIZE || buffer.getShort() != MAGIC || buffer.get() != VERSION)
+			return -1;
+
+		return buffer.get();
+	}
+
+
+	public static void writeString(ByteBuffer buffer, String string)
+	{
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+
+
+	public static String readString(ByteBuffer buffer)
+	{
+		int length = buffer.getShort() & 0xffff;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Compares two sequence numbers allowing for overflow.
+	 *
+	 * @return
+	 * 			True, if seq1 was issued after seq2.
+	 */
+	public static boolean isNewer(int seq1, int seq2)
+	{
+		return seq1 - seq2 > 0;
+	}
+
+
+	public static String getVehicleName(int vehicleID)
+	{
+		return VEHICLE_NAME_PREFIX + vehicleID;
+	}
+}
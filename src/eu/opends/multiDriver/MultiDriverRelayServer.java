@@ -0,0 +1,239 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.multiDriver;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import eu.opends.main.SimulationDefaults;
+
+/**
+ * Reference relay server of the binary UDP multi driver protocol (see
+ * MultiDriverProtocol), e.g. for testing multi driver sessions on a local
+ * network. Assigns vehicle IDs to registering simulators, forwards every
+ * state packet to all other simulators and periodically broadcasts the list
+ * of registered vehicles. Simulators which did not send any packet for a
+ * while will be removed.
+ *
+ * Usage: MultiDriverRelayServer [port]
+ *
+ * @author agent
+ */
+public class MultiDriverRelayServer extends Thread
+{
+	private static final long rosterInterval = 1000; // ms
+	private static final long clientTimeout = 5000; // ms
+
+	private DatagramSocket socket;
+	private LinkedHashMap<SocketAddress, Client> clientMap = new LinkedHashMap<SocketAddress, Client>();
+	private int nextVehicleID = 1;
+	private ByteBuffer sendBuffer = ByteBuffer.allocate(MultiDriverProtocol.MAX_PACKET_SIZE);
+
+
+	private static class Client
+	{
+		private SocketAddress address;
+		private int vehicleID;
+		private String modelPath;
+		private String driverName;
+		private long lastPacketTime;
+		private int lastSequenceNumber = 0;
+		private boolean hasSequenceNumber = false;
+	}
+
+
+	public MultiDriverRelayServer(int port) throws SocketException
+	{
+		socket = new DatagramSocket(port);
+		socket.setSoTimeout(100);
+	}
+
+
+	@Override
+	public void run()
+	{
+		System.out.println("Multi driver relay server started at port " + socket.getLocalPort());
+
+		byte[] receiveData = new byte[MultiDriverProtocol.MAX_PACKET_SIZE];
+		DatagramPacket packet = new DatagramPacket(receiveData, receiveData.length);
+		long lastRosterTime = 0;
+
+		while(!isInterrupted())
+		{
+			try {
+
+				packet.setLength(receiveData.length);
+				socket.receive(packet);
+				processPacket(packet);
+
+			} catch (SocketTimeoutException e) {
+
+			} catch (Exception e) {
+				if(!socket.isClosed())
+					e.printStackTrace();
+				else
+					break;
+			}
+
+			long now = System.currentTimeMillis();
+			if(now - lastRosterTime >= rosterInterval)
+			{
+				lastRosterTime = now;
+				removeInactiveClients(now);
+				sendRoster();
+			}
+		}
+
+		socket.close();
+		System.out.println("Multi driver relay server closed.");
+	}
+
+
+	public void close()
+	{
+		interrupt();
+		socket.close();
+	}
+
+
+	private void processPacket(DatagramPacket packet) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(packet.getData(), 0, packet.getLength());
+		byte type = MultiDriverProtocol.readHeader(buffer);
+		SocketAddress address = packet.getSocketAddress();
+		Client client = clientMap.get(address);
+
+		if(client != null)
+			client.lastPacketTime = System.currentTimeMillis();
+
+		if(type == MultiDriverProtocol.REGISTER)
+		{
+			if(client == null)
+			{
+				client = new Client();
+				client.address = address;
+				client.vehicleID = nextVehicleID++;
+				client.modelPath = MultiDriverProtocol.readString(buffer);
+				client.driverName = MultiDriverProtocol.readString(buffer);
+				client.lastPacketTime = System.currentTimeMillis();
+				clientMap.put(address, client);
+
+				System.out.println("Registered '" + client.driverName + "' (" + address + ") as vehicle " + client.vehicleID);
+			}
+
+			// (re-)send confirmation, since the previous one may have been lost
+			sendBuffer.clear();
+			MultiDriverProtocol.writeHeader(sendBuffer, MultiDriverProtocol.REGISTERED);
+			sendBuffer.putInt(client.vehicleID);
+			send(address);
+			sendRoster();
+		}
+		else if(type == MultiDriverProtocol.STATE && client != null
+				&& packet.getLength() >= MultiDriverProtocol.STATE_SIZE)
+		{
+			// only accept states of the sender's own vehicle and drop outdated packets
+			int vehicleID = buffer.getInt();
+			int sequenceNumber = buffer.getInt();
+			if(vehicleID != client.vehicleID || (client.hasSequenceNumber
+					&& !MultiDriverProtocol.isNewer(sequenceNumber, client.lastSequenceNumber)))
+				return;
+
+			client.lastSequenceNumber = sequenceNumber;
+			client.hasSequenceNumber = true;
+
+			// forward unchanged packet to all other clients
+			for(Client otherClient : clientMap.values())
+			{
+				if(otherClient != client)
+					socket.send(new DatagramPacket(packet.getData(), packet.getLength(), otherClient.address));
+			}
+		}
+		else if(type == MultiDriverProtocol.UNREGISTER && client != null)
+		{
+			if(buffer.getInt() == client.vehicleID)
+			{
+				clientMap.remove(address);
+				System.out.println("Unregistered vehicle " + client.vehicleID);
+				sendRoster();
+			}
+		}
+	}
+
+
+	private void removeInactiveClients(long now)
+	{
+		for(Iterator<Client> iterator = clientMap.values().iterator(); iterator.hasNext();)
+		{
+			Client client = iterator.next();
+			if(now - client.lastPacketTime > clientTimeout)
+			{
+				iterator.remove();
+				System.out.println("Removed inactive vehicle " + client.vehicleID);
+			}
+		}
+	}
+
+
+	private void sendRoster()
+	{
+		sendBuffer.clear();
+		MultiDriverProtocol.writeHeader(sendBuffer, MultiDriverProtocol.ROSTER);
+		sendBuffer.putShort((short) clientMap.size());
+		for(Client client : clientMap.values())
+		{
+			sendBuffer.putInt(client.vehicleID);
+			MultiDriverProtocol.writeString(sendBuffer, client.modelPath);
+			MultiDriverProtocol.writeString(sendBuffer, client.driverName);
+		}
+
+		for(Client client : clientMap.values())
+			send(client.address);
+	}
+
+
+	private void send(SocketAddress address)
+	{
+		try {
+			socket.send(new DatagramPacket(sendBuffer.array(), sendBuffer.position(), address));
+		} catch (IOException e) {
+			System.err.println("Could not send to " + address + ": " + e.getMessage());
+		}
+	}
+
+
+	public static void main(String[] args)
+	{
+		int port = SimulationDefaults.MultiDriver_port;
+		if(args.length > 0)
+			port = Integer.parseInt(args[0]);
+
+		try {
+			new MultiDriverRelayServer(port).start();
+		} catch (SocketException e) {
+			System.err.println("Multi driver relay server: could not listen on port " + port);
+		}
+	}
+}
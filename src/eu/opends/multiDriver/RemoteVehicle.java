@@ -0,0 +1,227 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.multiDriver;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+
+/**
+ * State history of a vehicle driven by another simulator (received via UDP).
+ * The vehicle is displayed with a constant delay behind the latest received
+ * state, so its pose can be interpolated between two received states. If no
+ * newer state is available (e.g. packet loss), the pose is extrapolated from
+ * the last state by means of the transmitted velocities (dead reckoning).
+ *
+ * @author agent
+ */
+public class RemoteVehicle
+{
+	// number of states kept for interpolation
+	private static final int bufferSize = 32;
+
+	// values per state: position (3), rotation (4), linear velocity (3),
+	// angular velocity (3), wheel steering, wheel position
+	public static final int VALUES = 15;
+
+	private String name;
+	private Spatial spatial = null;
+	private long[] time = new long[bufferSize];
+	private float[][] values = new float[bufferSize][VALUES];
+	private int head = 0;
+	private int count = 0;
+	private int lastSequenceNumber = 0;
+
+	// local time (ms) minus time stamp of sender (ms) of a packet with minimal latency
+	private double clockOffset = 0;
+
+	private Quaternion tempRotation = new Quaternion();
+	private Quaternion tempRotation2 = new Quaternion();
+	private Vector3f tempVector = new Vector3f();
+
+
+	public RemoteVehicle(String name)
+	{
+		this.name = name;
+	}
+
+
+	public String getName()
+	{
+		return name;
+	}
+
+
+	public Spatial getSpatial()
+	{
+		return spatial;
+	}
+
+
+	public void setSpatial(Spatial spatial)
+	{
+		this.spatial = spatial;
+	}
+
+
+	/**
+	 * Adds a received state.
+	 *
+	 * @param sequenceNumber
+	 * 			Sequence number of the packet (older packets will be dropped).
+	 *
+	 * @param senderTime
+	 * 			Time stamp (ms) of the sender.
+	 *
+	 * @param state
+	 * 			State values (see VALUES).
+	 *
+	 * @param localTime
+	 * 			Local time (ms) of reception.
+	 *
+	 * @return
+	 * 			False, if the state was dropped because it was out of order.
+	 */
+	public synchronized boolean addState(int sequenceNumber, long senderTime, float[] state, long localTime)
+	{
+		if(count > 0 && !MultiDriverProtocol.isNewer(sequenceNumber, lastSequenceNumber))
+			return false;
+
+		lastSequenceNumber = sequenceNumber;
+
+		// adapt slowly to higher latencies (e.g. clock drift), immediately to lower ones
+		double offset = localTime - senderTime;
+		if(count == 0 || offset < clockOffset)
+			clockOffset = offset;
+		else
+			clockOffset += 0.01 * (offset - clockOffset);
+
+		int index = (head + count) % bufferSize;
+		if(count == bufferSize)
+			head = (head + 1) % bufferSize;
+		else
+			count++;
+
+		time[index] = senderTime;
+		System.arraycopy(state, 0, values[index], 0, VALUES);
+		return true;
+	}
+
+
+	/**
+	 * Computes the pose of the vehicle to display at the given time.
+	 *
+	 * @param localTime
+	 * 			Current local time (ms).
+	 *
+	 * @param delay
+	 * 			Display delay (ms) behind the latest state.
+	 *
+	 * @param maxExtrapolation
+	 * 			Maximum time (ms) to extrapolate beyond the latest state.
+	 *
+	 * @param position
+	 * 			Output: position.
+	 *
+	 * @param rotation
+	 * 			Output: rotation.
+	 *
+	 * @param wheel
+	 * 			Output: wheel steering and wheel position.
+	 *
+	 * @return
+	 * 			False, if no state has been received so far.
+	 */
+	public synchronized boolean getPose(long localTime, long delay, long maxExtrapolation,
+			Vector3f position, Quaternion rotation, float[] wheel)
+	{
+		if(count == 0)
+			return false;
+
+		double renderTime = localTime - clockOffset - delay;
+
+		int oldest = head;
+		int newest = (head + count - 1) % bufferSize;
+
+		if(renderTime >= time[newest])
+		{
+			// dead reckoning
+			float dt = (float) Math.min(renderTime - time[newest], maxExtrapolation) / 1000f;
+			float[] s = values[newest];
+
+			position.set(s[0] + s[7]*dt, s[1] + s[8]*dt, s[2] + s[9]*dt);
+
+			rotation.set(s[3], s[4], s[5], s[6]);
+			tempVector.set(s[10], s[11], s[12]);
+			float angularSpeed = tempVector.length();
+			if(angularSpeed > FastMath.ZERO_TOLERANCE)
+			{
+				tempVector.divideLocal(angularSpeed);
+				tempRotation.fromAngleNormalAxis(angularSpeed * dt, tempVector);
+				tempRotation.mult(rotation, rotation);
+			}
+
+			wheel[0] = s[13];
+			wheel[1] = s[14];
+		}
+		else if(renderTime <= time[oldest])
+		{
+			set(values[oldest], position, rotation, wheel);
+		}
+		else
+		{
+			// interpolation between the two states enclosing the render time
+			int i = oldest;
+			int next = (i + 1) % bufferSize;
+			while(time[next] < renderTime)
+			{
+				i = next;
+				next = (i + 1) % bufferSize;
+			}
+
+			float[] s0 = values[i];
+			float[] s1 = values[next];
+			long duration = time[next] - time[i];
+			float alpha = (duration > 0)? (float) ((renderTime - time[i]) / duration) : 1f;
+
+			position.set(FastMath.interpolateLinear(alpha, s0[0], s1[0]),
+					FastMath.interpolateLinear(alpha, s0[1], s1[1]),
+					FastMath.interpolateLinear(alpha, s0[2], s1[2]));
+
+			tempRotation.set(s0[3], s0[4], s0[5], s0[6]);
+			tempRotation2.set(s1[3], s1[4], s1[5], s1[6]);
+			rotation.slerp(tempRotation, tempRotation2, alpha);
+
+			wheel[0] = FastMath.interpolateLinear(alpha, s0[13], s1[13]);
+			wheel[1] = FastMath.interpolateLinear(alpha, s0[14], s1[14]);
+		}
+
+		return true;
+	}
+
+
+	private static void set(float[] s, Vector3f position, Quaternion rotation, float[] wheel)
+	{
+		position.set(s[0], s[1], s[2]);
+		rotation.set(s[3], s[4], s[5], s[6]);
+		wheel[0] = s[13];
+		wheel[1] = s[14];
+	}
+}
@@ -25,6 +25,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.xml.XMLConstants;
 import jakarta.xml.bind.JAXBContext;
@@ -62,7 +66,9 @@ import eu.opends.opendrive.roadGraph.Node;
 import eu.opends.opendrive.roadGraph.RoadGraph;
 import eu.opends.opendrive.util.JunctionLink;
 import eu.opends.opendrive.util.JunctionLinkComparator;
+import eu.opends.opendrive.util.LaneAreaGrid;
 import eu.opends.opendrive.util.ODVisualizer;
+import eu.opends.opendrive.util.ProcessedRoadCache;
 import eu.opends.opendrive.util.SpeedLimitComparator;
 import eu.opends.tools.Util;
 import eu.opends.tools.Vector3d;
@@ -75,6 +81,11 @@ public class OpenDriveCenter
 	private boolean drawMarker = true;
 	private boolean textureProjectionEnabled = false;
 	private double projectionOffset = 0.1;
+	private int loaderThreads = 0;
+	private boolean vizGeometries = false;
+	private boolean cacheEnabled = false;
+	private String cacheDirectory = "openDriveCache";
+	private String meshSettings = "";
 	
 	private SimulationBasics sim;
 	private OpenDRIVE od;
@@ -85,6 +96,22 @@ public class OpenDriveCenter
 	private ScenarioMessage scenarioMessage = null;
 	private RoadGraph roadGraph;
 	private boolean enabled = false;
+	private LaneAreaGrid laneAreaGrid = new LaneAreaGrid(10f);
+	
+	// results of getMostProbableLane() in the current frame
+	private static final int laneMemoSize = 64;
+	private long frameNumber = 0;
+	private boolean laneMemoEnabled = false;
+	private long[] laneMemoFrame = new long[laneMemoSize];
+	private float[] laneMemoPosition = new float[3*laneMemoSize];
+	private float[] laneMemoHeading = new float[laneMemoSize];
+	private Object[] laneMemoExpectedLanes = new Object[laneMemoSize];
+	private int[] laneMemoExpectedLanesSize = new int[laneMemoSize];
+	private ODLane[] laneMemoResult = new ODLane[laneMemoSize];
+	private ODPoint[] laneMemoReferencePoint = new ODPoint[laneMemoSize];
+	
+	// reference point the lane borders of the result of computeMostProbableLane() refer to
+	private ODPoint mostProbableReferencePoint = null;
 
 	
 	public OpenDriveCenter(SimulationBasics sim)
@@ -96,6 +123,21 @@ public class OpenDriveCenter
 			SettingsLoader settingsLoader = SimulationBasics.getSettingsLoader();
 			textureProjectionEnabled = settingsLoader.getSetting(Setting.OpenDrive_projectOntoTerrain, false);
 			projectionOffset = settingsLoader.getSetting(Setting.OpenDrive_projectionOffset, 0.1);
+			
+			// number of threads building the roads (0: one per processor)
+			loaderThreads = settingsLoader.getSetting(Setting.OpenDrive_loaderThreads, 0);
+			vizGeometries = settingsLoader.getSetting(Setting.OpenDrive_visualizeGeometries, false)
+					|| settingsLoader.getSetting(Setting.OpenDrive_visualizeGeometryDetails, false);
+			
+			// processed lane meshes will be reused by subsequent runs
+			cacheEnabled = settingsLoader.getSetting(Setting.OpenDrive_enableCache, true);
+			cacheDirectory = settingsLoader.getSetting(Setting.OpenDrive_cacheDirectory, "openDriveCache");
+			meshSettings = settingsLoader.getSetting(Setting.OpenDrive_interpolationStepSize, 1.0) + ";"
+					+ settingsLoader.getSetting(Setting.OpenDrive_adaptiveSampling, true) + ";"
+					+ settingsLoader.getSetting(Setting.OpenDrive_maxChordError, 0.02) + ";"
+					+ settingsLoader.getSetting(Setting.OpenDrive_maxStepSize, 10.0) + ";"
+					+ settingsLoader.getSetting(Setting.OpenDrive_ignoreNonDrivingLanes, false) + ";"
+					+ textureProjectionEnabled + ";" + projectionOffset;
 		}
 		
 		this.sim = sim;
@@ -133,6 +175,10 @@ public class OpenDriveCenter
 
 	public void update(float tpf)
 	{
+		// invalidate lane look-ups of previous frame
+		frameNumber++;
+		laneMemoEnabled = true;
+		
 		if(enabled && scenarioMessage != null)
 			scenarioMessage.update(tpf);
 	}
@@ -165,15 +211,49 @@ public class OpenDriveCenter
 	public void processOpenDrive(String openDriveFile)
 	{	
 		try{
+			
+			long startTime = System.nanoTime();
 				
 			OpenDRIVE openDrive = od.getClass().cast(unmarshaller.unmarshal(new File(openDriveFile)));
+			long parseTime = System.nanoTime();
 
 			// make junction list available
 			junctionList = openDrive.getJunction();
 			
-			// process roads
-			for(TRoad road : openDrive.getRoad())
-				roadMap.put(road.getId(), new ODRoad(sim, road));
+			// lane meshes of a previous run
+			ProcessedRoadCache cache = null;
+			boolean cacheLoaded = false;
+			if(cacheEnabled && !vizGeometries)
+			{
+				cache = new ProcessedRoadCache(cacheDirectory, openDriveFile, getCacheSettings());
+				cacheLoaded = cache.load();
+			}
+			long cacheTime = System.nanoTime();
+			
+			// process roads (sampling of reference lines, lane meshes, collision shapes)
+			List<TRoad> roadList = openDrive.getRoad();
+			int threads = getLoaderThreads(roadList.size());
+			ODRoad[] roads = buildRoads(roadList, threads, cache);
+			for(int i=0; i<roads.length; i++)
+				roadMap.put(roadList.get(i).getId(), roads[i]);
+			long buildTime = System.nanoTime();
+			
+			// add lane geometries to scene graph and physics space
+			for(ODRoad road : roads)
+				road.attachToScene();
+			long attachTime = System.nanoTime();
+			
+			// write cache if at least one road has been (re)built
+			boolean cacheComplete = cacheLoaded;
+			for(ODRoad road : roads)
+				cacheComplete &= road.isBuiltFromCache();
+			
+			if(cache != null && !cacheComplete)
+			{
+				cache.save(roadMap.values());
+				System.out.println("OpenDRIVE cache written to '" + cache.getFile().getPath() + "'");
+			}
+			long saveTime = System.nanoTime();
 	
 			for(ODRoad road : roadMap.values())
 			{
@@ -205,10 +285,26 @@ public class OpenDriveCenter
 			}
 			
 			//printAllJunctionLinks();
+			long linkTime = System.nanoTime();
+			
+			// spatial index of all lane areas (replaces ray casts into the OpenDRIVE node)
+			for(Geometry geometry : Util.getAllGeometries(sim.getOpenDriveNode()))
+				laneAreaGrid.add(geometry);
+			laneAreaGrid.build();
+			long gridTime = System.nanoTime();
 			
 			// extract list of edges that can be explored by Dijkstra's algorithm for navigation
 			// along OpenDRIVE roads (must be placed after initialization of road/lane links)
 			roadGraph = new RoadGraph(roadMap, false);
+			long graphTime = System.nanoTime();
+			
+			System.out.println("OpenDRIVE loading time (ms): parse " + toMillis(parseTime - startTime) 
+					+ ", cache " + (cache == null ? "off " : (cacheComplete ? "hit " : "miss ")) + toMillis(cacheTime - parseTime)
+					+ ", build " + roads.length + " roads (" + threads + " threads) " + toMillis(buildTime - cacheTime) 
+					+ ", attach " + toMillis(attachTime - buildTime) + ", cache write " + toMillis(saveTime - attachTime)
+					+ ", links " + toMillis(linkTime - saveTime) 
+					+ ", lane grid " + toMillis(gridTime - linkTime) + ", road graph " + toMillis(graphTime - gridTime) 
+					+ ", total " + toMillis(graphTime - startTime));
 
 			
 			/*
@@ -229,6 +325,110 @@ public class OpenDriveCenter
 		}
 	}
 
+	private int getLoaderThreads(int roads)
+	{
+		// visualization of plan view geometries draws directly into the scene graph
+		if(vizGeometries)
+			return 1;
+		
+		int threads = loaderThreads;
+		if(threads <= 0)
+			threads = Runtime.getRuntime().availableProcessors();
+		
+		return Math.max(1, Math.min(threads, roads));
+	}
+	
+	
+	/**
+	 * Builds an ODRoad for each of the given roads. The roads neither depend on each 
+	 * other nor modify the scene graph (c.f. ODRoad.attachToScene()), hence they are 
+	 * built as independent tasks of a fork-join pool. The render thread waits until 
+	 * all roads are complete.
+	 */
+	private ODRoad[] buildRoads(final List<TRoad> roadList, int threads, ProcessedRoadCache cache)
+	{
+		ODRoad[] roads = new ODRoad[roadList.size()];
+		
+		if(threads <= 1)
+		{
+			for(int i=0; i<roads.length; i++)
+				roads[i] = buildRoad(roadList.get(i), cache);
+			
+			return roads;
+		}
+		
+		ArrayList<Callable<ODRoad>> taskList = new ArrayList<Callable<ODRoad>>(roads.length);
+		for(final TRoad road : roadList)
+			taskList.add(() -> buildRoad(road, cache));
+		
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			
+			List<Future<ODRoad>> futureList = pool.invokeAll(taskList);
+			for(int i=0; i<roads.length; i++)
+				roads[i] = futureList.get(i).get();
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("OpenDriveCenter: interrupted while building roads", e);
+			
+		} catch (ExecutionException e) {
+			
+			// report the original exception as if the road had been built on this thread
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if(cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+			
+		} finally {
+			
+			pool.shutdown();
+		}
+		
+		return roads;
+	}
+	
+	
+	private ODRoad buildRoad(TRoad road, ProcessedRoadCache cache)
+	{
+		if(cache == null)
+			return new ODRoad(sim, road);
+		
+		return new ODRoad(sim, road, cache.getMeshIDList(road.getId()), cache.getMeshList(road.getId()));
+	}
+	
+	
+	/**
+	 * Returns all settings the lane meshes depend on. If the lanes are projected 
+	 * onto the terrain, the scene elements (name, size and location) are included, 
+	 * too, since the vertex heights are taken from the scene.
+	 */
+	private String getCacheSettings()
+	{
+		StringBuilder settings = new StringBuilder(meshSettings);
+		
+		if(textureProjectionEnabled && !(sim instanceof OpenDRIVELoader))
+		{
+			sim.getSceneNode().updateGeometricState();
+			for(Geometry geometry : Util.getAllGeometries(sim.getSceneNode()))
+				if(isValidSceneElement(geometry))
+					settings.append(';').append(geometry.getName()).append(',')
+						.append(geometry.getMesh().getVertexCount()).append(',').append(geometry.getWorldBound());
+		}
+		
+		return settings.toString();
+	}
+	
+	
+	private static long toMillis(long nanos)
+	{
+		return nanos / 1000000L;
+	}
+	
+
 	/*
 	private void printAllJunctionLinks()
 	{
@@ -309,65 +509,137 @@ public class OpenDriveCenter
 
 	public ODLane getMostProbableLane(Vector3f carPos, HashSet<ODLane> expectedLanes)
 	{
-		ODLane mostProbableLane = null;
+		return getMostProbableLane(carPos, expectedLanes, null, 0);
+	}
+	
+	
+	/**
+	 * Returns the most probable lane at the given position. The nearest point query 
+	 * on the road of the previous lane starts at the previous s of the caller (e.g. 
+	 * the current lane and s of a vehicle), which speeds up the query but does not 
+	 * change its result.
+	 * 
+	 * @param carPos
+	 * 			Position of the vehicle.
+	 * 
+	 * @param expectedLanes
+	 * 			Lanes to give priority to.
+	 * 
+	 * @param previousLane
+	 * 			Lane of the previous query of the same caller (may be null).
+	 * 
+	 * @param previousS
+	 * 			s of the previous query of the same caller.
+	 * 
+	 * @return
+	 * 			Most probable lane or null if no lane available at the given position.
+	 */
+	public ODLane getMostProbableLane(Vector3f carPos, HashSet<ODLane> expectedLanes, 
+			ODLane previousLane, double previousS)
+	{
+		float carHeadingDegree = 90;
+		if(sim instanceof Simulator)
+		{
+			carHeadingDegree = ((Simulator)sim).getCar().getHeadingDegree();
+		}
+		else if(sim instanceof DriveAnalyzer)
+		{
+			carHeadingDegree = ((DriveAnalyzer)sim).getTargetHeadingDegree();
+		}
+		else if(sim instanceof PostProcessor)
+		{
+			carHeadingDegree = ((PostProcessor)sim).getTargetHeadingDegree();
+		}
 		
-		// reset collision results list
-		CollisionResults results = new CollisionResults();
-					
-		// downward direction
-		Vector3f direction = new Vector3f(0,-1,0);
-					
-		// aim a ray from the car's position towards the target
-		Ray ray = new Ray(new Vector3f(carPos.x, 10000, carPos.z), direction);
+		// repeated queries of the same vehicle within one frame
+		int memoSlot = -1;
+		if(laneMemoEnabled)
+		{
+			memoSlot = ((Float.floatToIntBits(carPos.x) * 31 + Float.floatToIntBits(carPos.z)) * 31 
+					+ System.identityHashCode(expectedLanes)) & (laneMemoSize-1);
+			
+			if(laneMemoFrame[memoSlot] == frameNumber && laneMemoPosition[3*memoSlot] == carPos.x 
+					&& laneMemoPosition[3*memoSlot+1] == carPos.y && laneMemoPosition[3*memoSlot+2] == carPos.z
+					&& laneMemoHeading[memoSlot] == carHeadingDegree && laneMemoExpectedLanes[memoSlot] == expectedLanes 
+					&& laneMemoExpectedLanesSize[memoSlot] == expectedLanes.size())
+			{
+				// lane borders may have been moved by queries of other positions in the 
+				// meantime --> restore borders at the reference point of the result
+				ODLane memoResult = laneMemoResult[memoSlot];
+				if(memoResult != null)
+					memoResult.getODRoad().getLaneInformationAtODPoint(laneMemoReferencePoint[memoSlot]);
+				return memoResult;
+			}
+		}
+		
+		ODLane mostProbableLane = computeMostProbableLane(carPos, expectedLanes, carHeadingDegree, 
+				previousLane, previousS);
+		
+		if(memoSlot >= 0)
+		{
+			laneMemoFrame[memoSlot] = frameNumber;
+			laneMemoPosition[3*memoSlot] = carPos.x;
+			laneMemoPosition[3*memoSlot+1] = carPos.y;
+			laneMemoPosition[3*memoSlot+2] = carPos.z;
+			laneMemoHeading[memoSlot] = carHeadingDegree;
+			laneMemoExpectedLanes[memoSlot] = expectedLanes;
+			laneMemoExpectedLanesSize[memoSlot] = expectedLanes.size();
+			laneMemoResult[memoSlot] = mostProbableLane;
+			laneMemoReferencePoint[memoSlot] = mostProbableReferencePoint;
+		}
+		
+		return mostProbableLane;
+	}
+	
 	
-		// collect intersections between ray and scene elements in results list.
-		sim.getOpenDriveNode().collideWith(ray, results);
+	private ODLane computeMostProbableLane(Vector3f carPos, HashSet<ODLane> expectedLanes, float carHeadingDegree, 
+			ODLane previousLane, double previousS)
+	{
+		ODLane mostProbableLane = null;
+		mostProbableReferencePoint = null;
+		
+		// collect all lane areas above and below the car's position (sorted top-down)
+		int hitCount = laneAreaGrid.query(carPos.x, carPos.z);
 
 		float overallBestScore = -1;
+		
+		String currentRoadID = null;
+		HashMap<Integer,ODLane> laneMap = null;
+		ODPoint referencePoint = null;
 
-		for(int i=0; i<results.size(); i++)
+		for(int i=0; i<hitCount; i++)
 		{
-			String geometryName = results.getCollision(i).getGeometry().getName();
-			
-			// the closest collision point is what was truly hit
-			//CollisionResult closest = results.getClosestCollision();
-			//String geometryName = closest.getGeometry().getName();
-			//System.out.println(geometryName);
-				
-			String[] array = geometryName.split("_");
-			if(array.length == 3 && "ODarea".equals(array[0]) && roadMap.containsKey(array[1]))
+			String roadID = laneAreaGrid.getHitRoadID(i);
+			ODRoad road = roadMap.get(roadID);
+			if(road != null)
 			{
-				String roadID = array[1];
-				ODRoad road = roadMap.get(roadID);
-	
-				Vector3f carPos2D = new Vector3f(carPos.x, 0, carPos.z);
-				HashMap<Integer,ODLane> laneMap = road.getLaneInformationAtPosition(carPos2D);
+				// lane information will be computed once per road
+				if(!roadID.equals(currentRoadID))
+				{
+					currentRoadID = roadID;
+					Vector3d carPos2D = new Vector3d(carPos.x, 0, carPos.z);
+					if(previousLane != null && previousLane.getODRoad() == road)
+						referencePoint = road.getNearestPointOnReferenceLine(carPos2D, previousS);
+					else
+						referencePoint = road.getNearestPointOnReferenceLine(carPos2D);
+					laneMap = road.getLaneInformationAtODPoint(referencePoint);
+				}
+				
 				if(laneMap!=null)
 				{
-					int laneID = Integer.parseInt(array[2]);
+					int laneID = laneAreaGrid.getHitLaneID(i);
 					ODLane lane = laneMap.get(laneID);
 	
 					if(lane != null)
 					{
 						// give priority to expected lanes
 						if(expectedLanes.contains(lane))
+						{
+							mostProbableReferencePoint = referencePoint;
 							return lane;
+						}
 							
 						// otherwise choose lane with highest score
-						
-						float carHeadingDegree = 90;
-						if(sim instanceof Simulator)
-						{
-							carHeadingDegree = ((Simulator)sim).getCar().getHeadingDegree();
-						}
-						else if(sim instanceof DriveAnalyzer)
-						{
-							carHeadingDegree = ((DriveAnalyzer)sim).getTargetHeadingDegree();
-						}
-						else if(sim instanceof PostProcessor)
-						{
-							carHeadingDegree = ((PostProcessor)sim).getTargetHeadingDegree();
-						}
 							
 						// get linear heading score:
 						// diff <= 20 degree --> 100 %
@@ -378,7 +650,7 @@ public class OpenDriveCenter
 						// get linear vertical distance score (e.g. bridge):
 						// diff <= 0.5 meters --> 100 %
 						// diff >= 2.0 meters -->   0 %
-						float absDistDiff = FastMath.abs(carPos.getY() - results.getCollision(i).getContactPoint().getY());
+						float absDistDiff = FastMath.abs(carPos.getY() - laneAreaGrid.getHitHeight(i));
 						float distScore = Util.map(absDistDiff, 0.5f, 2.0f, 1.0f, 0.0f);
 							
 						// get weighted total score (40 % of heading and 60 % of distance score)
@@ -395,10 +667,11 @@ public class OpenDriveCenter
 						{
 							overallBestScore = totalScore;
 							mostProbableLane = lane;
+							mostProbableReferencePoint = referencePoint;
 						}
 					}
 					else
-						System.err.println("Geometry '" + geometryName + "' does not exist");
+						System.err.println("Geometry 'ODarea_" + roadID + "_" + laneID + "' does not exist");
 				}				
 			}
 		}
@@ -407,7 +680,9 @@ public class OpenDriveCenter
 	}
 
 	
-	public double getHeightAt(Vector3d position)
+	// synchronized: ray casts update cached bounds and world matrices of the scene 
+	// and may be requested by several road building threads at the same time
+	public synchronized double getHeightAt(Vector3d position)
 	{
 		if(textureProjectionEnabled && !(sim instanceof OpenDRIVELoader))
 		{
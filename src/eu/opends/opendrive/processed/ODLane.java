@@ -46,7 +46,7 @@ import eu.opends.opendrive.util.SpeedLimitComparator;
 import eu.opends.tools.Vector3d;
 import eu.opends.traffic.OpenDRIVECar;
 import eu.opends.traffic.PhysicalTraffic;
-import eu.opends.traffic.TrafficObject;
+import eu.opends.traffic.TrafficIndex;
 
 public class ODLane
 {
@@ -334,6 +334,47 @@ public class ODLane
 			return;
 		}
 		
+		String geoID = "ODarea_" + road.getID() + "_" + laneID;
+		
+		// reuse mesh of a previous run (c.f. ProcessedRoadCache)
+		Mesh mesh = road.getCachedMesh(geoID);
+		if(mesh == null)
+		{
+			mesh = createLaneMesh(pointlist);
+			
+			if(type == ELaneType.DRIVING)
+				mesh.scaleTextureCoordinates(new Vector2f(1f,0.5f));
+			else if(type == ELaneType.SIDEWALK)
+				mesh.scaleTextureCoordinates(new Vector2f(1f,1f));
+			else if(type == ELaneType.BORDER)
+				mesh.scaleTextureCoordinates(new Vector2f(1f,3f));
+			else if(type == ELaneType.SHOULDER)
+				mesh.scaleTextureCoordinates(new Vector2f(2f,1f));
+			else if(type == ELaneType.RESTRICTED)
+				mesh.scaleTextureCoordinates(new Vector2f(1f,0.08f));
+			else if(type == ELaneType.PARKING)
+				mesh.scaleTextureCoordinates(new Vector2f(1f,1f));
+		}
+		
+		Geometry geo = new Geometry(geoID, mesh);
+		geo.setMaterial(getMaterial(roadmarkType));
+		
+		if(!visualize || type == ELaneType.NONE)
+			geo.setCullHint(CullHint.Always);
+
+		road.addLaneGeometry(laneID, geo);
+		
+		if(addToPhysicsEngine)
+			road.addSceneGeometry(geo, laneSection.createPhysicsControl(geo));
+		else
+			road.addSceneGeometry(geo, null);
+		
+		//System.err.println(roadID + "_" + laneID);
+	}
+
+	
+	private Mesh createLaneMesh(ArrayList<ODPoint> pointlist)
+	{
 		Vector3f[] vertices = new Vector3f[2*pointlist.size()];
 		Vector2f[] texCoord = new Vector2f[2*pointlist.size()];
 		int [] indexes = new int[6*(pointlist.size()-1)];
@@ -389,16 +430,11 @@ public class ODLane
 			vertices[2*i+1] = borderPos.toVector3f();
 			
 
-			if(i%2==0)
-			{
-				texCoord[2*i] = new Vector2f(0,0);
-				texCoord[2*i+1] = new Vector2f(1,0);
-			}			
-			else
-			{
-				texCoord[2*i] = new Vector2f(0,1);
-				texCoord[2*i+1] = new Vector2f(1,1);
-			}
+			// points are not equidistant (adaptive sampling) --> texture coordinate along the 
+			// lane depends on s (texture is mirrored every interpolation step, c.f. ODVisualizer)
+			float v = (float) ((s - pointlist.get(0).getS()) / road.getInterpolationStep());
+			texCoord[2*i] = new Vector2f(0,v);
+			texCoord[2*i+1] = new Vector2f(1,v);
 
 			
 			if(i<pointlist.size()-1)
@@ -420,33 +456,7 @@ public class ODLane
 		mesh.setBuffer(Type.Index,    3, BufferUtils.createIntBuffer(indexes));
 		mesh.updateBound();
 		
-		String geoID = "ODarea_" + road.getID() + "_" + laneID;
-		Geometry geo = new Geometry(geoID, mesh);
-		geo.setMaterial(getMaterial(roadmarkType));
-		
-		if(!visualize || type == ELaneType.NONE)
-			geo.setCullHint(CullHint.Always);
-
-		if(type == ELaneType.DRIVING)
-			mesh.scaleTextureCoordinates(new Vector2f(1f,0.5f));
-		else if(type == ELaneType.SIDEWALK)
-			mesh.scaleTextureCoordinates(new Vector2f(1f,1f));
-		else if(type == ELaneType.BORDER)
-			mesh.scaleTextureCoordinates(new Vector2f(1f,3f));
-		else if(type == ELaneType.SHOULDER)
-			mesh.scaleTextureCoordinates(new Vector2f(2f,1f));
-		else if(type == ELaneType.RESTRICTED)
-			mesh.scaleTextureCoordinates(new Vector2f(1f,0.08f));
-		else if(type == ELaneType.PARKING)
-			mesh.scaleTextureCoordinates(new Vector2f(1f,1f));
-
-		road.getLaneGeometryMap().put(laneID, geo);
-		sim.getOpenDriveNode().attachChild(geo);
-		
-		if(addToPhysicsEngine)
-			laneSection.addToBulletPhysicsSpace(geo);
-		
-		//System.err.println(roadID + "_" + laneID);
+		return mesh;
 	}
 
 	
@@ -1614,31 +1624,38 @@ public class ODLane
 
 	private boolean hasTraffic(double s, boolean increasingS, double distanceAhead, double distanceBehind)
 	{
-		for(TrafficObject car : PhysicalTraffic.getTrafficObjectList())
+		// walk along the lanes once and look up the vehicles of every visited lane 
+		// in the traffic index (instead of walking once per vehicle)
+		TrafficIndex trafficIndex = PhysicalTraffic.getTrafficIndex();
+		if(trafficIndex.getOpenDRIVECarCount() == 0)
+			return false;
+		
+		// check for vehicles ahead in this lane
+		if(isTrafficAhead(s, distanceAhead, increasingS, new PreferredConnections(), trafficIndex))
+			return true;
+		
+		// check for vehicles behind in this lane
+		if(isTrafficAhead(s, distanceBehind, !increasingS, new PreferredConnections(), trafficIndex))
+			return true;
+
+		return false;
+	}
+	
+	
+	private boolean hasTrafficBetween(TrafficIndex trafficIndex, double fromS, double toS)
+	{
+		for(OpenDRIVECar car : trafficIndex.getCarsOnLane(this))
 		{
-			if(car instanceof OpenDRIVECar)
-			{
-				ODLane trafficLane = ((OpenDRIVECar)car).getCurrentLane();
-				if(trafficLane != null)
-				{
-					double trafficS = ((OpenDRIVECar)car).getCurrentS();
-					
-					// check for vehicles ahead in this lane
-					if(isTrafficAhead(s, distanceAhead, increasingS, new PreferredConnections(), trafficLane, trafficS))
-						return true;
-					
-					// check for vehicles behind in this lane
-					if(isTrafficAhead(s, distanceBehind, !increasingS, new PreferredConnections(), trafficLane, trafficS))
-						return true;
-				}
-			}
+			double trafficS = car.getCurrentS();
+			if(this.equals(car.getCurrentLane()) && fromS <= trafficS && trafficS <= toS)
+				return true;
 		}
 		return false;
 	}
 	
 	
 	private boolean isTrafficAhead(double s, double range, boolean increasingS, PreferredConnections pc,
-			ODLane trafficLane, double trafficS)
+			TrafficIndex trafficIndex)
 	{
 		if(laneStartS > s || s > laneEndS)
 		{
@@ -1649,7 +1666,7 @@ public class ODLane
 			
 		if(increasingS)
 		{
-			if(this.equals(trafficLane) && s <= trafficS && trafficS <= s+range)
+			if(hasTrafficBetween(trafficIndex, s, s+range))
 				return true;
 			
 			if(s+range > laneEndS)
@@ -1670,7 +1687,7 @@ public class ODLane
 					}
 					
 					double remainingRange = range - distToEnd;
-					return successorLane.isTrafficAhead(successorS, remainingRange, increasingS, pc, trafficLane, trafficS);
+					return successorLane.isTrafficAhead(successorS, remainingRange, increasingS, pc, trafficIndex);
 				}
 				else if(printDebugMsg)
 					System.err.println("no successor available (lane: " + laneID + "; road: " + road.getID() + "; isTrafficAhead)");
@@ -1678,7 +1695,7 @@ public class ODLane
 		}
 		else
 		{
-			if(this.equals(trafficLane) && s-range <= trafficS && trafficS <= s)
+			if(hasTrafficBetween(trafficIndex, s-range, s))
 				return true;
 			
 			if(s-range < laneStartS)
@@ -1699,7 +1716,7 @@ public class ODLane
 					}
 					
 					double remainingRange = range - distToStart;
-					return predecessorLane.isTrafficAhead(predecessorS, remainingRange, increasingS, pc, trafficLane, trafficS);
+					return predecessorLane.isTrafficAhead(predecessorS, remainingRange, increasingS, pc, trafficIndex);
 				}
 				else if(printDebugMsg)
 					System.err.println("no predecessor available (lane: " + laneID + "; road: " + road.getID() + "; isTrafficAhead)");
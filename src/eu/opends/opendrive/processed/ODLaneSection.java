@@ -18,7 +18,6 @@
 
 package eu.opends.opendrive.processed;
 
-import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -33,7 +32,6 @@ import com.jme3.math.Vector3f;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.Spatial.CullHint;
-import com.jme3.scene.VertexBuffer;
 import com.jme3.scene.VertexBuffer.Type;
 import com.jme3.util.BufferUtils;
 
@@ -43,6 +41,7 @@ import eu.opends.drivingTask.settings.SettingsLoader.Setting;
 import eu.opends.opendrive.OpenDRIVELoader;
 import eu.opends.opendrive.data.*;
 import eu.opends.opendrive.processed.ODLane.LaneSide;
+import eu.opends.opendrive.util.LaneVertexGrid;
 import eu.opends.opendrive.util.ODPointComparator;
 import eu.opends.tools.Vector3d;
 
@@ -262,6 +261,54 @@ public class ODLaneSection
 			return;
 		}
 		
+		String geoLeftID = "ODarea_" + road.getID() + "_1";
+		String geoRightID = "ODarea_" + road.getID() + "_-1";
+		boolean hasLeftLane = leftODLaneMap.containsKey(1);
+		boolean hasRightLane = rightODLaneMap.containsKey(-1);
+		
+		// reuse meshes of a previous run (c.f. ProcessedRoadCache)
+		Mesh meshLeft = hasLeftLane ? road.getCachedMesh(geoLeftID) : null;
+		Mesh meshRight = hasRightLane ? road.getCachedMesh(geoRightID) : null;
+		
+		if((hasLeftLane && meshLeft == null) || (hasRightLane && meshRight == null))
+		{
+			Mesh[] meshes = createCenterLineMeshes(pointlist);
+			meshLeft = meshes[0];
+			meshRight = meshes[1];
+		}
+		
+		Material material = sim.getOpenDriveCenter().getVisualizer().getCenterLineMaterial(roadmarkType);
+		
+		if(hasLeftLane)
+		{
+			com.jme3.scene.Geometry geoLeft = new com.jme3.scene.Geometry(geoLeftID, meshLeft);
+			geoLeft.setMaterial(material);
+			
+			if(!visualize)
+				geoLeft.setCullHint(CullHint.Always);
+			
+			road.addLaneGeometry(1, geoLeft);
+			road.addSceneGeometry(geoLeft, createPhysicsControl(geoLeft));
+		}
+		
+		if(hasRightLane)
+		{
+			com.jme3.scene.Geometry geoRight = new com.jme3.scene.Geometry(geoRightID, meshRight);
+			geoRight.setMaterial(material);
+			
+			if(!visualize)
+				geoRight.setCullHint(CullHint.Always);
+			
+			road.addLaneGeometry(-1, geoRight);
+			road.addSceneGeometry(geoRight, createPhysicsControl(geoRight));
+		}
+		
+		//System.err.println(roadID + "_" + laneID);
+	}
+
+
+	private Mesh[] createCenterLineMeshes(ArrayList<ODPoint> pointlist)
+	{
 		Vector3f[] verticesLeft = new Vector3f[2*pointlist.size()];
 		Vector3f[] verticesRight = new Vector3f[2*pointlist.size()];
 		Vector2f[] texCoordLeft = new Vector2f[2*pointlist.size()];
@@ -328,20 +375,12 @@ public class ODLaneSection
 				texCoordRight[2*i+1] = new Vector2f(1,1);
 			}
 */			
-			if(i%2==0)
-			{
-				texCoordLeft[2*i] = new Vector2f(0,0);
-				texCoordLeft[2*i+1] = new Vector2f(0.5f,0);
-				texCoordRight[2*i] = new Vector2f(0.5f,0);
-				texCoordRight[2*i+1] = new Vector2f(1,0);
-			}			
-			else
-			{
-				texCoordLeft[2*i] = new Vector2f(0,1);
-				texCoordLeft[2*i+1] = new Vector2f(0.5f,1);
-				texCoordRight[2*i] = new Vector2f(0.5f,1);
-				texCoordRight[2*i+1] = new Vector2f(1,1);
-			}
+			// texture coordinate along the line depends on s (c.f. ODLane)
+			float v = (float) ((s - pointlist.get(0).getS()) / road.getInterpolationStep());
+			texCoordLeft[2*i] = new Vector2f(0,v);
+			texCoordLeft[2*i+1] = new Vector2f(0.5f,v);
+			texCoordRight[2*i] = new Vector2f(0.5f,v);
+			texCoordRight[2*i+1] = new Vector2f(1,v);
 
 			
 			if(i<pointlist.size()-1)
@@ -377,49 +416,29 @@ public class ODLaneSection
 		meshRight.scaleTextureCoordinates(new Vector2f(1f,0.5f));
 		meshRight.updateBound();
 		
-		
-		Material material = sim.getOpenDriveCenter().getVisualizer().getCenterLineMaterial(roadmarkType);
-		String geoLeftID = "ODarea_" + road.getID() + "_1";
-		com.jme3.scene.Geometry geoLeft = new com.jme3.scene.Geometry(geoLeftID, meshLeft);
-		geoLeft.setMaterial(material);
-
-		String geoRightID = "ODarea_" + road.getID() + "_-1";
-		com.jme3.scene.Geometry geoRight = new com.jme3.scene.Geometry(geoRightID, meshRight);
-		geoRight.setMaterial(material);
-		
-		if(!visualize)
-		{
-			geoLeft.setCullHint(CullHint.Always);
-			geoRight.setCullHint(CullHint.Always);
-		}
-		
-		if(leftODLaneMap.containsKey(1))
-		{
-			road.getLaneGeometryMap().put(1, geoLeft);
-			sim.getOpenDriveNode().attachChild(geoLeft);	
-			addToBulletPhysicsSpace(geoLeft);
-		}
-		
-		if(rightODLaneMap.containsKey(-1))
-		{
-			road.getLaneGeometryMap().put(-1, geoRight);
-			sim.getOpenDriveNode().attachChild(geoRight);
-			addToBulletPhysicsSpace(geoRight);
-		}
-		
-		//System.err.println(roadID + "_" + laneID);
+		return new Mesh[] {meshLeft, meshRight};
 	}
-
-
-	public void addToBulletPhysicsSpace(Spatial spatial)
+	
+	
+	/**
+	 * Creates a static rigid body from the mesh of the given spatial. The control 
+	 * will be added to the spatial and the physics space by ODRoad.attachToScene().
+	 * 
+	 * @param spatial
+	 * 			Lane geometry.
+	 * 
+	 * @return
+	 * 			Rigid body control or null, if lanes are not added to the physics engine.
+	 */
+	public RigidBodyControl createPhysicsControl(Spatial spatial)
 	{
 		if(addToPhysicsEngine && (!(sim instanceof OpenDRIVELoader)))
 		{
 			CollisionShape collisionShape = CollisionShapeFactory.createMeshShape(spatial);		        
-			RigidBodyControl physicsControl = new RigidBodyControl(collisionShape, 0);
-			spatial.addControl(physicsControl);
-			sim.getBulletPhysicsSpace().add(physicsControl);
+			return new RigidBodyControl(collisionShape, 0);
 		}
+		
+		return null;
 	}
 	
 	
@@ -593,36 +612,12 @@ public class ODLaneSection
 
 	public Vector3f getClosestVertex(int laneID, Vector3f position)
 	{
-		Vector3f closestVertex = null;
+		// vertices of the lane's mesh have been indexed when the geometry was created
+		LaneVertexGrid laneVertexGrid = road.getLaneVertexGrid(laneID);
+		if(laneVertexGrid != null)
+			return laneVertexGrid.getClosestVertex(position);
 		
-		com.jme3.scene.Geometry geometry = road.getLaneGeometryMap().get(laneID);
-		if(geometry != null)
-		{
-			Mesh mesh = geometry.getMesh();
-			VertexBuffer vertexBuffer = mesh.getBuffer(Type.Position);
-			FloatBuffer floatBuffer = (FloatBuffer) vertexBuffer.getDataReadOnly();
-			
-			float closestDistance = Float.MAX_VALUE;
-			for(int i=0; i<floatBuffer.limit()-2; i+=3)
-			{
-				float x = floatBuffer.get(i);
-				float y = floatBuffer.get(i+1);
-				float z = floatBuffer.get(i+2);
-				
-				Vector3f currentVector = new Vector3f(x, y, z);
-				
-				Vector2f centerPos2f = new Vector2f(position.getX(), position.getZ());
-				Vector2f currentVector2f= new Vector2f(x, z);
-				float currentDist = centerPos2f.distance(currentVector2f);
-				
-				if(currentDist < closestDistance)
-				{							
-					closestDistance = currentDist;
-					closestVertex = currentVector;
-				}
-			}
-		}
-		return closestVertex;
+		return null;
 	}
 
 
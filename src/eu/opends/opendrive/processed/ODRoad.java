@@ -22,9 +22,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
+import com.jme3.bullet.control.RigidBodyControl;
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
 
 import eu.opends.basics.SimulationBasics;
 import eu.opends.drivingTask.settings.SettingsLoader;
@@ -35,6 +37,7 @@ import eu.opends.opendrive.data.*;
 import eu.opends.opendrive.processed.ODPoint.GeometryType;
 import eu.opends.opendrive.util.Spiral;
 import eu.opends.opendrive.util.CurvePoint;
+import eu.opends.opendrive.util.LaneVertexGrid;
 import eu.opends.opendrive.util.ODVisualizer;
 import eu.opends.tools.Vector3d;
 
@@ -54,6 +57,12 @@ public class ODRoad
 	private boolean vizArrows = false;
 	private boolean vizOrthoArrows = false;
 	private double interpolationStep = 1.0;
+	private boolean adaptiveSampling = false;
+	private double maxChordError = 0.02;
+	private double maxStepSize = 10.0;
+	
+	// adaptive sampling will not split segments shorter than this (m)
+	private static final double minStepSize = 0.05;
 	
 	private SimulationBasics sim;
 	private ODVisualizer visualizer;
@@ -62,11 +71,55 @@ public class ODRoad
 	private ArrayList<ODPoint> roadReferencePointlist = new ArrayList<ODPoint>();
 	private ArrayList<ODLaneSection> ODLaneSectionList = new ArrayList<ODLaneSection>();
 	private HashMap<Integer, Geometry> laneGeometryMap = new HashMap<Integer, Geometry>();
+	private HashMap<Integer, LaneVertexGrid> laneVertexGridMap = new HashMap<Integer, LaneVertexGrid>();
 	private int pointCounter = 1;
 	
+	// lane geometries (and their physics controls) waiting to be attached by attachToScene()
+	private ArrayList<Geometry> sceneGeometryList = new ArrayList<Geometry>();
+	private ArrayList<RigidBodyControl> physicsControlList = new ArrayList<RigidBodyControl>();
+	
+	// all lane geometries in order of creation and meshes of a previous run (c.f. ProcessedRoadCache)
+	private ArrayList<Geometry> laneGeometryList = new ArrayList<Geometry>();
+	private List<Mesh> cachedMeshList = null;
+	private List<String> cachedMeshIDList = null;
+	private int cachedMeshIndex = 0;
+	
+	// primitive copy of the reference line for nearest point queries
+	private static final int segmentsPerBlock = 16;
+	private static final int blocksPerGroup = 16;
+	private double[] referencePointData = null;   // x, y, z, s of every reference point
+	private double[] referenceBlockBounds = null; // min x, y, z and max x, y, z of every block of segments
+	private double[] referenceGroupBounds = null; // min x, y, z and max x, y, z of every group of blocks
+	
 	
 	public ODRoad(SimulationBasics sim, TRoad road) 
 	{
+		this(sim, road, null, null);
+	}
+	
+	
+	/**
+	 * Builds the road from the given OpenDRIVE element. Lane meshes will be taken 
+	 * from the given lists (in order of their creation) instead of being computed, 
+	 * as long as the IDs match.
+	 * 
+	 * @param sim
+	 * 			Simulator.
+	 * 
+	 * @param road
+	 * 			OpenDRIVE road element.
+	 * 
+	 * @param cachedMeshIDList
+	 * 			IDs of the lane geometries of a previous run (may be null).
+	 * 
+	 * @param cachedMeshList
+	 * 			Meshes of the lane geometries of a previous run (may be null).
+	 */
+	public ODRoad(SimulationBasics sim, TRoad road, List<String> cachedMeshIDList, List<Mesh> cachedMeshList) 
+	{
+		this.cachedMeshIDList = cachedMeshIDList;
+		this.cachedMeshList = cachedMeshList;
+		
 		// init road builder settings
 		SettingsLoader settingsLoader = SimulationBasics.getSettingsLoader();
 		vizLanes = settingsLoader.getSetting(Setting.OpenDrive_visualizeRoads, true);
@@ -83,6 +136,9 @@ public class ODRoad
 		vizOrtho = vizGeometryDetails;
 		vizArrows = vizGeometryDetails;
 		interpolationStep = settingsLoader.getSetting(Setting.OpenDrive_interpolationStepSize, 1.0);
+		adaptiveSampling = settingsLoader.getSetting(Setting.OpenDrive_adaptiveSampling, true);
+		maxChordError = settingsLoader.getSetting(Setting.OpenDrive_maxChordError, 0.02);
+		maxStepSize = settingsLoader.getSetting(Setting.OpenDrive_maxStepSize, 10.0);
 		
 		
 		this.sim = sim;
@@ -305,6 +361,125 @@ public class ODRoad
 		return laneGeometryMap;
 	}
 	
+	
+	/**
+	 * Registers the area geometry of the given lane and indexes its vertices 
+	 * for getClosestVertex() queries.
+	 * 
+	 * @param laneID
+	 * 			ID of the lane.
+	 * 
+	 * @param geometry
+	 * 			Area geometry of the lane.
+	 */
+	public void addLaneGeometry(int laneID, Geometry geometry)
+	{
+		laneGeometryMap.put(laneID, geometry);
+		laneVertexGridMap.put(laneID, new LaneVertexGrid(geometry.getMesh(), 4f));
+	}
+	
+	
+	public LaneVertexGrid getLaneVertexGrid(int laneID)
+	{
+		return laneVertexGridMap.get(laneID);
+	}
+	
+	
+	/**
+	 * Queues the given lane geometry for attachment to the OpenDRIVE node. The 
+	 * constructor does not modify the scene graph or the physics space, hence 
+	 * several roads can be built concurrently (c.f. OpenDriveCenter).
+	 * 
+	 * @param geometry
+	 * 			Area geometry of a lane.
+	 * 
+	 * @param physicsControl
+	 * 			Static rigid body of the geometry (null, if not added to the physics engine).
+	 */
+	public void addSceneGeometry(Geometry geometry, RigidBodyControl physicsControl)
+	{
+		laneGeometryList.add(geometry);
+		sceneGeometryList.add(geometry);
+		physicsControlList.add(physicsControl);
+	}
+	
+	
+	/**
+	 * Returns the next mesh of a previous run if its ID matches the given one. 
+	 * Otherwise, the remaining meshes will be ignored, since the road has not 
+	 * been built the same way.
+	 * 
+	 * @param geometryID
+	 * 			ID of the lane geometry to create.
+	 * 
+	 * @return
+	 * 			Cached mesh or null, if the mesh has to be computed.
+	 */
+	public Mesh getCachedMesh(String geometryID)
+	{
+		if(cachedMeshList == null)
+			return null;
+		
+		if(cachedMeshIndex < cachedMeshList.size() && cachedMeshIDList.get(cachedMeshIndex).equals(geometryID))
+			return cachedMeshList.get(cachedMeshIndex++);
+		
+		System.err.println("Cached lane meshes of road '" + getID() + "' do not match --> rebuilding");
+		cachedMeshList = null;
+		cachedMeshIDList = null;
+		return null;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			True, if all lane meshes of this road have been taken from a previous run.
+	 */
+	public boolean isBuiltFromCache()
+	{
+		return cachedMeshList != null && cachedMeshIndex == cachedMeshList.size();
+	}
+	
+	
+	/**
+	 * @return
+	 * 			All lane geometries of this road in order of their creation.
+	 */
+	public ArrayList<Geometry> getLaneGeometryList()
+	{
+		return laneGeometryList;
+	}
+	
+	
+	/**
+	 * Attaches all lane geometries of this road to the OpenDRIVE node and adds their 
+	 * rigid bodies to the physics space. Must be called on the render thread after 
+	 * the road has been built.
+	 */
+	public void attachToScene()
+	{
+		for(int i=0; i<sceneGeometryList.size(); i++)
+		{
+			Geometry geometry = sceneGeometryList.get(i);
+			sim.getOpenDriveNode().attachChild(geometry);
+			
+			RigidBodyControl physicsControl = physicsControlList.get(i);
+			if(physicsControl != null)
+			{
+				geometry.addControl(physicsControl);
+				sim.getBulletPhysicsSpace().add(physicsControl);
+			}
+		}
+		
+		sceneGeometryList.clear();
+		physicsControlList.clear();
+	}
+	
+
+	public double getInterpolationStep()
+	{
+		return interpolationStep;
+	}
+	
 
 	public double getLaneOffset(double s)
 	{
@@ -354,20 +529,25 @@ public class ODRoad
 	{
 		TRoadPlanViewGeometry geometry = getGeometryAtS(s);
 		if(geometry != null)
-		{
-			double ds = s - geometry.getS();
-			
-			if(geometry.getLine() != null)
-				return getPointOnLine(ds, geometry, pointID);
-			else if(geometry.getArc() != null)
-				return getPointOnArc(ds, geometry, pointID);
-			else if(geometry.getSpiral() != null)
-				return getPointOnSpiral(ds, geometry, pointID);
-			else if(geometry.getPoly3() != null)
-				return getPointOnPoly3(ds, geometry, pointID);
-			else if(geometry.getParamPoly3() != null)
-				return getPointOnParamPoly3(ds, geometry, pointID);
-		}
+			return getPointOnGeometry(s - geometry.getS(), geometry, pointID);
+
+		return null;
+	}
+	
+	
+	private ODPoint getPointOnGeometry(double ds, TRoadPlanViewGeometry geometry, String pointID)
+	{
+		if(geometry.getLine() != null)
+			return getPointOnLine(ds, geometry, pointID);
+		else if(geometry.getArc() != null)
+			return getPointOnArc(ds, geometry, pointID);
+		else if(geometry.getSpiral() != null)
+			return getPointOnSpiral(ds, geometry, pointID);
+		else if(geometry.getPoly3() != null)
+			return getPointOnPoly3(ds, geometry, pointID);
+		else if(geometry.getParamPoly3() != null)
+			return getPointOnParamPoly3(ds, geometry, pointID);
+		
 		return null;
 	}
 
@@ -457,62 +637,124 @@ public class ODRoad
 	
 	public ODPoint getNearestPointOnReferenceLine(Vector3f pos)
 	{
-		return getNearestPointOnReferenceLine(new Vector3d(pos.x, pos.y, pos.z)); 
+		return getNearestPointOnReferenceLine(pos.x, pos.y, pos.z, Double.NaN); 
 	}
 	
 	
 	public ODPoint getNearestPointOnReferenceLine(Vector3d P)
 	{
-		ODPoint referencePointA = null;
-		ODPoint referencePointB = null;
-		Vector3d nearestPointOnLineAB = null;
-		double nearestDistance = Double.MAX_VALUE;
-		double nearestPercentage = -1;
+		return getNearestPointOnReferenceLine(P.x, P.y, P.z, Double.NaN);
+	}
+	
+	
+	/**
+	 * Tracked version of the nearest point query: the search starts at the reference 
+	 * line segment at the given s (e.g. the result of the previous query of the same 
+	 * vehicle) and proceeds locally. Remote parts of the reference line are only 
+	 * examined if their bounding box is closer than the local result, hence the 
+	 * result is the same as of an exhaustive search. Queries without previous s 
+	 * start at the block of segments closest to the given position.
+	 * 
+	 * @param P
+	 * 			Position to find the nearest point on the reference line for.
+	 * 
+	 * @param previousS
+	 * 			s of the expected nearest point.
+	 * 
+	 * @return
+	 * 			Nearest point on the reference line (or null if not available).
+	 */
+	public ODPoint getNearestPointOnReferenceLine(Vector3d P, double previousS)
+	{
+		return getNearestPointOnReferenceLine(P.x, P.y, P.z, previousS);
+	}
+	
+	
+	private ODPoint getNearestPointOnReferenceLine(double px, double py, double pz, double previousS)
+	{
+		double[] data = getReferencePointData();
+		int segmentCount = data.length/4 - 1;
+		if(segmentCount < 1)
+			return null;
+		
+		double[] bounds = referenceBlockBounds;
+		double[] groupBounds = referenceGroupBounds;
+		
+		// local search: start at segment of previous s (or at the closest block if not 
+		// available) and follow decreasing distance
+		int startIndex;
+		if(Double.isNaN(previousS))
+			startIndex = getClosestBlock(bounds, px, py, pz) * segmentsPerBlock;
+		else
+			startIndex = getSegmentIndex(data, previousS);
+		int nearestIndex = -1;
+		double nearestDistance2 = Double.MAX_VALUE;
 		
-		// iterate over all pairs of successive points of reference point list
-		for(int i=0; i<roadReferencePointlist.size()-1; i++)
+		double distance2 = getSegmentDistance2(data, startIndex, px, py, pz);
+		if(distance2 < nearestDistance2)
 		{
-			Vector3d A = roadReferencePointlist.get(i).getPosition();
-			Vector3d B = roadReferencePointlist.get(i+1).getPosition();		
-
-			Vector3d AP = P.subtract(A);
-			Vector3d AB = B.subtract(A);
-			
-			if(AB.equals(Vector3d.ZERO))
+			nearestIndex = startIndex;
+			nearestDistance2 = distance2;
+		}
+		
+		for(int i=startIndex+1; i<segmentCount; i++)
+		{
+			distance2 = getSegmentDistance2(data, i, px, py, pz);
+			if(!(distance2 < nearestDistance2))
+				break;
+			nearestIndex = i;
+			nearestDistance2 = distance2;
+		}
+		
+		for(int i=startIndex-1; i>=0; i--)
+		{
+			distance2 = getSegmentDistance2(data, i, px, py, pz);
+			if(!(distance2 <= nearestDistance2))
+				break;
+			nearestIndex = i;
+			nearestDistance2 = distance2;
+		}
+		
+		// global search: only blocks which might contain a closer (or equally close, 
+		// but preceding) segment need to be examined. Groups of blocks farther away 
+		// than the local result are skipped as a whole, hence if the local result is 
+		// the global one, only the blocks next to it will be visited.
+		int blockCount = bounds.length/6;
+		for(int group=0; group<groupBounds.length/6; group++)
+		{
+			if(getBlockDistance2(groupBounds, group, px, py, pz) > nearestDistance2)
 				continue;
 			
-			double magAB2 = AB.x*AB.x + AB.z*AB.z; 
-			double ABdotAP = AB.dot(AP);
-			double percentage = ABdotAP / magAB2;
-			
-			Vector3d pointOnLineAB;
-			if ( percentage < 0)
-				pointOnLineAB = A;
-			else if (percentage > 1)
-				pointOnLineAB = B;
-			else
-				pointOnLineAB = A.add(AB.mult(percentage));
-
-			double distance = P.distance(pointOnLineAB);
-			
-			if(distance < nearestDistance)
+			int lastBlock = Math.min((group+1)*blocksPerGroup, blockCount);
+			for(int block=group*blocksPerGroup; block<lastBlock; block++)
 			{
-				referencePointA = roadReferencePointlist.get(i);
-				referencePointB = roadReferencePointlist.get(i+1);
-				nearestPointOnLineAB = pointOnLineAB;
-				nearestDistance = distance;
-				nearestPercentage = percentage;
+				if(getBlockDistance2(bounds, block, px, py, pz) > nearestDistance2)
+					continue;
+				
+				int firstIndex = block*segmentsPerBlock;
+				int lastIndex = Math.min(firstIndex + segmentsPerBlock, segmentCount);
+				for(int i=firstIndex; i<lastIndex; i++)
+				{
+					distance2 = getSegmentDistance2(data, i, px, py, pz);
+					if(distance2 < nearestDistance2 || (distance2 == nearestDistance2 && i < nearestIndex))
+					{
+						nearestIndex = i;
+						nearestDistance2 = distance2;
+					}
+				}
 			}
 		}
 		
-		if(nearestPointOnLineAB != null)
+		if(nearestIndex >= 0)
 		{
+			ODPoint referencePointA = roadReferencePointlist.get(nearestIndex);
 			GeometryType geometryType = referencePointA.getGeometryType();
 			TRoadPlanViewGeometry geometry = referencePointA.getGeometry();
 			
 			// calculate global s value of nearest point (C) on line AB
-			double pointA_s = referencePointA.getS();
-			double pointB_s = referencePointB.getS();
+			double nearestPercentage = getSegmentPercentage(data, nearestIndex, px, py, pz);
+			double pointA_s = data[4*nearestIndex+3];
+			double pointB_s = data[4*nearestIndex+7];
 			double pointC_s = pointA_s + nearestPercentage * (pointB_s - pointA_s);
 			
 			// calculate ds (relative s value for given geometry)
@@ -536,7 +778,396 @@ public class ODRoad
 
 		return null;
 	}
-
+	
+	
+	private double[] getReferencePointData()
+	{
+		double[] data = referencePointData;
+		if(data != null && data.length == 4*roadReferencePointlist.size())
+			return data;
+		
+		int pointCount = roadReferencePointlist.size();
+		data = new double[4*pointCount];
+		for(int i=0; i<pointCount; i++)
+		{
+			ODPoint point = roadReferencePointlist.get(i);
+			data[4*i] = point.getPosition().x;
+			data[4*i+1] = point.getPosition().y;
+			data[4*i+2] = point.getPosition().z;
+			data[4*i+3] = point.getS();
+		}
+		
+		// bounding box of each block of successive segments
+		int segmentCount = Math.max(0, pointCount-1);
+		int blockCount = (segmentCount + segmentsPerBlock - 1) / segmentsPerBlock;
+		double[] bounds = new double[6*blockCount];
+		for(int block=0; block<blockCount; block++)
+		{
+			int firstPoint = block*segmentsPerBlock;
+			int lastPoint = Math.min(firstPoint + segmentsPerBlock, segmentCount);
+			for(int k=0; k<3; k++)
+			{
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for(int i=firstPoint; i<=lastPoint; i++)
+				{
+					min = Math.min(min, data[4*i+k]);
+					max = Math.max(max, data[4*i+k]);
+				}
+				bounds[6*block+k] = min;
+				bounds[6*block+3+k] = max;
+			}
+		}
+		
+		// bounding box of each group of successive blocks
+		int groupCount = (blockCount + blocksPerGroup - 1) / blocksPerGroup;
+		double[] groupBounds = new double[6*groupCount];
+		for(int group=0; group<groupCount; group++)
+		{
+			int firstBlock = group*blocksPerGroup;
+			int lastBlock = Math.min(firstBlock + blocksPerGroup, blockCount);
+			for(int k=0; k<3; k++)
+			{
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for(int block=firstBlock; block<lastBlock; block++)
+				{
+					min = Math.min(min, bounds[6*block+k]);
+					max = Math.max(max, bounds[6*block+3+k]);
+				}
+				groupBounds[6*group+k] = min;
+				groupBounds[6*group+3+k] = max;
+			}
+		}
+		
+		referenceBlockBounds = bounds;
+		referenceGroupBounds = groupBounds;
+		referencePointData = data;
+		return data;
+	}
+	
+	
+	// index of the block whose bounding box is closest to P
+	private static int getClosestBlock(double[] bounds, double px, double py, double pz)
+	{
+		int closestBlock = 0;
+		double closestDistance2 = Double.MAX_VALUE;
+		for(int block=0; block<bounds.length/6; block++)
+		{
+			double distance2 = getBlockDistance2(bounds, block, px, py, pz);
+			if(distance2 < closestDistance2)
+			{
+				closestBlock = block;
+				closestDistance2 = distance2;
+			}
+		}
+		return closestBlock;
+	}
+	
+	
+	// index of the segment containing the given s (binary search)
+	private static int getSegmentIndex(double[] data, double s)
+	{
+		int low = 0;
+		int high = data.length/4 - 2;
+		while(low < high)
+		{
+			int mid = (low + high + 1) >>> 1;
+			if(data[4*mid+3] <= s)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+	
+	
+	private static double getSegmentPercentage(double[] data, int i, double px, double py, double pz)
+	{
+		double ax = data[4*i], ay = data[4*i+1], az = data[4*i+2];
+		double abx = data[4*i+4] - ax;
+		double aby = data[4*i+5] - ay;
+		double abz = data[4*i+6] - az;
+		
+		// same as original formula: 3D dot product divided by squared 2D length
+		double magAB2 = abx*abx + abz*abz; 
+		double ABdotAP = abx*(px-ax) + aby*(py-ay) + abz*(pz-az);
+		return ABdotAP / magAB2;
+	}
+	
+	
+	// squared distance between P and segment i (NaN if segment has no extent)
+	private static double getSegmentDistance2(double[] data, int i, double px, double py, double pz)
+	{
+		double ax = data[4*i], ay = data[4*i+1], az = data[4*i+2];
+		double abx = data[4*i+4] - ax;
+		double aby = data[4*i+5] - ay;
+		double abz = data[4*i+6] - az;
+		
+		if(abx == 0 && aby == 0 && abz == 0)
+			return Double.NaN;
+		
+		double percentage = getSegmentPercentage(data, i, px, py, pz);
+		
+		double cx, cy, cz;
+		if (percentage < 0)
+		{
+			cx = ax; cy = ay; cz = az;
+		}
+		else if (percentage > 1)
+		{
+			cx = data[4*i+4]; cy = data[4*i+5]; cz = data[4*i+6];
+		}
+		else
+		{
+			cx = ax + abx*percentage; cy = ay + aby*percentage; cz = az + abz*percentage;
+		}
+		
+		double dx = px - cx;
+		double dy = py - cy;
+		double dz = pz - cz;
+		return dx*dx + dy*dy + dz*dz;
+	}
+	
+	
+	// squared distance between P and the bounding box of the given block (or group)
+	private static double getBlockDistance2(double[] bounds, int block, double px, double py, double pz)
+	{
+		double dx = Math.max(0, Math.max(bounds[6*block] - px, px - bounds[6*block+3]));
+		double dy = Math.max(0, Math.max(bounds[6*block+1] - py, py - bounds[6*block+4]));
+		double dz = Math.max(0, Math.max(bounds[6*block+2] - pz, pz - bounds[6*block+5]));
+		return dx*dx + dy*dy + dz*dz;
+	}
+	
+	
+	/**
+	 * Returns the offsets (from the start of the given geometry) of all intermediate 
+	 * reference points. By default, the geometry is sampled at a fixed interpolation 
+	 * step. In adaptive mode, the geometry is split into segments of at most 
+	 * maxStepSize, which will be bisected as long as the chord error of the 
+	 * reference line or of one of the outer lane borders exceeds maxChordError. 
+	 * Hence, straight segments of constant width result in few points, whereas 
+	 * curves, elevation changes and changes of the lane width result in dense points.
+	 * The chord error of lines, arcs and spirals in the plan view is bounded by the 
+	 * sagitta of the maximum curvature; all other deviations (poly3, paramPoly3, 
+	 * elevation, lane offset and width) are probed at the quarter points, which 
+	 * also detects S-shaped (cubic) deviations crossing the chord in the middle.
+	 * 
+	 * @param geometry
+	 * 			Plan view geometry to sample.
+	 * 
+	 * @param length
+	 * 			Length of the geometry.
+	 * 
+	 * @return
+	 * 			Ascending offsets starting at 0 and excluding the length of the geometry.
+	 */
+	private ArrayList<Double> getSamplePositions(TRoadPlanViewGeometry geometry, double length)
+	{
+		ArrayList<Double> dsList = new ArrayList<Double>();
+		
+		if(!adaptiveSampling || road == null)
+		{
+			for(double ds = 0.0; ds < length; ds += interpolationStep)
+				dsList.add(ds);
+			
+			return dsList;
+		}
+		
+		int segments = Math.max(1, (int) Math.ceil(length/maxStepSize));
+		double segmentLength = length/segments;
+		
+		double startDs = 0;
+		Vector3d[] startSection = getCrossSection(geometry, startDs);
+		for(int i=1; i<=segments; i++)
+		{
+			double endDs = (i == segments) ? length : i*segmentLength;
+			Vector3d[] endSection = getCrossSection(geometry, endDs);
+			
+			dsList.add(startDs);
+			bisect(geometry, startDs, startSection, endDs, endSection, null, dsList);
+			
+			startDs = endDs;
+			startSection = endSection;
+		}
+		
+		return dsList;
+	}
+	
+	
+	private void bisect(TRoadPlanViewGeometry geometry, double startDs, Vector3d[] startSection,
+			double endDs, Vector3d[] endSection, Vector3d[] middleSection, ArrayList<Double> dsList)
+	{
+		if(endDs - startDs < 2*minStepSize)
+			return;
+		
+		double middleDs = 0.5 * (startDs + endDs);
+		if(middleSection == null)
+			middleSection = getCrossSection(geometry, middleDs);
+		
+		// the quarter points will be the middle points of the halves if split
+		Vector3d[] firstQuarterSection = getCrossSection(geometry, 0.5 * (startDs + middleDs));
+		Vector3d[] thirdQuarterSection = getCrossSection(geometry, 0.5 * (middleDs + endDs));
+		
+		// deviation of the curve from the chord between start and end (at the probes)
+		double chordError = 0;
+		for(int i=0; i<middleSection.length; i++)
+		{
+			chordError = Math.max(chordError, getChordDeviation(startSection[i], endSection[i], 0.25, firstQuarterSection[i]));
+			chordError = Math.max(chordError, getChordDeviation(startSection[i], endSection[i], 0.5, middleSection[i]));
+			chordError = Math.max(chordError, getChordDeviation(startSection[i], endSection[i], 0.75, thirdQuarterSection[i]));
+		}
+		
+		// sagitta of the maximum curvature (plan view) of the reference line and the borders
+		double maxCurvature = getMaxCurvature(geometry, startDs, endDs);
+		if(maxCurvature > 0)
+		{
+			double length = endDs - startDs;
+			for(int i=0; i<middleSection.length; i++)
+			{
+				double offset = Math.max(getPlanDistance(startSection[0], startSection[i]), 
+						getPlanDistance(endSection[0], endSection[i]));
+				double sagitta = maxCurvature * length * length * (1 + maxCurvature * offset) / 8;
+				chordError = Math.max(chordError, sagitta);
+			}
+		}
+		
+		if(chordError <= maxChordError)
+			return;
+		
+		bisect(geometry, startDs, startSection, middleDs, middleSection, firstQuarterSection, dsList);
+		dsList.add(middleDs);
+		bisect(geometry, middleDs, middleSection, endDs, endSection, thirdQuarterSection, dsList);
+	}
+	
+	
+	// distance between the given point and the chord point at ratio t
+	private static double getChordDeviation(Vector3d start, Vector3d end, double t, Vector3d point)
+	{
+		double x = start.x + t * (end.x - start.x);
+		double y = start.y + t * (end.y - start.y);
+		double z = start.z + t * (end.z - start.z);
+		return Math.sqrt((point.x-x)*(point.x-x) + (point.y-y)*(point.y-y) + (point.z-z)*(point.z-z));
+	}
+	
+	
+	private static double getPlanDistance(Vector3d a, Vector3d b)
+	{
+		return Math.sqrt((a.x-b.x)*(a.x-b.x) + (a.z-b.z)*(a.z-b.z));
+	}
+	
+	
+	/**
+	 * Returns the maximum absolute curvature of the plan view between the given 
+	 * offsets of a line, arc or spiral geometry (0 for all other geometries, which 
+	 * are probed instead).
+	 */
+	private static double getMaxCurvature(TRoadPlanViewGeometry geometry, double startDs, double endDs)
+	{
+		if(geometry.getArc() != null)
+			return Math.abs(geometry.getArc().getCurvature());
+		
+		if(geometry.getSpiral() != null)
+		{
+			// curvature changes linearly along a spiral
+			double curvStart = geometry.getSpiral().getCurvStart();
+			double curvEnd = geometry.getSpiral().getCurvEnd();
+			double length = geometry.getLength();
+			double startCurvature = curvStart + (curvEnd - curvStart) * startDs / length;
+			double endCurvature = curvStart + (curvEnd - curvStart) * endDs / length;
+			return Math.max(Math.abs(startCurvature), Math.abs(endCurvature));
+		}
+		
+		return 0;
+	}
+	
+	
+	/**
+	 * Returns the positions of the reference line, the outer border of the left lanes
+	 * and the outer border of the right lanes at the given offset of the geometry.
+	 */
+	private Vector3d[] getCrossSection(TRoadPlanViewGeometry geometry, double ds)
+	{
+		ODPoint point = getPointOnGeometry(ds, geometry, "");
+		Vector3d position = point.getPosition();
+		double ortho = point.getOrtho();
+		double s = point.getS();
+		
+		// lane offset and widths (of the lane section containing s) as applied to the lane borders
+		double laneOffset = -getLaneOffset(s);
+		double leftWidth = 0;
+		double rightWidth = 0;
+		
+		List<TRoadLanesLaneSection> laneSectionList = road.getLanes().getLaneSection();
+		for(int i=laneSectionList.size()-1; i>=0; i--)
+		{
+			TRoadLanesLaneSection laneSection = laneSectionList.get(i);
+			if(laneSection.getS() <= s || i == 0)
+			{
+				if(laneSection.getLeft() != null)
+					leftWidth = getTotalWidth(laneSection.getLeft().getLane(), laneSection.getS(), s);
+				if(laneSection.getRight() != null)
+					rightWidth = getTotalWidth(laneSection.getRight().getLane(), laneSection.getS(), s);
+				break;
+			}
+		}
+		
+		double sin = Math.sin(ortho);
+		double cos = Math.cos(ortho);
+		double leftOffset = laneOffset - leftWidth;
+		double rightOffset = laneOffset + rightWidth;
+		
+		return new Vector3d[] {
+				position, 
+				position.add(leftOffset*sin, 0, leftOffset*cos), 
+				position.add(rightOffset*sin, 0, rightOffset*cos)
+			};
+	}
+	
+	
+	/**
+	 * Sum of the widths of the given lanes at s (c.f. ODLane.getWidth()). If a lane 
+	 * is specified by its outer border, the border is considered instead.
+	 */
+	private static double getTotalWidth(List<? extends TRoadLanesLaneSectionLrLane> laneList, 
+			double laneSectionS, double s)
+	{
+		double totalWidth = 0;
+		double maxBorder = 0;
+		
+		for(TRoadLanesLaneSectionLrLane lane : laneList)
+		{
+			List<Object> widthOrBorderList = lane.getWidthOrBorder();
+			for(int i=widthOrBorderList.size()-1; i>=0; i--)
+			{
+				Object widthOrBorder = widthOrBorderList.get(i);
+				if(widthOrBorder instanceof TRoadLanesLaneSectionLrLaneWidth)
+				{
+					TRoadLanesLaneSectionLrLaneWidth width = (TRoadLanesLaneSectionLrLaneWidth) widthOrBorder;
+					double ds = s - (laneSectionS + width.getSOffset());
+					if(ds >= 0 || i == 0)
+					{
+						totalWidth += width.getA() + width.getB()*ds + width.getC()*ds*ds + width.getD()*ds*ds*ds;
+						break;
+					}
+				}
+				else if(widthOrBorder instanceof TRoadLanesLaneSectionLrLaneBorder)
+				{
+					TRoadLanesLaneSectionLrLaneBorder border = (TRoadLanesLaneSectionLrLaneBorder) widthOrBorder;
+					double ds = s - (laneSectionS + border.getSOffset());
+					if(ds >= 0 || i == 0)
+					{
+						double t = border.getA() + border.getB()*ds + border.getC()*ds*ds + border.getD()*ds*ds*ds;
+						maxBorder = Math.max(maxBorder, Math.abs(t));
+						break;
+					}
+				}
+			}
+		}
+		
+		return Math.max(totalWidth, maxBorder);
+	}
+	
 	
 	private ArrayList<ODPoint> extractPointsFromLine(TRoadPlanViewGeometry geometry, String ID) 
 	{
@@ -567,7 +1198,7 @@ public class ODRoad
 		
 		// extract intermediate points
 		int pointCounter = 1;
-	    for (double ds = 0.0; ds < length; ds += interpolationStep)
+	    for (double ds : getSamplePositions(geometry, length))
 	    {
 	    	String intermediatePointID = lineID + "_intermediatePoint_" + pointCounter;
 	    	ODPoint intermediatePoint = getPointOnLine(ds, geometry, intermediatePointID);
@@ -659,7 +1290,7 @@ public class ODRoad
         
 		// extract intermediate points
 		int pointCounter = 1;
-	    for (double ds = 0.0; ds < length; ds += interpolationStep)
+	    for (double ds : getSamplePositions(geometry, length))
 	    {
 	    	String intermediatePointID = arcID + "_intermediatePoint_" + pointCounter;
 	    	ODPoint intermediatePoint = getPointOnArc(ds, geometry, intermediatePointID);
@@ -747,7 +1378,7 @@ public class ODRoad
 
 		
 		int pointCounter = 1;
-	    for (double ds = 0; ds < length; ds += interpolationStep)
+	    for (double ds : getSamplePositions(geometry, length))
 	    {
 	    	String pointID = spiralID + "_intermediatePoint_" + pointCounter;
 	    	ODPoint intermediatePoint = getPointOnSpiral(ds, geometry, pointID);
@@ -837,7 +1468,7 @@ public class ODRoad
         
 		// extract intermediate points
 		int pointCounter = 1;
-	    for (double ds = 0.0; ds < length; ds += interpolationStep)
+	    for (double ds : getSamplePositions(geometry, length))
 	    {
 	    	String intermediatePointID = poly3ID + "_intermediatePoint_" + pointCounter;
 	    	ODPoint intermediatePoint = getPointOnPoly3(ds, geometry, intermediatePointID);
@@ -922,7 +1553,7 @@ public class ODRoad
         
 		// extract intermediate points
 		int pointCounter = 1;
-	    for (double ds = 0.0; ds < length; ds += interpolationStep)
+	    for (double ds : getSamplePositions(geometry, length))
 	    {
 	    	String intermediatePointID = paramPoly3ID + "_intermediatePoint_" + pointCounter;
 	    	ODPoint intermediatePoint = getPointOnParamPoly3(ds, geometry, intermediatePointID);
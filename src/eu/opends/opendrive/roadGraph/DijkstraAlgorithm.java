@@ -29,13 +29,13 @@
 
 package eu.opends.opendrive.roadGraph;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import eu.opends.opendrive.processed.PreferredConnections;
@@ -43,94 +43,97 @@ import eu.opends.opendrive.processed.PreferredConnections;
 
 public class DijkstraAlgorithm
 {
-	private final List<Edge> edges;
+	private final Map<Node, List<Edge>> adjacencyMap;
 	private Set<Node> settledNodes;
-	private Set<Node> unSettledNodes;
-	private Map<Node, Node> predecessors;
+	private Map<Node, Edge> predecessors;
 	private Map<Node, Double> distance;
 
 	
-	public DijkstraAlgorithm(List<Edge> edges)
+	private static class QueueEntry implements Comparable<QueueEntry>
 	{
-		// create a copy of the array so that we can operate on this array
-		this.edges = new ArrayList<Edge>(edges);
-	}
+		private final Node node;
+		private final double distance;
+		
+		
+		private QueueEntry(Node node, double distance)
+		{
+			this.node = node;
+			this.distance = distance;
+		}
 
-	
-	public void setStartNode(Node source)
-	{
-		settledNodes = new HashSet<Node>();
-		unSettledNodes = new HashSet<Node>();
-		distance = new HashMap<Node, Double>();
-		predecessors = new HashMap<Node, Node>();
-		distance.put(source, 0.0);
-		unSettledNodes.add(source);
-		while (unSettledNodes.size() > 0)
+
+		@Override
+		public int compareTo(QueueEntry other)
 		{
-			Node node = getMinimum(unSettledNodes);
-			settledNodes.add(node);
-			unSettledNodes.remove(node);
-			findMinimalDistances(node);
+			return Double.compare(distance, other.distance);
 		}
 	}
-
 	
-	private void findMinimalDistances(Node node)
+	
+	/**
+	 * @param adjacencyMap
+	 * 			Outgoing edges of every node (will not be copied or modified).
+	 */
+	public DijkstraAlgorithm(Map<Node, List<Edge>> adjacencyMap)
 	{
-		List<Node> adjacentNodes = getNeighbors(node);
-		for (Node target : adjacentNodes)
-		{
-			if (getShortestDistance(target) > getShortestDistance(node) + getDistance(node, target))
-			{
-				distance.put(target, getShortestDistance(node) + getDistance(node, target));
-				predecessors.put(target, node);
-				unSettledNodes.add(target);
-			}
-		}
+		this.adjacencyMap = adjacencyMap;
 	}
 
 	
-	private double getDistance(Node node, Node target)
+	public void setStartNode(Node source)
 	{
-		for (Edge edge : edges)
-		{
-			if (edge.getSource().equals(node) && edge.getDestination().equals(target))
-			{
-				return edge.getWeight();
-			}
-		}
-		
-		throw new RuntimeException("Should not happen");
+		setStartNode(source, null);
 	}
-
 	
-	private List<Node> getNeighbors(Node node)
+	
+	/**
+	 * Computes the shortest distances from the given source node. If a target
+	 * node is given, the search stops as soon as the target has been settled.
+	 */
+	public void setStartNode(Node source, Node target)
 	{
-		List<Node> neighbors = new ArrayList<Node>();
-		for (Edge edge : edges)
+		settledNodes = new HashSet<Node>();
+		distance = new HashMap<Node, Double>();
+		predecessors = new HashMap<Node, Edge>();
+		distance.put(source, 0.0);
+		
+		// nodes may be queued several times; outdated entries will be skipped
+		PriorityQueue<QueueEntry> unSettledNodes = new PriorityQueue<QueueEntry>();
+		unSettledNodes.add(new QueueEntry(source, 0.0));
+		while (!unSettledNodes.isEmpty())
 		{
-			if (edge.getSource().equals(node) && !isSettled(edge.getDestination()))
-				neighbors.add(edge.getDestination());
+			QueueEntry entry = unSettledNodes.poll();
+			if (!settledNodes.add(entry.node))
+				continue;
+			
+			if (entry.node.equals(target))
+				break;
+			
+			findMinimalDistances(entry.node, entry.distance, unSettledNodes);
 		}
-		
-		return neighbors;
 	}
 
 	
-	private Node getMinimum(Set<Node> nodes)
+	private void findMinimalDistances(Node node, double nodeDistance, PriorityQueue<QueueEntry> unSettledNodes)
 	{
-		Node minimum = null;
-		for (Node node : nodes)
+		List<Edge> outgoingEdges = adjacencyMap.get(node);
+		if (outgoingEdges == null)
+			return;
+		
+		for (Edge edge : outgoingEdges)
 		{
-			if (minimum == null)
-				minimum = node;
-			else
+			Node target = edge.getDestination();
+			if (isSettled(target))
+				continue;
+			
+			double targetDistance = nodeDistance + edge.getWeight();
+			if (getShortestDistance(target) > targetDistance)
 			{
-				if (getShortestDistance(node) < getShortestDistance(minimum))
-					minimum = node;
+				distance.put(target, targetDistance);
+				predecessors.put(target, edge);
+				unSettledNodes.add(new QueueEntry(target, targetDistance));
 			}
 		}
-		return minimum;
 	}
 		
 
@@ -162,21 +165,40 @@ public class DijkstraAlgorithm
 	 */
 	public LinkedList<Node> getPath(Node target)
 	{
+		LinkedList<Edge> edgePath = getEdgePath(target);
+		if (edgePath == null)
+			return null;
+		
 		LinkedList<Node> path = new LinkedList<Node>();
+		path.add(edgePath.getFirst().getSource());
+		for (Edge edge : edgePath)
+			path.add(edge.getDestination());
+		
+		return path;
+	}
+	
+	
+	/*
+	 * This method returns the edges leading from the source to the selected target 
+	 * and NULL if no path exists
+	 */
+	private LinkedList<Edge> getEdgePath(Node target)
+	{
+		LinkedList<Edge> path = new LinkedList<Edge>();
 		Node node = target;
 		
 		// check if a path (consisting of nodes) exists
 		if (predecessors.get(node) == null)
 			return null;
 		
-		path.add(node);
 		while (predecessors.get(node) != null)
 		{
-			node = predecessors.get(node);
-			path.add(node);
+			Edge edge = predecessors.get(node);
+			path.add(edge);
+			node = edge.getSource();
 		}
 		
-		// put nodes into the correct order
+		// put edges into the correct order
 		Collections.reverse(path);
 		
 		return path;
@@ -187,52 +209,30 @@ public class DijkstraAlgorithm
 	{
 		PreferredConnections preferredConnections = new PreferredConnections();
 		
-		LinkedList<Node> path = getPath(target);
+		// retrieve edges (connecting two successive nodes)
+		LinkedList<Edge> path = getEdgePath(target);
 		
 		if(path == null)
 			return null;
 		
-		// retrieve edges (connecting two successive nodes)
-		if(path.size()>=2)
+		for(Edge edge : path)
 		{
-			for(int i=1; i<path.size(); i++)
+			String junctionID = edge.getJunctionID();
+			String connectionID = edge.getConnectionID();
+			
+			// if junction available, add junctionID and connectionID to preferred connection list
+			if(junctionID != null && connectionID != null)
+			{
+				preferredConnections.addConnection(junctionID, connectionID);
+				//System.err.println("Edge: " + edge.getId() + " (Junction: " + junctionID + "/" + connectionID + ")" + "; dist: " + edge.getWeight());
+			}
+			else
 			{
-				Node fromNode = path.get(i-1);
-				Node toNode = path.get(i);
-				Edge edge = getEdge(fromNode, toNode);
-				
-				// if edge available, check for junction
-				if(edge != null)
-				{
-					String junctionID = edge.getJunctionID();
-					String connectionID = edge.getConnectionID();
-					
-					// if junction available, add junctionID and connectionID to preferred connection list
-					if(junctionID != null && connectionID != null)
-					{
-						preferredConnections.addConnection(junctionID, connectionID);
-						//System.err.println("Edge " + i + ": " + edge.getId() + " (Junction: " + junctionID + "/" + connectionID + ")" + "; dist: " + edge.getWeight());
-					}
-					else
-					{
-						//System.err.println("Edge " + i + ": " + edge.getId() + " (Road transition)" + "; dist: " + edge.getWeight());
-					}
-				}
+				//System.err.println("Edge: " + edge.getId() + " (Road transition)" + "; dist: " + edge.getWeight());
 			}
 		}
 
 		return preferredConnections;
 	}
 
-
-	private Edge getEdge(Node fromNode, Node toNode)
-	{
-		for(Edge edge : edges)
-		{
-			if(edge.getSource().equals(fromNode) && edge.getDestination().equals(toNode))
-				return edge;
-		}
-		return null;
-	}
-
 }
\ No newline at end of file
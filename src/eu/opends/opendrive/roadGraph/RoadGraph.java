@@ -21,6 +21,9 @@ package eu.opends.opendrive.roadGraph;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import eu.opends.opendrive.data.EContactPoint;
 import eu.opends.opendrive.processed.LinkData;
@@ -35,6 +38,21 @@ public class RoadGraph
 {
 	private HashMap<String, ODRoad> roadMap;
 	private ArrayList<Edge> edgeList = new ArrayList<Edge>();
+	private HashMap<Node, List<Edge>> adjacencyMap = new HashMap<Node, List<Edge>>();
+	
+	// most recently used routes (value null if no route exists)
+	private static final int routeCacheSize = 128;
+	private LinkedHashMap<String, PreferredConnections> routeCache = 
+			new LinkedHashMap<String, PreferredConnections>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreferredConnections> eldest)
+		{
+			return size() > routeCacheSize;
+		}
+	};
 	
 	
 	public RoadGraph(HashMap<String, ODRoad> roadMap, boolean isSort)
@@ -67,6 +85,18 @@ public class RoadGraph
 		if(isSort)
 			Collections.sort(edgeList, new EdgeComparator());
 		
+		// outgoing edges of each node (in order of edge list)
+		for(Edge edge : edgeList)
+		{
+			List<Edge> outgoingEdges = adjacencyMap.get(edge.getSource());
+			if(outgoingEdges == null)
+			{
+				outgoingEdges = new ArrayList<Edge>();
+				adjacencyMap.put(edge.getSource(), outgoingEdges);
+			}
+			outgoingEdges.add(edge);
+		}
+		
 		// print sorted list of edges
 		//for(Edge edge : edgeList)
 			//System.err.println(edge.getSource() + " --> " + edge.getDestination());
@@ -134,21 +164,26 @@ public class RoadGraph
 	}
 
 	
-	public PreferredConnections getShortestPath(ODPosition startPos, ODPosition targetPos)
+	public synchronized PreferredConnections getShortestPath(ODPosition startPos, ODPosition targetPos)
 	{
 		// check whether start and target position are valid ODPositions
 		if(isValidODPosition(startPos) && isValidODPosition(startPos))
 		{
-			// initialize Dijkstra's Shortest Path Algorithm
-			DijkstraAlgorithm dijkstraAlgorithm = new DijkstraAlgorithm(edgeList);
-			
-			// set start node of graph (= start ODPosition)
+			// start node of graph (= start ODPosition)
 			Node startNode = new Node(roadMap, startPos);
-			dijkstraAlgorithm.setStartNode(startNode);
 			
-			// set target node of graph (= target ODPosition)
+			// target node of graph (= target ODPosition)
 			Node targetNode = new Node(roadMap, targetPos);
 			
+			// the route only depends on start and target node --> look up previous results
+			String routeKey = startNode.getId() + " --> " + targetNode.getId();
+			if(routeCache.containsKey(routeKey))
+				return routeCache.get(routeKey);
+			
+			// initialize Dijkstra's Shortest Path Algorithm (stops when target node reached)
+			DijkstraAlgorithm dijkstraAlgorithm = new DijkstraAlgorithm(adjacencyMap);
+			dijkstraAlgorithm.setStartNode(startNode, targetNode);
+			
 			/*
 			// get shortest distance from start to target node
 			// distance is calculated including total length of start node and without 
@@ -167,7 +202,9 @@ public class RoadGraph
 			*/
 			
 			// return list of preferred connections that lead from start to target position
-			return dijkstraAlgorithm.getShortestPathToTarget(targetNode);
+			PreferredConnections preferredConnections = dijkstraAlgorithm.getShortestPathToTarget(targetNode);
+			routeCache.put(routeKey, preferredConnections);
+			return preferredConnections;
 		}
 		
 		return null;
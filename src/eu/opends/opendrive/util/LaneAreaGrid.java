@@ -0,0 +1,325 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.opendrive.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map.Entry;
+
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Mesh.Mode;
+
+/**
+ * Uniform grid over the x-z-plane which contains the triangles of all lane area
+ * geometries ("ODarea_roadID_laneID"). A query returns all lane areas located
+ * vertically above or below the given position together with the height of the
+ * respective surface, i.e. the same information a downward ray cast into the
+ * OpenDRIVE node would provide, but without traversing the scene graph.
+ *
+ * @author agent
+ */
+public class LaneAreaGrid
+{
+	// triangles covering more cells than this will be tested in every query
+	private static final int maxCellsPerTriangle = 4096;
+
+	private float cellSize;
+
+	// road ID and lane ID of every lane area geometry
+	private ArrayList<String> roadIDList = new ArrayList<String>();
+	private ArrayList<Integer> laneIDList = new ArrayList<Integer>();
+
+	// per triangle: x0, y0, z0, x1, y1, z1, x2, y2, z2
+	private float[] vertices = new float[0];
+	private int[] triangleArea = new int[0];
+	private int triangleCount = 0;
+
+	private HashMap<Long, int[]> cellMap = new HashMap<Long, int[]>();
+	private int[] largeTriangles = new int[0];
+
+	// result of the last query
+	private int hitCount = 0;
+	private int[] hitArea = new int[8];
+	private float[] hitHeight = new float[8];
+
+
+	public LaneAreaGrid(float cellSize)
+	{
+		this.cellSize = cellSize;
+	}
+
+
+	/**
+	 * Adds all triangles of the given lane area geometry. Geometries which do
+	 * not follow the naming scheme "ODarea_roadID_laneID" will be ignored.
+	 *
+	 * @param geometry
+	 * 			Lane area geometry (must not be moved after it has been added).
+	 */
+	public void add(Geometry geometry)
+	{
+		String[] array = geometry.getName().split("_");
+		if(array.length != 3 || !"ODarea".equals(array[0]))
+			return;
+
+		int laneID;
+		try {
+			laneID = Integer.parseInt(array[2]);
+		} catch(NumberFormatException e) {
+			return;
+		}
+
+		Mesh mesh = geometry.getMesh();
+		if(mesh.getMode() != Mode.Triangles)
+			return;
+
+		int area = roadIDList.size();
+		roadIDList.add(array[1]);
+		laneIDList.add(laneID);
+
+		Transform transform = geometry.getWorldTransform();
+		Vector3f v1 = new Vector3f();
+		Vector3f v2 = new Vector3f();
+		Vector3f v3 = new Vector3f();
+
+		int count = mesh.getTriangleCount();
+		ensureTriangleCapacity(triangleCount + count);
+		for(int i=0; i<count; i++)
+		{
+			mesh.getTriangle(i, v1, v2, v3);
+			transform.transformVector(v1, v1);
+			transform.transformVector(v2, v2);
+			transform.transformVector(v3, v3);
+
+			int offset = 9*triangleCount;
+			vertices[offset+0] = v1.x;
+			vertices[offset+1] = v1.y;
+			vertices[offset+2] = v1.z;
+			vertices[offset+3] = v2.x;
+			vertices[offset+4] = v2.y;
+			vertices[offset+5] = v2.z;
+			vertices[offset+6] = v3.x;
+			vertices[offset+7] = v3.y;
+			vertices[offset+8] = v3.z;
+			triangleArea[triangleCount] = area;
+			triangleCount++;
+		}
+	}
+
+
+	private void ensureTriangleCapacity(int capacity)
+	{
+		if(triangleArea.length < capacity)
+		{
+			int newCapacity = Math.max(capacity, 2*triangleArea.length);
+			float[] newVertices = new float[9*newCapacity];
+			System.arraycopy(vertices, 0, newVertices, 0, 9*triangleCount);
+			vertices = newVertices;
+
+			int[] newTriangleArea = new int[newCapacity];
+			System.arraycopy(triangleArea, 0, newTriangleArea, 0, triangleCount);
+			triangleArea = newTriangleArea;
+		}
+	}
+
+
+	/**
+	 * Assigns all added triangles to the grid cells they overlap. Must be
+	 * called after all lane area geometries have been added.
+	 */
+	public void build()
+	{
+		HashMap<Long, ArrayList<Integer>> tempCellMap = new HashMap<Long, ArrayList<Integer>>();
+		ArrayList<Integer> largeTriangleList = new ArrayList<Integer>();
+
+		for(int t=0; t<triangleCount; t++)
+		{
+			int offset = 9*t;
+			float minX = Math.min(vertices[offset], Math.min(vertices[offset+3], vertices[offset+6]));
+			float maxX = Math.max(vertices[offset], Math.max(vertices[offset+3], vertices[offset+6]));
+			float minZ = Math.min(vertices[offset+2], Math.min(vertices[offset+5], vertices[offset+8]));
+			float maxZ = Math.max(vertices[offset+2], Math.max(vertices[offset+5], vertices[offset+8]));
+
+			if(Float.isNaN(minX) || Float.isNaN(maxX) || Float.isNaN(minZ) || Float.isNaN(maxZ))
+				continue;
+
+			int minCellX = toCell(minX);
+			int maxCellX = toCell(maxX);
+			int minCellZ = toCell(minZ);
+			int maxCellZ = toCell(maxZ);
+
+			if((long)(maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1) > maxCellsPerTriangle)
+			{
+				largeTriangleList.add(t);
+				continue;
+			}
+
+			for(int x=minCellX; x<=maxCellX; x++)
+			{
+				for(int z=minCellZ; z<=maxCellZ; z++)
+				{
+					Long key = toKey(x, z);
+					ArrayList<Integer> cell = tempCellMap.get(key);
+					if(cell == null)
+					{
+						cell = new ArrayList<Integer>(8);
+						tempCellMap.put(key, cell);
+					}
+					cell.add(t);
+				}
+			}
+		}
+
+		cellMap.clear();
+		for(Entry<Long, ArrayList<Integer>> entry : tempCellMap.entrySet())
+			cellMap.put(entry.getKey(), toArray(entry.getValue()));
+
+		largeTriangles = toArray(largeTriangleList);
+	}
+
+
+	/**
+	 * Finds all lane areas containing the given x-z-position. Results are sorted
+	 * by descending height (as hit by a downward ray) and can be retrieved by
+	 * getHitRoadID(), getHitLaneID() and getHitHeight().
+	 *
+	 * @param x
+	 * 			x-coordinate of the position.
+	 *
+	 * @param z
+	 * 			z-coordinate of the position.
+	 *
+	 * @return
+	 * 			Number of hits.
+	 */
+	public int query(float x, float z)
+	{
+		hitCount = 0;
+
+		for(int i=0; i<largeTriangles.length; i++)
+			testTriangle(largeTriangles[i], x, z);
+
+		int[] cell = cellMap.get(toKey(toCell(x), toCell(z)));
+		if(cell != null)
+		{
+			for(int i=0; i<cell.length; i++)
+				testTriangle(cell[i], x, z);
+		}
+
+		return hitCount;
+	}
+
+
+	private void testTriangle(int t, float x, float z)
+	{
+		int offset = 9*t;
+		float x0 = vertices[offset], z0 = vertices[offset+2];
+		float x1 = vertices[offset+3], z1 = vertices[offset+5];
+		float x2 = vertices[offset+6], z2 = vertices[offset+8];
+
+		// barycentric coordinates of (x,z) within the projected triangle
+		float det = (z1 - z2) * (x0 - x2) + (x2 - x1) * (z0 - z2);
+		if(det == 0)
+			return;
+
+		float l0 = ((z1 - z2) * (x - x2) + (x2 - x1) * (z - z2)) / det;
+		float l1 = ((z2 - z0) * (x - x2) + (x0 - x2) * (z - z2)) / det;
+		float l2 = 1f - l0 - l1;
+		if(l0 < 0 || l1 < 0 || l2 < 0)
+			return;
+
+		float height = l0 * vertices[offset+1] + l1 * vertices[offset+4] + l2 * vertices[offset+7];
+		addHit(triangleArea[t], height);
+	}
+
+
+	private void addHit(int area, float height)
+	{
+		if(hitCount == hitArea.length)
+		{
+			int[] newHitArea = new int[2*hitCount];
+			System.arraycopy(hitArea, 0, newHitArea, 0, hitCount);
+			hitArea = newHitArea;
+
+			float[] newHitHeight = new float[2*hitCount];
+			System.arraycopy(hitHeight, 0, newHitHeight, 0, hitCount);
+			hitHeight = newHitHeight;
+		}
+
+		// insert sorted by descending height
+		int i = hitCount;
+		while(i > 0 && hitHeight[i-1] < height)
+		{
+			hitArea[i] = hitArea[i-1];
+			hitHeight[i] = hitHeight[i-1];
+			i--;
+		}
+		hitArea[i] = area;
+		hitHeight[i] = height;
+		hitCount++;
+	}
+
+
+	public String getHitRoadID(int index)
+	{
+		return roadIDList.get(hitArea[index]);
+	}
+
+
+	public int getHitLaneID(int index)
+	{
+		return laneIDList.get(hitArea[index]);
+	}
+
+
+	public float getHitHeight(int index)
+	{
+		return hitHeight[index];
+	}
+
+
+	public int getTriangleCount()
+	{
+		return triangleCount;
+	}
+
+
+	private static int[] toArray(ArrayList<Integer> list)
+	{
+		int[] array = new int[list.size()];
+		for(int i=0; i<array.length; i++)
+			array[i] = list.get(i);
+		return array;
+	}
+
+
+	private int toCell(float coordinate)
+	{
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+
+	private static Long toKey(int x, int z)
+	{
+		return (((long) x) << 32) | (z & 0xffffffffL);
+	}
+}
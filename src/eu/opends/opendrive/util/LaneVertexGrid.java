@@ -0,0 +1,192 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.opendrive.util;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map.Entry;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Type;
+
+/**
+ * Uniform grid over the x-z-plane which contains the vertex indices of a lane
+ * mesh. Finds the vertex closest (in the x-z-plane) to a given position by
+ * examining rings of cells around the position instead of all vertices.
+ *
+ * @author agent
+ */
+public class LaneVertexGrid
+{
+	// number of rings of cells to examine before all remaining vertices will be tested
+	private static final int maxRings = 16;
+
+	private float cellSize;
+	private float[] vertices;
+	private int vertexCount;
+	private HashMap<Long, int[]> cellMap = new HashMap<Long, int[]>();
+
+
+	/**
+	 * Creates a grid of all vertices of the given mesh (in mesh coordinates).
+	 *
+	 * @param mesh
+	 * 			Lane mesh (its positions must not be changed afterwards).
+	 *
+	 * @param cellSize
+	 * 			Edge length (m) of the grid cells.
+	 */
+	public LaneVertexGrid(Mesh mesh, float cellSize)
+	{
+		this.cellSize = cellSize;
+
+		VertexBuffer vertexBuffer = mesh.getBuffer(Type.Position);
+		FloatBuffer floatBuffer = (FloatBuffer) vertexBuffer.getDataReadOnly();
+
+		vertexCount = floatBuffer.limit() / 3;
+		vertices = new float[3*vertexCount];
+		for(int i=0; i<vertices.length; i++)
+			vertices[i] = floatBuffer.get(i);
+
+		HashMap<Long, ArrayList<Integer>> tempCellMap = new HashMap<Long, ArrayList<Integer>>();
+		for(int i=0; i<vertexCount; i++)
+		{
+			float x = vertices[3*i];
+			float z = vertices[3*i+2];
+			if(Float.isNaN(x) || Float.isNaN(z))
+				continue;
+
+			Long key = toKey(toCell(x), toCell(z));
+			ArrayList<Integer> cell = tempCellMap.get(key);
+			if(cell == null)
+			{
+				cell = new ArrayList<Integer>(8);
+				tempCellMap.put(key, cell);
+			}
+			cell.add(i);
+		}
+
+		for(Entry<Long, ArrayList<Integer>> entry : tempCellMap.entrySet())
+		{
+			ArrayList<Integer> list = entry.getValue();
+			int[] array = new int[list.size()];
+			for(int i=0; i<array.length; i++)
+				array[i] = list.get(i);
+			cellMap.put(entry.getKey(), array);
+		}
+	}
+
+
+	/**
+	 * Returns the vertex closest to the given position (distance measured in
+	 * the x-z-plane). If several vertices have the same distance, the one
+	 * with the lowest index will be returned.
+	 *
+	 * @param position
+	 * 			Position to find the closest vertex for.
+	 *
+	 * @return
+	 * 			Copy of the closest vertex or null if the mesh has no vertices.
+	 */
+	public Vector3f getClosestVertex(Vector3f position)
+	{
+		float px = position.getX();
+		float pz = position.getZ();
+
+		int closestIndex = -1;
+		float closestDistance = Float.MAX_VALUE;
+
+		int centerX = toCell(px);
+		int centerZ = toCell(pz);
+
+		boolean done = false;
+		for(int ring=0; ring<=maxRings && !done; ring++)
+		{
+			for(int x=centerX-ring; x<=centerX+ring; x++)
+			{
+				// only the border cells of the current ring
+				int step = (x == centerX-ring || x == centerX+ring)? 1 : Math.max(1, 2*ring);
+				for(int z=centerZ-ring; z<=centerZ+ring; z+=step)
+				{
+					int[] cell = cellMap.get(toKey(x, z));
+					if(cell == null)
+						continue;
+
+					for(int k=0; k<cell.length; k++)
+					{
+						int i = cell[k];
+						float distance = getDistance(i, px, pz);
+						if(distance < closestDistance || (distance == closestDistance && i < closestIndex))
+						{
+							closestDistance = distance;
+							closestIndex = i;
+						}
+					}
+				}
+			}
+
+			// vertices outside of the examined rings are at least this far away
+			if(closestIndex >= 0 && closestDistance < ring * cellSize)
+				done = true;
+		}
+
+		if(!done)
+		{
+			// position far away from the lane --> test all vertices
+			for(int i=0; i<vertexCount; i++)
+			{
+				float distance = getDistance(i, px, pz);
+				if(distance < closestDistance || (distance == closestDistance && i < closestIndex))
+				{
+					closestDistance = distance;
+					closestIndex = i;
+				}
+			}
+		}
+
+		if(closestIndex < 0)
+			return null;
+
+		return new Vector3f(vertices[3*closestIndex], vertices[3*closestIndex+1], vertices[3*closestIndex+2]);
+	}
+
+
+	private float getDistance(int i, float px, float pz)
+	{
+		// same computation as Vector2f.distance()
+		double dx = px - vertices[3*i];
+		double dz = pz - vertices[3*i+2];
+		return (float) Math.sqrt((float) (dx * dx + dz * dz));
+	}
+
+
+	private int toCell(float coordinate)
+	{
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+
+	private static Long toKey(int x, int z)
+	{
+		return (((long) x) << 32) | (z & 0xffffffffL);
+	}
+}
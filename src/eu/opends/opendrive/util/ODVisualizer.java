@@ -180,6 +180,9 @@ public class ODVisualizer
 	    Texture texture = sim.getAssetManager().loadTexture(texturePath);
 	    texture.setAnisotropicFilter(32);
 	    
+	    // texture coordinates along the lane increase with s (mirrored every interpolation step)
+	    texture.setWrap(WrapAxis.T, WrapMode.MirroredRepeat);
+	    
 	    if(wrapAxis != null && wrapMode != null)
 	    	texture.setWrap(wrapAxis, wrapMode);
 
@@ -0,0 +1,227 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.opendrive.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import com.jme3.export.Savable;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+
+import eu.opends.opendrive.processed.ODRoad;
+
+/**
+ * Persists the lane meshes of all roads of an OpenDRIVE file (binary j3o: one
+ * node per road containing the lane geometries in order of their creation) and
+ * provides them to subsequent runs. Computing the meshes is the most expensive
+ * part of loading a road network, especially if the lanes are projected onto
+ * the terrain. The cache file is named after a hash of the OpenDRIVE file, the
+ * given settings key and the format version, hence a modification of any of
+ * them results in a new cache file.
+ *
+ * @author agent
+ */
+public class ProcessedRoadCache
+{
+	// increase whenever the construction of lane meshes changes
+	private static final int formatVersion = 2;
+
+	private File cacheFile = null;
+	private HashMap<String, ArrayList<String>> meshIDMap = new HashMap<String, ArrayList<String>>();
+	private HashMap<String, ArrayList<Mesh>> meshMap = new HashMap<String, ArrayList<Mesh>>();
+
+
+	/**
+	 * Determines the cache file of the given OpenDRIVE file.
+	 *
+	 * @param cacheDirectory
+	 * 			Folder containing the cache files.
+	 *
+	 * @param openDriveFile
+	 * 			Path of the OpenDRIVE file.
+	 *
+	 * @param settingsKey
+	 * 			All settings the lane meshes depend on.
+	 */
+	public ProcessedRoadCache(String cacheDirectory, String openDriveFile, String settingsKey)
+	{
+		try {
+
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+			try (InputStream inputStream = Files.newInputStream(new File(openDriveFile).toPath())) {
+
+				byte[] buffer = new byte[65536];
+				int length;
+				while((length = inputStream.read(buffer)) != -1)
+					digest.update(buffer, 0, length);
+			}
+
+			digest.update((settingsKey + ";" + formatVersion).getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder hash = new StringBuilder();
+			for(byte b : digest.digest())
+				hash.append(String.format("%02x", b));
+
+			cacheFile = new File(cacheDirectory, hash.toString() + ".j3o");
+
+		} catch (IOException e) {
+
+			System.err.println("ProcessedRoadCache: could not read '" + openDriveFile + "' (" + e.getMessage()
+					+ ") --> cache disabled");
+
+		} catch (NoSuchAlgorithmException e) {
+
+			System.err.println("ProcessedRoadCache: " + e.getMessage() + " --> cache disabled");
+		}
+	}
+
+
+	/**
+	 * Loads the lane meshes of a previous run (if available).
+	 *
+	 * @return
+	 * 			True, if the cache file has been loaded.
+	 */
+	public boolean load()
+	{
+		if(cacheFile == null || !cacheFile.isFile())
+			return false;
+
+		try {
+
+			Savable savable = BinaryImporter.getInstance().load(cacheFile);
+			if(!(savable instanceof Node))
+				throw new IOException("unexpected content");
+
+			for(Spatial roadSpatial : ((Node) savable).getChildren())
+			{
+				ArrayList<String> meshIDList = new ArrayList<String>();
+				ArrayList<Mesh> meshList = new ArrayList<Mesh>();
+
+				for(Spatial laneSpatial : ((Node) roadSpatial).getChildren())
+				{
+					meshIDList.add(laneSpatial.getName());
+					meshList.add(((Geometry) laneSpatial).getMesh());
+				}
+
+				meshIDMap.put(roadSpatial.getName(), meshIDList);
+				meshMap.put(roadSpatial.getName(), meshList);
+			}
+
+			return true;
+
+		} catch (Exception e) {
+
+			System.err.println("ProcessedRoadCache: could not load '" + cacheFile.getPath() + "' ("
+					+ e.getMessage() + ") --> rebuilding");
+
+			meshIDMap.clear();
+			meshMap.clear();
+			return false;
+		}
+	}
+
+
+	/**
+	 * @param roadID
+	 * 			ID of the road.
+	 *
+	 * @return
+	 * 			IDs of the cached lane geometries of the given road (null, if not available).
+	 */
+	public List<String> getMeshIDList(String roadID)
+	{
+		return meshIDMap.get(roadID);
+	}
+
+
+	/**
+	 * @param roadID
+	 * 			ID of the road.
+	 *
+	 * @return
+	 * 			Cached lane meshes of the given road (null, if not available).
+	 */
+	public List<Mesh> getMeshList(String roadID)
+	{
+		return meshMap.get(roadID);
+	}
+
+
+	/**
+	 * Writes the lane meshes of all given roads to the cache file. The file is
+	 * written to a temporary file first, hence a simulator starting concurrently
+	 * will never read an incomplete cache.
+	 *
+	 * @param roads
+	 * 			All roads of the OpenDRIVE file.
+	 */
+	public void save(Collection<ODRoad> roads)
+	{
+		if(cacheFile == null)
+			return;
+
+		// copies of the lane geometries without material and physics control
+		Node rootNode = new Node("processedRoads");
+		for(ODRoad road : roads)
+		{
+			Node roadNode = new Node(road.getID());
+			for(Geometry geometry : road.getLaneGeometryList())
+				roadNode.attachChild(new Geometry(geometry.getName(), geometry.getMesh()));
+			rootNode.attachChild(roadNode);
+		}
+
+		File tempFile = new File(cacheFile.getPath() + ".tmp");
+
+		try {
+
+			cacheFile.getParentFile().mkdirs();
+			BinaryExporter.getInstance().save(rootNode, tempFile);
+			Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		} catch (IOException e) {
+
+			System.err.println("ProcessedRoadCache: could not write '" + cacheFile.getPath() + "' ("
+					+ e.getMessage() + ")");
+			tempFile.delete();
+		}
+	}
+
+
+	public File getFile()
+	{
+		return cacheFile;
+	}
+}
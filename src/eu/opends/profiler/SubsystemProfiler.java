@@ -0,0 +1,411 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.profiler;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Measures the time (ns) spent in each subsystem updated during a frame
+ * (e.g. Simulator.simpleUpdate()). Subsystems are measured one after the
+ * other: split(name) assigns the time elapsed since the previous split (or
+ * beginFrame()) to the named subsystem. For every subsystem the durations of
+ * the last frames are kept in order to compute percentiles (p50, p99) and
+ * the maximum of this rolling window.
+ *
+ * Optionally, the durations of every frame can be written to a CSV file
+ * while the simulation is running (one row per frame, one column per
+ * subsystem).
+ *
+ * @author agent
+ */
+public class SubsystemProfiler
+{
+	public static final String TOTAL = "total";
+
+	// number of frames in the rolling window
+	private int windowSize;
+
+	private ArrayList<Section> sectionList = new ArrayList<Section>();
+	private HashMap<String, Section> sectionMap = new HashMap<String, Section>();
+	private Section totalSection;
+	private long[] sortBuffer;
+	private long frameStartTime = 0;
+	private long lastSplitTime = 0;
+	private long frameCounter = 0;
+	private boolean frameStarted = false;
+
+	private BufferedWriter csvWriter = null;
+	private int csvColumnCount = 0;
+	private long exportStartTime = 0;
+	private StringBuilder csvLine = new StringBuilder();
+
+
+	/**
+	 * Timing statistics of a single subsystem.
+	 */
+	public class Section
+	{
+		private String name;
+		private long[] window = new long[windowSize];
+		private int windowIndex = 0;
+		private int windowCount = 0;
+		private long current = 0;
+		private long overallMax = 0;
+		private long overallSum = 0;
+		private long overallCount = 0;
+		private long p50 = 0;
+		private long p99 = 0;
+		private long max = 0;
+
+
+		private Section(String name)
+		{
+			this.name = name;
+		}
+
+
+		public String getName()
+		{
+			return name;
+		}
+
+
+		private void add(long duration)
+		{
+			current += duration;
+		}
+
+
+		private void commit()
+		{
+			window[windowIndex] = current;
+			windowIndex = (windowIndex + 1) % windowSize;
+			if(windowCount < windowSize)
+				windowCount++;
+
+			overallMax = Math.max(overallMax, current);
+			overallSum += current;
+			overallCount++;
+			current = 0;
+		}
+
+
+		/**
+		 * Computes p50, p99 and maximum of the rolling window (available
+		 * via getP50(), getP99() and getMax() afterwards).
+		 */
+		public void updateStatistics()
+		{
+			if(windowCount == 0)
+				return;
+
+			System.arraycopy(window, 0, sortBuffer, 0, windowCount);
+			Arrays.sort(sortBuffer, 0, windowCount);
+			p50 = sortBuffer[(windowCount - 1) / 2];
+			p99 = sortBuffer[(int) Math.ceil(0.99 * windowCount) - 1];
+			max = sortBuffer[windowCount - 1];
+		}
+
+
+		/**
+		 * @return
+		 * 			Median (ns) of the rolling window.
+		 */
+		public long getP50()
+		{
+			return p50;
+		}
+
+
+		/**
+		 * @return
+		 * 			99th percentile (ns) of the rolling window.
+		 */
+		public long getP99()
+		{
+			return p99;
+		}
+
+
+		/**
+		 * @return
+		 * 			Maximum (ns) of the rolling window.
+		 */
+		public long getMax()
+		{
+			return max;
+		}
+
+
+		/**
+		 * @return
+		 * 			Maximum (ns) since start.
+		 */
+		public long getOverallMax()
+		{
+			return overallMax;
+		}
+
+
+		/**
+		 * @return
+		 * 			Mean (ns) since start.
+		 */
+		public long getOverallMean()
+		{
+			return (overallCount > 0) ? overallSum / overallCount : 0;
+		}
+	}
+
+
+	public SubsystemProfiler()
+	{
+		this(600);
+	}
+
+
+	/**
+	 * Creates a new profiler.
+	 *
+	 * @param windowSize
+	 * 			Number of frames in the rolling window.
+	 */
+	public SubsystemProfiler(int windowSize)
+	{
+		this.windowSize = Math.max(1, windowSize);
+		this.sortBuffer = new long[this.windowSize];
+		this.totalSection = new Section(TOTAL);
+	}
+
+
+	/**
+	 * Starts measuring a new frame.
+	 */
+	public void beginFrame()
+	{
+		frameStartTime = System.nanoTime();
+		lastSplitTime = frameStartTime;
+		frameStarted = true;
+	}
+
+
+	/**
+	 * Assigns the time elapsed since the previous split (or beginning of
+	 * the frame) to the given subsystem. Each subsystem may be split several
+	 * times per frame; the durations will be summed up.
+	 *
+	 * @param name
+	 * 			Name of the subsystem.
+	 */
+	public void split(String name)
+	{
+		if(!frameStarted)
+			return;
+
+		long now = System.nanoTime();
+		getSection(name).add(now - lastSplitTime);
+		lastSplitTime = now;
+	}
+
+
+	/**
+	 * Finishes the current frame: updates the rolling windows of all
+	 * subsystems and writes the frame to the CSV file (if exporting).
+	 */
+	public void endFrame()
+	{
+		if(!frameStarted)
+			return;
+
+		totalSection.add(System.nanoTime() - frameStartTime);
+		frameStarted = false;
+
+		if(csvWriter != null)
+			writeCSVLine();
+
+		for(Section section : sectionList)
+			section.commit();
+		totalSection.commit();
+
+		frameCounter++;
+	}
+
+
+	/**
+	 * Returns the subsystems in the order of their first measurement.
+	 *
+	 * @return
+	 * 			List of subsystems (must not be modified).
+	 */
+	public List<Section> getSections()
+	{
+		return sectionList;
+	}
+
+
+	/**
+	 * Returns the statistics of the complete measured part of the frame.
+	 *
+	 * @return
+	 * 			Total of all subsystems.
+	 */
+	public Section getTotal()
+	{
+		return totalSection;
+	}
+
+
+	public long getFrameCount()
+	{
+		return frameCounter;
+	}
+
+
+	/**
+	 * Starts writing the durations (ns) of every frame to the given CSV file.
+	 * Columns: frame, time since start of export (ms), total, one column per
+	 * subsystem. Subsystems measured for the first time after the export
+	 * has been started will not be exported.
+	 *
+	 * @param fileName
+	 * 			Path of the CSV file.
+	 */
+	public void startExport(String fileName)
+	{
+		stopExport();
+
+		try {
+
+			csvWriter = new BufferedWriter(new FileWriter(fileName), 1 << 16);
+			csvColumnCount = -1;
+			exportStartTime = System.nanoTime();
+
+		} catch (IOException e) {
+
+			System.err.println("SubsystemProfiler: could not create '" + fileName + "': " + e.getMessage());
+			csvWriter = null;
+		}
+	}
+
+
+	/**
+	 * Stops writing the CSV file.
+	 */
+	public void stopExport()
+	{
+		if(csvWriter != null)
+		{
+			try {
+				csvWriter.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			csvWriter = null;
+		}
+	}
+
+
+	/**
+	 * Prints mean, p50, p99 and maximum of every subsystem to the console
+	 * and stops the CSV export.
+	 */
+	public void close()
+	{
+		stopExport();
+
+		if(frameCounter == 0)
+			return;
+
+		System.out.println("Subsystem timing (ms) of the last " + Math.min(frameCounter, windowSize)
+				+ " frames (mean and overall max over all " + frameCounter + " frames):");
+		System.out.println(String.format("%-24s %8s %8s %8s %8s %8s", "subsystem", "mean", "p50", "p99", "max",
+				"overall"));
+
+		for(Section section : sectionList)
+			printSection(section);
+		printSection(totalSection);
+	}
+
+
+	private void printSection(Section section)
+	{
+		section.updateStatistics();
+		System.out.println(String.format("%-24s %8.3f %8.3f %8.3f %8.3f %8.3f", section.getName(),
+				toMillis(section.getOverallMean()), toMillis(section.getP50()), toMillis(section.getP99()),
+				toMillis(section.getMax()), toMillis(section.getOverallMax())));
+	}
+
+
+	public static float toMillis(long nanos)
+	{
+		return nanos / 1000000f;
+	}
+
+
+	private Section getSection(String name)
+	{
+		Section section = sectionMap.get(name);
+		if(section == null)
+		{
+			section = new Section(name);
+			sectionMap.put(name, section);
+			sectionList.add(section);
+		}
+		return section;
+	}
+
+
+	private void writeCSVLine()
+	{
+		try {
+
+			// write header with the subsystems known after the first exported frame
+			if(csvColumnCount < 0)
+			{
+				csvColumnCount = sectionList.size();
+				csvLine.setLength(0);
+				csvLine.append("frame,time,").append(TOTAL);
+				for(int i=0; i<csvColumnCount; i++)
+					csvLine.append(',').append(sectionList.get(i).getName());
+				csvLine.append('\n');
+				csvWriter.append(csvLine);
+			}
+
+			csvLine.setLength(0);
+			csvLine.append(frameCounter).append(',');
+			csvLine.append((frameStartTime - exportStartTime) / 1000000L).append(',');
+			csvLine.append(totalSection.current);
+			for(int i=0; i<csvColumnCount; i++)
+				csvLine.append(',').append(sectionList.get(i).current);
+			csvLine.append('\n');
+			csvWriter.append(csvLine);
+
+		} catch (IOException e) {
+
+			System.err.println("SubsystemProfiler: could not write CSV file: " + e.getMessage());
+			stopExport();
+		}
+	}
+}
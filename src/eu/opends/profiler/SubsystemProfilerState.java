@@ -0,0 +1,191 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.profiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
+import com.jme3.math.ColorRGBA;
+
+import eu.opends.main.SimulationScheduler;
+import eu.opends.profiler.SubsystemProfiler.Section;
+
+/**
+ * Extends the frame graph of BasicProfilerState (toggled by F5) by a table
+ * showing p50, p99 and maximum (ms) of every subsystem measured by the
+ * given SubsystemProfiler, sorted by p99. The table turns red if the p99 of
+ * the measured part of the frame exceeds the frame budget.
+ *
+ * @author agent
+ */
+public class SubsystemProfilerState extends BasicProfilerState
+{
+	// refresh interval of the table (s)
+	private static final float refreshInterval = 0.5f;
+
+	// number of subsystems shown
+	private static final int maxLines = 16;
+
+	private SubsystemProfiler subsystemProfiler;
+	private float frameBudget;
+	private SimulationScheduler scheduler = null;
+	private BitmapText text;
+	private float timeSinceRefresh = 0;
+	private StringBuilder stringBuilder = new StringBuilder();
+	private ArrayList<Section> sortedSectionList = new ArrayList<Section>();
+
+	private static final Comparator<Section> byP99 = new Comparator<Section>()
+	{
+		@Override
+		public int compare(Section section1, Section section2)
+		{
+			return Long.compare(section2.getP99(), section1.getP99());
+		}
+	};
+
+
+	/**
+	 * Creates the profiler overlay.
+	 *
+	 * @param subsystemProfiler
+	 * 			Profiler measuring the subsystems.
+	 *
+	 * @param frameBudget
+	 * 			Time (ms) available per frame, e.g. 16.7 ms at 60 fps.
+	 *
+	 * @param enabled
+	 * 			Show overlay from start.
+	 */
+	public SubsystemProfilerState(SubsystemProfiler subsystemProfiler, float frameBudget, boolean enabled)
+	{
+		super(enabled);
+		this.subsystemProfiler = subsystemProfiler;
+		this.frameBudget = frameBudget;
+	}
+
+
+	public SubsystemProfiler getSubsystemProfiler()
+	{
+		return subsystemProfiler;
+	}
+
+
+	/**
+	 * Shows queue depths and lateness of the given scheduler below the table.
+	 *
+	 * @param scheduler
+	 * 			Scheduler to monitor (null to hide).
+	 */
+	public void setScheduler(SimulationScheduler scheduler)
+	{
+		this.scheduler = scheduler;
+	}
+
+
+	@Override
+	protected void initialize(Application app)
+	{
+		super.initialize(app);
+
+		BitmapFont font = app.getAssetManager().loadFont("Interface/Fonts/Default.fnt");
+		text = new BitmapText(font, false);
+		text.setSize(font.getCharSet().getRenderedSize());
+	}
+
+
+	@Override
+	protected void onEnable()
+	{
+		super.onEnable();
+
+		refreshText();
+		((SimpleApplication)getApplication()).getGuiNode().attachChild(text);
+	}
+
+
+	@Override
+	protected void onDisable()
+	{
+		super.onDisable();
+
+		text.removeFromParent();
+	}
+
+
+	@Override
+	public void update(float tpf)
+	{
+		if(!isEnabled())
+			return;
+
+		timeSinceRefresh += tpf;
+		if(timeSinceRefresh >= refreshInterval)
+		{
+			timeSinceRefresh = 0;
+			refreshText();
+		}
+	}
+
+
+	private void refreshText()
+	{
+		sortedSectionList.clear();
+		for(Section section : subsystemProfiler.getSections())
+		{
+			section.updateStatistics();
+			sortedSectionList.add(section);
+		}
+		Collections.sort(sortedSectionList, byP99);
+
+		Section total = subsystemProfiler.getTotal();
+		total.updateStatistics();
+
+		stringBuilder.setLength(0);
+		stringBuilder.append(String.format("%-22s %7s %7s %7s%n", "subsystem (ms)", "p50", "p99", "max"));
+		appendLine(total);
+		for(int i=0; i<Math.min(maxLines, sortedSectionList.size()); i++)
+			appendLine(sortedSectionList.get(i));
+
+		if(scheduler != null)
+			stringBuilder.append(String.format("%n%s%n", scheduler.getStatistics()));
+
+		text.setText(stringBuilder);
+
+		boolean overBudget = SubsystemProfiler.toMillis(total.getP99()) > frameBudget;
+		text.setColor(overBudget ? ColorRGBA.Red : ColorRGBA.White);
+
+		// top right corner of the screen
+		int width = getApplication().getCamera().getWidth();
+		int height = getApplication().getCamera().getHeight();
+		text.setLocalTranslation(width - text.getLineWidth() - 10, height - 10, 0);
+	}
+
+
+	private void appendLine(Section section)
+	{
+		stringBuilder.append(String.format("%-22s %7.2f %7.2f %7.2f%n", section.getName(),
+				SubsystemProfiler.toMillis(section.getP50()), SubsystemProfiler.toMillis(section.getP99()),
+				SubsystemProfiler.toMillis(section.getMax())));
+	}
+}
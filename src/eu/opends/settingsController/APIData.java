@@ -48,7 +48,6 @@ import eu.opends.main.SimulationDefaults;
 import eu.opends.main.Simulator;
 
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -68,12 +67,82 @@ public class APIData
 	private SteeringCar car;
 	private String dataSchema;
 	private Map<String, Boolean> dataMap = new HashMap<String, Boolean>();
+	private HashMap<String, ValueAccessor> accessorMap = new HashMap<String, ValueAccessor>();
+	private APIDataWriter subscribedValuesWriter = null;
+	private APIDataWriter subscribedNamesWriter = null;
+	private String subscriptionKey = null;
+	
+	// data sources of the value accessors (updated before each serialization)
+	private RoadData roadDataRecord;
+	private EventPlannerData eventPlannerDataRecord;
+	private OpenDSGaugeCenter openDSGaugeCenter;
+	private ScenarioLoader scenarioLoader;
+	private SettingsLoader settingsLoader;
+	
+	
+	/**
+	 * Returns the current value of an API variable as string.
+	 */
+	public interface ValueAccessor
+	{
+		public String getValue();
+	}
+	
+	
+	/**
+	 * Numeric and boolean variables are read without conversion to string 
+	 * (c.f. APIDataWriter, which appends them to its output directly).
+	 */
+	public interface FloatAccessor extends ValueAccessor
+	{
+		public float getFloat();
+		
+		public default String getValue()
+		{
+			return String.valueOf(getFloat());
+		}
+	}
+	
+	
+	public interface DoubleAccessor extends ValueAccessor
+	{
+		public double getDouble();
+		
+		public default String getValue()
+		{
+			return String.valueOf(getDouble());
+		}
+	}
+	
+	
+	public interface IntAccessor extends ValueAccessor
+	{
+		public int getInt();
+		
+		public default String getValue()
+		{
+			return String.valueOf(getInt());
+		}
+	}
+	
+	
+	public interface BooleanAccessor extends ValueAccessor
+	{
+		public boolean getBoolean();
+		
+		public default String getValue()
+		{
+			return String.valueOf(getBoolean());
+		}
+	}
 	
 	
 	public APIData(SteeringCar car)
 	{
 		this.sim = car.getSimulator();
 		this.car = car;
+		
+		initAccessors();
 
 		try {
 			File apiFile = new File(AdressTable.getAPIFilePath());
@@ -197,184 +266,147 @@ public class APIData
 	}
 	
 
-	private String getValue(String var)
+	void updateDataSources()
+	{
+		roadDataRecord = sim.getSettingsControllerServer().getRoadDataRecord();
+		eventPlannerDataRecord = sim.getSettingsControllerServer().getEventPlannerDataRecord();
+		openDSGaugeCenter = sim.getOpenDSGaugeCenter();
+		scenarioLoader = Simulator.getDrivingTask().getScenarioLoader();
+		settingsLoader = Simulator.getDrivingTask().getSettingsLoader();
+	}
+	
+	
+	private void addAccessor(String path, ValueAccessor accessor)
+	{
+		accessorMap.put(path, accessor);
+	}
+	
+	
+	private void addFloatAccessor(String path, FloatAccessor accessor)
+	{
+		accessorMap.put(path, accessor);
+	}
+	
+	
+	private void addDoubleAccessor(String path, DoubleAccessor accessor)
+	{
+		accessorMap.put(path, accessor);
+	}
+	
+	
+	private void addIntAccessor(String path, IntAccessor accessor)
+	{
+		accessorMap.put(path, accessor);
+	}
+	
+	
+	private void addBooleanAccessor(String path, BooleanAccessor accessor)
+	{
+		accessorMap.put(path, accessor);
+	}
+	
+	
+	private void initAccessors()
 	{
-		RoadData roadDataRecord = sim.getSettingsControllerServer().getRoadDataRecord();
-		EventPlannerData eventPlannerDataRecord = sim.getSettingsControllerServer().getEventPlannerDataRecord();
-		OpenDSGaugeCenter openDSGaugeCenter = sim.getOpenDSGaugeCenter();
-		ScenarioLoader scenarioLoader = Simulator.getDrivingTask().getScenarioLoader();
-		SettingsLoader settingsLoader = Simulator.getDrivingTask().getSettingsLoader();
-		
-		String value = "";
-
 		//interior
-		if(var.equals(AdressTable.interior_cockpit_hazardLightsSwitchPressed))
-		{
+		addBooleanAccessor(AdressTable.interior_cockpit_hazardLightsSwitchPressed, () -> {
 			boolean hazardLightsSwitchPressed = (car.getTurnSignal() == TurnSignalState.BOTH);
-			value = String.valueOf(hazardLightsSwitchPressed);
-		}
-		else if(var.equals(AdressTable.interior_cockpit_dashboard_frostLight))
-		{
-			value = openDSGaugeCenter.getFrostLight();
-		}
-		else if(var.equals(AdressTable.interior_cockpit_dashboard_oilPressureLight))
-		{
-			value = openDSGaugeCenter.getOilPressureLight();
-		}
-		else if(var.equals(AdressTable.interior_cockpit_dashboard_tirePressureLight))
-		{
-			value = openDSGaugeCenter.getTirePressureLight();
-		}
-		else if(var.equals(AdressTable.interior_cockpit_dashboard_batteryLight))
-		{
-			value = openDSGaugeCenter.getBatteryLight();
-		}
-		else if(var.equals(AdressTable.interior_cockpit_dashboard_checkLight))
-		{
-			value = openDSGaugeCenter.getCheckLight();
-		}
-		else if(var.equals(AdressTable.interior_cockpit_dashboard_speedLimit))
-		{
+			return hazardLightsSwitchPressed;
+		});
+		addAccessor(AdressTable.interior_cockpit_dashboard_frostLight, () -> openDSGaugeCenter.getFrostLight());
+		addAccessor(AdressTable.interior_cockpit_dashboard_oilPressureLight, () -> openDSGaugeCenter.getOilPressureLight());
+		addAccessor(AdressTable.interior_cockpit_dashboard_tirePressureLight, () -> openDSGaugeCenter.getTirePressureLight());
+		addAccessor(AdressTable.interior_cockpit_dashboard_batteryLight, () -> openDSGaugeCenter.getBatteryLight());
+		addAccessor(AdressTable.interior_cockpit_dashboard_checkLight, () -> openDSGaugeCenter.getCheckLight());
+		addAccessor(AdressTable.interior_cockpit_dashboard_speedLimit, () -> {
+			String value = "";
 			if(0 < roadDataRecord.currentSpeedLimit && roadDataRecord.currentSpeedLimit < 1000)
 				value = String.valueOf(roadDataRecord.currentSpeedLimit);
 			else
 				value = openDSGaugeCenter.getSpeedLimitIndicator();
-		}
-		else if(var.equals(AdressTable.interior_cockpit_pedals_gasPedal_pressedState))
-		{
+			return value;
+		});
+		addFloatAccessor(AdressTable.interior_cockpit_pedals_gasPedal_pressedState, () -> {
 			float gasPedalPress = car.getAcceleratorPedalIntensity(); // in %
-			value = String.valueOf(gasPedalPress);
-		}
-		else if(var.equals(AdressTable.interior_cockpit_pedals_gasPedal_contact))
-		{
+			return gasPedalPress;
+		});
+		addBooleanAccessor(AdressTable.interior_cockpit_pedals_gasPedal_contact, () -> {
 			boolean gasPedalContact = (car.getAcceleratorPedalIntensity() > 0.05f);
-			value = String.valueOf(gasPedalContact);
-		}
-		else if(var.equals(AdressTable.interior_cockpit_pedals_brakePedal_pressedState))
-		{
+			return gasPedalContact;
+		});
+		addFloatAccessor(AdressTable.interior_cockpit_pedals_brakePedal_pressedState, () -> {
 			float brakePedalPress = car.getBrakePedalIntensity(); // in %
-			value = String.valueOf(brakePedalPress);
-		}
-		else if(var.equals(AdressTable.interior_cockpit_pedals_brakePedal_contact))
-		{
+			return brakePedalPress;
+		});
+		addBooleanAccessor(AdressTable.interior_cockpit_pedals_brakePedal_contact, () -> {
 			boolean brakePedalContact = (car.getBrakePedalIntensity() > 0.05f);
-			value = String.valueOf(brakePedalContact);
-		}
-		else if(var.equals(AdressTable.interior_cockpit_pedals_clutch_pressedState))
-		{
+			return brakePedalContact;
+		});
+		addFloatAccessor(AdressTable.interior_cockpit_pedals_clutch_pressedState, () -> {
 			float clutchPedalPress = car.getClutchPedalIntensity(); // in %
-			value = String.valueOf(clutchPedalPress);
-		}
-		else if(var.equals(AdressTable.interior_cockpit_pedals_clutch_contact))
-		{
+			return clutchPedalPress;
+		});
+		addBooleanAccessor(AdressTable.interior_cockpit_pedals_clutch_contact, () -> {
 			boolean clutchPedalContact = (car.getClutchPedalIntensity() > 0.05f);
-			value = String.valueOf(clutchPedalContact);
-		}
-		else if(var.equals(AdressTable.interior_cockpit_handBrake_engaged))
-		{
-			value = String.valueOf(car.isHandBrakeApplied());
-		}
-		else if(var.equals(AdressTable.interior_cockpit_ignitionLock_state))
-		{
+			return clutchPedalContact;
+		});
+		addBooleanAccessor(AdressTable.interior_cockpit_handBrake_engaged, () -> car.isHandBrakeApplied());
+		addAccessor(AdressTable.interior_cockpit_ignitionLock_state, () -> {
+			String value = "";
 			if(car.isEngineOn())
 				value = "on";
 			else
 				value = "off";
-		}
-		else if(var.equals(AdressTable.interior_cockpit_ignitionLock_keyPresent))
-		{
-			value = "true"; //TODO
-		}
-		else if(var.equals(AdressTable.interior_cockpit_steeringWheel_steerAngle))
-		{
+			return value;
+		});
+		addAccessor(AdressTable.interior_cockpit_ignitionLock_keyPresent, () -> "true"); //TODO
+		addFloatAccessor(AdressTable.interior_cockpit_steeringWheel_steerAngle, () -> {
 			float steeringAngle = -car.getSteeringWheelState(); // in % (+ = right, - = left)
-			value = String.valueOf(steeringAngle);
-		}
-		else if(var.equals(AdressTable.interior_cockpit_autoPilot_state))
-		{
-        	value = openDSGaugeCenter.getAutoPilotIndicator();
-		}
-		else if(var.equals(AdressTable.interior_cockpit_cruiseControl_state))
-		{
-            value = openDSGaugeCenter.getCruiseControlLight();	
-		}
-		else if(var.equals(AdressTable.interior_navigationImage))
-		{
-            value = openDSGaugeCenter.getNavigationImageId();
-		}
-		else if(var.equals(AdressTable.interior_seating_seats_driverSeat_seatbelt_inPlace))
-		{
-			value = openDSGaugeCenter.getSeatBeltInPlace();
-		}
-		else if(var.equals(AdressTable.interior_environmental_ac_isPresent))
-		{
-			value = "false"; //TODO
-		}
-		else if(var.equals(AdressTable.interior_environmental_ac_isRunning))
-		{
-			value = "false"; //TODO
-		}
-		else if(var.equals(AdressTable.interior_environmental_preHeating_isPresent))
-		{
-			value = "false"; //TODO
-		}
-		else if(var.equals(AdressTable.interior_environmental_preHeating_isRunning))
-		{
-			value = "false"; //TODO
-		}
+			return steeringAngle;
+		});
+		addAccessor(AdressTable.interior_cockpit_autoPilot_state, () -> openDSGaugeCenter.getAutoPilotIndicator());
+		addAccessor(AdressTable.interior_cockpit_cruiseControl_state, () -> openDSGaugeCenter.getCruiseControlLight());
+		addAccessor(AdressTable.interior_navigationImage, () -> openDSGaugeCenter.getNavigationImageId());
+		addAccessor(AdressTable.interior_seating_seats_driverSeat_seatbelt_inPlace, () -> openDSGaugeCenter.getSeatBeltInPlace());
+		addAccessor(AdressTable.interior_environmental_ac_isPresent, () -> "false"); //TODO
+		addAccessor(AdressTable.interior_environmental_ac_isRunning, () -> "false"); //TODO
+		addAccessor(AdressTable.interior_environmental_preHeating_isPresent, () -> "false"); //TODO
+		addAccessor(AdressTable.interior_environmental_preHeating_isRunning, () -> "false"); //TODO
 		
 		// exterior
-		else if(var.equals(AdressTable.exterior_lights_turnSignalState))
-		{
-			value = String.valueOf(car.getTurnSignal()).toLowerCase();
-		}
-		else if(var.equals(AdressTable.exterior_lights_headlight))
-		{
+		addAccessor(AdressTable.exterior_lights_turnSignalState, () -> String.valueOf(car.getTurnSignal()).toLowerCase());
+		addAccessor(AdressTable.exterior_lights_headlight, () -> {
 			String lightState = car.getLightState().toLowerCase();
-			value = lightState;
-		}
-		else if(var.equals(AdressTable.exterior_lights_hasFogLight))
-		{
-			value = "true"; //TODO
-		}
-		else if(var.equals(AdressTable.exterior_lights_fogLightEnabled))
-		{
-			value = openDSGaugeCenter.getFogLight();
-		}
-		else if(var.equals(AdressTable.exterior_lights_hasRearFogLight))
-		{
-			value = "true"; //TODO
-		}
-		else if(var.equals(AdressTable.exterior_lights_rearFogLightEnabled))
-		{
-			value = openDSGaugeCenter.getRearFogLight();
-		}
-		else if(var.equals(AdressTable.exterior_gearUnit_numForwardGears))
-		{
+			return lightState;
+		});
+		addAccessor(AdressTable.exterior_lights_hasFogLight, () -> "true"); //TODO
+		addAccessor(AdressTable.exterior_lights_fogLightEnabled, () -> openDSGaugeCenter.getFogLight());
+		addAccessor(AdressTable.exterior_lights_hasRearFogLight, () -> "true"); //TODO
+		addAccessor(AdressTable.exterior_lights_rearFogLightEnabled, () -> openDSGaugeCenter.getRearFogLight());
+		addIntAccessor(AdressTable.exterior_gearUnit_numForwardGears, () -> {
 			Float[] gearArray = scenarioLoader.getForwardGears(null);
 			if(gearArray != null)
-				value = String.valueOf(gearArray.length);
+				return gearArray.length;
 			else
-				value = "0";
-		}
-		else if(var.equals(AdressTable.exterior_gearUnit_numBackwardGears))
-		{
+				return 0;
+		});
+		addAccessor(AdressTable.exterior_gearUnit_numBackwardGears, () -> {
+			String value = "";
 			float reverseGear = scenarioLoader.getReverseGear(-1);
 			if(reverseGear != -1)
 				value = "1";
 			else
 				value = "0";
-		}
-		else if(var.equals(AdressTable.exterior_gearUnit_shiftRecommendation))
-		{
+			return value;
+		});
+		addAccessor(AdressTable.exterior_gearUnit_shiftRecommendation, () -> {
+			String value = "";
         	int selectedGear = car.getCarControl().getGear();
-        	
         	if(car.getCarControl().isAutomatic() || selectedGear <= 0)
         		value = "none";
         	else
         	{
         		int mostEfficientGear = car.getCarControl().getMostEfficientGear();
-        		
         		if(mostEfficientGear > selectedGear)
         			value = "up";
         		else if(mostEfficientGear < selectedGear)
@@ -382,17 +414,16 @@ public class APIData
         		else
         			value = "none";
         	}
-		}
-		else if(var.equals(AdressTable.exterior_gearUnit_currentGear))
-		{
+			return value;
+		});
+		addIntAccessor(AdressTable.exterior_gearUnit_currentGear, () -> {
 			int selectedGear = car.getCarControl().getGear();
-			value = String.valueOf(selectedGear);
-		}
-		else if(var.equals(AdressTable.exterior_gearUnit_currentTransmission))
-		{
+			return selectedGear;
+		});
+		addAccessor(AdressTable.exterior_gearUnit_currentTransmission, () -> {
+			String value = "";
 			int selectedGear = car.getCarControl().getGear();
 			boolean isAutomaticTransmission = car.getCarControl().isAutomatic();
-			
 			if(selectedGear==0){
 				value = "N";
 		    }else if(selectedGear==-1){
@@ -402,411 +433,162 @@ public class APIData
 		    }else {
 		        value = "M";
 		    }
-        }
-		else if(var.equals(AdressTable.exterior_engineCompartment_engine_running))
-		{
-			value = String.valueOf(car.isEngineOn());
-		}
-		else if(var.equals(AdressTable.exterior_engineCompartment_engine_maxSpeed))
-		{
+			return value;
+		});
+		addBooleanAccessor(AdressTable.exterior_engineCompartment_engine_running, () -> car.isEngineOn());
+		addFloatAccessor(AdressTable.exterior_engineCompartment_engine_maxSpeed, () -> {
 			Float maxSpeed = scenarioLoader.getCarProperty(CarProperty.engine_maxSpeed, SimulationDefaults.engine_maxSpeed);
-			value = String.valueOf(maxSpeed);
-		}
-		else if(var.equals(AdressTable.exterior_engineCompartment_engine_maxRpm))
-		{
+			return maxSpeed;
+		});
+		addFloatAccessor(AdressTable.exterior_engineCompartment_engine_maxRpm, () -> {
 			Float maxRPM = scenarioLoader.getCarProperty(CarProperty.engine_maxRPM, SimulationDefaults.engine_maxRPM);
-			value = String.valueOf(maxRPM);
-		}
-		else if(var.equals(AdressTable.exterior_engineCompartment_engine_actualRpm))
-		{
+			return maxRPM;
+		});
+		addFloatAccessor(AdressTable.exterior_engineCompartment_engine_actualRpm, () -> {
 			float rpm = 0;
-			
 			if(car.isEngineOn())
 				rpm = car.getCarControl().getRPM();
-			
-			value = String.valueOf(rpm);
-		}
-		else if(var.equals(AdressTable.exterior_fueling_fuelType_averageConsumption))
-		{
+			return rpm;
+		});
+		addFloatAccessor(AdressTable.exterior_fueling_fuelType_averageConsumption, () -> {
 			float totalConsumption = car.getCarControl().getTotalFuelConsumption();
 			float kilometersDriven = car.getMileage()/1000f;
-			value = String.valueOf(100*totalConsumption/kilometersDriven);   // average consumption (per 100 km)
-		}
-		else if(var.equals(AdressTable.exterior_fueling_fuelType_currentConsumption))
-		{
+			return 100*totalConsumption/kilometersDriven; // average consumption (per 100 km)
+		});
+		addFloatAccessor(AdressTable.exterior_fueling_fuelType_currentConsumption, () -> {
 			float fuelConsumption = car.getCarControl().getLitersPer100Km();  // current fuel consumption
-			value = String.valueOf(fuelConsumption);
-		}
-		else if(var.equals(AdressTable.exterior_fueling_fuelType_tank_maxAmount))
-		{
+			return fuelConsumption;
+		});
+		addFloatAccessor(AdressTable.exterior_fueling_fuelType_tank_maxAmount, () -> {
 			float maxFuelAmount = scenarioLoader.getCarProperty(CarProperty.fuel_maxAmount, 60);
-			value = String.valueOf(maxFuelAmount);
-		}
-		else if(var.equals(AdressTable.exterior_fueling_fuelType_tank_actualAmount))
-		{
+			return maxFuelAmount;
+		});
+		addFloatAccessor(AdressTable.exterior_fueling_fuelType_tank_actualAmount, () -> {
 			float initialFuelAmmount = scenarioLoader.getCarProperty(CarProperty.fuel_initialAmount, 30);
 			float fuelLeft = initialFuelAmmount - car.getCarControl().getTotalFuelConsumption();
-			value = String.valueOf(fuelLeft);
-		}
-		else if(var.equals(AdressTable.exterior_wipers_frontWipers_currentSpeedLevel))
-		{
-			value = "off"; //TODO
-		}
-		else if(var.equals(AdressTable.exterior_wipers_frontWipers_currentIntervalLevel))
-		{
-			value = "min"; //TODO
-		}
-		else if(var.equals(AdressTable.exterior_wipers_rearWipers_currentSpeedLevel))
-		{
-			value = "off"; //TODO
-		}
-		else if(var.equals(AdressTable.exterior_wipers_rearWipers_currentIntervalLevel))
-		{
-			value = "min"; //TODO
-		}
-		else if(var.equals(AdressTable.exterior_sideMirrors_leftMirror_expansionState))
-		{
-			value = "out"; //TODO
-		}
-		else if(var.equals(AdressTable.exterior_sideMirrors_leftMirror_rotationH))
-		{
-			value = String.valueOf(settingsLoader.getSetting(Setting.General_leftMirror_horizontalAngle, -45f));
-		}
-		else if(var.equals(AdressTable.exterior_sideMirrors_leftMirror_rotationV))
-		{
-			value = String.valueOf(settingsLoader.getSetting(Setting.General_leftMirror_verticalAngle, 10f));
-		}
-		else if(var.equals(AdressTable.exterior_sideMirrors_rightMirror_expansionState))
-		{
-			value = "out"; //TODO
-		}
-		else if(var.equals(AdressTable.exterior_sideMirrors_rightMirror_rotationH))
-		{
-			value = String.valueOf(settingsLoader.getSetting(Setting.General_rightMirror_horizontalAngle, 45f));
-		}
-		else if(var.equals(AdressTable.exterior_sideMirrors_rightMirror_rotationV))
-		{
-			value = String.valueOf(settingsLoader.getSetting(Setting.General_rightMirror_verticalAngle, 10f));
-		}
+			return fuelLeft;
+		});
+		addAccessor(AdressTable.exterior_wipers_frontWipers_currentSpeedLevel, () -> "off"); //TODO
+		addAccessor(AdressTable.exterior_wipers_frontWipers_currentIntervalLevel, () -> "min"); //TODO
+		addAccessor(AdressTable.exterior_wipers_rearWipers_currentSpeedLevel, () -> "off"); //TODO
+		addAccessor(AdressTable.exterior_wipers_rearWipers_currentIntervalLevel, () -> "min"); //TODO
+		addAccessor(AdressTable.exterior_sideMirrors_leftMirror_expansionState, () -> "out"); //TODO
+		addFloatAccessor(AdressTable.exterior_sideMirrors_leftMirror_rotationH, () -> settingsLoader.getSetting(Setting.General_leftMirror_horizontalAngle, -45f));
+		addFloatAccessor(AdressTable.exterior_sideMirrors_leftMirror_rotationV, () -> settingsLoader.getSetting(Setting.General_leftMirror_verticalAngle, 10f));
+		addAccessor(AdressTable.exterior_sideMirrors_rightMirror_expansionState, () -> "out"); //TODO
+		addFloatAccessor(AdressTable.exterior_sideMirrors_rightMirror_rotationH, () -> settingsLoader.getSetting(Setting.General_rightMirror_horizontalAngle, 45f));
+		addFloatAccessor(AdressTable.exterior_sideMirrors_rightMirror_rotationV, () -> settingsLoader.getSetting(Setting.General_rightMirror_verticalAngle, 10f));
 		
 		//physical attributes
-		else if(var.equals(AdressTable.physicalAttributes_length))
-		{
-			value = "4.0"; //TODO
-		}
-		else if(var.equals(AdressTable.physicalAttributes_height))
-		{
-			value = "1.6"; //TODO
-		}
-		else if(var.equals(AdressTable.physicalAttributes_width))
-		{
-			value = "2.3"; //TODO
-		}
-		else if(var.equals(AdressTable.physicalAttributes_weight))
-		{
-			value = String.valueOf(scenarioLoader.getChassisMass());
-		}
-		else if(var.equals(AdressTable.physicalAttributes_latitude))
-		{
+		addAccessor(AdressTable.physicalAttributes_length, () -> "4.0"); //TODO
+		addAccessor(AdressTable.physicalAttributes_height, () -> "1.6"); //TODO
+		addAccessor(AdressTable.physicalAttributes_width, () -> "2.3"); //TODO
+		addFloatAccessor(AdressTable.physicalAttributes_weight, () -> scenarioLoader.getChassisMass());
+		addDoubleAccessor(AdressTable.physicalAttributes_latitude, () -> {
 			Vector3d geoPosition = car.getGeoPosition();
 			double latitude = geoPosition.getX();  // N-S position in geo coordinates
-			value = String.valueOf(latitude);
-		}
-		else if(var.equals(AdressTable.physicalAttributes_longitude))
-		{
+			return latitude;
+		});
+		addDoubleAccessor(AdressTable.physicalAttributes_longitude, () -> {
 			Vector3d geoPosition = car.getGeoPosition();
 			double longitude = geoPosition.getY(); // W-E position in geo coordinates
-			value = String.valueOf(longitude);
-		}
-		else if(var.equals(AdressTable.physicalAttributes_altitude))
-		{
+			return longitude;
+		});
+		addDoubleAccessor(AdressTable.physicalAttributes_altitude, () -> {
 			Vector3d geoPosition = car.getGeoPosition();
 			double altitude = geoPosition.getZ();  // meters above sea level
-			value = String.valueOf(altitude);
-		}
-		else if(var.equals(AdressTable.physicalAttributes_orientation))
-		{
+			return altitude;
+		});
+		addFloatAccessor(AdressTable.physicalAttributes_orientation, () -> {
 			float orientation = car.getThreadSafeHeadingDegree();  // 0..360 degree
-			value = String.valueOf(orientation);
-		}
-		else if(var.equals(AdressTable.physicalAttributes_speed))
-		{
+			return orientation;
+		});
+		addFloatAccessor(AdressTable.physicalAttributes_speed, () -> {
 			float speed = FastMath.abs(car.getCarControl().getCurrentVehicleSpeedKmHour());  // in Km/h
-			value = String.valueOf(speed);
-		}
-		else if(var.equals(AdressTable.physicalAttributes_mileage))
-		{
-			value = String.valueOf(car.getMileage()); // in meters
-		}
-		else if(var.equals(AdressTable.physicalAttributes_accelerationLongitudinal))
-		{
-			value = String.valueOf(roadDataRecord.aLgtFild); // in m/s^2
-		}
-		else if(var.equals(AdressTable.physicalAttributes_accelerationLateral))
-		{
-			value = String.valueOf(roadDataRecord.aLatFild); // in m/s^2
-		}
-		else if(var.equals(AdressTable.physicalAttributes_yawRate))
-		{
-			value = String.valueOf(roadDataRecord.yawRateFild); // in deg/s
-		}
+			return speed;
+		});
+		addFloatAccessor(AdressTable.physicalAttributes_mileage, () -> car.getMileage()); // in meters
+		addFloatAccessor(AdressTable.physicalAttributes_accelerationLongitudinal, () -> roadDataRecord.aLgtFild); // in m/s^2
+		addFloatAccessor(AdressTable.physicalAttributes_accelerationLateral, () -> roadDataRecord.aLatFild); // in m/s^2
+		addFloatAccessor(AdressTable.physicalAttributes_yawRate, () -> roadDataRecord.yawRateFild); // in deg/s
 		
 		// simulation attributes
-		else if(var.equals(AdressTable.simulationAttributes_scenarioLocation))
-		{
-			value = Simulator.getDrivingTask().getPath();
-		}
-		else if(var.equals(AdressTable.simulationAttributes_modelX))
-		{
-			value = String.valueOf(car.getPosition().getX()); // in meters
-		}
-		else if(var.equals(AdressTable.simulationAttributes_modelY))
-		{
-			value = String.valueOf(car.getPosition().getY()); // in meters
-		}
-		else if(var.equals(AdressTable.simulationAttributes_modelZ))
-		{
-			value = String.valueOf(car.getPosition().getZ()); // in meters
-		}
+		addAccessor(AdressTable.simulationAttributes_scenarioLocation, () -> Simulator.getDrivingTask().getPath());
+		addFloatAccessor(AdressTable.simulationAttributes_modelX, () -> car.getPosition().getX()); // in meters
+		addFloatAccessor(AdressTable.simulationAttributes_modelY, () -> car.getPosition().getY()); // in meters
+		addFloatAccessor(AdressTable.simulationAttributes_modelZ, () -> car.getPosition().getZ()); // in meters
 		
 		// road attributes
-		else if(var.equals(AdressTable.roadAttributes_position_roadID))
-		{
-			value = roadDataRecord.roadID;
-		}
-		else if(var.equals(AdressTable.roadAttributes_position_laneID))
-		{
-			value = String.valueOf(roadDataRecord.laneID);
-		}
-		else if(var.equals(AdressTable.roadAttributes_position_s))
-		{
-			value = String.valueOf(roadDataRecord.s);
-		}
-		else if(var.equals(AdressTable.roadAttributes_position_distanceToTarget))
-		{
-			value = String.valueOf(roadDataRecord.targetDistance);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_laneHeading))
-		{
-			value = String.valueOf(roadDataRecord.hdgLane);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_carHeading))
-		{
-			value = String.valueOf(roadDataRecord.hdgCar);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_headingDifference))
-		{
-			value = String.valueOf(roadDataRecord.hdgDiff);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_drivingInTheWrongDirection))
-		{
-			value = String.valueOf(roadDataRecord.isWrongWay);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_laneType))
-		{
-			value = String.valueOf(roadDataRecord.laneType).toLowerCase();
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_lanePositionType))
-		{
-			value = String.valueOf(roadDataRecord.lanePosition);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_laneWidth))
-		{
-			value = String.valueOf(roadDataRecord.laneWidth);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_latOffsLineR))
-		{
-			value = String.valueOf(roadDataRecord.latOffsLineR);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_latOffsLineL))
-		{
-			value = String.valueOf(roadDataRecord.latOffsLineL);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_laneCurvature))
-		{
-			value = String.valueOf(roadDataRecord.laneCrvt);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_leftLineType))
-		{
-			value = String.valueOf(roadDataRecord.leftLineType);
-		}
-		else if(var.equals(AdressTable.roadAttributes_currentLane_rightLineType))
-		{
-			value = String.valueOf(roadDataRecord.rightLineType);
-		}
-		else if(var.equals(AdressTable.roadAttributes_otherLanes_leftLaneStatus))
-		{
-			value = String.valueOf(roadDataRecord.leftLaneInfo);
-		}
-		else if(var.equals(AdressTable.roadAttributes_otherLanes_rightLaneStatus))
-		{
-			value = String.valueOf(roadDataRecord.rightLaneInfo);
-		}
-		else if(var.equals(AdressTable.roadAttributes_otherLanes_sideObstacleLeft))
-		{
-			value = String.valueOf(roadDataRecord.sideObstacleLeft);
-		}
-		else if(var.equals(AdressTable.roadAttributes_otherLanes_sideObstacleRight))
-		{
-			value = String.valueOf(roadDataRecord.sideObstacleRight);
-		}
-		else if(var.equals(AdressTable.roadAttributes_otherLanes_blindSpotObstacleLeft))
-		{
-			value = String.valueOf(roadDataRecord.blindSpotObstacleLeft);
-		}
-		else if(var.equals(AdressTable.roadAttributes_otherLanes_blindSpotObstacleRight))
-		{
-			value = String.valueOf(roadDataRecord.blindSpotObstacleRight);
-		}
-		else if(var.equals(AdressTable.roadAttributes_otherLanes_numLanesDrivingDirection))
-		{
-			value = String.valueOf(roadDataRecord.nrLanesDrivingDirection);
-		}
-		else if(var.equals(AdressTable.roadAttributes_otherLanes_numLanesOppositeDirection))
-		{
-			value = String.valueOf(roadDataRecord.nrLanesOppositeDirection);
-		}
-		else if(var.equals(AdressTable.roadAttributes_traffic_numObjs))
-		{
-			value = String.valueOf(roadDataRecord.nrObjs);
-		}
-		else if(var.equals(AdressTable.roadAttributes_traffic_objName))
-		{
-			value = roadDataRecord.objName;
-		}
-		else if(var.equals(AdressTable.roadAttributes_traffic_objClass))
-		{
-			value = roadDataRecord.objClass;
-		}
-		else if(var.equals(AdressTable.roadAttributes_traffic_objX))
-		{
-			value = roadDataRecord.objX;
-		}
-		else if(var.equals(AdressTable.roadAttributes_traffic_objY))
-		{
-			value = roadDataRecord.objY;
-		}
-		else if(var.equals(AdressTable.roadAttributes_traffic_objDist))
-		{
-			value = roadDataRecord.objDist;
-		}
-		else if(var.equals(AdressTable.roadAttributes_traffic_objDirection))
-		{
-			value = roadDataRecord.objDirection;
-		}
-		else if(var.equals(AdressTable.roadAttributes_traffic_objVel))
-		{
-			value = roadDataRecord.objVel;
-		}
-		else if(var.equals(AdressTable.roadAttributes_regulations_currentSpeedLimit))
-		{
-			value = String.valueOf(roadDataRecord.currentSpeedLimit);
-		}
-		else if(var.equals(AdressTable.roadAttributes_regulations_numUpcomingSpeedLimits))
-		{
-			value = String.valueOf(roadDataRecord.nrSpeedLimits);
-		}
-		else if(var.equals(AdressTable.roadAttributes_regulations_upcomingSpeedLimitDistances))
-		{
-			value = roadDataRecord.speedLimitDist;
-		}
-		else if(var.equals(AdressTable.roadAttributes_regulations_upcomingSpeedLimitValues))
-		{
-			value = roadDataRecord.speedLimitValues;
-		}
-		else if(var.equals(AdressTable.roadAttributes_regulations_upcomingIntersectionDistance))
-		{
-			value = String.valueOf(roadDataRecord.intersectionDistance);
-		}
-		else if(var.equals(AdressTable.roadAttributes_regulations_trafficLightAhead))
-		{
-			value = String.valueOf(roadDataRecord.trafficLightAhead);
-		}
-		else if(var.equals(AdressTable.roadAttributes_regulations_trafficLightDist))
-		{
-			value = String.valueOf(roadDataRecord.trafficLightDist);
-		}
-		else if(var.equals(AdressTable.roadAttributes_regulations_trafficLightStates))
-		{
-			value = roadDataRecord.trafficLightStates;
-		}
-		else if(var.equals(AdressTable.roadAttributes_regulations_trafficLightTimesToChange))
-		{
-			value = roadDataRecord.trafficLightTimesToChange;
-		}
-		else if(var.equals(AdressTable.eventPlanner_mode))
-		{
-			value = eventPlannerDataRecord.getMode();
-		}
-		else if(var.equals(AdressTable.eventPlanner_driver_maxVisualCapacity))
-		{
-			value = eventPlannerDataRecord.maxVisualCapacityOfDriver;
-		}
-		else if(var.equals(AdressTable.eventPlanner_driver_maxAuditoryCapacity))
-		{
-			value = eventPlannerDataRecord.maxAuditoryCapacityOfDriver;
-		}
-		else if(var.equals(AdressTable.eventPlanner_driver_maxHapticCapacity))
-		{
-			value = eventPlannerDataRecord.maxHapticCapacityOfDriver;
-		}
-		else if(var.equals(AdressTable.eventPlanner_event_name))
-		{
-			value = eventPlannerDataRecord.getEventName();
-		}
-		else if(var.equals(AdressTable.eventPlanner_event_number))
-		{
-			value = eventPlannerDataRecord.getEventNumber();
-		}
-		else if(var.equals(AdressTable.eventPlanner_event_duration))
-		{
-			value = eventPlannerDataRecord.getEventDuration();
-		}
-		else if(var.equals(AdressTable.eventPlanner_event_minStartingTime))
-		{
-			value = eventPlannerDataRecord.getEventMinStartingTime();
-		}
-		else if(var.equals(AdressTable.eventPlanner_event_maxEndingTime))
-		{
-			value = eventPlannerDataRecord.getEventMaxEndingTime();
-		}
-		else if(var.equals(AdressTable.eventPlanner_event_visualDemand))
-		{
-			value = eventPlannerDataRecord.getEventVisualDemand();
-		}
-		else if(var.equals(AdressTable.eventPlanner_event_auditoryDemand))
-		{
-			value = eventPlannerDataRecord.getEventAuditoryDemand();
-		}
-		else if(var.equals(AdressTable.eventPlanner_event_hapticDemand))
-		{
-			value = eventPlannerDataRecord.getEventHapticDemand();
-		}
-		else if(var.equals(AdressTable.eventPlanner_event_delayPenalty))
-		{
-			value = eventPlannerDataRecord.getDelayPenalty();
-		}
-		else if(var.equals(AdressTable.eventPlanner_timeline_start))
-		{
-			value = eventPlannerDataRecord.timelineStart();
-		}
-		else if(var.equals(AdressTable.eventPlanner_timeline_end))
-		{
-			value = eventPlannerDataRecord.timelineEnd();
-		}
-		else if(var.equals(AdressTable.eventPlanner_elapsedTime))
-		{
-			value = eventPlannerDataRecord.getElapsedTime();
-		}
-	
-		return value;
+		addAccessor(AdressTable.roadAttributes_position_roadID, () -> roadDataRecord.roadID);
+		addIntAccessor(AdressTable.roadAttributes_position_laneID, () -> roadDataRecord.laneID);
+		addFloatAccessor(AdressTable.roadAttributes_position_s, () -> roadDataRecord.s);
+		addFloatAccessor(AdressTable.roadAttributes_position_distanceToTarget, () -> roadDataRecord.targetDistance);
+		addFloatAccessor(AdressTable.roadAttributes_currentLane_laneHeading, () -> roadDataRecord.hdgLane);
+		addFloatAccessor(AdressTable.roadAttributes_currentLane_carHeading, () -> roadDataRecord.hdgCar);
+		addFloatAccessor(AdressTable.roadAttributes_currentLane_headingDifference, () -> roadDataRecord.hdgDiff);
+		addBooleanAccessor(AdressTable.roadAttributes_currentLane_drivingInTheWrongDirection, () -> roadDataRecord.isWrongWay);
+		addAccessor(AdressTable.roadAttributes_currentLane_laneType, () -> String.valueOf(roadDataRecord.laneType).toLowerCase());
+		addAccessor(AdressTable.roadAttributes_currentLane_lanePositionType, () -> String.valueOf(roadDataRecord.lanePosition));
+		addFloatAccessor(AdressTable.roadAttributes_currentLane_laneWidth, () -> roadDataRecord.laneWidth);
+		addFloatAccessor(AdressTable.roadAttributes_currentLane_latOffsLineR, () -> roadDataRecord.latOffsLineR);
+		addFloatAccessor(AdressTable.roadAttributes_currentLane_latOffsLineL, () -> roadDataRecord.latOffsLineL);
+		addFloatAccessor(AdressTable.roadAttributes_currentLane_laneCurvature, () -> roadDataRecord.laneCrvt);
+		addAccessor(AdressTable.roadAttributes_currentLane_leftLineType, () -> String.valueOf(roadDataRecord.leftLineType));
+		addAccessor(AdressTable.roadAttributes_currentLane_rightLineType, () -> String.valueOf(roadDataRecord.rightLineType));
+		addAccessor(AdressTable.roadAttributes_otherLanes_leftLaneStatus, () -> String.valueOf(roadDataRecord.leftLaneInfo));
+		addAccessor(AdressTable.roadAttributes_otherLanes_rightLaneStatus, () -> String.valueOf(roadDataRecord.rightLaneInfo));
+		addBooleanAccessor(AdressTable.roadAttributes_otherLanes_sideObstacleLeft, () -> roadDataRecord.sideObstacleLeft);
+		addBooleanAccessor(AdressTable.roadAttributes_otherLanes_sideObstacleRight, () -> roadDataRecord.sideObstacleRight);
+		addBooleanAccessor(AdressTable.roadAttributes_otherLanes_blindSpotObstacleLeft, () -> roadDataRecord.blindSpotObstacleLeft);
+		addBooleanAccessor(AdressTable.roadAttributes_otherLanes_blindSpotObstacleRight, () -> roadDataRecord.blindSpotObstacleRight);
+		addIntAccessor(AdressTable.roadAttributes_otherLanes_numLanesDrivingDirection, () -> roadDataRecord.nrLanesDrivingDirection);
+		addIntAccessor(AdressTable.roadAttributes_otherLanes_numLanesOppositeDirection, () -> roadDataRecord.nrLanesOppositeDirection);
+		addIntAccessor(AdressTable.roadAttributes_traffic_numObjs, () -> roadDataRecord.nrObjs);
+		addAccessor(AdressTable.roadAttributes_traffic_objName, () -> roadDataRecord.objName);
+		addAccessor(AdressTable.roadAttributes_traffic_objClass, () -> roadDataRecord.objClass);
+		addAccessor(AdressTable.roadAttributes_traffic_objX, () -> roadDataRecord.objX);
+		addAccessor(AdressTable.roadAttributes_traffic_objY, () -> roadDataRecord.objY);
+		addAccessor(AdressTable.roadAttributes_traffic_objDist, () -> roadDataRecord.objDist);
+		addAccessor(AdressTable.roadAttributes_traffic_objDirection, () -> roadDataRecord.objDirection);
+		addAccessor(AdressTable.roadAttributes_traffic_objVel, () -> roadDataRecord.objVel);
+		addIntAccessor(AdressTable.roadAttributes_regulations_currentSpeedLimit, () -> roadDataRecord.currentSpeedLimit);
+		addIntAccessor(AdressTable.roadAttributes_regulations_numUpcomingSpeedLimits, () -> roadDataRecord.nrSpeedLimits);
+		addAccessor(AdressTable.roadAttributes_regulations_upcomingSpeedLimitDistances, () -> roadDataRecord.speedLimitDist);
+		addAccessor(AdressTable.roadAttributes_regulations_upcomingSpeedLimitValues, () -> roadDataRecord.speedLimitValues);
+		addFloatAccessor(AdressTable.roadAttributes_regulations_upcomingIntersectionDistance, () -> roadDataRecord.intersectionDistance);
+		addBooleanAccessor(AdressTable.roadAttributes_regulations_trafficLightAhead, () -> roadDataRecord.trafficLightAhead);
+		addFloatAccessor(AdressTable.roadAttributes_regulations_trafficLightDist, () -> roadDataRecord.trafficLightDist);
+		addAccessor(AdressTable.roadAttributes_regulations_trafficLightStates, () -> roadDataRecord.trafficLightStates);
+		addAccessor(AdressTable.roadAttributes_regulations_trafficLightTimesToChange, () -> roadDataRecord.trafficLightTimesToChange);
+		addAccessor(AdressTable.eventPlanner_mode, () -> eventPlannerDataRecord.getMode());
+		addAccessor(AdressTable.eventPlanner_driver_maxVisualCapacity, () -> eventPlannerDataRecord.maxVisualCapacityOfDriver);
+		addAccessor(AdressTable.eventPlanner_driver_maxAuditoryCapacity, () -> eventPlannerDataRecord.maxAuditoryCapacityOfDriver);
+		addAccessor(AdressTable.eventPlanner_driver_maxHapticCapacity, () -> eventPlannerDataRecord.maxHapticCapacityOfDriver);
+		addAccessor(AdressTable.eventPlanner_event_name, () -> eventPlannerDataRecord.getEventName());
+		addAccessor(AdressTable.eventPlanner_event_number, () -> eventPlannerDataRecord.getEventNumber());
+		addAccessor(AdressTable.eventPlanner_event_duration, () -> eventPlannerDataRecord.getEventDuration());
+		addAccessor(AdressTable.eventPlanner_event_minStartingTime, () -> eventPlannerDataRecord.getEventMinStartingTime());
+		addAccessor(AdressTable.eventPlanner_event_maxEndingTime, () -> eventPlannerDataRecord.getEventMaxEndingTime());
+		addAccessor(AdressTable.eventPlanner_event_visualDemand, () -> eventPlannerDataRecord.getEventVisualDemand());
+		addAccessor(AdressTable.eventPlanner_event_auditoryDemand, () -> eventPlannerDataRecord.getEventAuditoryDemand());
+		addAccessor(AdressTable.eventPlanner_event_hapticDemand, () -> eventPlannerDataRecord.getEventHapticDemand());
+		addAccessor(AdressTable.eventPlanner_event_delayPenalty, () -> eventPlannerDataRecord.getDelayPenalty());
+		addAccessor(AdressTable.eventPlanner_timeline_start, () -> eventPlannerDataRecord.timelineStart());
+		addAccessor(AdressTable.eventPlanner_timeline_end, () -> eventPlannerDataRecord.timelineEnd());
+		addAccessor(AdressTable.eventPlanner_elapsedTime, () -> eventPlannerDataRecord.getElapsedTime());
 	}
 
 	
 	public synchronized String getValues(String[] list, boolean nameOnly)
 	{
-		String value ="";
-
+		StringBuilder builder = new StringBuilder();
+		compileWriter(getPaths(list), nameOnly).writeXML(builder);
+		return builder.toString();
+	}
+	
+	
+	private List<String> getPaths(String[] list)
+	{
 		List <String> arrList = new ArrayList<String>();
 
 		for (Map.Entry<String,Boolean> entry: dataMap.entrySet())
@@ -821,62 +603,22 @@ public class APIData
 			}
 		}
 
-		String[] varList = arrList.toArray(new String[arrList.size()]);
-
-		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder documentBuilder;
-
-		try {
-			
-			documentBuilder = documentBuilderFactory.newDocumentBuilder();
-			Document document = documentBuilder.newDocument();
-
-			Element rootElement = document.createElement("root");
-
-			for (int j = 0; j < varList.length; j++)
-			{
-				String path = varList[j];
-				String[] nodes = path.split("/");
-
-				Element e = rootElement;
-
-				for (int i = 2; i < nodes.length; i++)
-				{
-					NodeList nL = e.getElementsByTagName(nodes[i]);
-
-					if(nL.getLength() > 0)
-						e = (Element) nL.item(0);
-					else
-					{
-						Element e2 = document.createElement(nodes[i]);
-						e.appendChild(e2);
-						e = e2;
-					}
-				}
-
-				if(!nameOnly)
-					e.setTextContent(getValue(path));
-			}
-
-			document.appendChild(rootElement);
-
-			TransformerFactory tf = TransformerFactory.newInstance();
-			Transformer transformer = tf.newTransformer();
-			transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-			StringWriter writer = new StringWriter();
-			transformer.transform(new DOMSource(document), new StreamResult(writer));
-			String output = writer.getBuffer().toString().replaceAll("\n|\r", "");
-
-			value = output;
-			
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-
-		return value;
+		return arrList;
+	}
+	
+	
+	private APIDataWriter compileWriter(List<String> pathList, boolean nameOnly)
+	{
+		updateDataSources();
+		
+		List<ValueAccessor> accessorList = new ArrayList<ValueAccessor>(pathList.size());
+		for(String path : pathList)
+			accessorList.add(accessorMap.get(path));
+		
+		return new APIDataWriter(pathList, accessorList, nameOnly);
 	}
-
 	
+
 	public String getSchema()
 	{
 		return dataSchema;
@@ -890,6 +632,11 @@ public class APIData
 			if(entry.getKey().contains(s))
 				entry.setValue(true);
 		}
+		
+		// subscriptions changed --> recompile writers
+		subscribedValuesWriter = null;
+		subscribedNamesWriter = null;
+		subscriptionKey = null;
 	}
 
 	
@@ -900,10 +647,63 @@ public class APIData
 			if(entry.getKey().contains(s))
 				entry.setValue(false);
 		}
+		
+		// subscriptions changed --> recompile writers
+		subscribedValuesWriter = null;
+		subscribedNamesWriter = null;
+		subscriptionKey = null;
 	}
 
 	
 	public synchronized String getAllSubscribedValues(boolean nameOnly)
+	{
+		StringBuilder builder = new StringBuilder();
+		writeAllSubscribedValues(builder, nameOnly, false);
+		return builder.toString();
+	}
+	
+	
+	/**
+	 * Appends all subscribed variables to the given StringBuilder. The writer
+	 * is compiled once per subscription change, hence repeated calls (e.g. by
+	 * the UpdateSender) only read the current values.
+	 * 
+	 * @param builder
+	 * 			StringBuilder the output will be appended to.
+	 * 
+	 * @param nameOnly
+	 * 			If true, only the names of the variables will be written.
+	 * 
+	 * @param json
+	 * 			If true, JSON will be written instead of XML.
+	 */
+	public synchronized void writeAllSubscribedValues(StringBuilder builder, boolean nameOnly, boolean json)
+	{
+		APIDataWriter writer = nameOnly? subscribedNamesWriter : subscribedValuesWriter;
+		
+		if(writer == null)
+		{
+			writer = compileWriter(getSubscribedPaths(), nameOnly);
+			
+			if(nameOnly)
+				subscribedNamesWriter = writer;
+			else
+				subscribedValuesWriter = writer;
+		}
+		else
+			updateDataSources();
+		
+		if(json)
+			writer.writeJSON(builder);
+		else
+			writer.writeXML(builder);
+	}
+	
+	
+	/**
+	 * Returns the full paths of all subscribed variables (in serialization order).
+	 */
+	synchronized List<String> getSubscribedPaths()
 	{
 		List<String> subscribedValues = new ArrayList<String>();
 
@@ -915,8 +715,27 @@ public class APIData
 
 		String[] arr = new String[subscribedValues.size()];
 		arr = subscribedValues.toArray(arr);
-
-		return getValues(arr, nameOnly);
+		
+		return getPaths(arr);
+	}
+	
+	
+	/**
+	 * Returns a string which is equal for all instances with the same set of
+	 * subscribed variables (used to share the serialization among clients).
+	 */
+	synchronized String getSubscriptionKey()
+	{
+		if(subscriptionKey == null)
+			subscriptionKey = String.join(",", getSubscribedPaths());
+		
+		return subscriptionKey;
+	}
+	
+	
+	ValueAccessor getAccessor(String path)
+	{
+		return accessorMap.get(path);
 	}
 
 }
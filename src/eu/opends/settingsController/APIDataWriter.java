@@ -0,0 +1,365 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.settingsController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.opends.settingsController.APIData.BooleanAccessor;
+import eu.opends.settingsController.APIData.DoubleAccessor;
+import eu.opends.settingsController.APIData.FloatAccessor;
+import eu.opends.settingsController.APIData.IntAccessor;
+import eu.opends.settingsController.APIData.ValueAccessor;
+
+/**
+ * Serializes a fixed list of API variables (e.g. all subscribed variables).
+ * The element tree is compiled once from the variable paths, hence writing
+ * the current values only requires one call of each value accessor and
+ * appending to a (reusable) StringBuilder. The XML output is identical to
+ * the output of the DOM tree previously built by APIData.getValues().
+ * Numeric and boolean values are appended without intermediate strings.
+ *
+ * @author agent
+ */
+public class APIDataWriter
+{
+	private static class ElementNode
+	{
+		private String name;
+
+		// child elements and text slots (name == null) in document order
+		private ArrayList<ElementNode> children = new ArrayList<ElementNode>();
+
+		// index of the value slot (only text slots)
+		private int slot = -1;
+
+
+		private ElementNode(String name)
+		{
+			this.name = name;
+		}
+
+
+		private boolean isText()
+		{
+			return name == null;
+		}
+	}
+
+
+	private static final byte STRING_VALUE = 0;
+	private static final byte FLOAT_VALUE = 1;
+	private static final byte DOUBLE_VALUE = 2;
+	private static final byte INT_VALUE = 3;
+	private static final byte BOOLEAN_VALUE = 4;
+
+	private ElementNode rootElement = new ElementNode("root");
+	private ValueAccessor[] accessors;
+	private byte[] valueTypes;
+	private String[] values;
+	private float[] floatValues;
+	private double[] doubleValues;
+	private int[] intValues; // int and boolean (0 or 1) values
+
+
+	/**
+	 * Compiles the element tree of the given variables.
+	 *
+	 * @param pathList
+	 * 			Full paths of the variables (e.g. "/root/thisVehicle/...").
+	 *
+	 * @param accessorList
+	 * 			Value accessor of every path (same order as pathList; entries may
+	 * 			be null for unknown variables).
+	 *
+	 * @param nameOnly
+	 * 			If true, only the element names will be written (no values).
+	 */
+	public APIDataWriter(List<String> pathList, List<ValueAccessor> accessorList, boolean nameOnly)
+	{
+		ArrayList<ValueAccessor> slotList = new ArrayList<ValueAccessor>();
+
+		for(int j=0; j<pathList.size(); j++)
+		{
+			String[] nodes = pathList.get(j).split("/");
+
+			ElementNode e = rootElement;
+			for(int i=2; i<nodes.length; i++)
+			{
+				// same lookup as Element.getElementsByTagName(name).item(0)
+				ElementNode e2 = findDescendant(e, nodes[i]);
+				if(e2 == null)
+				{
+					e2 = new ElementNode(nodes[i]);
+					e.children.add(e2);
+				}
+				e = e2;
+			}
+
+			if(!nameOnly)
+			{
+				// same as Element.setTextContent(value)
+				ElementNode text = new ElementNode(null);
+				text.slot = slotList.size();
+				slotList.add(accessorList.get(j));
+				e.children.clear();
+				e.children.add(text);
+			}
+		}
+
+		accessors = slotList.toArray(new ValueAccessor[slotList.size()]);
+		valueTypes = new byte[accessors.length];
+		values = new String[accessors.length];
+		floatValues = new float[accessors.length];
+		doubleValues = new double[accessors.length];
+		intValues = new int[accessors.length];
+
+		for(int i=0; i<accessors.length; i++)
+		{
+			if(accessors[i] instanceof FloatAccessor)
+				valueTypes[i] = FLOAT_VALUE;
+			else if(accessors[i] instanceof DoubleAccessor)
+				valueTypes[i] = DOUBLE_VALUE;
+			else if(accessors[i] instanceof IntAccessor)
+				valueTypes[i] = INT_VALUE;
+			else if(accessors[i] instanceof BooleanAccessor)
+				valueTypes[i] = BOOLEAN_VALUE;
+			else
+				valueTypes[i] = STRING_VALUE;
+		}
+	}
+
+
+	private static ElementNode findDescendant(ElementNode element, String name)
+	{
+		// pre-order (= document order) search among all descendants
+		for(ElementNode child : element.children)
+		{
+			if(child.isText())
+				continue;
+
+			if(child.name.equals(name))
+				return child;
+
+			ElementNode result = findDescendant(child, name);
+			if(result != null)
+				return result;
+		}
+		return null;
+	}
+
+
+	/**
+	 * Writes the current values as XML, e.g. "&lt;root&gt;&lt;a&gt;&lt;b&gt;1&lt;/b&gt;&lt;/a&gt;&lt;/root&gt;".
+	 *
+	 * @param builder
+	 * 			StringBuilder the output will be appended to.
+	 */
+	public void writeXML(StringBuilder builder)
+	{
+		readValues();
+		writeXML(rootElement, builder);
+	}
+
+
+	/**
+	 * Writes the current values as JSON, e.g. "{"a":{"b":"1"}}". Elements
+	 * containing further elements are written as objects, all other elements
+	 * as strings.
+	 *
+	 * @param builder
+	 * 			StringBuilder the output will be appended to.
+	 */
+	public void writeJSON(StringBuilder builder)
+	{
+		readValues();
+		writeJSONObject(rootElement, builder);
+	}
+
+
+	private void readValues()
+	{
+		for(int i=0; i<accessors.length; i++)
+		{
+			switch(valueTypes[i])
+			{
+				case FLOAT_VALUE: floatValues[i] = ((FloatAccessor) accessors[i]).getFloat(); break;
+				case DOUBLE_VALUE: doubleValues[i] = ((DoubleAccessor) accessors[i]).getDouble(); break;
+				case INT_VALUE: intValues[i] = ((IntAccessor) accessors[i]).getInt(); break;
+				case BOOLEAN_VALUE: intValues[i] = ((BooleanAccessor) accessors[i]).getBoolean() ? 1 : 0; break;
+				default:
+					String value = null;
+					if(accessors[i] != null)
+						value = accessors[i].getValue();
+					values[i] = (value == null)? "" : value;
+			}
+		}
+	}
+
+
+	/**
+	 * Appends the value of the given slot. Returns false for string values, 
+	 * which have to be escaped by the caller.
+	 */
+	private boolean appendTypedValue(int slot, StringBuilder builder)
+	{
+		switch(valueTypes[slot])
+		{
+			case FLOAT_VALUE: builder.append(floatValues[slot]); return true;
+			case DOUBLE_VALUE: builder.append(doubleValues[slot]); return true;
+			case INT_VALUE: builder.append(intValues[slot]); return true;
+			case BOOLEAN_VALUE: builder.append(intValues[slot] != 0); return true;
+			default: return false;
+		}
+	}
+
+
+	private void writeXML(ElementNode element, StringBuilder builder)
+	{
+		builder.append('<').append(element.name);
+
+		if(isEmpty(element))
+		{
+			builder.append("/>");
+			return;
+		}
+
+		builder.append('>');
+		for(ElementNode child : element.children)
+		{
+			if(child.isText())
+			{
+				if(!appendTypedValue(child.slot, builder))
+					appendXMLText(values[child.slot], builder);
+			}
+			else
+				writeXML(child, builder);
+		}
+		builder.append("</").append(element.name).append('>');
+	}
+
+
+	private boolean isEmpty(ElementNode element)
+	{
+		for(ElementNode child : element.children)
+		{
+			if(!child.isText() || valueTypes[child.slot] != STRING_VALUE || !values[child.slot].isEmpty())
+				return false;
+		}
+		return true;
+	}
+
+
+	private static void appendXMLText(String text, StringBuilder builder)
+	{
+		for(int i=0; i<text.length(); i++)
+		{
+			char c = text.charAt(i);
+			switch(c)
+			{
+				case '&': builder.append("&amp;"); break;
+				case '<': builder.append("&lt;"); break;
+				case '>': builder.append("&gt;"); break;
+				case '\r': builder.append("&#13;"); break;
+				case '\n': break; // line breaks are removed from the output
+				default: builder.append(c);
+			}
+		}
+	}
+
+
+	private void writeJSONObject(ElementNode element, StringBuilder builder)
+	{
+		builder.append('{');
+		boolean first = true;
+		for(ElementNode child : element.children)
+		{
+			if(child.isText())
+				continue;
+
+			if(!first)
+				builder.append(',');
+			first = false;
+
+			appendJSONString(child.name, builder);
+			builder.append(':');
+
+			if(hasChildElements(child))
+				writeJSONObject(child, builder);
+			else
+			{
+				builder.append('"');
+				for(ElementNode text : child.children)
+				{
+					if(!appendTypedValue(text.slot, builder))
+						appendJSONText(values[text.slot], builder);
+				}
+				builder.append('"');
+			}
+		}
+		builder.append('}');
+	}
+
+
+	private static boolean hasChildElements(ElementNode element)
+	{
+		for(ElementNode child : element.children)
+		{
+			if(!child.isText())
+				return true;
+		}
+		return false;
+	}
+
+
+	private static void appendJSONString(String text, StringBuilder builder)
+	{
+		builder.append('"');
+		appendJSONText(text, builder);
+		builder.append('"');
+	}
+
+
+	private static void appendJSONText(String text, StringBuilder builder)
+	{
+		for(int i=0; i<text.length(); i++)
+		{
+			char c = text.charAt(i);
+			switch(c)
+			{
+				case '"': builder.append("\\\""); break;
+				case '\\': builder.append("\\\\"); break;
+				case '\n': builder.append("\\n"); break;
+				case '\r': builder.append("\\r"); break;
+				case '\t': builder.append("\\t"); break;
+				default:
+					if(c < 0x20)
+					{
+						String hex = Integer.toHexString(c);
+						builder.append("\\u");
+						for(int k=hex.length(); k<4; k++)
+							builder.append('0');
+						builder.append(hex);
+					}
+					else
+						builder.append(c);
+			}
+		}
+	}
+}
@@ -26,7 +26,11 @@ import java.io.PrintStream;
 import java.io.StringReader;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -67,6 +71,16 @@ public class ConnectionHandler extends Thread
 	
 	private int updateInterval = 1000; //in ms
 	
+	// encoding of the periodically sent subscribed values (XML or JSON)
+	private volatile boolean jsonEncoding = false;
+	private volatile boolean connectionEstablished = false;
+	private volatile boolean connectionAbolished = false;
+	
+	// re-usable buffers for sending responses
+	private CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private ByteBuffer byteBuffer = ByteBuffer.allocate(8192);
+	
 	private Lock intervalLock = new ReentrantLock();
 	
 	
@@ -107,6 +121,21 @@ public class ConnectionHandler extends Thread
 		requestParser = new RequestParser(sim);
 	}
 	
+	
+	/**
+	 * Creates a connection handler for the multi-client server. This handler
+	 * will not be started as thread: received messages are passed to 
+	 * parseXML() and subscribed values are sent by the server.
+	 */
+	public ConnectionHandler(Simulator s, OutputStream o){
+		sim = s;
+		out = o;
+		
+		data = new APIData(sim.getCar());
+		updateSender = null;
+		requestParser = new RequestParser(sim);
+	}
+	
 	public void run(){
 		while(!isInterrupted()){
 			try{
@@ -249,7 +278,7 @@ public class ConnectionHandler extends Thread
 	}
 	
 	
-	private void parseXML(String xml) {
+	void parseXML(String xml) {
 		try {						
 			Document doc = loadXMLFromString(xml);			
 			doc.getDocumentElement().normalize();			
@@ -271,13 +300,16 @@ public class ConnectionHandler extends Thread
 						} catch(Exception e){}
 					}
 					
-					if(!updateSender.isAlive())
+					if(updateSender != null && !updateSender.isAlive())
 						updateSender.start();
 					
+					connectionEstablished = true;
+					
 					response += "<Event Name=\"ConnectionEstablished\"/>\n";
 				}
 				else if(eventName.equals("AbolishConnection")){				
 					response += "<Event Name=\"ConnectionAbolished\"/>\n";
+					connectionAbolished = true;
 					this.interrupt();
 				}
 				else if(eventName.equals("GetDataSchema")){				
@@ -297,6 +329,19 @@ public class ConnectionHandler extends Thread
 					String result = requestParser.processRequest(nodes.item(i));
 					response += "<Event Name=\"XMLRequest\"><liveDataRequest>\n" + result + "\n</liveDataRequest></Event>";
 				}
+				else if(eventName.equals("GetEncoding")){
+					response += "<Event Name=\"Encoding\">\n" + (jsonEncoding? "JSON" : "XML") + "\n</Event>";
+				}
+				else if(eventName.equals("SetEncoding")){
+					String val = nodes.item(i).getTextContent().trim();
+					if(val.equalsIgnoreCase("JSON"))
+						jsonEncoding = true;
+					else if(val.equalsIgnoreCase("XML"))
+						jsonEncoding = false;
+					else
+						System.err.println("Unknown encoding: " + val + " (XML or JSON expected)");
+					response += "<Event Name=\"Encoding\">\n" + (jsonEncoding? "JSON" : "XML") + "\n</Event>";
+				}
 				else if(eventName.equals("GetUpdateInterval")){
 					response += "<Event Name=\"UpdateInterval\">\n" + String.valueOf(getUpdateInterval()) + "\n</Event>";
 				}
@@ -420,5 +465,44 @@ public class ConnectionHandler extends Thread
 			e.printStackTrace();
 		}
 	}
+	
+	
+	public boolean isJSONEncoding(){
+		return jsonEncoding;
+	}
+	
+	
+	public boolean isConnectionEstablished(){
+		return connectionEstablished;
+	}
+	
+	
+	public boolean isConnectionAbolished(){
+		return connectionAbolished;
+	}
+	
+	
+	public APIData getAPIData(){
+		return data;
+	}
+	
+	
+	public synchronized void sendResponse(CharSequence response){
+		try {
+			// encode into re-usable byte buffer (grows if too small)
+			int maxLength = (int) Math.ceil(response.length() * encoder.maxBytesPerChar());
+			if(byteBuffer.capacity() < maxLength)
+				byteBuffer = ByteBuffer.allocate(Math.max(maxLength, 2*byteBuffer.capacity()));
+			
+			byteBuffer.clear();
+			encoder.reset();
+			encoder.encode(CharBuffer.wrap(response), byteBuffer, true);
+			encoder.flush(byteBuffer);
+			
+			out.write(byteBuffer.array(), 0, byteBuffer.position());
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
 
 }
@@ -0,0 +1,524 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.settingsController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.opends.main.Simulator;
+import eu.opends.settingsController.APIData.ValueAccessor;
+
+/**
+ * Non-blocking variant of the settings controller server. A single thread
+ * serves all clients by means of a selector. Every client has its own
+ * subscriptions, update interval and encoding (handled by a ConnectionHandler
+ * which is not started as thread). Whenever updates are due, the values are
+ * sampled once and the message is encoded once per distinct set of
+ * subscriptions and encoding; the resulting bytes are shared by all clients
+ * of that set.
+ *
+ * @author agent
+ */
+public class MultiClientServer
+{
+	// received data without a complete message will be parsed after this idle time (ms)
+	private static final long inputTimeout = 100;
+
+	// periodic updates will be skipped for clients with more pending buffers than this
+	private static final int maxPendingBuffers = 64;
+
+	// maximum number of compiled writers kept for distinct subscription sets
+	private static final int maxWriters = 32;
+
+	private static final byte[] messageEnd = "</Message>".getBytes(StandardCharsets.UTF_8);
+
+	private Simulator sim;
+	private int port;
+	private Selector selector;
+	private ServerSocketChannel serverChannel;
+	private ArrayList<Client> clientList = new ArrayList<Client>();
+
+	// values sampled in the current tick (shared by all clients)
+	private APIData sampleData = null;
+	private HashMap<String, String> snapshotMap = new HashMap<String, String>();
+	private HashMap<String, SnapshotAccessor> snapshotAccessorMap = new HashMap<String, SnapshotAccessor>();
+
+	// compiled writers (key: subscription key) and messages encoded in the current tick
+	private LinkedHashMap<String, APIDataWriter> writerMap = new LinkedHashMap<String, APIDataWriter>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, APIDataWriter> eldest)
+		{
+			return size() > maxWriters;
+		}
+	};
+	private HashMap<String, byte[]> messageMap = new HashMap<String, byte[]>();
+	private StringBuilder builder = new StringBuilder(4096);
+
+
+	private class Client extends OutputStream
+	{
+		private SocketChannel channel;
+		private SelectionKey key;
+		private ConnectionHandler handler;
+		private ArrayDeque<ByteBuffer> outputQueue = new ArrayDeque<ByteBuffer>();
+		private byte[] input = new byte[2048];
+		private int inputLength = 0;
+		private long lastInputTime = 0;
+		private long nextUpdateTime = 0;
+
+
+		private Client(SocketChannel channel, SelectionKey key)
+		{
+			this.channel = channel;
+			this.key = key;
+			this.handler = new ConnectionHandler(sim, this);
+		}
+
+
+		// responses of the ConnectionHandler will be queued and sent by the selector thread
+		@Override
+		public void write(int b)
+		{
+			write(new byte[]{(byte) b}, 0, 1);
+		}
+
+
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			byte[] copy = new byte[len];
+			System.arraycopy(b, off, copy, 0, len);
+			enqueue(ByteBuffer.wrap(copy));
+		}
+
+
+		private void enqueue(ByteBuffer buffer)
+		{
+			outputQueue.add(buffer);
+			if(key.isValid())
+				key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+		}
+
+
+		private void appendInput(ByteBuffer buffer)
+		{
+			int length = buffer.remaining();
+			if(inputLength + length > input.length)
+			{
+				byte[] newInput = new byte[Math.max(inputLength + length, 2*input.length)];
+				System.arraycopy(input, 0, newInput, 0, inputLength);
+				input = newInput;
+			}
+			buffer.get(input, inputLength, length);
+			inputLength += length;
+		}
+
+
+		private void processInput(boolean timeout)
+		{
+			// parse all complete messages
+			int start = 0;
+			int end;
+			while((end = indexOf(input, start, inputLength, messageEnd)) >= 0)
+			{
+				end += messageEnd.length;
+				parse(start, end);
+				start = end;
+			}
+
+			// parse remaining data if the client stopped sending
+			if(timeout && start < inputLength)
+			{
+				parse(start, inputLength);
+				start = inputLength;
+			}
+
+			System.arraycopy(input, start, input, 0, inputLength - start);
+			inputLength -= start;
+		}
+
+
+		private void parse(int start, int end)
+		{
+			String message = new String(input, start, end - start, StandardCharsets.UTF_8);
+			if(!message.trim().isEmpty())
+				handler.parseXML(message);
+		}
+	}
+
+
+	private class SnapshotAccessor implements ValueAccessor
+	{
+		private String path;
+
+
+		private SnapshotAccessor(String path)
+		{
+			this.path = path;
+		}
+
+
+		@Override
+		public String getValue()
+		{
+			// sample each variable at most once per tick
+			if(snapshotMap.containsKey(path))
+				return snapshotMap.get(path);
+
+			ValueAccessor accessor = sampleData.getAccessor(path);
+			String value = (accessor != null)? accessor.getValue() : null;
+			snapshotMap.put(path, value);
+			return value;
+		}
+	}
+
+
+	public MultiClientServer(Simulator sim, int port)
+	{
+		this.sim = sim;
+		this.port = port;
+	}
+
+
+	/**
+	 * Serves clients until the calling thread has been interrupted.
+	 *
+	 * @return
+	 * 			False, if the server socket could not be opened.
+	 */
+	public boolean run()
+	{
+		try {
+			selector = Selector.open();
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.bind(new InetSocketAddress(port));
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			close();
+			return false;
+		}
+
+		System.out.println("SettingsControllerServer (multi client) started at port " + port);
+
+		while(!Thread.currentThread().isInterrupted())
+		{
+			try {
+				selector.select(getSelectTimeout());
+
+				Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+				while(iterator.hasNext())
+				{
+					SelectionKey key = iterator.next();
+					iterator.remove();
+
+					if(!key.isValid())
+						continue;
+
+					if(key.isAcceptable())
+						accept();
+					else
+					{
+						Client client = (Client) key.attachment();
+						if(key.isReadable())
+							read(client);
+						if(key.isValid() && key.isWritable())
+							write(client);
+					}
+				}
+
+				long now = System.currentTimeMillis();
+				for(int i=clientList.size()-1; i>=0; i--)
+				{
+					Client client = clientList.get(i);
+					if(client.inputLength > 0 && now - client.lastInputTime >= inputTimeout)
+					{
+						client.processInput(true);
+						closeIfAbolished(client);
+					}
+				}
+
+				sendUpdates(now);
+
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		close();
+		return true;
+	}
+
+
+	private long getSelectTimeout()
+	{
+		long now = System.currentTimeMillis();
+		long timeout = inputTimeout;
+
+		for(Client client : clientList)
+		{
+			if(client.handler.isConnectionEstablished())
+				timeout = Math.min(timeout, client.nextUpdateTime - now);
+
+			if(client.inputLength > 0)
+				timeout = Math.min(timeout, client.lastInputTime + inputTimeout - now);
+		}
+
+		// 0 would block forever
+		return Math.max(1, timeout);
+	}
+
+
+	private void accept() throws IOException
+	{
+		SocketChannel channel = serverChannel.accept();
+		if(channel == null)
+			return;
+
+		channel.configureBlocking(false);
+		SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+
+		Client client = new Client(channel, key);
+		key.attach(client);
+		clientList.add(client);
+	}
+
+
+	private void read(Client client)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(2000);
+		try {
+			int bytesRead;
+			while((bytesRead = client.channel.read(buffer)) > 0)
+			{
+				buffer.flip();
+				client.appendInput(buffer);
+				buffer.clear();
+			}
+
+			client.lastInputTime = System.currentTimeMillis();
+			client.processInput(false);
+
+			if(bytesRead == -1)
+			{
+				System.out.println("Connection closed by client.");
+				closeClient(client);
+			}
+			else
+				closeIfAbolished(client);
+
+		} catch (IOException e) {
+			System.out.println("Connection closed by client.");
+			closeClient(client);
+		}
+	}
+
+
+	private void write(Client client)
+	{
+		try {
+			while(!client.outputQueue.isEmpty())
+			{
+				ByteBuffer buffer = client.outputQueue.peek();
+				client.channel.write(buffer);
+
+				// socket buffer full --> continue when writable again
+				if(buffer.hasRemaining())
+					return;
+
+				client.outputQueue.poll();
+			}
+
+			client.key.interestOps(SelectionKey.OP_READ);
+
+		} catch (IOException e) {
+			System.out.println("Connection closed by client.");
+			closeClient(client);
+		}
+	}
+
+
+	private void closeIfAbolished(Client client)
+	{
+		if(client.handler.isConnectionAbolished())
+		{
+			// send the final response before closing
+			write(client);
+			closeClient(client);
+		}
+	}
+
+
+	private void sendUpdates(long now)
+	{
+		if(!sim.isInitializationFinished())
+			return;
+
+		boolean sampled = false;
+
+		for(int i=clientList.size()-1; i>=0; i--)
+		{
+			Client client = clientList.get(i);
+			if(!client.handler.isConnectionEstablished() || now < client.nextUpdateTime)
+				continue;
+
+			int interval = Math.max(1, client.handler.getUpdateInterval());
+			client.nextUpdateTime += interval;
+			if(client.nextUpdateTime <= now)
+				client.nextUpdateTime = now + interval;
+
+			// slow client --> skip update instead of buffering without limit
+			if(client.outputQueue.size() > maxPendingBuffers)
+				continue;
+
+			if(!sampled)
+			{
+				startSample();
+				sampled = true;
+			}
+
+			APIData data = client.handler.getAPIData();
+			boolean json = client.handler.isJSONEncoding();
+			String subscriptionKey = data.getSubscriptionKey();
+			String messageKey = (json? "J:" : "X:") + subscriptionKey;
+
+			byte[] message = messageMap.get(messageKey);
+			if(message == null)
+			{
+				message = encode(subscriptionKey, data, json);
+				messageMap.put(messageKey, message);
+			}
+
+			client.enqueue(ByteBuffer.wrap(message));
+		}
+	}
+
+
+	private void startSample()
+	{
+		if(sampleData == null)
+			sampleData = new APIData(sim.getCar());
+
+		sampleData.updateDataSources();
+		snapshotMap.clear();
+		messageMap.clear();
+	}
+
+
+	private byte[] encode(String subscriptionKey, APIData data, boolean json)
+	{
+		APIDataWriter writer = writerMap.get(subscriptionKey);
+		if(writer == null)
+		{
+			List<String> pathList = data.getSubscribedPaths();
+			List<ValueAccessor> accessorList = new ArrayList<ValueAccessor>(pathList.size());
+			for(String path : pathList)
+			{
+				SnapshotAccessor accessor = snapshotAccessorMap.get(path);
+				if(accessor == null)
+				{
+					accessor = new SnapshotAccessor(path);
+					snapshotAccessorMap.put(path, accessor);
+				}
+				accessorList.add(accessor);
+			}
+
+			writer = new APIDataWriter(pathList, accessorList, false);
+			writerMap.put(subscriptionKey, writer);
+		}
+
+		// same format as UpdateSender
+		builder.setLength(0);
+		if(json)
+		{
+			builder.append("{\"SubscribedValues\":");
+			writer.writeJSON(builder);
+			builder.append("}\n");
+		}
+		else
+		{
+			builder.append("<Message><Event Name=\"SubscribedValues\">\n");
+			writer.writeXML(builder);
+			builder.append("\n</Event></Message>\n");
+		}
+
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+
+	private void closeClient(Client client)
+	{
+		clientList.remove(client);
+		client.key.cancel();
+		try {
+			client.channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	private void close()
+	{
+		for(Client client : new ArrayList<Client>(clientList))
+			closeClient(client);
+
+		try {
+			if(serverChannel != null)
+				serverChannel.close();
+
+			if(selector != null)
+				selector.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	private static int indexOf(byte[] array, int start, int end, byte[] pattern)
+	{
+		for(int i=start; i<=end-pattern.length; i++)
+		{
+			int j = 0;
+			while(j < pattern.length && array[i+j] == pattern[j])
+				j++;
+
+			if(j == pattern.length)
+				return i;
+		}
+		return -1;
+	}
+}
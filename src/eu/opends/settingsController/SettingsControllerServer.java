@@ -43,6 +43,7 @@ public class SettingsControllerServer extends Thread
 	
 	private Simulator sim;
 	private int port = 0;
+	private boolean multiClient = false;
 	private RoadData roadDataRecord;
 	private EventPlannerData eventPlannerDataRecord;
 	private boolean connected = false;
@@ -54,12 +55,24 @@ public class SettingsControllerServer extends Thread
 		this.sim = sim;
 		this.port = Simulator.getSettingsLoader().getSetting(Setting.SettingsControllerServer_port, 
 				SimulationDefaults.SettingsControllerServer_port);
+		this.multiClient = Simulator.getSettingsLoader().getSetting(Setting.SettingsControllerServer_multiClient, 
+				SimulationDefaults.SettingsControllerServer_multiClient);
 		roadDataRecord = new RoadData();
 		eventPlannerDataRecord = new EventPlannerData(sim);
 	}
 	
 	
-	public void run(){		
+	public void run(){
+		if(multiClient)
+		{
+			// serve all clients by a single selector thread
+			if(!new MultiClientServer(sim, port).run())
+				System.err.println("SettingsControllerServer: could not listen on port:"+port);
+			else
+				System.out.println("SettingsControllerServer closed.");
+			return;
+		}
+		
 		try {
             serverSocket = new ServerSocket(port);
         } catch (IOException e) {
@@ -29,6 +29,7 @@ public class UpdateSender extends Thread
 	private Simulator sim;
 	private APIData  data;
 	private ConnectionHandler connectionHandler;
+	private StringBuilder response = new StringBuilder(4096);
 	
 	
 	public UpdateSender(Simulator sim, APIData data, ConnectionHandler connectionHandler)
@@ -45,7 +46,20 @@ public class UpdateSender extends Thread
 		{
 			if(sim.isInitializationFinished())
 			{
-				String response = "<Message><Event Name=\"SubscribedValues\">\n" + data.getAllSubscribedValues(false) + "\n</Event></Message>\n";
+				// re-use string builder in order to avoid garbage at high update rates
+				response.setLength(0);
+				if(connectionHandler.isJSONEncoding())
+				{
+					response.append("{\"SubscribedValues\":");
+					data.writeAllSubscribedValues(response, false, true);
+					response.append("}\n");
+				}
+				else
+				{
+					response.append("<Message><Event Name=\"SubscribedValues\">\n");
+					data.writeAllSubscribedValues(response, false, false);
+					response.append("\n</Event></Message>\n");
+				}
 				connectionHandler.sendResponse(response);
 			}
 			
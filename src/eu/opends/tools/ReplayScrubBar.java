@@ -0,0 +1,143 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.tools;
+
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial.CullHint;
+import com.jme3.scene.shape.Quad;
+
+import eu.opends.basics.SimulationBasics;
+
+/**
+ * Horizontal progress bar showing the current position of the replay within
+ * the whole recording, together with the current replay speed.
+ *
+ * @author agent
+ */
+public class ReplayScrubBar
+{
+	private float barWidth;
+	private float barHeight = 6;
+	private float barLeft;
+	private float barBottom;
+	private float indicatorWidth = 4;
+	private float indicatorHeight = 14;
+
+	private Node scrubBarNode;
+	private Geometry progress;
+	private Geometry indicator;
+	private BitmapText speedText;
+	private SimulationBasics sim = null;
+
+
+	public ReplayScrubBar(float width, float left, float bottom)
+	{
+		this.barWidth = width;
+		this.barLeft = left;
+		this.barBottom = bottom;
+	}
+
+
+	public void init(SimulationBasics sim)
+	{
+		this.sim = sim;
+
+		scrubBarNode = new Node("replayScrubBar");
+
+		// background of the whole recording
+		Geometry background = createQuad("scrubBarBackground", barWidth, barHeight, ColorRGBA.DarkGray);
+		scrubBarNode.attachChild(background);
+
+		// already replayed part (scaled in x direction)
+		progress = createQuad("scrubBarProgress", barWidth, barHeight, ColorRGBA.LightGray);
+		progress.setLocalTranslation(0, 0, 1);
+		scrubBarNode.attachChild(progress);
+
+		// current position
+		indicator = createQuad("scrubBarIndicator", indicatorWidth, indicatorHeight, ColorRGBA.Yellow);
+		scrubBarNode.attachChild(indicator);
+
+		// replay speed text
+		BitmapFont guiFont = sim.getAssetManager().loadFont("Interface/Fonts/Default.fnt");
+		speedText = new BitmapText(guiFont, false);
+		speedText.setName("replaySpeedText");
+		speedText.setText("");
+		speedText.setSize(guiFont.getCharSet().getRenderedSize());
+		speedText.setColor(ColorRGBA.LightGray);
+		speedText.setLocalTranslation(barWidth + 10, barHeight/2f + speedText.getLineHeight()/2f, 0);
+		scrubBarNode.attachChild(speedText);
+
+		scrubBarNode.setLocalTranslation(barLeft, barBottom, 0);
+		sim.getGuiNode().attachChild(scrubBarNode);
+
+		setPosition(0);
+	}
+
+
+	private Geometry createQuad(String name, float width, float height, ColorRGBA color)
+	{
+		Material material = new Material(sim.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+		material.setColor("Color", color);
+
+		Geometry geometry = new Geometry(name, new Quad(width, height));
+		geometry.setMaterial(material);
+		return geometry;
+	}
+
+
+	/**
+	 * Sets the position of the indicator.
+	 *
+	 * @param fraction
+	 * 			Relative position within the recording (0 = start, 1 = end).
+	 */
+	public void setPosition(float fraction)
+	{
+		fraction = Math.max(0, Math.min(1, fraction));
+
+		// avoid zero scale
+		progress.setLocalScale(Math.max(0.0001f, fraction), 1, 1);
+		indicator.setLocalTranslation(fraction * barWidth - indicatorWidth/2f,
+				(barHeight - indicatorHeight)/2f, 2);
+	}
+
+
+	public void setSpeedText(String text)
+	{
+		speedText.setText(text);
+	}
+
+
+	public void setCullHint(CullHint hint)
+	{
+		scrubBarNode.setCullHint(hint);
+	}
+
+
+	public void remove()
+	{
+		if(sim != null)
+			sim.getGuiNode().detachChild(scrubBarNode);
+	}
+}
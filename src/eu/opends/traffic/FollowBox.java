@@ -33,6 +33,7 @@ import com.jme3.scene.shape.Box;
 import eu.opends.car.SteeringCar;
 import eu.opends.infrastructure.Segment;
 import eu.opends.infrastructure.Waypoint;
+import eu.opends.main.SimulationClock;
 import eu.opends.main.Simulator;
 import eu.opends.tools.Util;
 
@@ -380,9 +381,9 @@ public class FollowBox
 			return false;
 		
 		// check every 3 seconds
-		if(System.currentTimeMillis()-lastCrashCheck > 3000)
+		if(SimulationClock.currentTimeMillis()-lastCrashCheck > 3000)
 		{
-			lastCrashCheck = System.currentTimeMillis();
+			lastCrashCheck = SimulationClock.currentTimeMillis();
 			
 			//add traveled distance on current segment to storage
 			distanceStorage.addLast(traveledDistance);
@@ -431,14 +432,14 @@ public class FollowBox
 			if(!isSetWaitTimer)
 			{
 				// waiting timer not yet set --> set timer to current time stamp and wait
-				waitTimer = System.currentTimeMillis();
+				waitTimer = SimulationClock.currentTimeMillis();
 				isSetWaitTimer = true;
 				return true;
 			}
 			else
 			{
 				// waiting timer already set --> check if elapsed
-				if(System.currentTimeMillis()-waitTimer > waitingTime)
+				if(SimulationClock.currentTimeMillis()-waitTimer > waitingTime)
 				{
 					// waiting timer elapsed --> stop waiting and resume motion					
 					isSetWaitTimer = false;
@@ -639,9 +640,11 @@ public class FollowBox
 		if(!prioritizedSegments.isEmpty() && distanceToNextWP < ownSafetyDistanceToIntersection)
 		{
 			// check if any traffic object (car + pedestrian) is using a prioritized segment (except oneself)
-			for(TrafficObject otherTrafficObject : PhysicalTraffic.getTrafficObjectList())
-				if(hasPriority(otherTrafficObject))
-					prioritizedTrafficAhead = true;
+			TrafficIndex trafficIndex = PhysicalTraffic.getTrafficIndex();
+			for(String prioritizedSegment : prioritizedSegments)
+				for(TrafficObject otherTrafficObject : trafficIndex.getObjectsOnSegment(prioritizedSegment))
+					if(hasPriority(otherTrafficObject))
+						prioritizedTrafficAhead = true;
 				
 			// check if human-controlled car is using a prioritized segment (except oneself)
 			if(hasPriority(sim.getCar()))
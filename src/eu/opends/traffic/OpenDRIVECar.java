@@ -23,7 +23,6 @@ import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map.Entry;
 
 import com.jme3.audio.AudioNode;
 import com.jme3.math.FastMath;
@@ -51,6 +50,7 @@ import eu.opends.opendrive.util.ODPosition;
 import eu.opends.opendrive.util.ODVisualizer;
 import eu.opends.tools.Util;
 import eu.opends.tools.Vector3d;
+import eu.opends.trigger.ODTriggerIndex;
 import eu.opends.trigger.Trigger;
 import eu.opends.trigger.TriggerCenter;
 
@@ -63,6 +63,7 @@ public class OpenDRIVECar extends Car implements TrafficObject
 	private PreferredConnections preferredConnections;
 	private float minForwardSafetyDistance = 8;
 	private float minLateralSafetyDistance = 2;
+	private ArrayList<TrafficObject> nearbyObjectList = new ArrayList<TrafficObject>();
 	private boolean useSpeedDependentForwardSafetyDistance = true;
 	
 	// lateral speed (in m/s) applied when changing lanes by the autopilot
@@ -81,6 +82,8 @@ public class OpenDRIVECar extends Car implements TrafficObject
 	private double currentS = 0;
 	private Integer targetLaneID = null;
 	private HashMap<ODPosition, Trigger> openDRIVECarTriggerActionListMap = new HashMap<ODPosition, Trigger>();
+	private ODTriggerIndex triggerIndex;
+	private ArrayList<Trigger> triggerList = new ArrayList<Trigger>();
 
 	
 	public OpenDRIVECar(Simulator sim, OpenDRIVECarData trafficCarData)
@@ -143,6 +146,7 @@ public class OpenDRIVECar extends Car implements TrafficObject
 		}
 		
 		openDRIVECarTriggerActionListMap = trafficCarData.getTriggerActionListMap();
+		triggerIndex = new ODTriggerIndex(openDRIVECarTriggerActionListMap, 0.5d);
 		
 		mass = trafficCarData.getMass();
 		
@@ -214,7 +218,8 @@ public class OpenDRIVECar extends Car implements TrafficObject
 				Vector3f position = getPosition();
 				
 				// get most probable lane from result list according to expected lane list (and least heading deviation)
-				ODLane lane = sim.getOpenDriveCenter().getMostProbableLane(position, expectedLanes);
+				ODLane lane = sim.getOpenDriveCenter().getMostProbableLane(position, expectedLanes, 
+						currentLane, currentS);
 
 				// update steering
 				updateTargetPosition(bulletTimeDiff, lane);
@@ -472,7 +477,7 @@ public class OpenDRIVECar extends Car implements TrafficObject
 		
 		// stop car in order to avoid collision with other traffic objects and driving car
 		// also for red traffic lights
-		boolean obstacleInTheWay = obstaclesInTheWay(vehicleList);
+		boolean obstacleInTheWay = obstaclesInTheWay();
 		if(obstacleInTheWay)
 			targetSpeed = 0;
 				
@@ -615,14 +620,15 @@ public class OpenDRIVECar extends Car implements TrafficObject
 	}
 	
 	
-	private boolean obstaclesInTheWay(ArrayList<TrafficObject> vehicleList)
+	private boolean obstaclesInTheWay()
 	{
 		// check distance from driving car
 		if(obstacleTooClose(sim.getCar().getPosition()))
 			return true;
 
-		// check distance from other traffic (except oneself)
-		for(TrafficObject vehicle : vehicleList)
+		// check distance from other traffic (except oneself) close enough to be relevant
+		PhysicalTraffic.getTrafficIndex().getNearbyObjects(getPosition(), getSafetyRadius(), nearbyObjectList);
+		for(TrafficObject vehicle : nearbyObjectList)
 		{
 			if(!vehicle.getName().equals(name))		
 				if(obstacleTooClose(vehicle.getPosition()))
@@ -668,6 +674,18 @@ public class OpenDRIVECar extends Car implements TrafficObject
 	}
 	
 	
+	// obstacles further away than this cannot be below the safety distance
+	private float getSafetyRadius()
+	{
+		float forwardSafetyDistance = minForwardSafetyDistance;
+		if(useSpeedDependentForwardSafetyDistance)
+			forwardSafetyDistance = Math.max(0.5f * getCurrentSpeedKmh(), minForwardSafetyDistance);
+		
+		float lateralSafetyDistance = Math.max(0, minLateralSafetyDistance);
+		return FastMath.sqrt(forwardSafetyDistance*forwardSafetyDistance + lateralSafetyDistance*lateralSafetyDistance);
+	}
+	
+	
 	private boolean belowSafetyDistance(float angle, float distance) 
 	{	
 		float lateralDistance = distance * FastMath.sin(angle);
@@ -737,19 +755,13 @@ public class OpenDRIVECar extends Car implements TrafficObject
 			int lane_car = currentLane.getID();
 			double s_car = currentS;
 			
-			for(Entry<ODPosition, Trigger> item : openDRIVECarTriggerActionListMap.entrySet())
-			{
-				ODPosition triggerPos = item.getKey();				
-				String roadID_trigger = triggerPos.getRoadID();
-				int lane_trigger = triggerPos.getLane();
-				double s_trigger = triggerPos.getS();
-
-				if(roadID_trigger.equals(roadID_car) && (Math.abs(s_trigger-s_car) < 0.5d))
-					// either trigger when car is in given lane or when lane_trigger == 0 and car is in any lane 
-					if(lane_trigger == lane_car || lane_trigger == 0)
-						TriggerCenter.performTrigger(item.getValue());
-			}
+			// all OpenDRIVE triggers passed since the last check
+			triggerIndex.update(roadID_car, lane_car, s_car, triggerList);
+			for(int i=0; i<triggerList.size(); i++)
+				TriggerCenter.performTrigger(triggerList.get(i));
 		}
+		else
+			triggerIndex.reset();
 	}
 	
 	
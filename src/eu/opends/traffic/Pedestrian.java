@@ -57,6 +57,7 @@ public class Pedestrian implements AnimationListener, TrafficObject
 	
 	// safety distances // TODO get from scenario.xml
 	private float minLateralSafetyDistance = 2;
+	private ArrayList<TrafficObject> nearbyObjectList = new ArrayList<TrafficObject>();
 	private float minForwardSafetyDistance = 5;
 
 	// walking speed of the character
@@ -165,7 +166,7 @@ public class Pedestrian implements AnimationListener, TrafficObject
 			        	characterControl.setViewDirection(viewDirection);
 			       
 			        
-			        if (distance < 0.1f || obstaclesInTheWay(vehicleList))
+			        if (distance < 0.1f || obstaclesInTheWay())
 			        { 
 			        	if (!animationStandCommand.equals(animationController.getAnimationName())) 
 			        		animationController.animate(animationStandCommand, 1f, 1f, 0);
@@ -329,14 +330,17 @@ public class Pedestrian implements AnimationListener, TrafficObject
 	}
 	
 	
-	private boolean obstaclesInTheWay(ArrayList<TrafficObject> trafficObjectList)
+	private boolean obstaclesInTheWay()
 	{		
 		// check distance from user-controlled car
 		if(obstacleTooClose(sim.getCar().getPosition()))
 			return true;
 
-		// check distance from other cars (exclude pedestrians)
-		for(TrafficObject vehicle : trafficObjectList)
+		// check distance from other cars (exclude pedestrians) close enough to be relevant
+		float safetyRadius = FastMath.sqrt(minForwardSafetyDistance*minForwardSafetyDistance 
+				+ Math.max(0, minLateralSafetyDistance)*Math.max(0, minLateralSafetyDistance));
+		PhysicalTraffic.getTrafficIndex().getNearbyObjects(getPosition(), safetyRadius, nearbyObjectList);
+		for(TrafficObject vehicle : nearbyObjectList)
 		{
 			if(!vehicle.getName().equals(name) && vehicle instanceof TrafficCar)		
 				if(obstacleTooClose(vehicle.getPosition()))
@@ -20,6 +20,7 @@ package eu.opends.traffic;
 
 import java.util.ArrayList;
 
+import eu.opends.main.SimulationClock;
 import eu.opends.main.Simulator;
 
 /**
@@ -32,6 +33,7 @@ public class PhysicalTraffic extends Thread
 	private static ArrayList<PedestrianData> pedestrianDataList = new ArrayList<PedestrianData>();
 	private static ArrayList<OpenDRIVECarData> openDRIVEDataList = new ArrayList<OpenDRIVECarData>();
     private static ArrayList<TrafficObject> trafficObjectList = new ArrayList<TrafficObject>();
+    private static TrafficIndex trafficIndex = new TrafficIndex(20f);
 	private boolean isRunning = true;
 	private int updateIntervalMsec = 20;
 	private long lastUpdate = 0;
@@ -56,6 +58,8 @@ public class PhysicalTraffic extends Thread
 			// build and add traffic cars
 			trafficObjectList.add(new OpenDRIVECar(sim, openDRIVECarData));
 		}
+		
+		trafficIndex.update(trafficObjectList);
 	}
 	
 	
@@ -83,6 +87,20 @@ public class PhysicalTraffic extends Thread
 	}
 
 	
+	/**
+	 * Returns the occupancy index of all traffic objects (rebuilt at the 
+	 * beginning of each traffic update and kept up to date after the update 
+	 * of every single traffic object).
+	 * 
+	 * @return
+	 * 			Traffic index.
+	 */
+	public static TrafficIndex getTrafficIndex() 
+	{
+		return trafficIndex;		
+	}
+
+	
 	public TrafficObject getTrafficObject(String trafficObjectName) 
 	{
 		for(TrafficObject trafficObject : trafficObjectList)
@@ -106,22 +124,27 @@ public class PhysicalTraffic extends Thread
 			
 			while (isRunning) 
 			{
-				long elapsedTime = System.currentTimeMillis() - lastUpdate;
+				long elapsedTime = SimulationClock.currentTimeMillis() - lastUpdate;
 				
 				if (elapsedTime > updateIntervalMsec) 
 				{
-					lastUpdate = System.currentTimeMillis();
+					lastUpdate = SimulationClock.currentTimeMillis();
 					
 					float tpf = elapsedTime/1000f;
+					trafficIndex.update(trafficObjectList);
+					
 					// update every traffic object
 					for(TrafficObject trafficObject : trafficObjectList)
+					{
 						trafficObject.update(tpf, trafficObjectList);
+						trafficIndex.updateObject(trafficObject);
+					}
 				}
 				else
 				{
 					// sleep until update interval has elapsed
 					try {
-						Thread.sleep(updateIntervalMsec - elapsedTime);
+						SimulationClock.sleep(updateIntervalMsec - elapsedTime);
 					} catch (InterruptedException e) {
 						e.printStackTrace();
 					}
@@ -135,8 +158,15 @@ public class PhysicalTraffic extends Thread
 	// TODO use thread instead
 	public void update(float tpf)
 	{
+		// index positions once instead of scanning all traffic objects per traffic object
+		trafficIndex.update(trafficObjectList);
+		
+		// objects that have been moved to another segment or lane are found there by the following objects
 		for(TrafficObject trafficObject : trafficObjectList)
-			trafficObject.update(tpf, trafficObjectList);	
+		{
+			trafficObject.update(tpf, trafficObjectList);
+			trafficIndex.updateObject(trafficObject);
+		}
 	}
 
 
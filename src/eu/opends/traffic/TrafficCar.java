@@ -56,6 +56,7 @@ public class TrafficCar extends Car implements TrafficObject
 	private FollowBox followBox;
 	private float minForwardSafetyDistance = 8;
 	private float minLateralSafetyDistance = 2;
+	private ArrayList<TrafficObject> nearbyObjectList = new ArrayList<TrafficObject>();
 	private boolean useSpeedDependentForwardSafetyDistance = true;
 	private float overwriteSpeed = -1;
 	private Material brickMaterial;
@@ -330,7 +331,7 @@ public class TrafficCar extends Car implements TrafficObject
 		
 		// stop car in order to avoid collision with other traffic objects and driving car
 		// also for red traffic lights
-		boolean obstacleInTheWay = obstaclesInTheWay(vehicleList);
+		boolean obstacleInTheWay = obstaclesInTheWay();
 		if(obstacleInTheWay)
 			targetSpeed = 0;
 		
@@ -406,14 +407,15 @@ public class TrafficCar extends Car implements TrafficObject
 	}
 
 
-	private boolean obstaclesInTheWay(ArrayList<TrafficObject> vehicleList)
+	private boolean obstaclesInTheWay()
 	{
 		// check distance from driving car
 		if(obstacleTooClose(sim.getCar().getPosition()))
 			return true;
 
-		// check distance from other traffic (except oneself)
-		for(TrafficObject vehicle : vehicleList)
+		// check distance from other traffic (except oneself) close enough to be relevant
+		PhysicalTraffic.getTrafficIndex().getNearbyObjects(getPosition(), getSafetyRadius(), nearbyObjectList);
+		for(TrafficObject vehicle : nearbyObjectList)
 		{
 			if(!vehicle.getName().equals(name))		
 				if(obstacleTooClose(vehicle.getPosition()))
@@ -456,6 +458,18 @@ public class TrafficCar extends Car implements TrafficObject
 	}
 	
 	
+	// obstacles further away than this cannot be below the safety distance
+	private float getSafetyRadius()
+	{
+		float forwardSafetyDistance = minForwardSafetyDistance;
+		if(useSpeedDependentForwardSafetyDistance)
+			forwardSafetyDistance = Math.max(0.5f * getCurrentSpeedKmh(), minForwardSafetyDistance);
+		
+		float lateralSafetyDistance = Math.max(0, minLateralSafetyDistance);
+		return FastMath.sqrt(forwardSafetyDistance*forwardSafetyDistance + lateralSafetyDistance*lateralSafetyDistance);
+	}
+	
+	
 	private boolean belowSafetyDistance(float angle, float distance) 
 	{	
 		float lateralDistance = distance * FastMath.sin(angle);
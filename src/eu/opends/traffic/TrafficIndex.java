@@ -0,0 +1,285 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.traffic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.jme3.math.Vector3f;
+
+import eu.opends.infrastructure.Segment;
+import eu.opends.opendrive.processed.ODLane;
+
+/**
+ * Occupancy index of all traffic objects, rebuilt once per traffic update.
+ * Traffic objects are registered in a uniform grid over the x-z-plane (by
+ * position), by the name of their current segment and (OpenDRIVE cars) by
+ * their current lane. Hence, a traffic object looking for obstacles only has
+ * to examine the objects close to it instead of all traffic objects.
+ *
+ * After a traffic object has been updated, its entries are updated by
+ * updateObject(), hence segment and lane membership are always up to date,
+ * even for objects which changed their segment or lane earlier in the same
+ * traffic update. Grid queries are extended by a margin to cover the distance
+ * objects move during one update; callers have to perform the exact test on
+ * the returned candidates.
+ *
+ * @author agent
+ */
+public class TrafficIndex
+{
+	// distance (m) a traffic object may move between two rebuilds
+	private static final float margin = 5f;
+
+	private float cellSize;
+	private HashMap<Long, ArrayList<TrafficObject>> cellMap = new HashMap<Long, ArrayList<TrafficObject>>();
+	private HashMap<String, ArrayList<TrafficObject>> segmentMap = new HashMap<String, ArrayList<TrafficObject>>();
+	private HashMap<ODLane, ArrayList<OpenDRIVECar>> laneMap = new HashMap<ODLane, ArrayList<OpenDRIVECar>>();
+	private int openDRIVECarCount = 0;
+
+	// cell, segment and lane each traffic object is currently registered at
+	private IdentityHashMap<TrafficObject, Registration> registrationMap = new IdentityHashMap<TrafficObject, Registration>();
+
+
+	private static class Registration
+	{
+		private Long cellKey = null;
+		private String segmentName = null;
+		private ODLane lane = null;
+	}
+
+
+	public TrafficIndex(float cellSize)
+	{
+		this.cellSize = cellSize;
+	}
+
+
+	/**
+	 * Registers all given traffic objects according to their current state.
+	 *
+	 * @param trafficObjectList
+	 * 			List of all traffic objects.
+	 */
+	public synchronized void update(List<TrafficObject> trafficObjectList)
+	{
+		// re-use lists of last update; drop them if the traffic has moved to other cells
+		if(cellMap.size() > 4 * trafficObjectList.size() + 16)
+			cellMap.clear();
+		clearLists(cellMap);
+		clearLists(segmentMap);
+		clearLists(laneMap);
+		registrationMap.clear();
+		openDRIVECarCount = 0;
+
+		for(TrafficObject trafficObject : trafficObjectList)
+		{
+			Registration registration = new Registration();
+			registrationMap.put(trafficObject, registration);
+			register(trafficObject, registration);
+
+			if(trafficObject instanceof OpenDRIVECar)
+				openDRIVECarCount++;
+		}
+	}
+
+
+	/**
+	 * Moves the entries of the given traffic object to its current cell, segment
+	 * and lane. Has to be called whenever a traffic object has been updated.
+	 *
+	 * @param trafficObject
+	 * 			Traffic object which may have moved.
+	 */
+	public synchronized void updateObject(TrafficObject trafficObject)
+	{
+		Registration registration = registrationMap.get(trafficObject);
+		if(registration == null)
+			return;
+
+		Vector3f position = trafficObject.getPosition();
+		Long cellKey = (position != null) ? toKey(toCell(position.x), toCell(position.z)) : null;
+		Segment segment = trafficObject.getCurrentSegment();
+		String segmentName = (segment != null) ? segment.getName() : null;
+		ODLane lane = (trafficObject instanceof OpenDRIVECar) ? ((OpenDRIVECar) trafficObject).getCurrentLane() : null;
+
+		if(equals(cellKey, registration.cellKey) && equals(segmentName, registration.segmentName)
+				&& lane == registration.lane)
+			return;
+
+		unregister(trafficObject, registration);
+		register(trafficObject, registration);
+	}
+
+
+	private void register(TrafficObject trafficObject, Registration registration)
+	{
+		Vector3f position = trafficObject.getPosition();
+		registration.cellKey = (position != null) ? toKey(toCell(position.x), toCell(position.z)) : null;
+		if(registration.cellKey != null)
+			getList(cellMap, registration.cellKey).add(trafficObject);
+
+		Segment segment = trafficObject.getCurrentSegment();
+		registration.segmentName = (segment != null) ? segment.getName() : null;
+		if(registration.segmentName != null)
+			getList(segmentMap, registration.segmentName).add(trafficObject);
+
+		registration.lane = null;
+		if(trafficObject instanceof OpenDRIVECar)
+		{
+			OpenDRIVECar car = (OpenDRIVECar) trafficObject;
+			registration.lane = car.getCurrentLane();
+			if(registration.lane != null)
+				getList(laneMap, registration.lane).add(car);
+		}
+	}
+
+
+	private void unregister(TrafficObject trafficObject, Registration registration)
+	{
+		if(registration.cellKey != null)
+			cellMap.get(registration.cellKey).remove(trafficObject);
+
+		if(registration.segmentName != null)
+			segmentMap.get(registration.segmentName).remove(trafficObject);
+
+		if(registration.lane != null)
+			laneMap.get(registration.lane).remove(trafficObject);
+	}
+
+
+	private static boolean equals(Object object1, Object object2)
+	{
+		return (object1 == null) ? (object2 == null) : object1.equals(object2);
+	}
+
+
+	/**
+	 * Collects all traffic objects which might be located within the given
+	 * distance from the given position (measured in the x-z-plane).
+	 *
+	 * @param position
+	 * 			Center of the query.
+	 *
+	 * @param radius
+	 * 			Query distance (m).
+	 *
+	 * @param result
+	 * 			List the candidates will be added to (will be cleared first).
+	 */
+	public synchronized void getNearbyObjects(Vector3f position, float radius, List<TrafficObject> result)
+	{
+		result.clear();
+
+		float distance = radius + margin;
+		int minX = toCell(position.x - distance);
+		int maxX = toCell(position.x + distance);
+		int minZ = toCell(position.z - distance);
+		int maxZ = toCell(position.z + distance);
+
+		for(int x=minX; x<=maxX; x++)
+		{
+			for(int z=minZ; z<=maxZ; z++)
+			{
+				ArrayList<TrafficObject> cell = cellMap.get(toKey(x, z));
+				if(cell != null)
+					result.addAll(cell);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns all traffic objects which are located on the segment with the
+	 * given name.
+	 *
+	 * @param segmentName
+	 * 			Name of the segment.
+	 *
+	 * @return
+	 * 			Unmodifiable view of the traffic objects.
+	 */
+	public synchronized List<TrafficObject> getObjectsOnSegment(String segmentName)
+	{
+		ArrayList<TrafficObject> list = segmentMap.get(segmentName);
+		if(list == null)
+			return Collections.emptyList();
+
+		return Collections.unmodifiableList(list);
+	}
+
+
+	/**
+	 * Returns all OpenDRIVE cars which are located on the given lane.
+	 *
+	 * @param lane
+	 * 			OpenDRIVE lane.
+	 *
+	 * @return
+	 * 			Unmodifiable view of the OpenDRIVE cars.
+	 */
+	public synchronized List<OpenDRIVECar> getCarsOnLane(ODLane lane)
+	{
+		ArrayList<OpenDRIVECar> list = laneMap.get(lane);
+		if(list == null)
+			return Collections.emptyList();
+
+		return Collections.unmodifiableList(list);
+	}
+
+
+	public synchronized int getOpenDRIVECarCount()
+	{
+		return openDRIVECarCount;
+	}
+
+
+	private static <K, V> ArrayList<V> getList(HashMap<K, ArrayList<V>> map, K key)
+	{
+		ArrayList<V> list = map.get(key);
+		if(list == null)
+		{
+			list = new ArrayList<V>(4);
+			map.put(key, list);
+		}
+		return list;
+	}
+
+
+	private static <K, V> void clearLists(HashMap<K, ArrayList<V>> map)
+	{
+		for(ArrayList<V> list : map.values())
+			list.clear();
+	}
+
+
+	private int toCell(float coordinate)
+	{
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+
+	private static Long toKey(int x, int z)
+	{
+		return (((long) x) << 32) | (z & 0xffffffffL);
+	}
+}
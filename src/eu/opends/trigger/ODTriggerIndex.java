@@ -0,0 +1,232 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.trigger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import eu.opends.opendrive.util.ODPosition;
+
+/**
+ * Index of OpenDRIVE position triggers. Triggers are grouped by road ID and
+ * sorted by s, hence all triggers of a road within a given s-range can be
+ * found by a hash lookup and a binary search. Furthermore, the index keeps
+ * track of the last position passed to update(), so all triggers between the
+ * previous and the current position will be reported, even if the car moved
+ * further than the trigger tolerance within one frame.
+ *
+ * The index is rebuilt automatically whenever the number of entries of the
+ * underlying trigger map has changed.
+ *
+ * @author agent
+ */
+public class ODTriggerIndex
+{
+	// if s changed by more than this value (m) between two updates on the same road,
+	// the car is assumed to have been relocated and the triggers in between will be ignored
+	private static final double maxSweepDistance = 50d;
+
+	private Map<ODPosition, Trigger> triggerMap;
+	private double tolerance;
+	private HashMap<String, RoadTriggers> roadMap = new HashMap<String, RoadTriggers>();
+	private int indexedSize = -1;
+
+	private String previousRoadID = null;
+	private double previousS = 0;
+
+
+	private static class RoadTriggers
+	{
+		private double[] s;
+		private int[] lane;
+		private Trigger[] trigger;
+
+
+		private RoadTriggers(List<Entry<ODPosition, Trigger>> entryList)
+		{
+			entryList.sort(Comparator.comparingDouble(entry -> entry.getKey().getS()));
+
+			int size = entryList.size();
+			s = new double[size];
+			lane = new int[size];
+			trigger = new Trigger[size];
+
+			for(int i=0; i<size; i++)
+			{
+				Entry<ODPosition, Trigger> entry = entryList.get(i);
+				s[i] = entry.getKey().getS();
+				lane[i] = entry.getKey().getLane();
+				trigger[i] = entry.getValue();
+			}
+		}
+
+
+		// index of first element with s >= value
+		private int lowerBound(double value)
+		{
+			int low = 0;
+			int high = s.length;
+			while(low < high)
+			{
+				int mid = (low + high) >>> 1;
+				if(s[mid] < value)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
+		}
+	}
+
+
+	/**
+	 * Creates an index of the given trigger map.
+	 *
+	 * @param triggerMap
+	 * 			Map of OpenDRIVE positions and the triggers located there.
+	 *
+	 * @param tolerance
+	 * 			Maximum distance (m) in s-direction between car and trigger position.
+	 */
+	public ODTriggerIndex(Map<ODPosition, Trigger> triggerMap, double tolerance)
+	{
+		this.triggerMap = triggerMap;
+		this.tolerance = tolerance;
+	}
+
+
+	/**
+	 * Collects all triggers which have been passed since the last call of this
+	 * method. If the car is still on the same road, all triggers between the
+	 * previous and the current s (extended by the tolerance) will be reported,
+	 * otherwise only triggers within the tolerance of the current s.
+	 *
+	 * @param roadID
+	 * 			ID of the road the car is currently driving on.
+	 *
+	 * @param lane
+	 * 			ID of the lane the car is currently driving on.
+	 *
+	 * @param s
+	 * 			Current s-position of the car.
+	 *
+	 * @param result
+	 * 			List the triggers will be added to (will be cleared first).
+	 */
+	public void update(String roadID, int lane, double s, List<Trigger> result)
+	{
+		double fromS = s;
+		double toS = s;
+
+		if(roadID.equals(previousRoadID) && Math.abs(s - previousS) <= maxSweepDistance)
+		{
+			fromS = Math.min(s, previousS);
+			toS = Math.max(s, previousS);
+		}
+
+		previousRoadID = roadID;
+		previousS = s;
+
+		getTriggers(roadID, lane, fromS, toS, result);
+	}
+
+
+	/**
+	 * Forgets the position of the last update, e.g. after the car has been
+	 * relocated or left the road network.
+	 */
+	public void reset()
+	{
+		previousRoadID = null;
+	}
+
+
+	/**
+	 * Collects all triggers located on the given road and lane (or on lane 0,
+	 * i.e. any lane) with an s-position between fromS and toS (extended by the
+	 * tolerance).
+	 *
+	 * @param roadID
+	 * 			ID of the road.
+	 *
+	 * @param lane
+	 * 			ID of the lane.
+	 *
+	 * @param fromS
+	 * 			Lower bound of s.
+	 *
+	 * @param toS
+	 * 			Upper bound of s.
+	 *
+	 * @param result
+	 * 			List the triggers will be added to (will be cleared first).
+	 */
+	public void getTriggers(String roadID, int lane, double fromS, double toS, List<Trigger> result)
+	{
+		result.clear();
+
+		if(indexedSize != triggerMap.size())
+			rebuild();
+
+		RoadTriggers roadTriggers = roadMap.get(roadID);
+		if(roadTriggers == null)
+			return;
+
+		// same strict bound as |s_trigger - s_car| < tolerance
+		double minS = fromS - tolerance;
+		double maxS = toS + tolerance;
+		for(int i=roadTriggers.lowerBound(minS); i<roadTriggers.s.length && roadTriggers.s[i] < maxS; i++)
+		{
+			if(roadTriggers.s[i] > minS)
+			{
+				// either trigger when car is in given lane or when lane_trigger == 0 and car is in any lane
+				int triggerLane = roadTriggers.lane[i];
+				if(triggerLane == lane || triggerLane == 0)
+					result.add(roadTriggers.trigger[i]);
+			}
+		}
+	}
+
+
+	private void rebuild()
+	{
+		HashMap<String, List<Entry<ODPosition, Trigger>>> entryMap = new HashMap<String, List<Entry<ODPosition, Trigger>>>();
+		for(Entry<ODPosition, Trigger> entry : triggerMap.entrySet())
+		{
+			String roadID = entry.getKey().getRoadID();
+			List<Entry<ODPosition, Trigger>> entryList = entryMap.get(roadID);
+			if(entryList == null)
+			{
+				entryList = new ArrayList<Entry<ODPosition, Trigger>>();
+				entryMap.put(roadID, entryList);
+			}
+			entryList.add(entry);
+		}
+
+		roadMap.clear();
+		for(Entry<String, List<Entry<ODPosition, Trigger>>> item : entryMap.entrySet())
+			roadMap.put(item.getKey(), new RoadTriggers(item.getValue()));
+
+		indexedSize = triggerMap.size();
+	}
+}
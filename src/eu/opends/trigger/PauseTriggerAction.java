@@ -53,35 +53,22 @@ public class PauseTriggerAction extends TriggerAction
 			{
 				sim.setPause(true);
 				
+				// end pause after the given duration (elapses while paused)
 				if(duration > 0)
 				{
-					StopPauseThread st = new StopPauseThread(duration);
-					st.start();
+					SimulationBasics.getScheduler().scheduleIgnoringPause(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							sim.setPause(false);
+						}
+					}, duration);
 				}
 				
 				updateCounter();
 			}
 		}
 	}
-	
-	
-	class StopPauseThread extends Thread 
-	{
-        int duration;
-        
-        StopPauseThread(int duration) 
-        {
-            this.duration = duration;
-        }
 
-        public void run() 
-        {
-        	try {Thread.sleep(1000*duration);} 
-        	catch (InterruptedException e){}
-
-    		sim.setPause(false);
-        }
-    }
-
-	
 }
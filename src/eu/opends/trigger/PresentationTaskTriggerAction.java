@@ -20,7 +20,7 @@ package eu.opends.trigger;
 
 import eu.opends.basics.SimulationBasics;
 import eu.opends.car.Car;
-import eu.opends.hmi.HMIThread;
+import eu.opends.hmi.HMIUpdateTask;
 import eu.opends.hmi.PresentationModel;
 import eu.opends.main.Simulator;
 
@@ -58,8 +58,8 @@ public class PresentationTaskTriggerAction extends TriggerAction
 			long presentationID = presentationModel.createPresentation();
 			
 			// send permanent messages with distance to HMI GUI and screen
-			HMIThread thread = new HMIThread(sim, presentationModel, null, presentationID);
-			thread.start();
+			HMIUpdateTask updateTask = new HMIUpdateTask(sim, presentationModel, null, presentationID);
+			updateTask.start();
 			
 			updateCounter();
 		}
@@ -18,6 +18,8 @@
 
 package eu.opends.trigger;
 
+import eu.opends.basics.SimulationBasics;
+
 
 /**
  * This abstract class represents a trigger action, which will be 
@@ -49,13 +51,20 @@ public abstract class TriggerAction
 	
 	/**
 	 * Method will be called on trigger collision, await delay and perform some action.
+	 * The delay refers to the simulation time, i.e. it does not elapse while paused.
 	 */
 	public void performAction()
 	{
 		if(delay > 0)
 		{
-			TriggerActionDelayThread triggerActionDelayThread = new TriggerActionDelayThread(this, delay);
-			triggerActionDelayThread.start();
+			SimulationBasics.getScheduler().schedule(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					execute();
+				}
+			}, delay);
 		}
 		else
 			execute();
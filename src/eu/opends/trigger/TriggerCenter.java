@@ -44,7 +44,6 @@ import eu.opends.car.Car;
 import eu.opends.car.SteeringCar;
 import eu.opends.environment.TrafficLightCenter.TriggerType;
 import eu.opends.main.Simulator;
-import eu.opends.opendrive.util.ODPosition;
 import eu.opends.tools.Util;
 import eu.opends.tools.Vector3d;
 
@@ -58,12 +57,20 @@ public class TriggerCenter
 {
 	private Simulator sim;
 
-	private String triggerName;
-
 	private static Map<String,Spatial> trafficLightTriggerList, trafficLightPhaseTriggerList;
 
 	private LinkedList<Spatial> roadObjectsTriggerList;
 	public static ArrayList<String> triggerReportList = new ArrayList<String>(5);
+	
+	// time (s) a hit trigger cannot be triggered again
+	private static final float reportListDelay = 2;
+	
+	// spatial index of the road object triggers (cell size: 25 meters)
+	private TriggerGrid roadObjectsTriggerGrid = new TriggerGrid(25f);
+	private ArrayList<Spatial> candidateTriggerList = new ArrayList<Spatial>();
+	private ODTriggerIndex odTriggerIndex = new ODTriggerIndex(SimulationBasics.getODTriggerActionListMap(), 0.5d);
+	private ArrayList<Trigger> odTriggerList = new ArrayList<Trigger>();
+	private CollisionResults collisionResults = new CollisionResults();
 
 	
 	public static void addToTrafficLightTriggerList(String trafficLightName, Spatial trafficLightTriggerObject)
@@ -108,6 +115,7 @@ public class TriggerCenter
 			if (SimulationBasics.getTriggerActionListMap().containsKey(tempSpatialName))
 			{
 				roadObjectsTriggerList.add(tempSpatial);
+				roadObjectsTriggerGrid.add(tempSpatial);
 			}
 		}
 	}
@@ -117,7 +125,7 @@ public class TriggerCenter
 	{
 		handleTrafficLightCollision(trafficLightTriggerList);
 		handleTrafficLightPhaseCollision(trafficLightPhaseTriggerList);
-		handleRoadObjectsCollision(roadObjectsTriggerList);
+		handleRoadObjectsCollision(roadObjectsTriggerGrid);
 		//computeContactWithCar();
 	}
 
@@ -136,10 +144,8 @@ public class TriggerCenter
 	{
 		for (Entry<String, Spatial> trigger : triggerList.entrySet())
 		{
-			triggerName = trigger.getValue().getName();
-			
 			// calculate intersection of the car with a road object trigger
-			Spatial triggerObject = sim.getTriggerNode().getChild(triggerName);		
+			Spatial triggerObject = trigger.getValue();
 			
 			if(sim.getCar().getCarNode().getWorldBound().intersects(triggerObject.getWorldBound())) 
 			{
@@ -164,10 +170,8 @@ public class TriggerCenter
 	{
 		for (Entry<String, Spatial> trigger : triggerList.entrySet())
 		{
-			triggerName = trigger.getValue().getName();
-			
 			// calculate intersection of the car with a road object trigger
-			Spatial triggerObject = sim.getTriggerNode().getChild(triggerName);
+			Spatial triggerObject = trigger.getValue();
 			
 			if(sim.getCar().getCarNode().getWorldBound().intersects(triggerObject.getWorldBound())) 
 			{
@@ -182,59 +186,47 @@ public class TriggerCenter
 	 * SpeedLimitTrigger, CautionSignTrigger or BlindTrigger. A collision will be forwarded 
 	 * to the HMI center.
 	 * 
-	 * @param triggerList
-	 * 			list of all road object triggers in order to monitor approximation 
+	 * @param triggerGrid
+	 * 			spatial index of all road object triggers in order to monitor approximation 
 	 * 			to such an object
 	 */
-	private void handleRoadObjectsCollision(LinkedList<Spatial> triggerList)
+	private void handleRoadObjectsCollision(TriggerGrid triggerGrid)
 	{
 		SteeringCar car = sim.getCar();
 
-		for (Spatial trigger : triggerList) 
+		// only triggers located in the grid cells touched by the car need to be checked
+		triggerGrid.query(car.getCarNode().getWorldBound(), candidateTriggerList);
+		
+		for (Spatial triggerObject : candidateTriggerList) 
 		{	
-			// TODO: caution! trigger center may be farther away than 1000 meters when hitting
-			if(trigger.getWorldTranslation().distance(car.getCarNode().getWorldTranslation()) < 1000)
-			{
-				String triggerName = trigger.getName();
-					
-				// calculate collision of the car with a road object trigger
-
-				Spatial triggerObject = sim.getTriggerNode().getChild(triggerName);
+			String triggerName = triggerObject.getName();
 				
-				// if car intersects with a trigger --> report trigger to HMI Center
-				CollisionResults results = new CollisionResults();
-				car.getCarNode().collideWith(triggerObject.getWorldBound(), results);
-				if (results.size() > 0)				
-				//if(car.getCarNode().getWorldBound().intersects(triggerObject.getWorldBound()))
-				{
-					if(SimulationBasics.getTriggerActionListMap().containsKey(triggerName))
-						TriggerCenter.performTriggerAction(triggerName);
-				}
+			// calculate collision of the car with a road object trigger
+			// if car intersects with a trigger --> report trigger to HMI Center
+			collisionResults.clear();
+			car.getCarNode().collideWith(triggerObject.getWorldBound(), collisionResults);
+			if (collisionResults.size() > 0)				
+			//if(car.getCarNode().getWorldBound().intersects(triggerObject.getWorldBound()))
+			{
+				if(SimulationBasics.getTriggerActionListMap().containsKey(triggerName))
+					TriggerCenter.performTriggerAction(triggerName);
 			}
 		}
 		
 
-		for(Entry<ODPosition, Trigger> item : SimulationBasics.getODTriggerActionListMap().entrySet())
+		if(car.getCurrentLane() != null && car.getCurrentLane().getODRoad() != null)
 		{
-			ODPosition openDrivePos = item.getKey();
-			Trigger trigger = item.getValue();
+			String roadID_car = car.getCurrentLane().getODRoad().getID();
+			int lane_car = car.getCurrentLane().getID();
+			double s_car = car.getCurrentS();
 			
-			String roadID_trigger = openDrivePos.getRoadID();
-			int lane_trigger = openDrivePos.getLane();
-			double s_trigger = openDrivePos.getS();
-			
-			if(car.getCurrentLane() != null && car.getCurrentLane().getODRoad() != null)
-			{
-				String roadID_car = car.getCurrentLane().getODRoad().getID();
-				int lane_car = car.getCurrentLane().getID();
-				double s_car = car.getCurrentS();
-				
-				if(roadID_trigger.equals(roadID_car) && (Math.abs(s_trigger-s_car) < 0.5d))
-					// either trigger when car is in given lane or when lane_trigger == 0 and car is in any lane 
-					if(lane_trigger == lane_car || lane_trigger == 0)
-						TriggerCenter.performTrigger(trigger);
-			}
+			// all OpenDRIVE triggers passed since the last frame
+			odTriggerIndex.update(roadID_car, lane_car, s_car, odTriggerList);
+			for(int i=0; i<odTriggerList.size(); i++)
+				TriggerCenter.performTrigger(odTriggerList.get(i));
 		}
+		else
+			odTriggerIndex.reset();
 	}
 
 
@@ -362,21 +354,14 @@ public class TriggerCenter
 			// add trigger to report list
 			triggerReportList.add(triggerID);
 			
-			// remove trigger from report list after 2 seconds
-			int seconds = 2;
-		
 			List<TriggerAction> triggerActionList = SimulationBasics.getTriggerActionListMap().get(triggerID);
 			for(TriggerAction triggerAction : triggerActionList)
 			{
 				triggerAction.performAction();
-				
-				// extend two seconds by time of pause duration, if pause trigger was contained in list
-				if(triggerAction instanceof PauseTriggerAction)
-					seconds += ((PauseTriggerAction)triggerAction).getDuration();
 			}
 			
-			RemoveFromReportListThread removeThread = new RemoveFromReportListThread(triggerID, seconds);
-			removeThread.start();
+			// remove trigger from report list after 2 seconds
+			removeTriggerReportDelayed(triggerID);
 		}
 	}
 	
@@ -391,21 +376,14 @@ public class TriggerCenter
 			// add trigger to report list
 			triggerReportList.add(triggerID);
 			
-			// remove trigger from report list after 2 seconds
-			int seconds = 2;
-		
 			List<TriggerAction> triggerActionList = trigger.getTriggerActionList();
 			for(TriggerAction triggerAction : triggerActionList)
 			{
 				triggerAction.performAction();
-				
-				// extend two seconds by time of pause duration, if pause trigger was contained in list
-				if(triggerAction instanceof PauseTriggerAction)
-					seconds += ((PauseTriggerAction)triggerAction).getDuration();
 			}
 			
-			RemoveFromReportListThread removeThread = new RemoveFromReportListThread(triggerID, seconds);
-			removeThread.start();
+			// remove trigger from report list after 2 seconds
+			removeTriggerReportDelayed(triggerID);
 		}
 	}
 	
@@ -471,5 +449,27 @@ public class TriggerCenter
 		if(!triggerReportList.remove(objectID))
 			System.err.println("Could not remove '" + objectID + "' from trigger report list!");
 	}
+	
+	
+	/**
+	 * Removes the given trigger from the trigger report list after the given 
+	 * amount of simulation time. As long as a trigger is contained in the 
+	 * report list it cannot be triggered again. The delay does not elapse 
+	 * while the simulation is paused (e.g. by a pause trigger action).
+	 * 
+	 * @param triggerID
+	 * 			ID of the trigger to be removed.
+	 */
+	private static void removeTriggerReportDelayed(final String triggerID)
+	{
+		SimulationBasics.getScheduler().schedule(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				removeTriggerReport(triggerID);
+			}
+		}, reportListDelay);
+	}
 
 }
@@ -0,0 +1,220 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.trigger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.scene.Spatial;
+
+/**
+ * Uniform grid over the x-z-plane which contains the world bounds of static
+ * trigger spatials. Each trigger is registered in all cells its bound overlaps,
+ * hence a query only has to consider the triggers of the cells overlapped by
+ * the query bound instead of all triggers in the scene.
+ *
+ * @author agent
+ */
+public class TriggerGrid
+{
+	// triggers overlapping more cells than this will be tested in every query
+	private static final int maxCellsPerTrigger = 64;
+
+	private float cellSize;
+	private HashMap<Long, ArrayList<Integer>> cellMap = new HashMap<Long, ArrayList<Integer>>();
+	private ArrayList<Spatial> triggerList = new ArrayList<Spatial>();
+	private ArrayList<Integer> largeTriggerList = new ArrayList<Integer>();
+
+	// marks triggers already added to the result of the current query
+	private int[] queryStamp = new int[0];
+	private int currentQuery = 0;
+
+	private float[] extent = new float[4];
+
+
+	public TriggerGrid(float cellSize)
+	{
+		this.cellSize = cellSize;
+	}
+
+
+	/**
+	 * Adds the given trigger according to its current world bound. Triggers
+	 * are expected not to move after they have been added.
+	 *
+	 * @param trigger
+	 * 			Trigger spatial to add.
+	 */
+	public void add(Spatial trigger)
+	{
+		int index = triggerList.size();
+		triggerList.add(trigger);
+
+		if(!computeExtent(trigger.getWorldBound()))
+		{
+			// no (finite) bound available
+			largeTriggerList.add(index);
+			return;
+		}
+
+		int minX = toCell(extent[0]);
+		int minZ = toCell(extent[1]);
+		int maxX = toCell(extent[2]);
+		int maxZ = toCell(extent[3]);
+
+		if((long)(maxX - minX + 1) * (maxZ - minZ + 1) > maxCellsPerTrigger)
+		{
+			largeTriggerList.add(index);
+			return;
+		}
+
+		for(int x=minX; x<=maxX; x++)
+		{
+			for(int z=minZ; z<=maxZ; z++)
+			{
+				Long key = toKey(x, z);
+				ArrayList<Integer> cell = cellMap.get(key);
+				if(cell == null)
+				{
+					cell = new ArrayList<Integer>(4);
+					cellMap.put(key, cell);
+				}
+				cell.add(index);
+			}
+		}
+	}
+
+
+	/**
+	 * Collects all triggers which are registered in a cell overlapped by the
+	 * given bound. The result may contain triggers that do not intersect the
+	 * bound; exact tests have to be done by the caller.
+	 *
+	 * @param bound
+	 * 			Query bound (e.g. world bound of the car).
+	 *
+	 * @param result
+	 * 			List the candidates will be added to (will be cleared first).
+	 */
+	public void query(BoundingVolume bound, List<Spatial> result)
+	{
+		result.clear();
+		currentQuery++;
+
+		if(queryStamp.length != triggerList.size())
+			queryStamp = new int[triggerList.size()];
+
+		if(!computeExtent(bound))
+		{
+			// query bound unknown --> all triggers are candidates
+			result.addAll(triggerList);
+			return;
+		}
+
+		int minX = toCell(extent[0]);
+		int minZ = toCell(extent[1]);
+		int maxX = toCell(extent[2]);
+		int maxZ = toCell(extent[3]);
+
+		if((long)(maxX - minX + 1) * (maxZ - minZ + 1) > cellMap.size())
+		{
+			// query bound covers more cells than exist --> all triggers are candidates
+			result.addAll(triggerList);
+			return;
+		}
+
+		for(Integer index : largeTriggerList)
+			addCandidate(index, result);
+
+		for(int x=minX; x<=maxX; x++)
+		{
+			for(int z=minZ; z<=maxZ; z++)
+			{
+				ArrayList<Integer> cell = cellMap.get(toKey(x, z));
+				if(cell != null)
+				{
+					for(int i=0; i<cell.size(); i++)
+						addCandidate(cell.get(i), result);
+				}
+			}
+		}
+	}
+
+
+	private void addCandidate(int index, List<Spatial> result)
+	{
+		if(queryStamp[index] != currentQuery)
+		{
+			queryStamp[index] = currentQuery;
+			result.add(triggerList.get(index));
+		}
+	}
+
+
+	public int size()
+	{
+		return triggerList.size();
+	}
+
+
+	private boolean computeExtent(BoundingVolume bound)
+	{
+		float extentX, extentZ;
+
+		if(bound instanceof BoundingBox)
+		{
+			extentX = ((BoundingBox) bound).getXExtent();
+			extentZ = ((BoundingBox) bound).getZExtent();
+		}
+		else if(bound instanceof BoundingSphere)
+		{
+			extentX = extentZ = ((BoundingSphere) bound).getRadius();
+		}
+		else
+			return false;
+
+		float centerX = bound.getCenter().x;
+		float centerZ = bound.getCenter().z;
+
+		if(Float.isInfinite(extentX) || Float.isInfinite(extentZ) || Float.isNaN(centerX) || Float.isNaN(centerZ))
+			return false;
+
+		extent[0] = centerX - extentX;
+		extent[1] = centerZ - extentZ;
+		extent[2] = centerX + extentX;
+		extent[3] = centerZ + extentZ;
+		return true;
+	}
+
+
+	private int toCell(float coordinate)
+	{
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+
+	private static Long toKey(int x, int z)
+	{
+		return (((long) x) << 32) | (z & 0xffffffffL);
+	}
+}
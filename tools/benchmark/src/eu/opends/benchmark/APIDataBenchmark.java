@@ -0,0 +1,117 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.opends.main.BatchRunner;
+import eu.opends.main.Simulator;
+import eu.opends.settingsController.APIData;
+
+/**
+ * Benchmark of the serialization of all subscribed API variables (sent to
+ * every settings controller client each update interval).
+ *
+ * APIData reads the state of the ego car, hence the complete simulator is
+ * started headless in batch mode (see BatchRunner). Once the driving task
+ * has been initialized, the jME loop is blocked by a queued task until the
+ * end of the trial, so the car state does not change while measuring.
+ * Since the blocked loop keeps the forked JVM alive, the shutdown timeout
+ * of JMH is reduced.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djmh.shutdownTimeout=1"})
+public class APIDataBenchmark
+{
+	// time (s) to wait for the driving task to be initialized
+	private static final int initTimeout = 180;
+
+	@Param({"assets/DrivingTasks/Projects/init_drive/init_drive.xml"})
+	public String drivingTask;
+
+	private APIData apiData;
+	private CountDownLatch pausedLatch = new CountDownLatch(1);
+	private CountDownLatch blockingLatch = new CountDownLatch(1);
+	private StringBuilder builder = new StringBuilder();
+
+
+	@Setup(Level.Trial)
+	public void setup() throws InterruptedException
+	{
+		BatchRunner runner = new BatchRunner(BatchRunner.defaultStepSize, 0, false, "benchmark");
+		final Simulator sim = Simulator.runBatch(runner, drivingTask, "benchmark");
+
+		// queued tasks are executed by the jME loop after the initialization; the loop
+		// is not released again since stopping the batch mode would terminate the JVM
+		sim.enqueue(() -> {
+			sim.setPause(true);
+			pausedLatch.countDown();
+			blockingLatch.await();
+			return null;
+		});
+
+		if(!pausedLatch.await(initTimeout, TimeUnit.SECONDS))
+			throw new IllegalStateException("APIDataBenchmark: initialization of '" + drivingTask + "' timed out");
+
+		apiData = new APIData(sim.getCar());
+	}
+
+
+	@Benchmark
+	public String getAllSubscribedValues()
+	{
+		return apiData.getAllSubscribedValues(false);
+	}
+
+
+	@Benchmark
+	public String getAllSubscribedNames()
+	{
+		return apiData.getAllSubscribedValues(true);
+	}
+
+
+	@Benchmark
+	public int writeAllSubscribedValuesJSON()
+	{
+		builder.setLength(0);
+		apiData.writeAllSubscribedValues(builder, false, true);
+		return builder.length();
+	}
+}
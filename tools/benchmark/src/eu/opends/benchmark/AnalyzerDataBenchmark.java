@@ -0,0 +1,166 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jme3.math.Vector3f;
+
+import eu.opends.analyzer.DataReader;
+import eu.opends.analyzer.DataWriter;
+import eu.opends.analyzer.DataWriter.RecordingFormat;
+import eu.opends.analyzer.SampleRingBuffer.BackpressureMode;
+
+/**
+ * Benchmarks of recording (DataWriter: buffering the samples and flushing
+ * them to file) and loading (DataReader.loadDriveData()) of analyzer data
+ * in both recording formats. The recordings are synthetic drives along a
+ * circle written to a temporary folder.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerDataBenchmark
+{
+	private static final String drivingTaskPath = "assets/DrivingTasks/Projects/init_drive/init_drive.xml";
+
+	@Param({"TEXT", "BINARY"})
+	public RecordingFormat format;
+
+	// number of samples per recording (20 Hz --> 10 minutes)
+	@Param({"12000"})
+	public int samples;
+
+	private File tempFolder;
+	private File writeFolder;
+	private String recordingPath;
+	private Vector3f frontPosition = new Vector3f();
+	private Date date = new Date();
+
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		tempFolder = Files.createTempDirectory("opends_benchmark").toFile();
+		writeFolder = new File(tempFolder, "write");
+
+		// recording to be loaded by the reader benchmark
+		File readFolder = new File(tempFolder, "read");
+		record(readFolder.getPath());
+		recordingPath = readFolder.listFiles()[0].getPath();
+	}
+
+
+	@TearDown(Level.Invocation)
+	public void deleteRecording()
+	{
+		deleteFolder(writeFolder);
+	}
+
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		deleteFolder(tempFolder);
+	}
+
+
+	/**
+	 * Passes all samples to a new DataWriter and waits until they have been
+	 * flushed to file (DataWriter.quit()).
+	 */
+	@Benchmark
+	public void writeAndFlush()
+	{
+		record(writeFolder.getPath());
+	}
+
+
+	@Benchmark
+	public DataReader loadDriveData()
+	{
+		DataReader dataReader = new DataReader();
+		if(!dataReader.initReader(recordingPath, false) || !dataReader.loadDriveData())
+			throw new IllegalStateException("AnalyzerDataBenchmark: could not load '" + recordingPath + "'");
+
+		return dataReader;
+	}
+
+
+	private void record(String folder)
+	{
+		DataWriter dataWriter = new DataWriter(folder, null, "benchmark", drivingTaskPath, null, -1,
+				format, false, 1024, BackpressureMode.BLOCK);
+
+		long startTime = 1600000000000L;
+		for(int i=0; i<samples; i++)
+		{
+			float angle = i * 0.001f;
+			float x = 500 * (float) Math.cos(angle);
+			float z = 500 * (float) Math.sin(angle);
+			frontPosition.set(x + 15 * (float) -Math.sin(angle), 0, z + 15 * (float) Math.cos(angle));
+			date.setTime(startTime + 50L * i);
+
+			dataWriter.write(date, x, 0.5f, z, 0, (float) Math.sin(angle / 2), 0, (float) Math.cos(angle / 2),
+					50f + (i % 100) / 10f, (i % 200 - 100) / 100f, (i % 50) / 50f, 0, true, frontPosition, "[]");
+		}
+
+		dataWriter.quit();
+	}
+
+
+	private static void deleteFolder(File folder)
+	{
+		File[] files = folder.listFiles();
+		if(files != null)
+		{
+			for(File file : files)
+			{
+				if(file.isDirectory())
+					deleteFolder(file);
+				else
+					file.delete();
+			}
+		}
+		folder.delete();
+	}
+}
@@ -0,0 +1,227 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.benchmark;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares two JMH result files (JSON, "-rf json") and reports every
+ * benchmark whose score got worse by more than the given threshold. For
+ * time based modes (avgt, sample, ss) a higher score is worse, for
+ * throughput (thrpt) a lower score. Changes within the error margins of both
+ * measurements are not considered as regressions.
+ *
+ * Usage: BenchmarkComparator baseline.json current.json [thresholdPercent]
+ *
+ * Exit value: 0 if no regression has been found, 1 otherwise (e.g. to stop
+ * the Ant build before a new build is rolled out to the lab).
+ *
+ * @author agent
+ */
+public class BenchmarkComparator
+{
+	private static final float defaultThreshold = 10f;
+
+
+	private static class Result
+	{
+		private String mode;
+		private double score;
+		private double error;
+		private String unit;
+	}
+
+
+	/**
+	 * Reads all results of a JMH result file. The key of each result consists
+	 * of the benchmark name and its parameters.
+	 */
+	private static Map<String, Result> readResults(String fileName) throws IOException
+	{
+		Map<String, Result> resultMap = new LinkedHashMap<String, Result>();
+
+		try (Reader reader = new FileReader(fileName)) {
+
+			JsonArray array = new JsonParser().parse(reader).getAsJsonArray();
+			for(JsonElement element : array)
+			{
+				JsonObject benchmark = element.getAsJsonObject();
+				JsonObject primaryMetric = benchmark.getAsJsonObject("primaryMetric");
+
+				Result result = new Result();
+				result.mode = benchmark.get("mode").getAsString();
+				result.score = primaryMetric.get("score").getAsDouble();
+				result.error = getDouble(primaryMetric, "scoreError");
+				result.unit = primaryMetric.get("scoreUnit").getAsString();
+
+				resultMap.put(getKey(benchmark), result);
+			}
+		}
+
+		return resultMap;
+	}
+
+
+	private static String getKey(JsonObject benchmark)
+	{
+		StringBuilder key = new StringBuilder(benchmark.get("benchmark").getAsString());
+
+		if(benchmark.has("params"))
+		{
+			// sorted by name to get the same key in every run
+			TreeMap<String, String> paramMap = new TreeMap<String, String>();
+			for(Entry<String, JsonElement> param : benchmark.getAsJsonObject("params").entrySet())
+				paramMap.put(param.getKey(), param.getValue().getAsString());
+
+			for(Entry<String, String> param : paramMap.entrySet())
+				key.append(' ').append(param.getKey()).append('=').append(param.getValue());
+		}
+
+		return key.toString();
+	}
+
+
+	private static double getDouble(JsonObject object, String member)
+	{
+		JsonElement element = object.get(member);
+		if(element == null || element.isJsonNull())
+			return 0;
+
+		try {
+			return element.getAsDouble();
+		} catch (NumberFormatException e) {
+			// "NaN" if the error could not be computed (e.g. single iteration)
+			return 0;
+		}
+	}
+
+
+	/**
+	 * Compares the given results.
+	 *
+	 * @return
+	 * 			List of regressions (empty if none).
+	 */
+	private static ArrayList<String> compare(Map<String, Result> baselineMap, Map<String, Result> currentMap,
+			float threshold)
+	{
+		ArrayList<String> regressionList = new ArrayList<String>();
+
+		System.out.println(String.format("%-90s %12s %12s %8s", "benchmark", "baseline", "current", "change"));
+
+		for(Entry<String, Result> entry : currentMap.entrySet())
+		{
+			String key = entry.getKey();
+			Result current = entry.getValue();
+			Result baseline = baselineMap.get(key);
+
+			if(baseline == null)
+			{
+				System.out.println(String.format("%-90s %12s %12.3f %8s", key, "-", current.score, "new"));
+				continue;
+			}
+
+			if(!baseline.mode.equals(current.mode) || !baseline.unit.equals(current.unit))
+			{
+				System.out.println(String.format("%-90s %12s %12s %8s", key, baseline.unit, current.unit,
+						"skipped"));
+				continue;
+			}
+
+			boolean higherIsBetter = current.mode.equals("thrpt");
+			double change = (baseline.score != 0) ? (current.score - baseline.score) / baseline.score * 100 : 0;
+			double degradation = higherIsBetter ? -change : change;
+			double difference = Math.abs(current.score - baseline.score);
+			boolean significant = difference > baseline.error + current.error;
+
+			String marker = "";
+			if(degradation > threshold && significant)
+			{
+				marker = "  <-- REGRESSION";
+				regressionList.add(key);
+			}
+
+			System.out.println(String.format("%-90s %12.3f %12.3f %+7.1f%%%s", key, baseline.score,
+					current.score, change, marker));
+		}
+
+		for(String key : baselineMap.keySet())
+			if(!currentMap.containsKey(key))
+				System.out.println(String.format("%-90s %12.3f %12s %8s", key, baselineMap.get(key).score, "-",
+						"missing"));
+
+		return regressionList;
+	}
+
+
+	public static void main(String[] args)
+	{
+		if(args.length < 2)
+		{
+			System.err.println("Usage: BenchmarkComparator baseline.json current.json [thresholdPercent]");
+			System.exit(2);
+		}
+
+		float threshold = defaultThreshold;
+		if(args.length > 2)
+		{
+			try {
+				threshold = Float.parseFloat(args[2]);
+			} catch (NumberFormatException e) {
+				System.err.println("BenchmarkComparator: invalid threshold '" + args[2] + "'. Using "
+						+ defaultThreshold + "% instead.");
+			}
+		}
+
+		try {
+
+			Map<String, Result> baselineMap = readResults(args[0]);
+			Map<String, Result> currentMap = readResults(args[1]);
+
+			ArrayList<String> regressionList = compare(baselineMap, currentMap, threshold);
+
+			if(!regressionList.isEmpty())
+			{
+				System.err.println(regressionList.size() + " benchmark(s) regressed by more than " + threshold
+						+ "% compared to " + args[0]);
+				System.exit(1);
+			}
+
+			System.out.println("No regression (threshold: " + threshold + "%)");
+
+		} catch (Exception e) {
+
+			System.err.println("BenchmarkComparator: could not compare '" + args[0] + "' and '" + args[1]
+					+ "': " + e.getMessage());
+			System.exit(2);
+		}
+	}
+}
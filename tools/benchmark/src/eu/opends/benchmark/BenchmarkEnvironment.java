@@ -0,0 +1,180 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.benchmark;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.scene.Node;
+import com.jme3.system.AppSettings;
+import com.jme3.system.JmeContext.Type;
+
+import eu.opends.basics.MyBulletAppState;
+import eu.opends.basics.SimulationBasics;
+import eu.opends.drivingTask.DrivingTask;
+import eu.opends.opendrive.OpenDriveCenter;
+
+/**
+ * Minimal headless application loading a driving task and its OpenDRIVE
+ * road network (no cars, traffic or GUI). The jME loop is stopped
+ * as soon as the road network has been built, hence the benchmarks can
+ * query the processed roads without any concurrent updates.
+ *
+ * Each JMH fork runs in a separate JVM, so the static state of
+ * SimulationBasics is only initialized once per fork.
+ *
+ * @author agent
+ */
+public class BenchmarkEnvironment extends SimulationBasics
+{
+	// time (s) to wait for the driving task to be loaded
+	private static final int loadTimeout = 120;
+
+	private static BenchmarkEnvironment instance = null;
+
+	private String drivingTaskPath;
+	private CountDownLatch initLatch = new CountDownLatch(1);
+	private Throwable error = null;
+
+
+	private BenchmarkEnvironment(String drivingTaskPath)
+	{
+		this.drivingTaskPath = drivingTaskPath;
+	}
+
+
+	/**
+	 * Loads the given driving task (once per JVM) and returns the environment.
+	 *
+	 * @param drivingTaskPath
+	 * 			Path of the driving task file.
+	 *
+	 * @return
+	 * 			Environment containing the processed OpenDRIVE roads.
+	 *
+	 * @throws IllegalStateException
+	 * 			if the driving task could not be loaded.
+	 */
+	public static synchronized BenchmarkEnvironment load(String drivingTaskPath)
+	{
+		if(instance != null)
+		{
+			if(!instance.drivingTaskPath.equals(drivingTaskPath))
+				throw new IllegalStateException("BenchmarkEnvironment: '" + instance.drivingTaskPath
+						+ "' has already been loaded in this JVM");
+
+			return instance;
+		}
+
+		java.util.logging.Logger.getLogger("").setLevel(java.util.logging.Level.SEVERE);
+
+		BenchmarkEnvironment environment = new BenchmarkEnvironment(drivingTaskPath);
+		environment.setSettings(new AppSettings(true));
+		environment.setShowSettings(false);
+		environment.setPauseOnLostFocus(false);
+		environment.start(Type.Headless);
+
+		try {
+
+			if(!environment.initLatch.await(loadTimeout, TimeUnit.SECONDS))
+				throw new IllegalStateException("BenchmarkEnvironment: loading '" + drivingTaskPath
+						+ "' timed out");
+
+		} catch (InterruptedException e) {
+
+			throw new IllegalStateException("BenchmarkEnvironment: interrupted while loading '"
+						+ drivingTaskPath + "'");
+		}
+
+		if(environment.error != null)
+			throw new IllegalStateException("BenchmarkEnvironment: could not load '" + drivingTaskPath
+					+ "'", environment.error);
+
+		instance = environment;
+		return instance;
+	}
+
+
+	@Override
+	public void simpleInitApp()
+	{
+		try {
+
+			assetManager.registerLocator("assets", FileLocator.class);
+
+			sceneNode = new Node("sceneNode");
+			rootNode.attachChild(sceneNode);
+
+			triggerNode = new Node("triggerNode");
+			sceneNode.attachChild(triggerNode);
+
+			openDriveNode = new Node("openDriveNode");
+			sceneNode.attachChild(openDriveNode);
+
+			mapNode = new Node("mapNode");
+			rootNode.attachChild(mapNode);
+
+			drivingTask = new DrivingTask(this, new File(drivingTaskPath));
+			sceneLoader = drivingTask.getSceneLoader();
+			scenarioLoader = drivingTask.getScenarioLoader();
+			interactionLoader = drivingTask.getInteractionLoader();
+			settingsLoader = drivingTask.getSettingsLoader();
+
+			// lane geometries are added to the physics space
+			bulletAppState = new MyBulletAppState();
+			stateManager.attach(bulletAppState);
+
+			openDriveCenter = new OpenDriveCenter(this);
+			String openDrivePath = drivingTask.getOpenDrivePath();
+			if(openDrivePath == null)
+				throw new IllegalStateException("driving task does not contain an OpenDRIVE file");
+			openDriveCenter.processOpenDrive(openDrivePath);
+
+			if(openDriveCenter.getRoadMap().isEmpty())
+				throw new IllegalStateException("no OpenDRIVE roads found in '" + openDrivePath + "'");
+
+		} catch (Throwable t) {
+
+			error = t;
+		}
+
+		// the road network is complete --> no further frames needed
+		stop();
+		initLatch.countDown();
+	}
+
+
+	@Override
+	public void simpleUpdate(float tpf)
+	{
+	}
+
+
+	@Override
+	public void handleError(String errMsg, Throwable t)
+	{
+		if(error == null)
+			error = (t != null) ? t : new IllegalStateException(errMsg);
+
+		initLatch.countDown();
+		stop();
+	}
+}
@@ -0,0 +1,212 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.opends.opendrive.data.ELaneType;
+import eu.opends.opendrive.processed.ODLane;
+import eu.opends.opendrive.processed.ODLaneSection;
+import eu.opends.opendrive.processed.ODPoint;
+import eu.opends.opendrive.processed.ODRoad;
+import eu.opends.opendrive.processed.PreferredConnections;
+import eu.opends.opendrive.roadGraph.RoadGraph;
+import eu.opends.opendrive.util.ODPosition;
+import eu.opends.tools.Vector3d;
+
+/**
+ * Benchmarks of the OpenDRIVE queries executed every frame for the ego car
+ * and every OpenDRIVE traffic car: nearest point on the reference line,
+ * speed limits and intersections ahead, and routing on the road graph.
+ *
+ * Query positions are derived from the reference points of all roads of
+ * the given driving task (with a fixed random seed), hence the benchmarks
+ * can be run against any driving task containing an OpenDRIVE file.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenDriveBenchmark
+{
+	// number of precomputed queries (cycled through by the benchmarks)
+	private static final int queryCount = 1024;
+
+	// maximum lateral offset (m) of the query positions from the reference line
+	private static final double maxOffset = 5;
+	@Param({"assets/DrivingTasks/Projects/init_drive/init_drive.xml"})
+	public String drivingTask;
+
+	private HashMap<String, ODRoad> roadMap;
+	private RoadGraph roadGraph;
+
+	private ODRoad[] queryRoads = new ODRoad[queryCount];
+	private Vector3d[] queryPositions = new Vector3d[queryCount];
+	private double[] queryS = new double[queryCount];
+	private ODLane[] queryLanes = new ODLane[queryCount];
+	private double[] queryLaneS = new double[queryCount];
+	private ODPosition[] routeStarts = new ODPosition[queryCount];
+	private ODPosition[] routeTargets = new ODPosition[queryCount];
+	private int index = 0;
+
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		BenchmarkEnvironment environment = BenchmarkEnvironment.load(drivingTask);
+		roadMap = environment.getOpenDriveCenter().getRoadMap();
+		roadGraph = environment.getOpenDriveCenter().getRoadGraph();
+
+		ArrayList<ODPoint> pointList = new ArrayList<ODPoint>();
+		ArrayList<ODRoad> pointRoadList = new ArrayList<ODRoad>();
+		ArrayList<ODLane> laneList = new ArrayList<ODLane>();
+		for(ODRoad road : roadMap.values())
+		{
+			for(ODPoint point : road.getRoadReferencePointlist())
+			{
+				pointList.add(point);
+				pointRoadList.add(road);
+			}
+
+			for(ODLaneSection laneSection : road.getLaneSectionList())
+				for(ODLane lane : laneSection.getLaneMap().values())
+					if(lane.getType() == ELaneType.DRIVING && lane.getID() != 0)
+						laneList.add(lane);
+		}
+
+		if(pointList.isEmpty() || laneList.isEmpty())
+			throw new IllegalStateException("OpenDriveBenchmark: no driving lanes found in '" + drivingTask + "'");
+
+		Random random = new Random(42);
+		for(int i=0; i<queryCount; i++)
+		{
+			int pointIndex = random.nextInt(pointList.size());
+			ODPoint point = pointList.get(pointIndex);
+			double offset = (2 * random.nextDouble() - 1) * maxOffset;
+			double ortho = point.getOrtho();
+			Vector3d position = point.getPosition();
+			queryRoads[i] = pointRoadList.get(pointIndex);
+			queryPositions[i] = new Vector3d(position.x + offset * Math.sin(ortho), position.y,
+					position.z + offset * Math.cos(ortho));
+			queryS[i] = point.getS();
+
+			ODLane lane = laneList.get(random.nextInt(laneList.size()));
+			queryLanes[i] = lane;
+			queryLaneS[i] = lane.getStartS() + random.nextDouble() * (lane.getEndS() - lane.getStartS());
+
+			routeStarts[i] = getCenterPosition(laneList.get(random.nextInt(laneList.size())));
+			routeTargets[i] = getCenterPosition(laneList.get(random.nextInt(laneList.size())));
+		}
+	}
+
+
+	private static ODPosition getCenterPosition(ODLane lane)
+	{
+		return new ODPosition(lane.getODRoad().getID(), lane.getID(), (lane.getStartS() + lane.getEndS()) / 2);
+	}
+
+
+	private int nextIndex()
+	{
+		index = (index + 1) % queryCount;
+		return index;
+	}
+
+
+	/**
+	 * Nearest point query starting at the s of the expected result (as done
+	 * by vehicles tracking their position).
+	 */
+	@Benchmark
+	public ODPoint nearestPointTracked()
+	{
+		int i = nextIndex();
+		return queryRoads[i].getNearestPointOnReferenceLine(queryPositions[i], queryS[i]);
+	}
+
+
+	/**
+	 * Nearest point query at random positions (hint of the previous query is
+	 * unrelated, e.g. after a reset or on first contact with a road).
+	 */
+	@Benchmark
+	public ODPoint nearestPointRandom()
+	{
+		int i = nextIndex();
+		return queryRoads[i].getNearestPointOnReferenceLine(queryPositions[i]);
+	}
+
+
+	@Benchmark
+	public Object speedLimitListAhead()
+	{
+		int i = nextIndex();
+		return queryLanes[i].getSpeedLimitListAhead(false, queryLaneS[i], 1000, null);
+	}
+
+
+	@Benchmark
+	public Object intersectionListAhead()
+	{
+		int i = nextIndex();
+		return queryLanes[i].getIntersectionListAhead(false, queryLaneS[i], 500, null);
+	}
+
+
+	/**
+	 * Routing with previously computed routes (steady state of the simulation).
+	 */
+	@Benchmark
+	public PreferredConnections shortestPathCached()
+	{
+		int i = nextIndex();
+		return roadGraph.getShortestPath(routeStarts[i], routeTargets[i]);
+	}
+
+
+	/**
+	 * Routing on a new road graph (includes building the graph).
+	 */
+	@Benchmark
+	public PreferredConnections shortestPathUncached()
+	{
+		int i = nextIndex();
+		return new RoadGraph(roadMap, false).getShortestPath(routeStarts[i], routeTargets[i]);
+	}
+}
@@ -0,0 +1,116 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2023 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.opends.environment.XMLParser;
+
+/**
+ * Benchmarks of XMLParser on the messages received over the network (multi
+ * driver updates, CAN-bus and traffic light instructions) and on a driving
+ * task file.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XMLParserBenchmark
+{
+	private static final String canMessage = "<CAN><message><action name=\"steering\">-92</action></message>"
+			+ "<message><action name=\"acceleration\">0.5</action></message>"
+			+ "<message><action name=\"brake\">0.3</action></message></CAN>";
+
+	private static final String trafficLightMessage = "<TrafficLightControl>"
+			+ "<tlsstate timeR=\"41.00\" id=\"0\" programID=\"0\" phase=\"0\" state=\"GGGGrrrrGGGGrrrr\"/>"
+			+ "</TrafficLightControl>";
+
+	@Param({"assets/DrivingTasks/Projects/init_drive/scene.xml"})
+	public String xmlFile;
+
+	// number of vehicles contained in the multi driver update
+	@Param({"20"})
+	public int vehicles;
+
+	private File file;
+	private String multiDriverMessage;
+
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		file = new File(xmlFile);
+		if(!file.isFile())
+			throw new IllegalStateException("XMLParserBenchmark: file '" + xmlFile + "' not found");
+
+		StringBuilder builder = new StringBuilder("<multiDriver><update>");
+		for(int i=0; i<vehicles; i++)
+			builder.append("<change id=\"").append(i).append("\" pos=\"").append(10.5f * i).append(";0.3;")
+				.append(-4.25f * i).append("\" rot=\"0;0.7071;0;0.7071\" heading=\"").append(i % 360)
+				.append(".5\" wheel=\"0.12;").append(i).append(".4\" />");
+		builder.append("</update></multiDriver>");
+		multiDriverMessage = builder.toString();
+	}
+
+
+	@Benchmark
+	public XMLParser parseMultiDriverUpdate()
+	{
+		return new XMLParser(multiDriverMessage);
+	}
+
+
+	@Benchmark
+	public XMLParser parseCANMessage()
+	{
+		return new XMLParser(canMessage);
+	}
+
+
+	@Benchmark
+	public XMLParser parseTrafficLightMessage()
+	{
+		return new XMLParser(trafficLightMessage);
+	}
+
+
+	@Benchmark
+	public XMLParser parseFile()
+	{
+		return new XMLParser(file);
+	}
+}